@@ -0,0 +1,125 @@
+package kata.vending;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for Bank balance and change making.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankBenchmark {
+    /**
+     * A bank with plenty of every currency.
+     */
+    private Bank full;
+
+    /**
+     * A bank with only a few quarters.
+     */
+    private Bank quarters;
+
+    /**
+     * A bank of coins a customer might insert.
+     */
+    private Bank customer;
+
+    /**
+     * Set up the banks.
+     */
+    @Setup
+    public final void setUp() {
+        full = Fixtures.bank(Fixtures.STOCK);
+        quarters = new Bank()
+                .deposit(Currency.QUARTER)
+                .deposit(Currency.QUARTER)
+                .deposit(Currency.QUARTER);
+        customer = Fixtures.bank(1);
+    }
+
+    /**
+     * Balance of a full bank.
+     *
+     * @return the balance
+     */
+    @Benchmark
+    public final long calculateBalance() {
+        return full.calculateBalance();
+    }
+
+    /**
+     * Change that takes every denomination.
+     *
+     * @return the change
+     */
+    @Benchmark
+    public final Bank makeChange() {
+        return full.makeChange(Currency.QUARTER.getCents()
+                + Currency.DIME.getCents()
+                + Currency.NICKEL.getCents());
+    }
+
+    /**
+     * Change the bank can't make exactly.
+     *
+     * @return the change
+     */
+    @Benchmark
+    public final Bank makeChangeShort() {
+        return quarters.makeChange(Product.CANDY.getPrice());
+    }
+
+    /**
+     * Change for the most expensive product, as checkDisplay asks for.
+     *
+     * @return the change
+     */
+    @Benchmark
+    public final Bank makeChangeLarge() {
+        return full.makeChange(Product.COLA.getPrice());
+    }
+
+    /**
+     * Deposit one currency.
+     *
+     * @return the bank
+     */
+    @Benchmark
+    public final Bank depositCurrency() {
+        return full.deposit(Currency.DIME);
+    }
+
+    /**
+     * Deposit a customer bank into the machine bank.
+     *
+     * @return the bank
+     */
+    @Benchmark
+    public final Bank depositBank() {
+        return full.deposit(customer);
+    }
+
+    /**
+     * Withdraw a customer bank from the machine bank.
+     *
+     * @return the bank
+     */
+    @Benchmark
+    public final Bank withdrawBank() {
+        return full.withdraw(customer);
+    }
+}
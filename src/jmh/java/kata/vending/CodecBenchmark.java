@@ -0,0 +1,107 @@
+package kata.vending;
+
+import kata.vending.codec.BankSlot;
+import kata.vending.codec.MachineCodec;
+import kata.vending.codec.MachineDelta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the binary machine codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    /**
+     * The machine to encode.
+     */
+    private Machine machine;
+
+    /**
+     * A buffer holding one encoded machine.
+     */
+    private final ByteBuffer buffer =
+            ByteBuffer.allocateDirect(MachineCodec.SIZE);
+
+    /**
+     * The machine after a vend.
+     */
+    private Machine vended;
+
+    /**
+     * A buffer for one delta.
+     */
+    private final ByteBuffer delta =
+            ByteBuffer.allocateDirect(MachineDelta.MAX_SIZE);
+
+    /**
+     * Set up the machine and encode it once.
+     */
+    @Setup
+    public final void setUp() {
+        machine = Fixtures.stocked().insertCoin(Currency.DIME.getCoin());
+        MachineCodec.encode(machine, buffer, 0);
+        vended = machine.insertCoin(Currency.QUARTER.getCoin())
+                .insertCoin(Currency.QUARTER.getCoin())
+                .insertCoin(Currency.QUARTER.getCoin())
+                .vend(Product.CANDY);
+    }
+
+    /**
+     * Encode a whole machine.
+     *
+     * @return the buffer
+     */
+    @Benchmark
+    public final ByteBuffer encode() {
+        MachineCodec.encode(machine, buffer, 0);
+        return buffer;
+    }
+
+    /**
+     * Decode a whole machine.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine decode() {
+        return MachineCodec.decode(buffer, 0);
+    }
+
+    /**
+     * Read one count in place.
+     *
+     * @return the count
+     */
+    @Benchmark
+    public final int readQuarters() {
+        return MachineCodec.quantity(buffer, 0, BankSlot.MACHINE,
+                Currency.QUARTER);
+    }
+
+    /**
+     * Take the delta of a vend.
+     *
+     * @return the bytes written
+     */
+    @Benchmark
+    public final int encodeDelta() {
+        delta.clear();
+        return MachineDelta.encode(machine, vended, delta);
+    }
+}
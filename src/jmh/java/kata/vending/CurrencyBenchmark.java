@@ -0,0 +1,80 @@
+package kata.vending;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for coin classification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyBenchmark {
+    /**
+     * The first coin checked.
+     */
+    private final Coin nickel = Currency.NICKEL.getCoin();
+
+    /**
+     * The last known coin checked.
+     */
+    private final Coin quarter = Currency.QUARTER.getCoin();
+
+    /**
+     * A coin that falls all the way through to UNKNOWN.
+     */
+    private final Coin slug = new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+
+    /**
+     * Classify a nickel.
+     *
+     * @return the currency
+     */
+    @Benchmark
+    public final Currency toCurrencyNickel() {
+        return Currency.toCurrency(nickel);
+    }
+
+    /**
+     * Classify a quarter.
+     *
+     * @return the currency
+     */
+    @Benchmark
+    public final Currency toCurrencyQuarter() {
+        return Currency.toCurrency(quarter);
+    }
+
+    /**
+     * Classify an unknown coin.
+     *
+     * @return the currency
+     */
+    @Benchmark
+    public final Currency toCurrencyUnknown() {
+        return Currency.toCurrency(slug);
+    }
+
+    /**
+     * Sort the currencies, as every makeChange does.
+     *
+     * @return the sorted currencies
+     */
+    @Benchmark
+    public final SortedSet<Currency> descending() {
+        return Currency.descending();
+    }
+}
@@ -0,0 +1,83 @@
+package kata.vending;
+
+/**
+ * Machines and banks in the states the benchmarks care about.
+ */
+final class Fixtures {
+    /**
+     * How many of each currency and product a stocked machine starts with.
+     */
+    static final int STOCK = 10;
+
+    /**
+     * Utility class.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * A Bank holding some of each known currency.
+     *
+     * @param quantity how many of each currency
+     * @return the filled Bank
+     */
+    static Bank bank(final int quantity) {
+        Bank bank = new Bank();
+        for (Currency currency : Currency.descending()) {
+            for (int i = 0; i < quantity; i++) {
+                bank = bank.deposit(currency);
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * An Inventory holding some of each product.
+     *
+     * @param quantity how many of each product
+     * @return the filled Inventory
+     */
+    static Inventory<Product> inventory(final int quantity) {
+        Inventory<Product> inventory = new Inventory<>(Product.values());
+        for (Product product : Product.values()) {
+            for (int i = 0; i < quantity; i++) {
+                inventory = inventory.add(product);
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * A machine with a full bank and full inventory.
+     *
+     * @return the stocked machine
+     */
+    static Machine stocked() {
+        return new Machine.Builder()
+                .machineBank(bank(STOCK))
+                .inventory(inventory(STOCK))
+                .build();
+    }
+
+    /**
+     * A machine with a full inventory but no coins to make change with.
+     *
+     * @return the machine that can only take exact change
+     */
+    static Machine exactChangeOnly() {
+        return new Machine.Builder()
+                .inventory(inventory(STOCK))
+                .build();
+    }
+
+    /**
+     * A machine with a full bank and nothing left to sell.
+     *
+     * @return the sold out machine
+     */
+    static Machine soldOut() {
+        return new Machine.Builder()
+                .machineBank(bank(STOCK))
+                .build();
+    }
+}
@@ -0,0 +1,126 @@
+package kata.vending;
+
+import kata.vending.codec.BankSlot;
+import kata.vending.fleet.FleetColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for fleet scans over Machine objects and over columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetColumnsBenchmark {
+    /**
+     * How many machines in the fleet.
+     */
+    @Param({"1000", "100000"})
+    private int fleetSize;
+
+    /**
+     * The fleet as objects.
+     */
+    private List<Machine> fleet;
+
+    /**
+     * The fleet as columns.
+     */
+    private FleetColumns columns;
+
+    /**
+     * Build a fleet alternating stocked and exact change only machines.
+     */
+    @Setup
+    public final void setUp() {
+        fleet = new ArrayList<>(fleetSize);
+        for (int i = 0; i < fleetSize; i++) {
+            if (i % 2 == 0) {
+                fleet.add(Fixtures.stocked());
+            } else {
+                fleet.add(Fixtures.exactChangeOnly());
+            }
+        }
+        columns = FleetColumns.of(fleet);
+    }
+
+    /**
+     * Build the columns.
+     *
+     * @return the columns
+     */
+    @Benchmark
+    public final FleetColumns build() {
+        return FleetColumns.of(fleet);
+    }
+
+    /**
+     * Total quarters by walking the machines.
+     *
+     * @return the total
+     */
+    @Benchmark
+    public final long quartersByMachine() {
+        long total = 0L;
+        for (Machine machine : fleet) {
+            total += machine.getMachineBank().getInventory()
+                    .quantity(Currency.QUARTER);
+        }
+        return total;
+    }
+
+    /**
+     * Total quarters from the columns.
+     *
+     * @return the total
+     */
+    @Benchmark
+    public final long quartersByColumn() {
+        return columns.total(BankSlot.MACHINE, Currency.QUARTER);
+    }
+
+    /**
+     * Find machines short of change for candy by walking the machines.
+     *
+     * @return the machines
+     */
+    @Benchmark
+    public final BitSet noChangeByMachine() {
+        final long price = Product.CANDY.getPrice();
+        final BitSet found = new BitSet();
+        for (int i = 0; i < fleetSize; i++) {
+            if (fleet.get(i).getMachineBank().makeChange(price)
+                    .calculateBalance() != price) {
+                found.set(i);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find machines short of change for candy from the columns.
+     *
+     * @return the machines
+     */
+    @Benchmark
+    public final BitSet noChangeByColumn() {
+        return columns.cannotMakeChange(Product.CANDY);
+    }
+}
@@ -0,0 +1,110 @@
+package kata.vending;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for Inventory arithmetic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+    /**
+     * A full product inventory.
+     */
+    private Inventory<Product> full;
+
+    /**
+     * One of each product.
+     */
+    private Inventory<Product> single;
+
+    /**
+     * An empty product inventory.
+     */
+    private Inventory<Product> empty;
+
+    /**
+     * Set up the inventories.
+     */
+    @Setup
+    public final void setUp() {
+        full = Fixtures.inventory(Fixtures.STOCK);
+        single = Fixtures.inventory(1);
+        empty = new Inventory<>(Product.values());
+    }
+
+    /**
+     * Add one item.
+     *
+     * @return the inventory
+     */
+    @Benchmark
+    public final Inventory<Product> addItem() {
+        return full.add(Product.CHIPS);
+    }
+
+    /**
+     * Add a whole inventory.
+     *
+     * @return the inventory
+     */
+    @Benchmark
+    public final Inventory<Product> addInventory() {
+        return full.add(single);
+    }
+
+    /**
+     * Subtract one item.
+     *
+     * @return the inventory
+     */
+    @Benchmark
+    public final Inventory<Product> subtractItem() {
+        return full.subtract(Product.CHIPS);
+    }
+
+    /**
+     * Subtract an item that isn't there.
+     *
+     * @return the inventory
+     */
+    @Benchmark
+    public final Inventory<Product> subtractItemFromEmpty() {
+        return empty.subtract(Product.CHIPS);
+    }
+
+    /**
+     * Subtract a whole inventory.
+     *
+     * @return the inventory
+     */
+    @Benchmark
+    public final Inventory<Product> subtractInventory() {
+        return full.subtract(single);
+    }
+
+    /**
+     * Look up a quantity.
+     *
+     * @return the quantity
+     */
+    @Benchmark
+    public final int quantity() {
+        return full.quantity(Product.CANDY);
+    }
+}
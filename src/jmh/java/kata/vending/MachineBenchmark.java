@@ -0,0 +1,265 @@
+package kata.vending;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for single Machine operations and whole customer sessions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MachineBenchmark {
+    /**
+     * Nickel coin.
+     */
+    private final Coin nickel = Currency.NICKEL.getCoin();
+
+    /**
+     * Dime coin.
+     */
+    private final Coin dime = Currency.DIME.getCoin();
+
+    /**
+     * Quarter coin.
+     */
+    private final Coin quarter = Currency.QUARTER.getCoin();
+
+    /**
+     * A coin the machine doesn't recognize.
+     */
+    private final Coin slug = new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+
+    /**
+     * Machine with a full bank and full inventory.
+     */
+    private Machine stocked;
+
+    /**
+     * Machine with a full inventory and an empty bank.
+     */
+    private Machine exactChangeOnly;
+
+    /**
+     * Machine with a full bank and an empty inventory.
+     */
+    private Machine soldOut;
+
+    /**
+     * Stocked machine with a dollar in quarters already inserted.
+     */
+    private Machine dollarInserted;
+
+    /**
+     * Set up the machines.
+     */
+    @Setup
+    public final void setUp() {
+        stocked = Fixtures.stocked();
+        exactChangeOnly = Fixtures.exactChangeOnly();
+        soldOut = Fixtures.soldOut();
+        dollarInserted = stocked
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter);
+    }
+
+    /**
+     * Insert one valid coin.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine insertCoin() {
+        return stocked.insertCoin(quarter);
+    }
+
+    /**
+     * Insert one coin that gets routed to the coin return.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine insertUnknownCoin() {
+        return stocked.insertCoin(slug);
+    }
+
+    /**
+     * Return the inserted coins.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine returnCoins() {
+        return dollarInserted.returnCoins();
+    }
+
+    /**
+     * Check the display of a machine that can make change.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine checkDisplay() {
+        return stocked.checkDisplay();
+    }
+
+    /**
+     * Check the display of a machine that needs exact change.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine checkDisplayExactChangeOnly() {
+        return exactChangeOnly.checkDisplay();
+    }
+
+    /**
+     * Check the display with a customer balance.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine checkDisplayWithBalance() {
+        return dollarInserted.checkDisplay();
+    }
+
+    /**
+     * Vend with exact payment.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine vendExact() {
+        return dollarInserted.vend(Product.COLA);
+    }
+
+    /**
+     * Vend with change due.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine vendWithChange() {
+        return dollarInserted.vend(Product.CANDY);
+    }
+
+    /**
+     * Vend without enough money.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine vendInsufficientFunds() {
+        return stocked.vend(Product.COLA);
+    }
+
+    /**
+     * Vend a product that is sold out.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine vendSoldOut() {
+        return soldOut.vend(Product.CHIPS);
+    }
+
+    /**
+     * A customer paying for cola with quarters.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine sessionExactPurchase() {
+        return stocked
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.COLA)
+                .checkDisplay();
+    }
+
+    /**
+     * A customer buying candy with mixed coins, a slug, and change due.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine sessionPurchaseWithChange() {
+        return stocked
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(slug)
+                .insertCoin(dime)
+                .insertCoin(quarter)
+                .insertCoin(nickel)
+                .insertCoin(quarter)
+                .vend(Product.CANDY)
+                .checkDisplay();
+    }
+
+    /**
+     * A customer who checks the price, comes up short and gets their coins
+     * back.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine sessionChangeOfMind() {
+        return stocked
+                .vend(Product.COLA)
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(dime)
+                .checkDisplay()
+                .returnCoins()
+                .checkDisplay();
+    }
+
+    /**
+     * A customer at a machine that needs exact change, paying exactly.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine sessionExactChangeOnly() {
+        return exactChangeOnly
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CHIPS)
+                .checkDisplay();
+    }
+
+    /**
+     * A customer at a sold out machine who gives up.
+     *
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine sessionSoldOut() {
+        return soldOut
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CHIPS)
+                .checkDisplay()
+                .returnCoins()
+                .checkDisplay();
+    }
+}
@@ -0,0 +1,76 @@
+package kata.vending;
+
+import kata.vending.metrics.LatencyHistogram;
+import kata.vending.metrics.MetricsRegistry;
+import kata.vending.metrics.StripedCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended recording into the metrics registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MetricsBenchmark {
+    /**
+     * Shared counter.
+     */
+    private final StripedCounter counter = new StripedCounter();
+
+    /**
+     * Shared histogram.
+     */
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Shared registry, fed directly rather than through a machine.
+     */
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    /**
+     * Change given for a vend.
+     */
+    private final Bank change = new Bank()
+            .deposit(Currency.DIME)
+            .deposit(Currency.NICKEL);
+
+    /**
+     * Bump the counter.
+     */
+    @Benchmark
+    public final void counterIncrement() {
+        counter.increment();
+    }
+
+    /**
+     * Record a latency.
+     */
+    @Benchmark
+    public final void histogramRecord() {
+        histogram.record(1234L);
+    }
+
+    /**
+     * Record a vend with change.
+     */
+    @Benchmark
+    public final void registryVend() {
+        registry.onOperation(Operation.VEND, Outcome.VENDED,
+                Product.CANDY.getPrice(), Product.CANDY, null, change, 950L);
+    }
+}
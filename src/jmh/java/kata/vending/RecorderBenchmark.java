@@ -0,0 +1,118 @@
+package kata.vending;
+
+import kata.vending.recorder.FlightRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same customer session with the flight recorder off and on, to keep an
+ * eye on what reporting operations costs.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecorderBenchmark {
+    /**
+     * A stocked machine with nobody listening.
+     */
+    @State(Scope.Thread)
+    public static class Off {
+        /**
+         * The machine.
+         */
+        private Machine machine;
+
+        /**
+         * Set up the machine.
+         */
+        @Setup
+        public final void setUp() {
+            machine = Fixtures.stocked();
+        }
+    }
+
+    /**
+     * A stocked machine with the flight recorder running.
+     */
+    @State(Scope.Thread)
+    public static class On {
+        /**
+         * The machine.
+         */
+        private Machine machine;
+
+        /**
+         * The recorder.
+         */
+        private final FlightRecorder recorder = new FlightRecorder(1024, 0L);
+
+        /**
+         * Set up the machine and start recording.
+         */
+        @Setup
+        public final void setUp() {
+            machine = Fixtures.stocked();
+            recorder.start();
+        }
+
+        /**
+         * Stop recording.
+         */
+        @TearDown
+        public final void tearDown() {
+            recorder.stop();
+        }
+    }
+
+    /**
+     * Buy candy with change due.
+     *
+     * @param machine the machine to use
+     * @return the machine
+     */
+    private static Machine session(final Machine machine) {
+        final Coin quarter = Currency.QUARTER.getCoin();
+        return machine
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CANDY)
+                .checkDisplay();
+    }
+
+    /**
+     * Session with the recorder off.
+     *
+     * @param off the state
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine recorderOff(final Off off) {
+        return session(off.machine);
+    }
+
+    /**
+     * Session with the recorder on.
+     *
+     * @param on the state
+     * @return the machine
+     */
+    @Benchmark
+    public final Machine recorderOn(final On on) {
+        return session(on.machine);
+    }
+}
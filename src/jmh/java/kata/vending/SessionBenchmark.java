@@ -0,0 +1,148 @@
+package kata.vending;
+
+import kata.vending.session.CompiledSession;
+import kata.vending.session.SessionTables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for customer sessions run from compiled tables, to set against
+ * the session benchmarks in MachineBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBenchmark {
+    /**
+     * Enough stock not to sell out during an iteration.
+     */
+    private static final int STOCK = 1 << 30;
+
+    /**
+     * Nickel coin.
+     */
+    private final Coin nickel = Currency.NICKEL.getCoin();
+
+    /**
+     * Dime coin.
+     */
+    private final Coin dime = Currency.DIME.getCoin();
+
+    /**
+     * Quarter coin.
+     */
+    private final Coin quarter = Currency.QUARTER.getCoin();
+
+    /**
+     * A coin the machine doesn't recognize.
+     */
+    private final Coin slug = new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+
+    /**
+     * Session on a machine with change and plenty of stock.
+     */
+    private CompiledSession stocked;
+
+    /**
+     * Session on a machine with plenty of stock and no change.
+     */
+    private CompiledSession exactChangeOnly;
+
+    /**
+     * Set up the sessions.
+     */
+    @Setup(Level.Iteration)
+    public final void setUp() {
+        final SessionTables tables = SessionTables.standard();
+        stocked = tables.open(new Machine.Builder()
+                .machineBank(Fixtures.bank(Fixtures.STOCK))
+                .inventory(Fixtures.inventory(STOCK))
+                .build());
+        exactChangeOnly = tables.open(new Machine.Builder()
+                .inventory(Fixtures.inventory(STOCK))
+                .build());
+    }
+
+    /**
+     * A customer paying for cola with quarters.
+     *
+     * @return the session
+     */
+    @Benchmark
+    public final CompiledSession sessionExactPurchase() {
+        return stocked
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.COLA)
+                .checkDisplay();
+    }
+
+    /**
+     * A customer buying candy with mixed coins, a slug, and change due.
+     *
+     * @return the session
+     */
+    @Benchmark
+    public final CompiledSession sessionPurchaseWithChange() {
+        return stocked
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(slug)
+                .insertCoin(dime)
+                .insertCoin(quarter)
+                .insertCoin(nickel)
+                .insertCoin(quarter)
+                .vend(Product.CANDY)
+                .checkDisplay();
+    }
+
+    /**
+     * A customer who checks the price, comes up short and gets their coins
+     * back.
+     *
+     * @return the session
+     */
+    @Benchmark
+    public final CompiledSession sessionChangeOfMind() {
+        return stocked
+                .vend(Product.COLA)
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(dime)
+                .checkDisplay()
+                .returnCoins()
+                .checkDisplay();
+    }
+
+    /**
+     * A customer at a machine that needs exact change, paying exactly.
+     *
+     * @return the session
+     */
+    @Benchmark
+    public final CompiledSession sessionExactChangeOnly() {
+        return exactChangeOnly
+                .checkDisplay()
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CHIPS)
+                .checkDisplay();
+    }
+}
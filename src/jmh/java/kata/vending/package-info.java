@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks for the vending machine code.
+ */
+package kata.vending;
@@ -29,6 +29,19 @@ public final class Bank {
         return balance;
     }
 
+    /**
+     * Count the coins held, whatever their currency.
+     *
+     * @return the number of coins in the bank
+     */
+    public int countCoins() {
+        int count = 0;
+        for (Currency currency : Currency.values()) {
+            count += inventory.quantity(currency);
+        }
+        return count;
+    }
+
     /**
      * Create a bank made up of currencies from this bank that add up as close
      * as possible to the change amount requested.  Exact change is not
@@ -39,6 +52,7 @@ public final class Bank {
      * @return a bank of change made from as much currency that could be used
      */
     public Bank makeChange(final long amount) {
+        final long start = Operations.start();
         long change = amount;
         Bank changeBank = new Bank();
         final SortedSet<Currency> descending = Currency.descending();
@@ -51,6 +65,12 @@ public final class Bank {
                 changeBank = changeBank.deposit(largest);
             }
         }
+        Outcome outcome = Outcome.FULL_CHANGE;
+        if (change > 0) {
+            outcome = Outcome.SHORT_CHANGE;
+        }
+        Operations.record(Operation.MAKE_CHANGE, outcome, amount, null, null,
+                changeBank, start);
         return changeBank;
     }
 
@@ -96,6 +116,20 @@ public final class Bank {
         return new Bank(inventory.add(currency));
     }
 
+    /**
+     * Deposit a number of the same currency into this Bank.
+     *
+     * @param currency incoming currency
+     * @param quantity how many of it
+     * @return new Bank with this Bank's currencies, incoming currencies
+     */
+    public Bank deposit(final Currency currency, final int quantity) {
+        if (currency == null || quantity <= 0) {
+            return this;
+        }
+        return new Bank(inventory.add(currency, quantity));
+    }
+
     /**
      * Withdraws the currencies from the passed in Bank from this Bank.  If
      * there aren't enough of any particular currency, set the quantity to 0.
@@ -1 +1 @@
-package kata.vending;import java.util.Objects;/** * Coin class used to represent an idea of a coin. * Immutable. */public final class Coin {    /**     * Possible coin sizes.     */    public enum Size {        /**         * Small.         */        SMALL,        /**         * Medium.         */        MEDIUM,        /**         * Large.         */        LARGE    }    /**     * Possible coin weights.     */    public enum Weight {        /**         * Light.         */        LIGHT,        /**         * Heavy.         */        HEAVY    }    /**     * The size of the coin.     */    private final Coin.Size size;    /**     * The weight of the coin.     */    private final Coin.Weight weight;    /**     * Coin constructor.     *     * @param size   size of the coin     * @param weight weight of the coin     */    public Coin(final Coin.Size size, final Coin.Weight weight) {        this.size = size;        this.weight = weight;    }    @Override    public boolean equals(final Object coin) {        return coin instanceof Coin                && this.size == ((Coin) coin).size                && this.weight == ((Coin) coin).weight;    }    @Override    public int hashCode() {        return Objects.hash(this.size, this.weight);    }}
\ No newline at end of file
+package kata.vending;import java.util.Objects;/** * Coin class used to represent an idea of a coin. * Immutable. */public final class Coin {    /**     * Possible coin sizes.     */    public enum Size {        /**         * Small.         */        SMALL,        /**         * Medium.         */        MEDIUM,        /**         * Large.         */        LARGE    }    /**     * Possible coin weights.     */    public enum Weight {        /**         * Light.         */        LIGHT,        /**         * Heavy.         */        HEAVY    }    /**     * The size of the coin.     */    private final Coin.Size size;    public Coin.Size getSize() {        return size;    }    /**     * The weight of the coin.     */    private final Coin.Weight weight;    public Coin.Weight getWeight() {        return weight;    }    /**     * Coin constructor.     *     * @param size   size of the coin     * @param weight weight of the coin     */    public Coin(final Coin.Size size, final Coin.Weight weight) {        this.size = size;        this.weight = weight;    }    @Override    public boolean equals(final Object coin) {        return coin instanceof Coin                && this.size == ((Coin) coin).size                && this.weight == ((Coin) coin).weight;    }    @Override    public int hashCode() {        return Objects.hash(this.size, this.weight);    }}
\ No newline at end of file
@@ -66,6 +66,22 @@ public final class Inventory<T extends Enum> {
         return new Inventory<T>(enums, Collections.unmodifiableMap(freshMap));
     }
 
+    /**
+     * Add a number of the same item to the Inventory.
+     *
+     * @param item     the item to add
+     * @param quantity how many to add
+     * @return an Inventory with the items added
+     */
+    public Inventory<T> add(final T item, final int quantity) {
+        if (item == null || quantity <= 0) {
+            return this;
+        }
+        final HashMap<T, Integer> freshMap = new HashMap<>(items);
+        freshMap.put(item, items.get(item) + quantity);
+        return new Inventory<T>(enums, Collections.unmodifiableMap(freshMap));
+    }
+
     /**
      * Add the entirety of an Inventory to this Inventory.
      *
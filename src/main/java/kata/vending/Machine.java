@@ -183,24 +183,6 @@ public final class Machine {
         }
     }
 
-    /**
-     * Return the passed in balance as a formatted currency String.
-     *
-     * @param balance the balance to turn into a String
-     * @return the formatted balance String with a dollar sign
-     */
-    private String balanceAsString(final long balance) {
-        final int oneDollar = 100;
-        final int tenCents = 10;
-        final long dollars = balance / oneDollar;
-        final long cents = balance % oneDollar;
-        String lower = Long.toString(cents);
-        if (cents < tenCents) {
-            lower = '0' + lower;
-        }
-        return "$" + Long.toString(dollars) + '.' + lower;
-    }
-
     /**
      * Insert a coin into the vending machine.
      *
@@ -208,16 +190,22 @@ public final class Machine {
      * @return a vending machine with the coin inserted
      */
     public Machine insertCoin(final Coin coin) {
+        final long start = Operations.start();
         final Builder builder = new Builder(this);
         final Currency currency = Currency.toCurrency(coin);
+        Outcome outcome = Outcome.ACCEPTED;
         if (currency == Currency.UNKNOWN) {
             builder.coinReturn(coinReturn.deposit(currency));
+            outcome = Outcome.REJECTED;
         } else {
             final Bank updated = customerBank.deposit(currency);
             builder.customerBank(updated);
-            builder.display(balanceAsString(updated.calculateBalance()));
+            builder.display(Currency.format(updated.calculateBalance()));
         }
-        return builder.build();
+        final Machine machine = builder.build();
+        Operations.record(Operation.INSERT_COIN, outcome, currency.getCents(),
+                null, currency, null, start);
+        return machine;
     }
 
     /**
@@ -226,12 +214,17 @@ public final class Machine {
      * @return Machine with appropriate coin return and customer bank
      */
     public Machine returnCoins() {
+        final long start = Operations.start();
         final Bank newCustomerBank = new Bank();
-        return new Builder(this)
+        final Machine machine = new Builder(this)
                 .coinReturn(coinReturn.deposit(customerBank))
                 .customerBank(newCustomerBank)
-                .display(balanceAsString(newCustomerBank.calculateBalance()))
+                .display(Currency.format(newCustomerBank.calculateBalance()))
                 .build();
+        Operations.record(Operation.RETURN_COINS, Outcome.RETURNED,
+                customerBank.calculateBalance(), null, null, customerBank,
+                start);
+        return machine;
     }
 
     /**
@@ -240,13 +233,19 @@ public final class Machine {
      * @return true if the Machine can make change, false if it can't
      */
     private boolean canMakeChange() {
+        final long start = Operations.start();
         for (Product product : Product.values()) {
             final long price = product.getPrice();
             final Bank changeAttempt = machineBank.makeChange(price);
             if (changeAttempt.calculateBalance() != price) {
+                Operations.record(Operation.CAN_MAKE_CHANGE,
+                        Outcome.EXACT_CHANGE, price, product, null, null,
+                        start);
                 return false;
             }
         }
+        Operations.record(Operation.CAN_MAKE_CHANGE, Outcome.CHANGE_AVAILABLE,
+                0L, null, null, null, start);
         return true;
     }
 
@@ -258,17 +257,24 @@ public final class Machine {
      * @return a Machine with the display having been checked
      */
     public Machine checkDisplay() {
+        final long start = Operations.start();
         final Builder builder = new Builder(this);
         final long balance = customerBank.calculateBalance();
+        Outcome outcome = Outcome.BALANCE;
         if (balance == 0) {
             builder.display(Message.INSERT_COIN.getText());
+            outcome = Outcome.INSERT_COIN;
             if (!canMakeChange()) {
                 builder.display(Message.EXACT_CHANGE.getText());
+                outcome = Outcome.EXACT_CHANGE;
             }
         } else {
-            builder.display(balanceAsString(balance));
+            builder.display(Currency.format(balance));
         }
-        return builder.build();
+        final Machine machine = builder.build();
+        Operations.record(Operation.CHECK_DISPLAY, outcome, balance, null,
+                null, null, start);
+        return machine;
     }
 
     /**
@@ -278,17 +284,23 @@ public final class Machine {
      * @return a new machine with properties appropriately adjusted
      */
     public Machine vend(final Product product) {
+        final long start = Operations.start();
         final Builder builder = new Builder(this);
         if (inventory.quantity(product) <= 0) {
             builder.display(Message.SOLD_OUT.getText());
-            return builder.build();
+            final Machine machine = builder.build();
+            Operations.record(Operation.VEND, Outcome.SOLD_OUT, 0L, product,
+                    null, null, start);
+            return machine;
         }
         final long balance = customerBank.calculateBalance();
         final long price = product.getPrice();
+        Bank changeBank = null;
+        Outcome outcome = Outcome.INSUFFICIENT_FUNDS;
         if (balance >= price) {
             final long change = balance - price;
             final Bank combined = machineBank.deposit(customerBank);
-            final Bank changeBank = combined.makeChange(change);
+            changeBank = combined.makeChange(change);
             final Bank withdrawn = combined.withdraw(changeBank);
             builder
                     .machineBank(withdrawn)
@@ -296,10 +308,51 @@ public final class Machine {
                     .coinReturn(changeBank)
                     .inventory(inventory.subtract(product))
                     .display(Message.THANK_YOU.getText());
+            outcome = Outcome.VENDED;
+        } else {
+            builder.display(Message.PRICE.getText()
+                    + " " + Currency.format(product.getPrice()));
+        }
+        final Machine machine = builder.build();
+        Operations.record(Operation.VEND, outcome, price, product, null,
+                changeBank, start);
+        return machine;
+    }
+
+    /**
+     * Vends a product from the Machine, paid for with a tender instead of
+     * the customer bank.  Any coins the customer has inserted stay where they
+     * are, and nothing goes into the machine bank or the coin return.  The
+     * tender is not asked to pay for a sold out product.
+     *
+     * @param product the product to dispense
+     * @param tender  what pays for the product
+     * @return a new machine with properties appropriately adjusted
+     */
+    public Machine vend(final Product product, final Tender tender) {
+        final long start = Operations.start();
+        final Builder builder = new Builder(this);
+        if (inventory.quantity(product) <= 0) {
+            builder.display(Message.SOLD_OUT.getText());
+            final Machine machine = builder.build();
+            Operations.record(Operation.VEND, Outcome.SOLD_OUT, 0L, product,
+                    null, null, start);
+            return machine;
+        }
+        final long price = product.getPrice();
+        Outcome outcome = Outcome.INSUFFICIENT_FUNDS;
+        if (tender != null && tender.charge(product, price)) {
+            builder
+                    .inventory(inventory.subtract(product))
+                    .display(Message.THANK_YOU.getText());
+            outcome = Outcome.VENDED;
         } else {
             builder.display(Message.PRICE.getText()
-                    + " " + balanceAsString(product.getPrice()));
+                    + " " + Currency.format(price));
         }
-        return builder.build();
+        final Machine machine = builder.build();
+        Operations.record(Operation.VEND, outcome, price, product, null,
+                null, start);
+        return machine;
     }
 }
@@ -0,0 +1,36 @@
+package kata.vending;
+
+/**
+ * The machine operations that are reported to operation listeners.
+ */
+public enum Operation {
+    /**
+     * Machine.insertCoin.
+     */
+    INSERT_COIN,
+
+    /**
+     * Machine.returnCoins.
+     */
+    RETURN_COINS,
+
+    /**
+     * Machine.vend.
+     */
+    VEND,
+
+    /**
+     * Machine.checkDisplay.
+     */
+    CHECK_DISPLAY,
+
+    /**
+     * The exact change check done while checking the display.
+     */
+    CAN_MAKE_CHANGE,
+
+    /**
+     * Bank.makeChange.
+     */
+    MAKE_CHANGE
+}
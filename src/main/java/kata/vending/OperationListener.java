@@ -0,0 +1,24 @@
+package kata.vending;
+
+/**
+ * Receives machine operations as they complete.  Listeners are called on the
+ * thread doing the operation, so they should be quick and should not throw;
+ * one that does is counted by Operations and doesn't affect the machine.
+ * Any argument that doesn't apply to the operation is null (or 0).
+ */
+public interface OperationListener {
+    /**
+     * Called when an operation completes.
+     *
+     * @param operation the operation
+     * @param outcome   how it turned out
+     * @param amount    the amount (in cents) the operation dealt with
+     * @param product   the product involved
+     * @param currency  the currency involved
+     * @param coins     the coins that changed hands
+     * @param nanos     how long the operation took
+     */
+    void onOperation(Operation operation, Outcome outcome, long amount,
+                     Product product, Currency currency, Bank coins,
+                     long nanos);
+}
@@ -0,0 +1,129 @@
+package kata.vending;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where operation listeners are registered.  With no listeners (the default)
+ * reporting an operation costs a volatile read and nothing else.
+ * <p/>
+ * A listener that throws is counted and otherwise ignored, and the
+ * listeners after it are still called, so instrumentation never changes
+ * what a machine does.
+ */
+public final class Operations {
+    /**
+     * The registered listeners.  Copied on write.
+     */
+    private static volatile OperationListener[] listeners =
+            new OperationListener[0];
+
+    /**
+     * How many times a listener has thrown.
+     */
+    private static final AtomicLong FAILURES = new AtomicLong();
+
+    /**
+     * Utility class.
+     */
+    private Operations() {
+    }
+
+    /**
+     * Register a listener for every machine operation.
+     *
+     * @param listener the listener to add
+     */
+    public static synchronized void addListener(
+            final OperationListener listener) {
+        if (listener == null) {
+            return;
+        }
+        final OperationListener[] current = listeners;
+        final OperationListener[] added =
+                Arrays.copyOf(current, current.length + 1);
+        added[current.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public static synchronized void removeListener(
+            final OperationListener listener) {
+        final OperationListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                final OperationListener[] removed =
+                        new OperationListener[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i,
+                        removed.length - i);
+                listeners = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether anybody is listening.
+     *
+     * @return true if at least one listener is registered
+     */
+    public static boolean isEnabled() {
+        return listeners.length > 0;
+    }
+
+    /**
+     * How many times a listener has thrown since the class was loaded.
+     *
+     * @return the count
+     */
+    public static long getListenerFailures() {
+        return FAILURES.get();
+    }
+
+    /**
+     * Mark the start of an operation.
+     *
+     * @return the start time, or 0 if nobody is listening
+     */
+    static long start() {
+        if (listeners.length == 0) {
+            return 0L;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Report a finished operation to the listeners.  Does nothing if nobody
+     * was listening when the operation started.
+     *
+     * @param operation the operation
+     * @param outcome   how it turned out
+     * @param amount    the amount (in cents) the operation dealt with
+     * @param product   the product involved
+     * @param currency  the currency involved
+     * @param coins     the coins that changed hands
+     * @param start     what start returned for the operation
+     */
+    static void record(final Operation operation, final Outcome outcome,
+                       final long amount, final Product product,
+                       final Currency currency, final Bank coins,
+                       final long start) {
+        if (start == 0L) {
+            return;
+        }
+        final long nanos = System.nanoTime() - start;
+        for (OperationListener listener : listeners) {
+            try {
+                listener.onOperation(operation, outcome, amount, product,
+                        currency, coins, nanos);
+            } catch (RuntimeException e) {
+                FAILURES.incrementAndGet();
+            }
+        }
+    }
+}
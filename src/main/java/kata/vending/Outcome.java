@@ -0,0 +1,66 @@
+package kata.vending;
+
+/**
+ * How a reported machine operation turned out.
+ */
+public enum Outcome {
+    /**
+     * A coin was classified and added to the customer balance.
+     */
+    ACCEPTED,
+
+    /**
+     * A coin wasn't recognized and went to the coin return.
+     */
+    REJECTED,
+
+    /**
+     * The customer's coins went to the coin return.
+     */
+    RETURNED,
+
+    /**
+     * A product was dispensed.
+     */
+    VENDED,
+
+    /**
+     * The product asked for was sold out.
+     */
+    SOLD_OUT,
+
+    /**
+     * The customer balance didn't cover the price.
+     */
+    INSUFFICIENT_FUNDS,
+
+    /**
+     * The display asks for a coin.
+     */
+    INSERT_COIN,
+
+    /**
+     * The display shows the customer balance.
+     */
+    BALANCE,
+
+    /**
+     * The machine can't make change for at least one product.
+     */
+    EXACT_CHANGE,
+
+    /**
+     * The machine can make change for every product.
+     */
+    CHANGE_AVAILABLE,
+
+    /**
+     * Change was made for the full amount.
+     */
+    FULL_CHANGE,
+
+    /**
+     * Change came up short of the amount asked for.
+     */
+    SHORT_CHANGE
+}
@@ -0,0 +1,17 @@
+package kata.vending;
+
+/**
+ * A way to pay for a product other than the coins in the customer bank, such
+ * as a card or wallet.  A tender is asked once per vend and either takes the
+ * whole price or nothing.
+ */
+public interface Tender {
+    /**
+     * Pay for a product.
+     *
+     * @param product the product being vended
+     * @param cents   the price to pay
+     * @return true if the price was paid, false if it was declined
+     */
+    boolean charge(Product product, long cents);
+}
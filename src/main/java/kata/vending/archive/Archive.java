@@ -0,0 +1,371 @@
+package kata.vending.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads an archive written by ArchiveWriter.  Opening reads only the chunk
+ * headers.  A scan skips every chunk whose statistics rule it out, and in
+ * the rest reads only the columns the query filters on that the statistics
+ * can't settle, plus the amounts.  Chunks are scanned in parallel.
+ * Thread safe.
+ */
+public final class Archive implements Closeable {
+    /**
+     * Pool the scans run in.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    /**
+     * The archive file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Every chunk, in file order.
+     */
+    private final Chunk[] chunks;
+
+    /**
+     * Archive constructor.
+     *
+     * @param channel the archive file
+     * @param chunks  its chunk headers
+     */
+    private Archive(final FileChannel channel, final Chunk[] chunks) {
+        this.channel = channel;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Open an archive and read its chunk headers.
+     *
+     * @param file the archive file
+     * @return the archive
+     * @throws IOException if it can't be read or isn't an archive
+     */
+    public static Archive open(final Path file) throws IOException {
+        final FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final List<Chunk> chunks = new ArrayList<>();
+            final long size = channel.size();
+            long position = 0L;
+            while (position < size) {
+                final Chunk chunk = new Chunk(position,
+                        read(channel, position, Chunk.HEADER_SIZE));
+                chunks.add(chunk);
+                position = chunk.end();
+            }
+            if (position != size) {
+                throw new IOException("archive truncated at " + size);
+            }
+            return new Archive(channel, chunks.toArray(new Chunk[0]));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * How many chunks the archive has.
+     *
+     * @return the chunk count
+     */
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * How many events the archive holds.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        long rows = 0L;
+        for (Chunk chunk : chunks) {
+            rows += chunk.getRows();
+        }
+        return rows;
+    }
+
+    /**
+     * Count the events a query matches and sum their amounts.
+     *
+     * @param query the query
+     * @return what was found
+     * @throws IOException if the archive can't be read
+     */
+    public ScanResult scan(final ArchiveQuery query) throws IOException {
+        if (chunks.length == 0) {
+            return ScanResult.EMPTY;
+        }
+        try {
+            return POOL.invoke(new Scan(query, 0, chunks.length));
+        } catch (ScanFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Scan one chunk.
+     *
+     * @param chunk the chunk
+     * @param query the query
+     * @return what was found
+     * @throws IOException if the chunk can't be read
+     */
+    private ScanResult scan(final Chunk chunk, final ArchiveQuery query)
+            throws IOException {
+        if (!mayMatch(chunk, query)) {
+            return new ScanResult(0L, 0L, 0, 1, 0L);
+        }
+        final int rows = chunk.getRows();
+        final boolean[] keep = new boolean[rows];
+        Arrays.fill(keep, true);
+        long bytes = 0L;
+        if (query.getFrom() > chunk.getMinTime()
+                || query.getTo() <= chunk.getMaxTime()) {
+            final long[] times = new long[rows];
+            Encoding.readDeltas(read(chunk, Column.TIME), rows, times);
+            for (int i = 0; i < rows; i++) {
+                keep[i] &= times[i] >= query.getFrom()
+                        && times[i] < query.getTo();
+            }
+            bytes += chunk.length(Column.TIME);
+        }
+        if (query.getFirstMachine() > chunk.getMinMachine()
+                || query.getLastMachine() < chunk.getMaxMachine()) {
+            final long[] machines = new long[rows];
+            Encoding.unpack(read(chunk, Column.MACHINE), rows,
+                    chunk.getMinMachine(), Encoding.width(
+                            (long) chunk.getMaxMachine()
+                                    - chunk.getMinMachine()), machines);
+            for (int i = 0; i < rows; i++) {
+                keep[i] &= machines[i] >= query.getFirstMachine()
+                        && machines[i] <= query.getLastMachine();
+            }
+            bytes += chunk.length(Column.MACHINE);
+        }
+        if (query.getOutcome() != null) {
+            bytes += filter(chunk, Column.OUTCOME, chunk.getOutcomes(),
+                    query.getOutcome().ordinal(), keep);
+        }
+        if (query.getProduct() != null) {
+            bytes += filter(chunk, Column.PRODUCT, chunk.getProducts(),
+                    Codes.of(query.getProduct()), keep);
+        }
+        if (query.getCurrency() != null) {
+            bytes += filter(chunk, Column.CURRENCY, chunk.getCurrencies(),
+                    Codes.of(query.getCurrency()), keep);
+        }
+        long matched = 0L;
+        for (boolean kept : keep) {
+            if (kept) {
+                matched++;
+            }
+        }
+        long amount = matched * chunk.getMinAmount();
+        if (matched > 0 && chunk.getMinAmount() != chunk.getMaxAmount()) {
+            final long[] amounts = new long[rows];
+            Encoding.unpack(read(chunk, Column.AMOUNT), rows,
+                    chunk.getMinAmount(), Encoding.width(
+                            chunk.getMaxAmount() - chunk.getMinAmount()),
+                    amounts);
+            amount = 0L;
+            for (int i = 0; i < rows; i++) {
+                if (keep[i]) {
+                    amount += amounts[i];
+                }
+            }
+            bytes += chunk.length(Column.AMOUNT);
+        }
+        return new ScanResult(matched, amount, 1, 0, bytes);
+    }
+
+    /**
+     * Whether a chunk's statistics allow it to hold a match.
+     *
+     * @param chunk the chunk
+     * @param query the query
+     * @return false if the chunk can be skipped
+     */
+    private static boolean mayMatch(final Chunk chunk,
+                                    final ArchiveQuery query) {
+        return chunk.getMaxTime() >= query.getFrom()
+                && chunk.getMinTime() < query.getTo()
+                && chunk.getMaxMachine() >= query.getFirstMachine()
+                && chunk.getMinMachine() <= query.getLastMachine()
+                && (query.getOutcome() == null || has(chunk.getOutcomes(),
+                        query.getOutcome().ordinal()))
+                && (query.getProduct() == null || has(chunk.getProducts(),
+                        Codes.of(query.getProduct())))
+                && (query.getCurrency() == null || has(chunk.getCurrencies(),
+                        Codes.of(query.getCurrency())));
+    }
+
+    /**
+     * Whether a code appears in a chunk.
+     *
+     * @param seen the codes in the chunk, as bits
+     * @param code the code
+     * @return true if it appears
+     */
+    private static boolean has(final int seen, final int code) {
+        return (seen & 1 << code) != 0;
+    }
+
+    /**
+     * Drop rows whose code isn't the one wanted.  Doesn't read the column if
+     * every row in the chunk has that code.
+     *
+     * @param chunk the chunk
+     * @param column the code column
+     * @param seen   the codes in the chunk, as bits
+     * @param code   the code wanted
+     * @param keep   which rows still match
+     * @return the bytes read
+     * @throws IOException if the column can't be read
+     */
+    private int filter(final Chunk chunk, final Column column,
+                       final int seen, final int code, final boolean[] keep)
+            throws IOException {
+        if (seen == 1 << code) {
+            return 0;
+        }
+        final byte[] codes = new byte[keep.length];
+        Encoding.readRuns(read(chunk, column), keep.length, codes);
+        for (int i = 0; i < keep.length; i++) {
+            keep[i] &= codes[i] == code;
+        }
+        return chunk.length(column);
+    }
+
+    /**
+     * Read one column of a chunk.
+     *
+     * @param chunk  the chunk
+     * @param column the column
+     * @return the column bytes
+     * @throws IOException if it can't be read
+     */
+    private ByteBuffer read(final Chunk chunk, final Column column)
+            throws IOException {
+        return read(channel, chunk.offset(column), chunk.length(column));
+    }
+
+    /**
+     * Read bytes from a file without moving its position.
+     *
+     * @param channel  the file
+     * @param position where to read from
+     * @param length   how many bytes
+     * @return the bytes, ready to read
+     * @throws IOException if the file ends first
+     */
+    private static ByteBuffer read(final FileChannel channel,
+                                   final long position, final int length)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("archive truncated at "
+                        + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Carries an IOException out of the fork/join pool.
+     */
+    private static final class ScanFailure extends RuntimeException {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * ScanFailure constructor.
+         *
+         * @param cause the failure
+         */
+        ScanFailure(final IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Fork/join task scanning a range of chunks.
+     */
+    private final class Scan extends RecursiveTask<ScanResult> {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The query.
+         */
+        private final ArchiveQuery query;
+
+        /**
+         * First chunk.
+         */
+        private final int from;
+
+        /**
+         * One past the last chunk.
+         */
+        private final int to;
+
+        /**
+         * Scan constructor.
+         *
+         * @param query the query
+         * @param from  first chunk
+         * @param to    one past the last chunk
+         */
+        Scan(final ArchiveQuery query, final int from, final int to) {
+            this.query = query;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            if (to - from == 1) {
+                try {
+                    return scan(chunks[from], query);
+                } catch (IOException e) {
+                    throw new ScanFailure(e);
+                }
+            }
+            final int middle = (from + to) >>> 1;
+            final Scan left = new Scan(query, from, middle);
+            left.fork();
+            final ScanResult right = new Scan(query, middle, to).compute();
+            return left.join().plus(right);
+        }
+    }
+}
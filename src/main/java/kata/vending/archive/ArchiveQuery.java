@@ -0,0 +1,199 @@
+package kata.vending.archive;
+
+import kata.vending.Currency;
+import kata.vending.Outcome;
+import kata.vending.Product;
+
+/**
+ * Which archived events a scan counts.  Anything left unset matches every
+ * event.
+ * Immutable.
+ */
+public final class ArchiveQuery {
+    /**
+     * Earliest time, inclusive.
+     */
+    private final long from;
+
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * Latest time, exclusive.
+     */
+    private final long to;
+
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * Lowest machine id, inclusive.
+     */
+    private final int firstMachine;
+
+    public int getFirstMachine() {
+        return firstMachine;
+    }
+
+    /**
+     * Highest machine id, inclusive.
+     */
+    private final int lastMachine;
+
+    public int getLastMachine() {
+        return lastMachine;
+    }
+
+    /**
+     * The outcome, or null for any.
+     */
+    private final Outcome outcome;
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * The product, or null for any.
+     */
+    private final Product product;
+
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * The currency, or null for any.
+     */
+    private final Currency currency;
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Builder for the immutable ArchiveQuery class.
+     */
+    public static class Builder {
+        /**
+         * Builder from.
+         */
+        private long from = Long.MIN_VALUE;
+
+        /**
+         * Builder to.
+         */
+        private long to = Long.MAX_VALUE;
+
+        /**
+         * Builder firstMachine.
+         */
+        private int firstMachine = Integer.MIN_VALUE;
+
+        /**
+         * Builder lastMachine.
+         */
+        private int lastMachine = Integer.MAX_VALUE;
+
+        /**
+         * Builder outcome.
+         */
+        private Outcome outcome;
+
+        /**
+         * Builder product.
+         */
+        private Product product;
+
+        /**
+         * Builder currency.
+         */
+        private Currency currency;
+
+        /**
+         * Builder setter for the time range.
+         *
+         * @param from earliest time, inclusive
+         * @param to   latest time, exclusive
+         * @return this Builder
+         */
+        public final Builder between(final long from, final long to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Builder setter for the machine id range.
+         *
+         * @param firstMachine lowest machine id, inclusive
+         * @param lastMachine  highest machine id, inclusive
+         * @return this Builder
+         */
+        public final Builder machines(final int firstMachine,
+                                      final int lastMachine) {
+            this.firstMachine = firstMachine;
+            this.lastMachine = lastMachine;
+            return this;
+        }
+
+        /**
+         * Builder setter for outcome.
+         *
+         * @param outcome outcome
+         * @return this Builder
+         */
+        public final Builder outcome(final Outcome outcome) {
+            this.outcome = outcome;
+            return this;
+        }
+
+        /**
+         * Builder setter for product.
+         *
+         * @param product product
+         * @return this Builder
+         */
+        public final Builder product(final Product product) {
+            this.product = product;
+            return this;
+        }
+
+        /**
+         * Builder setter for currency.
+         *
+         * @param currency currency
+         * @return this Builder
+         */
+        public final Builder currency(final Currency currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        /**
+         * Build the query.
+         *
+         * @return the query
+         */
+        public final ArchiveQuery build() {
+            return new ArchiveQuery(this);
+        }
+    }
+
+    /**
+     * ArchiveQuery constructor.
+     *
+     * @param builder the builder
+     */
+    private ArchiveQuery(final Builder builder) {
+        this.from = builder.from;
+        this.to = builder.to;
+        this.firstMachine = builder.firstMachine;
+        this.lastMachine = builder.lastMachine;
+        this.outcome = builder.outcome;
+        this.product = builder.product;
+        this.currency = builder.currency;
+    }
+}
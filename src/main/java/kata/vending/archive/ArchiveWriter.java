@@ -0,0 +1,225 @@
+package kata.vending.archive;
+
+import kata.vending.Currency;
+import kata.vending.Outcome;
+import kata.vending.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes machine events to an archive.  Rows are held in primitive columns
+ * until a chunk fills up, then the chunk is encoded and written with its
+ * statistics.  Not thread safe.
+ */
+public final class ArchiveWriter implements Closeable {
+    /**
+     * Rows in a chunk unless told otherwise.
+     */
+    public static final int DEFAULT_CHUNK_ROWS = 8192;
+
+    /**
+     * Most bytes a row takes once encoded: a varint time, a run for each
+     * code column, two packed longs.
+     */
+    private static final int MAX_ROW_SIZE = Encoding.MAX_VARINT
+            + 3 * (1 + Encoding.MAX_VARINT) + 2 * Long.SIZE / Byte.SIZE;
+
+    /**
+     * Partial bytes the two packed columns may end with.
+     */
+    private static final int PACK_SLACK = 2;
+
+    /**
+     * Where the archive goes.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * Rows in a full chunk.
+     */
+    private final int chunkRows;
+
+    /**
+     * Event times.
+     */
+    private final long[] times;
+
+    /**
+     * Machine ids.
+     */
+    private final long[] machines;
+
+    /**
+     * Event amounts.
+     */
+    private final long[] amounts;
+
+    /**
+     * Outcome codes.
+     */
+    private final byte[] outcomes;
+
+    /**
+     * Product codes.
+     */
+    private final byte[] products;
+
+    /**
+     * Currency codes.
+     */
+    private final byte[] currencies;
+
+    /**
+     * Where chunks are encoded.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Rows held.
+     */
+    private int rows;
+
+    /**
+     * ArchiveWriter constructor with the default chunk size.
+     *
+     * @param channel where the archive goes
+     */
+    public ArchiveWriter(final WritableByteChannel channel) {
+        this(channel, DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * ArchiveWriter constructor.
+     *
+     * @param channel   where the archive goes
+     * @param chunkRows rows in a full chunk
+     */
+    public ArchiveWriter(final WritableByteChannel channel,
+                         final int chunkRows) {
+        if (chunkRows <= 0) {
+            throw new IllegalArgumentException("chunk rows must be positive: "
+                    + chunkRows);
+        }
+        this.channel = channel;
+        this.chunkRows = chunkRows;
+        this.times = new long[chunkRows];
+        this.machines = new long[chunkRows];
+        this.amounts = new long[chunkRows];
+        this.outcomes = new byte[chunkRows];
+        this.products = new byte[chunkRows];
+        this.currencies = new byte[chunkRows];
+        this.buffer = ByteBuffer.allocateDirect(Chunk.HEADER_SIZE
+                + chunkRows * MAX_ROW_SIZE + PACK_SLACK);
+    }
+
+    /**
+     * Add an event.
+     *
+     * @param time     when it happened, in milliseconds since the epoch
+     * @param machine  the machine id
+     * @param outcome  how it turned out
+     * @param product  the product involved, or null
+     * @param currency the currency involved, or null
+     * @param amount   the amount in cents
+     * @return this writer
+     * @throws IOException if a full chunk can't be written
+     */
+    public ArchiveWriter append(final long time, final int machine,
+                                final Outcome outcome, final Product product,
+                                final Currency currency, final long amount)
+            throws IOException {
+        times[rows] = time;
+        machines[rows] = machine;
+        amounts[rows] = amount;
+        outcomes[rows] = (byte) outcome.ordinal();
+        products[rows] = (byte) Codes.of(product);
+        currencies[rows] = (byte) Codes.of(currency);
+        rows++;
+        if (rows == chunkRows) {
+            flush();
+        }
+        return this;
+    }
+
+    /**
+     * Write the rows held as a chunk, if there are any.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long minMachine = Long.MAX_VALUE;
+        long maxMachine = Long.MIN_VALUE;
+        long minAmount = Long.MAX_VALUE;
+        long maxAmount = Long.MIN_VALUE;
+        int outcomeBits = 0;
+        int productBits = 0;
+        int currencyBits = 0;
+        for (int i = 0; i < rows; i++) {
+            minTime = Math.min(minTime, times[i]);
+            maxTime = Math.max(maxTime, times[i]);
+            minMachine = Math.min(minMachine, machines[i]);
+            maxMachine = Math.max(maxMachine, machines[i]);
+            minAmount = Math.min(minAmount, amounts[i]);
+            maxAmount = Math.max(maxAmount, amounts[i]);
+            outcomeBits |= 1 << outcomes[i];
+            productBits |= 1 << products[i];
+            currencyBits |= 1 << currencies[i];
+        }
+        buffer.clear();
+        buffer.position(Chunk.HEADER_SIZE);
+        final int[] lengths = new int[Chunk.COLUMNS.length];
+        int start = buffer.position();
+        Encoding.writeDeltas(times, rows, buffer);
+        lengths[Column.TIME.ordinal()] = buffer.position() - start;
+        start = buffer.position();
+        Encoding.pack(machines, rows, minMachine,
+                Encoding.width(maxMachine - minMachine), buffer);
+        lengths[Column.MACHINE.ordinal()] = buffer.position() - start;
+        start = buffer.position();
+        Encoding.writeRuns(outcomes, rows, buffer);
+        lengths[Column.OUTCOME.ordinal()] = buffer.position() - start;
+        start = buffer.position();
+        Encoding.writeRuns(products, rows, buffer);
+        lengths[Column.PRODUCT.ordinal()] = buffer.position() - start;
+        start = buffer.position();
+        Encoding.writeRuns(currencies, rows, buffer);
+        lengths[Column.CURRENCY.ordinal()] = buffer.position() - start;
+        start = buffer.position();
+        Encoding.pack(amounts, rows, minAmount,
+                Encoding.width(maxAmount - minAmount), buffer);
+        lengths[Column.AMOUNT.ordinal()] = buffer.position() - start;
+        final int end = buffer.position();
+        buffer.position(0);
+        buffer.putInt(Chunk.MAGIC).putInt(rows)
+                .putLong(minTime).putLong(maxTime)
+                .putInt((int) minMachine).putInt((int) maxMachine)
+                .putLong(minAmount).putLong(maxAmount)
+                .putInt(outcomeBits).putInt(productBits).putInt(currencyBits);
+        for (int length : lengths) {
+            buffer.putInt(length);
+        }
+        buffer.position(0).limit(end);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        rows = 0;
+    }
+
+    /**
+     * Write any rows held.  The channel is left open.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,207 @@
+package kata.vending.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The header of one archive chunk: its row count, statistics for skipping
+ * it, and the length of each column.
+ * <p/>
+ * Header layout, big-endian:
+ * <pre>
+ *   MAGIC                  int
+ *   rows                   int
+ *   min time, max time     long, long
+ *   min machine, max       int, int
+ *   min amount, max        long, long
+ *   outcomes seen          int, bit per Outcome ordinal
+ *   products seen          int, bit per product code
+ *   currencies seen        int, bit per currency code
+ *   column lengths         int per Column
+ * </pre>
+ * The columns follow the header in Column order.
+ * Immutable.
+ */
+final class Chunk {
+    /**
+     * Chunk magic, "VAC" and the format version.
+     */
+    static final int MAGIC = 0x56414301;
+
+    /**
+     * Cached columns.
+     */
+    static final Column[] COLUMNS = Column.values();
+
+    /**
+     * Bytes in a header.
+     */
+    static final int HEADER_SIZE = (Integer.SIZE * (7 + COLUMNS.length)
+            + Long.SIZE * 4) / Byte.SIZE;
+
+    /**
+     * Where the header starts in the archive.
+     */
+    private final long offset;
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Rows in the chunk.
+     */
+    private final int rows;
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Earliest event time.
+     */
+    private final long minTime;
+
+    public long getMinTime() {
+        return minTime;
+    }
+
+    /**
+     * Latest event time.
+     */
+    private final long maxTime;
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Lowest machine id.
+     */
+    private final int minMachine;
+
+    public int getMinMachine() {
+        return minMachine;
+    }
+
+    /**
+     * Highest machine id.
+     */
+    private final int maxMachine;
+
+    public int getMaxMachine() {
+        return maxMachine;
+    }
+
+    /**
+     * Smallest amount.
+     */
+    private final long minAmount;
+
+    public long getMinAmount() {
+        return minAmount;
+    }
+
+    /**
+     * Largest amount.
+     */
+    private final long maxAmount;
+
+    public long getMaxAmount() {
+        return maxAmount;
+    }
+
+    /**
+     * Outcome ordinals that appear, as bits.
+     */
+    private final int outcomes;
+
+    public int getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Product codes that appear, as bits.
+     */
+    private final int products;
+
+    public int getProducts() {
+        return products;
+    }
+
+    /**
+     * Currency codes that appear, as bits.
+     */
+    private final int currencies;
+
+    public int getCurrencies() {
+        return currencies;
+    }
+
+    /**
+     * Where each column starts in the archive.
+     */
+    private final long[] columnOffsets = new long[COLUMNS.length + 1];
+
+    /**
+     * Read a chunk header.
+     *
+     * @param offset where the header starts in the archive
+     * @param header the header bytes
+     * @throws IOException if the header isn't a chunk header
+     */
+    Chunk(final long offset, final ByteBuffer header) throws IOException {
+        if (header.getInt() != MAGIC) {
+            throw new IOException("not an archive chunk at " + offset);
+        }
+        this.offset = offset;
+        this.rows = header.getInt();
+        this.minTime = header.getLong();
+        this.maxTime = header.getLong();
+        this.minMachine = header.getInt();
+        this.maxMachine = header.getInt();
+        this.minAmount = header.getLong();
+        this.maxAmount = header.getLong();
+        this.outcomes = header.getInt();
+        this.products = header.getInt();
+        this.currencies = header.getInt();
+        columnOffsets[0] = offset + HEADER_SIZE;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            final int length = header.getInt();
+            if (length < 0) {
+                throw new IOException("bad column length at " + offset);
+            }
+            columnOffsets[i + 1] = columnOffsets[i] + length;
+        }
+    }
+
+    /**
+     * Where a column starts in the archive.
+     *
+     * @param column the column
+     * @return the file offset
+     */
+    long offset(final Column column) {
+        return columnOffsets[column.ordinal()];
+    }
+
+    /**
+     * How long a column is.
+     *
+     * @param column the column
+     * @return the byte count
+     */
+    int length(final Column column) {
+        final int i = column.ordinal();
+        return (int) (columnOffsets[i + 1] - columnOffsets[i]);
+    }
+
+    /**
+     * Where the next chunk starts.
+     *
+     * @return the file offset
+     */
+    long end() {
+        return columnOffsets[COLUMNS.length];
+    }
+}
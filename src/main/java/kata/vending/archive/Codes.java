@@ -0,0 +1,41 @@
+package kata.vending.archive;
+
+import kata.vending.Currency;
+import kata.vending.Product;
+
+/**
+ * Codes for enum columns that may be empty: the ordinal plus one, or 0.
+ */
+final class Codes {
+    /**
+     * Utility class.
+     */
+    private Codes() {
+    }
+
+    /**
+     * Code a product.
+     *
+     * @param product the product, may be null
+     * @return the code
+     */
+    static int of(final Product product) {
+        if (product == null) {
+            return 0;
+        }
+        return product.ordinal() + 1;
+    }
+
+    /**
+     * Code a currency.
+     *
+     * @param currency the currency, may be null
+     * @return the code
+     */
+    static int of(final Currency currency) {
+        if (currency == null) {
+            return 0;
+        }
+        return currency.ordinal() + 1;
+    }
+}
@@ -0,0 +1,36 @@
+package kata.vending.archive;
+
+/**
+ * The columns of an archive chunk, in the order they are stored.
+ */
+enum Column {
+    /**
+     * Event times, delta encoded.
+     */
+    TIME,
+
+    /**
+     * Machine ids, bit packed from the chunk minimum.
+     */
+    MACHINE,
+
+    /**
+     * Outcome ordinals, run length encoded.
+     */
+    OUTCOME,
+
+    /**
+     * Product ordinals plus one, 0 for none, run length encoded.
+     */
+    PRODUCT,
+
+    /**
+     * Currency ordinals plus one, 0 for none, run length encoded.
+     */
+    CURRENCY,
+
+    /**
+     * Amounts in cents, bit packed from the chunk minimum.
+     */
+    AMOUNT
+}
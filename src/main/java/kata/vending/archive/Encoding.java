@@ -0,0 +1,245 @@
+package kata.vending.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The column encodings: varints, deltas, run lengths and bit packing.
+ */
+final class Encoding {
+    /**
+     * Payload bits in a varint byte.
+     */
+    private static final int PAYLOAD_BITS = 7;
+
+    /**
+     * Payload of a varint byte.
+     */
+    private static final int PAYLOAD = 0x7F;
+
+    /**
+     * Set on every varint byte but the last.
+     */
+    private static final int MORE = 0x80;
+
+    /**
+     * Most bytes a varint of a long takes.
+     */
+    static final int MAX_VARINT = 10;
+
+    /**
+     * Widest value that is bit packed; wider ones are stored whole.
+     */
+    private static final int MAX_PACKED = Long.SIZE - Byte.SIZE;
+
+    /**
+     * Bits in a byte, as a mask.
+     */
+    private static final int BYTE = 0xFF;
+
+    /**
+     * Utility class.
+     */
+    private Encoding() {
+    }
+
+    /**
+     * Write a long as an unsigned varint.
+     *
+     * @param out   the buffer
+     * @param value the value
+     */
+    static void writeVarint(final ByteBuffer out, final long value) {
+        long rest = value;
+        while ((rest & ~PAYLOAD) != 0) {
+            out.put((byte) (rest & PAYLOAD | MORE));
+            rest >>>= PAYLOAD_BITS;
+        }
+        out.put((byte) rest);
+    }
+
+    /**
+     * Read an unsigned varint.
+     *
+     * @param in the buffer
+     * @return the value
+     */
+    static long readVarint(final ByteBuffer in) {
+        long value = 0L;
+        for (int shift = 0; shift < Long.SIZE; shift += PAYLOAD_BITS) {
+            final int b = in.get();
+            value |= (long) (b & PAYLOAD) << shift;
+            if ((b & MORE) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    /**
+     * Write values as a first value and zigzag varint differences.  Suits
+     * timestamps, which mostly go up by a little each row.
+     *
+     * @param values the values
+     * @param rows   how many
+     * @param out    the buffer
+     */
+    static void writeDeltas(final long[] values, final int rows,
+                            final ByteBuffer out) {
+        long previous = 0L;
+        for (int i = 0; i < rows; i++) {
+            final long delta = values[i] - previous;
+            writeVarint(out, delta << 1 ^ delta >> (Long.SIZE - 1));
+            previous = values[i];
+        }
+    }
+
+    /**
+     * Read values written by writeDeltas.
+     *
+     * @param in     the buffer
+     * @param rows   how many
+     * @param values where to put them
+     */
+    static void readDeltas(final ByteBuffer in, final int rows,
+                           final long[] values) {
+        long previous = 0L;
+        for (int i = 0; i < rows; i++) {
+            final long zigzag = readVarint(in);
+            previous += zigzag >>> 1 ^ -(zigzag & 1);
+            values[i] = previous;
+        }
+    }
+
+    /**
+     * Write small codes as runs of (code, run length).
+     *
+     * @param codes the codes
+     * @param rows  how many
+     * @param out   the buffer
+     */
+    static void writeRuns(final byte[] codes, final int rows,
+                          final ByteBuffer out) {
+        int i = 0;
+        while (i < rows) {
+            final byte code = codes[i];
+            int end = i + 1;
+            while (end < rows && codes[end] == code) {
+                end++;
+            }
+            out.put(code);
+            writeVarint(out, end - i);
+            i = end;
+        }
+    }
+
+    /**
+     * Read codes written by writeRuns.
+     *
+     * @param in    the buffer
+     * @param rows  how many
+     * @param codes where to put them
+     */
+    static void readRuns(final ByteBuffer in, final int rows,
+                         final byte[] codes) {
+        int i = 0;
+        while (i < rows) {
+            final byte code = in.get();
+            final long run = readVarint(in);
+            if (run <= 0 || run > rows - i) {
+                throw new IllegalArgumentException("bad run length " + run);
+            }
+            final int end = i + (int) run;
+            while (i < end) {
+                codes[i++] = code;
+            }
+        }
+    }
+
+    /**
+     * Bits needed to hold every value from 0 to a range.
+     *
+     * @param range the largest value, as unsigned
+     * @return the bit width
+     */
+    static int width(final long range) {
+        return Long.SIZE - Long.numberOfLeadingZeros(range);
+    }
+
+    /**
+     * Write values less a base in a fixed number of bits each.
+     *
+     * @param values the values
+     * @param rows   how many
+     * @param base   subtracted from every value, the column minimum
+     * @param width  bits per value, from width(max - min)
+     * @param out    the buffer
+     */
+    static void pack(final long[] values, final int rows, final long base,
+                     final int width, final ByteBuffer out) {
+        if (width > MAX_PACKED) {
+            for (int i = 0; i < rows; i++) {
+                out.putLong(values[i]);
+            }
+            return;
+        }
+        long bits = 0L;
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            bits |= (values[i] - base) << count;
+            count += width;
+            while (count >= Byte.SIZE) {
+                out.put((byte) bits);
+                bits >>>= Byte.SIZE;
+                count -= Byte.SIZE;
+            }
+        }
+        if (count > 0) {
+            out.put((byte) bits);
+        }
+    }
+
+    /**
+     * Read values written by pack.
+     *
+     * @param in     the buffer
+     * @param rows   how many
+     * @param base   the base they were written with
+     * @param width  the width they were written with
+     * @param values where to put them
+     */
+    static void unpack(final ByteBuffer in, final int rows, final long base,
+                       final int width, final long[] values) {
+        if (width > MAX_PACKED) {
+            for (int i = 0; i < rows; i++) {
+                values[i] = in.getLong();
+            }
+            return;
+        }
+        final long mask = (1L << width) - 1;
+        long bits = 0L;
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            while (count < width) {
+                bits |= (long) (in.get() & BYTE) << count;
+                count += Byte.SIZE;
+            }
+            values[i] = base + (bits & mask);
+            bits >>>= width;
+            count -= width;
+        }
+    }
+
+    /**
+     * Most bytes pack writes.
+     *
+     * @param rows  how many values
+     * @param width bits per value
+     * @return the byte count
+     */
+    static int packedSize(final int rows, final int width) {
+        if (width > MAX_PACKED) {
+            return rows * (Long.SIZE / Byte.SIZE);
+        }
+        return (int) (((long) rows * width + Byte.SIZE - 1) / Byte.SIZE);
+    }
+}
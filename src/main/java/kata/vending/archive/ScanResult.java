@@ -0,0 +1,96 @@
+package kata.vending.archive;
+
+/**
+ * What an archive scan found and how much of the archive it had to read.
+ * Immutable.
+ */
+public final class ScanResult {
+    /**
+     * Nothing found, nothing read.
+     */
+    static final ScanResult EMPTY = new ScanResult(0L, 0L, 0, 0, 0L);
+
+    /**
+     * Rows that matched.
+     */
+    private final long rows;
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Sum of the matching rows' amounts, in cents.
+     */
+    private final long amount;
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Chunks that had to be decoded.
+     */
+    private final int chunksRead;
+
+    public int getChunksRead() {
+        return chunksRead;
+    }
+
+    /**
+     * Chunks ruled out by their statistics alone.
+     */
+    private final int chunksSkipped;
+
+    public int getChunksSkipped() {
+        return chunksSkipped;
+    }
+
+    /**
+     * Column bytes read.
+     */
+    private final long bytesRead;
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * ScanResult constructor.
+     *
+     * @param rows          rows that matched
+     * @param amount        sum of their amounts
+     * @param chunksRead    chunks decoded
+     * @param chunksSkipped chunks skipped
+     * @param bytesRead     column bytes read
+     */
+    ScanResult(final long rows, final long amount, final int chunksRead,
+               final int chunksSkipped, final long bytesRead) {
+        this.rows = rows;
+        this.amount = amount;
+        this.chunksRead = chunksRead;
+        this.chunksSkipped = chunksSkipped;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Combine with the result of scanning other chunks.
+     *
+     * @param other the other result
+     * @return both results together
+     */
+    ScanResult plus(final ScanResult other) {
+        return new ScanResult(rows + other.rows, amount + other.amount,
+                chunksRead + other.chunksRead,
+                chunksSkipped + other.chunksSkipped,
+                bytesRead + other.bytesRead);
+    }
+
+    @Override
+    public String toString() {
+        return "rows=" + rows + " amount=" + amount
+                + " chunksRead=" + chunksRead
+                + " chunksSkipped=" + chunksSkipped
+                + " bytesRead=" + bytesRead;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * A compressed columnar archive of machine events, with chunk statistics so
+ * scans only read the chunks and columns a query needs.
+ */
+package kata.vending.archive;
@@ -0,0 +1,222 @@
+package kata.vending.async;
+
+import kata.vending.Coin;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs a machine's operations on an executor, one at a time and in the
+ * order they were asked for, and hands back futures of the machine after
+ * each one.
+ * <p/>
+ * Operations wait in a queue.  Whichever thread finds the machine idle
+ * submits one drain task, which runs everything queued, so a busy machine
+ * costs one executor task per burst rather than per operation, and no
+ * thread is tied to a machine while it is idle.  Each future is completed
+ * inside the drain task: callbacks chained with the non-async methods
+ * (thenApply, thenAccept, whenComplete) run right there on the executor
+ * thread, without another hop.  They should be quick; anything slow
+ * belongs on an async callback.
+ * <p/>
+ * To share the executor fairly among many machines, a drain task hands
+ * the thread back after a batch of operations and resubmits itself.  An
+ * operation that throws fails its own future and leaves the machine as it
+ * was; an Error still fails the future, and the operations after it carry
+ * on in a new drain task.  If the executor rejects a drain task, the
+ * operations waiting for it fail with the RejectedExecutionException.
+ * Thread safe.
+ */
+public final class AsyncMachine {
+    /**
+     * Most operations run before a drain task gives its thread back.
+     */
+    static final int BATCH = 64;
+
+    /**
+     * Where operations run.
+     */
+    private final Executor executor;
+
+    /**
+     * Operations waiting to run.
+     */
+    private final Queue<Step> steps = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Operations queued or running; a drain task is scheduled while this
+     * is above zero.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * The machine after the last operation run.
+     */
+    private volatile Machine machine;
+
+    /**
+     * Runs everything queued, a batch at a time.
+     */
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            int ran = 0;
+            int left = 0;
+            try {
+                do {
+                    try {
+                        steps.poll().run();
+                    } finally {
+                        ran++;
+                        left = pending.decrementAndGet();
+                    }
+                } while (left > 0 && ran < BATCH);
+            } finally {
+                if (left > 0) {
+                    schedule();
+                }
+            }
+        }
+    };
+
+    /**
+     * AsyncMachine constructor.
+     *
+     * @param machine  the machine to start from
+     * @param executor where operations run
+     */
+    public AsyncMachine(final Machine machine, final Executor executor) {
+        this.machine = machine;
+        this.executor = executor;
+    }
+
+    /**
+     * The machine after the last operation that has run.
+     *
+     * @return the machine
+     */
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Insert a coin.
+     *
+     * @param coin the coin
+     * @return the machine after the coin
+     */
+    public CompletableFuture<Machine> insertCoinAsync(final Coin coin) {
+        return submit(m -> m.insertCoin(coin));
+    }
+
+    /**
+     * Vend a product.
+     *
+     * @param product the product
+     * @return the machine after the vend
+     */
+    public CompletableFuture<Machine> vendAsync(final Product product) {
+        return submit(m -> m.vend(product));
+    }
+
+    /**
+     * Return the inserted coins.
+     *
+     * @return the machine after the coins are returned
+     */
+    public CompletableFuture<Machine> returnCoinsAsync() {
+        return submit(Machine::returnCoins);
+    }
+
+    /**
+     * Check the display.
+     *
+     * @return the machine after the check
+     */
+    public CompletableFuture<Machine> checkDisplayAsync() {
+        return submit(Machine::checkDisplay);
+    }
+
+    /**
+     * Queue an operation, and make sure a drain task is coming.
+     *
+     * @param operation the operation
+     * @return its future
+     */
+    CompletableFuture<Machine> submit(
+            final UnaryOperator<Machine> operation) {
+        final Step step = new Step(operation);
+        steps.offer(step);
+        if (pending.getAndIncrement() == 0) {
+            schedule();
+        }
+        return step.future;
+    }
+
+    /**
+     * Submit the drain task.  If the executor rejects it, fail what is
+     * waiting, so the next operation finds the machine idle again.
+     */
+    private void schedule() {
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            int left;
+            do {
+                steps.poll().future.completeExceptionally(e);
+                left = pending.decrementAndGet();
+            } while (left > 0);
+        }
+    }
+
+    /**
+     * An operation and its future.
+     */
+    private final class Step {
+        /**
+         * The operation.
+         */
+        private final UnaryOperator<Machine> operation;
+
+        /**
+         * Its future.
+         */
+        private final CompletableFuture<Machine> future =
+                new CompletableFuture<>();
+
+        /**
+         * Step constructor.
+         *
+         * @param operation the operation
+         */
+        Step(final UnaryOperator<Machine> operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Run the operation and complete the future.  An Error fails the
+         * future and is thrown on.
+         */
+        void run() {
+            final Machine after;
+            try {
+                after = operation.apply(machine);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            } catch (Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+            machine = after;
+            future.complete(after);
+        }
+    }
+}
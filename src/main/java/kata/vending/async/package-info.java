@@ -0,0 +1,5 @@
+/**
+ * Asynchronous machine operations returning CompletableFutures, run in
+ * order per machine on a shared executor.
+ */
+package kata.vending.async;
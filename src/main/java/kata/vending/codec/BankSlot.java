@@ -0,0 +1,41 @@
+package kata.vending.codec;
+
+import kata.vending.Bank;
+import kata.vending.Machine;
+
+/**
+ * The banks a machine holds, in the order they are laid out.
+ */
+public enum BankSlot {
+    /**
+     * The coin return.
+     */
+    COIN_RETURN,
+
+    /**
+     * The coins the current customer has inserted.
+     */
+    CUSTOMER,
+
+    /**
+     * The coins the machine keeps and makes change from.
+     */
+    MACHINE;
+
+    /**
+     * The bank in this slot of a machine.
+     *
+     * @param machine the machine
+     * @return its bank for this slot
+     */
+    public Bank of(final Machine machine) {
+        switch (this) {
+            case COIN_RETURN:
+                return machine.getCoinReturn();
+            case CUSTOMER:
+                return machine.getCustomerBank();
+            default:
+                return machine.getMachineBank();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package kata.vending.codec;
+
+import kata.vending.Currency;
+import kata.vending.Message;
+
+/**
+ * The kinds of thing a machine displays.  A display is stored as one of
+ * these plus an amount in cents, which only PRICE and BALANCE use.
+ */
+public enum DisplayCode {
+    /**
+     * INSERT COIN.
+     */
+    INSERT_COIN(Message.INSERT_COIN),
+
+    /**
+     * EXACT CHANGE ONLY.
+     */
+    EXACT_CHANGE(Message.EXACT_CHANGE),
+
+    /**
+     * SOLD OUT.
+     */
+    SOLD_OUT(Message.SOLD_OUT),
+
+    /**
+     * THANK YOU.
+     */
+    THANK_YOU(Message.THANK_YOU),
+
+    /**
+     * PRICE followed by an amount.
+     */
+    PRICE(Message.PRICE),
+
+    /**
+     * The customer balance on its own.
+     */
+    BALANCE(null);
+
+    /**
+     * Cached so decoding doesn't clone the values array.
+     */
+    private static final DisplayCode[] CODES = values();
+
+    /**
+     * The message shown, null for a bare amount.
+     */
+    private final Message message;
+
+    /**
+     * DisplayCode enum constructor.
+     *
+     * @param message the message shown
+     */
+    DisplayCode(final Message message) {
+        this.message = message;
+    }
+
+    /**
+     * The code for an ordinal read back from a buffer.
+     *
+     * @param ordinal the stored ordinal
+     * @return the code
+     */
+    public static DisplayCode of(final int ordinal) {
+        if (ordinal < 0 || ordinal >= CODES.length) {
+            throw new IllegalArgumentException(
+                    "unknown display code " + ordinal);
+        }
+        return CODES[ordinal];
+    }
+
+    /**
+     * Work out which code a display string is.  Reads the string in place.
+     *
+     * @param display the display text, as a Machine shows it
+     * @return the code
+     */
+    public static DisplayCode parse(final String display) {
+        if (display.startsWith("$")) {
+            return BALANCE;
+        }
+        final String price = Message.PRICE.getText();
+        if (display.startsWith(price)
+                && display.startsWith(" $", price.length())) {
+            return PRICE;
+        }
+        for (DisplayCode code : CODES) {
+            if (code.message != null
+                    && code.message.getText().equals(display)) {
+                return code;
+            }
+        }
+        throw cannotEncode(display, null);
+    }
+
+    /**
+     * Work out the amount in a display string.  Reads the digits in place,
+     * without substrings.
+     *
+     * @param display the display text, as a Machine shows it
+     * @return the amount in cents, or 0 if the display has none
+     */
+    public static int cents(final String display) {
+        final int dollar = display.indexOf('$');
+        if (dollar < 0) {
+            return 0;
+        }
+        final int point = display.indexOf('.', dollar);
+        if (point < 0) {
+            throw cannotEncode(display, null);
+        }
+        final int oneDollar = 100;
+        try {
+            return Math.addExact(Math.multiplyExact(
+                    digits(display, dollar + 1, point), oneDollar),
+                    digits(display, point + 1, display.length()));
+        } catch (ArithmeticException e) {
+            throw cannotEncode(display, e);
+        }
+    }
+
+    /**
+     * Read a run of decimal digits.
+     *
+     * @param display the display text
+     * @param from    index of the first digit
+     * @param to      index after the last digit
+     * @return the value
+     */
+    private static int digits(final String display, final int from,
+                              final int to) {
+        if (from == to) {
+            throw cannotEncode(display, null);
+        }
+        final int ten = 10;
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            final char c = display.charAt(i);
+            if (c < '0' || c > '9') {
+                throw cannotEncode(display, null);
+            }
+            value = Math.addExact(Math.multiplyExact(value, ten), c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * The failure for a display that can't be encoded.
+     *
+     * @param display the display text
+     * @param cause   why, or null
+     * @return the exception to throw
+     */
+    private static IllegalArgumentException cannotEncode(
+            final String display, final Throwable cause) {
+        return new IllegalArgumentException(
+                "display can't be encoded: " + display, cause);
+    }
+
+    /**
+     * The display text for this code.
+     *
+     * @param cents the amount, for PRICE and BALANCE
+     * @return the text as a Machine would show it
+     */
+    public String format(final long cents) {
+        if (this == BALANCE) {
+            return Currency.format(cents);
+        }
+        if (this == PRICE) {
+            return message.getText() + " " + Currency.format(cents);
+        }
+        return message.getText();
+    }
+}
@@ -0,0 +1,349 @@
+package kata.vending.codec;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a Machine to and reads it from a fixed-size record in a ByteBuffer.
+ * The same record works on the wire and in files, and any field can be read
+ * or written in place without decoding the rest.
+ * <p/>
+ * Record layout, all big-endian ints (the ByteBuffer default):
+ * <pre>
+ *   MAGIC
+ *   coin return counts      one per Currency, by ordinal
+ *   customer bank counts    one per Currency, by ordinal
+ *   machine bank counts     one per Currency, by ordinal
+ *   product counts          one per Product, by ordinal
+ *   display code            DisplayCode ordinal
+ *   display cents           amount for PRICE and BALANCE
+ * </pre>
+ */
+public final class MachineCodec {
+    /**
+     * Record magic, "VMC" and the layout version.
+     */
+    public static final int MAGIC = 0x564D4301;
+
+    /**
+     * Bytes in a stored count.
+     */
+    private static final int INT = Integer.SIZE / Byte.SIZE;
+
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Cached bank slots.
+     */
+    private static final BankSlot[] SLOTS = BankSlot.values();
+
+    /**
+     * Bytes in one bank.
+     */
+    private static final int BANK_SIZE = CURRENCIES.length * INT;
+
+    /**
+     * Where the first bank starts.
+     */
+    private static final int BANKS_OFFSET = INT;
+
+    /**
+     * Where the product counts start.
+     */
+    private static final int INVENTORY_OFFSET =
+            BANKS_OFFSET + SLOTS.length * BANK_SIZE;
+
+    /**
+     * Where the display code is.
+     */
+    private static final int DISPLAY_OFFSET =
+            INVENTORY_OFFSET + PRODUCTS.length * INT;
+
+    /**
+     * Where the display amount is.
+     */
+    private static final int DISPLAY_CENTS_OFFSET = DISPLAY_OFFSET + INT;
+
+    /**
+     * Bytes in one record.
+     */
+    public static final int SIZE = DISPLAY_CENTS_OFFSET + INT;
+
+    /**
+     * Utility class.
+     */
+    private MachineCodec() {
+    }
+
+    /**
+     * Where a bank count sits in a record.
+     *
+     * @param slot     the bank
+     * @param currency the currency
+     * @return the offset from the start of the record
+     */
+    public static int offset(final BankSlot slot, final Currency currency) {
+        return BANKS_OFFSET + slot.ordinal() * BANK_SIZE
+                + currency.ordinal() * INT;
+    }
+
+    /**
+     * Where a product count sits in a record.
+     *
+     * @param product the product
+     * @return the offset from the start of the record
+     */
+    public static int offset(final Product product) {
+        return INVENTORY_OFFSET + product.ordinal() * INT;
+    }
+
+    /**
+     * Write a machine at the buffer's position and move past it.
+     *
+     * @param machine the machine
+     * @param buffer  the buffer
+     */
+    public static void encode(final Machine machine, final ByteBuffer buffer) {
+        final int position = buffer.position();
+        encode(machine, buffer, position);
+        buffer.position(position + SIZE);
+    }
+
+    /**
+     * Write a machine at an index.  The buffer's position doesn't move.
+     *
+     * @param machine the machine
+     * @param buffer  the buffer
+     * @param index   where the record starts
+     */
+    public static void encode(final Machine machine, final ByteBuffer buffer,
+                              final int index) {
+        buffer.putInt(index, MAGIC);
+        for (BankSlot slot : SLOTS) {
+            final Inventory<Currency> bank = slot.of(machine).getInventory();
+            for (Currency currency : CURRENCIES) {
+                buffer.putInt(index + offset(slot, currency),
+                        bank.quantity(currency));
+            }
+        }
+        final Inventory<Product> inventory = machine.getInventory();
+        for (Product product : PRODUCTS) {
+            buffer.putInt(index + offset(product), inventory.quantity(product));
+        }
+        final String display = machine.getDisplay();
+        setDisplay(buffer, index, DisplayCode.parse(display),
+                DisplayCode.cents(display));
+    }
+
+    /**
+     * Read a machine at the buffer's position and move past it.
+     *
+     * @param buffer the buffer
+     * @return the machine
+     */
+    public static Machine decode(final ByteBuffer buffer) {
+        final int position = buffer.position();
+        final Machine machine = decode(buffer, position);
+        buffer.position(position + SIZE);
+        return machine;
+    }
+
+    /**
+     * Read a machine at an index.  The buffer's position doesn't move.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @return the machine
+     */
+    public static Machine decode(final ByteBuffer buffer, final int index) {
+        if (!isMachine(buffer, index)) {
+            throw new IllegalArgumentException("no machine record at "
+                    + index);
+        }
+        Inventory<Product> inventory = new Inventory<>(PRODUCTS);
+        for (Product product : PRODUCTS) {
+            inventory = inventory.add(product,
+                    quantity(buffer, index, product));
+        }
+        return new Machine.Builder()
+                .coinReturn(bank(buffer, index, BankSlot.COIN_RETURN))
+                .customerBank(bank(buffer, index, BankSlot.CUSTOMER))
+                .machineBank(bank(buffer, index, BankSlot.MACHINE))
+                .inventory(inventory)
+                .display(display(buffer, index))
+                .build();
+    }
+
+    /**
+     * Whether there is a machine record at an index.
+     *
+     * @param buffer the buffer
+     * @param index  where the record would start
+     * @return true if the record magic is there
+     */
+    public static boolean isMachine(final ByteBuffer buffer,
+                                    final int index) {
+        return buffer.getInt(index) == MAGIC;
+    }
+
+    /**
+     * Read one bank out of a record.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @param slot   the bank
+     * @return the bank
+     */
+    public static Bank bank(final ByteBuffer buffer, final int index,
+                            final BankSlot slot) {
+        Bank bank = new Bank();
+        for (Currency currency : CURRENCIES) {
+            bank = bank.deposit(currency,
+                    quantity(buffer, index, slot, currency));
+        }
+        return bank;
+    }
+
+    /**
+     * Read a bank count in place.
+     *
+     * @param buffer   the buffer
+     * @param index    where the record starts
+     * @param slot     the bank
+     * @param currency the currency
+     * @return the count
+     */
+    public static int quantity(final ByteBuffer buffer, final int index,
+                               final BankSlot slot, final Currency currency) {
+        return buffer.getInt(index + offset(slot, currency));
+    }
+
+    /**
+     * Write a bank count in place.
+     *
+     * @param buffer   the buffer
+     * @param index    where the record starts
+     * @param slot     the bank
+     * @param currency the currency
+     * @param quantity the count
+     */
+    public static void setQuantity(final ByteBuffer buffer, final int index,
+                                   final BankSlot slot,
+                                   final Currency currency,
+                                   final int quantity) {
+        buffer.putInt(index + offset(slot, currency), quantity);
+    }
+
+    /**
+     * Read a product count in place.
+     *
+     * @param buffer  the buffer
+     * @param index   where the record starts
+     * @param product the product
+     * @return the count
+     */
+    public static int quantity(final ByteBuffer buffer, final int index,
+                               final Product product) {
+        return buffer.getInt(index + offset(product));
+    }
+
+    /**
+     * Write a product count in place.
+     *
+     * @param buffer   the buffer
+     * @param index    where the record starts
+     * @param product  the product
+     * @param quantity the count
+     */
+    public static void setQuantity(final ByteBuffer buffer, final int index,
+                                   final Product product,
+                                   final int quantity) {
+        buffer.putInt(index + offset(product), quantity);
+    }
+
+    /**
+     * Work out a bank's balance in place.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @param slot   the bank
+     * @return the balance in cents
+     */
+    public static long balance(final ByteBuffer buffer, final int index,
+                               final BankSlot slot) {
+        long balance = 0L;
+        for (Currency currency : CURRENCIES) {
+            balance += currency.getCents()
+                    * quantity(buffer, index, slot, currency);
+        }
+        return balance;
+    }
+
+    /**
+     * Read the display code in place.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @return the display code
+     */
+    public static DisplayCode displayCode(final ByteBuffer buffer,
+                                          final int index) {
+        return DisplayCode.of(buffer.getInt(index + DISPLAY_OFFSET));
+    }
+
+    /**
+     * Read the display amount in place.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @return the amount in cents
+     */
+    public static int displayCents(final ByteBuffer buffer, final int index) {
+        return buffer.getInt(index + DISPLAY_CENTS_OFFSET);
+    }
+
+    /**
+     * Read the display as text.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @return the display text
+     */
+    public static String display(final ByteBuffer buffer, final int index) {
+        return displayCode(buffer, index)
+                .format(displayCents(buffer, index));
+    }
+
+    /**
+     * Write the display in place.  The record holds the amount as an int,
+     * so an amount below 0 or above Integer.MAX_VALUE throws
+     * IllegalArgumentException.
+     *
+     * @param buffer the buffer
+     * @param index  where the record starts
+     * @param code   the display code
+     * @param cents  the amount, for PRICE and BALANCE
+     */
+    public static void setDisplay(final ByteBuffer buffer, final int index,
+                                  final DisplayCode code, final long cents) {
+        if (cents < 0L || cents > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "display amount can't be encoded: " + cents);
+        }
+        buffer.putInt(index + DISPLAY_OFFSET, code.ordinal());
+        buffer.putInt(index + DISPLAY_CENTS_OFFSET, (int) cents);
+    }
+}
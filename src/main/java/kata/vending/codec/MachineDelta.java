@@ -0,0 +1,331 @@
+package kata.vending.codec;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Works out the difference between two machine states and applies it to get
+ * from one to the other.  A delta only carries the counts that changed, so
+ * one vend or one coin costs a few bytes instead of a whole record.
+ * <p/>
+ * The fields are the ints of a MachineCodec record after the magic: the
+ * three banks, the product counts, then the display code and amount.
+ * Delta layout:
+ * <pre>
+ *   changed fields     varint bit mask, bit n for field n
+ *   differences        one zigzag varint (new - old) per changed field,
+ *                      lowest field first
+ * </pre>
+ */
+public final class MachineDelta {
+    /**
+     * Bytes in a record int.
+     */
+    private static final int INT = Integer.SIZE / Byte.SIZE;
+
+    /**
+     * How many fields a delta covers.
+     */
+    public static final int FIELDS = MachineCodec.SIZE / INT - 1;
+
+    /**
+     * Most bytes a varint of an int takes.
+     */
+    private static final int MAX_VARINT = 5;
+
+    /**
+     * Most bytes a delta takes.
+     */
+    public static final int MAX_SIZE = MAX_VARINT * (FIELDS + 1);
+
+    /**
+     * Payload bits in a varint byte.
+     */
+    private static final int PAYLOAD_BITS = 7;
+
+    /**
+     * Payload of a varint byte.
+     */
+    private static final int PAYLOAD = 0x7F;
+
+    /**
+     * Set on every varint byte but the last.
+     */
+    private static final int MORE = 0x80;
+
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Cached bank slots.
+     */
+    private static final BankSlot[] SLOTS = BankSlot.values();
+
+    /**
+     * Utility class.
+     */
+    private MachineDelta() {
+    }
+
+    /**
+     * Write the delta between two machines at the buffer's position.
+     *
+     * @param from  the earlier machine
+     * @param to    the later machine
+     * @param delta where to write the delta
+     * @return the bytes written
+     */
+    public static int encode(final Machine from, final Machine to,
+                             final ByteBuffer delta) {
+        return encode(fields(from), fields(to), delta);
+    }
+
+    /**
+     * Write the delta between two MachineCodec records at the buffer's
+     * position.
+     *
+     * @param from      buffer with the earlier record
+     * @param fromIndex where the earlier record starts
+     * @param to        buffer with the later record
+     * @param toIndex   where the later record starts
+     * @param delta     where to write the delta
+     * @return the bytes written
+     */
+    public static int encode(final ByteBuffer from, final int fromIndex,
+                             final ByteBuffer to, final int toIndex,
+                             final ByteBuffer delta) {
+        return encode(fields(from, fromIndex), fields(to, toIndex), delta);
+    }
+
+    /**
+     * Read a delta at the buffer's position and apply it to a machine.
+     *
+     * @param base  the machine the delta was taken from
+     * @param delta the delta
+     * @return the machine the delta was taken to
+     */
+    public static Machine apply(final Machine base, final ByteBuffer delta) {
+        final int[] fields = fields(base);
+        apply(fields, delta);
+        return machine(fields);
+    }
+
+    /**
+     * Read a delta at the buffer's position and apply it to a MachineCodec
+     * record in place.  Only the changed fields are written.
+     *
+     * @param delta  the delta
+     * @param record buffer with the record
+     * @param index  where the record starts
+     */
+    public static void apply(final ByteBuffer delta, final ByteBuffer record,
+                             final int index) {
+        long mask = readMask(delta);
+        while (mask != 0) {
+            final int field = Long.numberOfTrailingZeros(mask);
+            final int offset = index + (field + 1) * INT;
+            record.putInt(offset, record.getInt(offset) + readDiff(delta));
+            mask &= mask - 1;
+        }
+    }
+
+    /**
+     * Write the delta between two sets of fields.
+     *
+     * @param from  the earlier fields
+     * @param to    the later fields
+     * @param delta where to write the delta
+     * @return the bytes written
+     */
+    private static int encode(final int[] from, final int[] to,
+                              final ByteBuffer delta) {
+        final int start = delta.position();
+        int mask = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if (from[field] != to[field]) {
+                mask |= 1 << field;
+            }
+        }
+        writeVarint(delta, mask);
+        for (int field = 0; field < FIELDS; field++) {
+            final int diff = to[field] - from[field];
+            if (diff != 0) {
+                writeVarint(delta, diff << 1 ^ diff >> (Integer.SIZE - 1));
+            }
+        }
+        return delta.position() - start;
+    }
+
+    /**
+     * Apply a delta to a set of fields.
+     *
+     * @param fields the fields
+     * @param delta  the delta
+     */
+    private static void apply(final int[] fields, final ByteBuffer delta) {
+        long mask = readMask(delta);
+        while (mask != 0) {
+            final int field = Long.numberOfTrailingZeros(mask);
+            fields[field] += readDiff(delta);
+            mask &= mask - 1;
+        }
+    }
+
+    /**
+     * Read the changed field mask.
+     *
+     * @param delta the delta
+     * @return the mask
+     */
+    private static long readMask(final ByteBuffer delta) {
+        final long mask = readVarint(delta) & 0xFFFFFFFFL;
+        if (mask >>> FIELDS != 0) {
+            throw new IllegalArgumentException("delta has unknown fields: "
+                    + Long.toHexString(mask));
+        }
+        return mask;
+    }
+
+    /**
+     * Read one field's difference.
+     *
+     * @param delta the delta
+     * @return the difference
+     */
+    private static int readDiff(final ByteBuffer delta) {
+        final int zigzag = readVarint(delta);
+        return zigzag >>> 1 ^ -(zigzag & 1);
+    }
+
+    /**
+     * Write an int as an unsigned varint.
+     *
+     * @param buffer the buffer
+     * @param value  the value
+     */
+    private static void writeVarint(final ByteBuffer buffer, final int value) {
+        int rest = value;
+        while ((rest & ~PAYLOAD) != 0) {
+            buffer.put((byte) (rest & PAYLOAD | MORE));
+            rest >>>= PAYLOAD_BITS;
+        }
+        buffer.put((byte) rest);
+    }
+
+    /**
+     * Read an unsigned varint as an int.
+     *
+     * @param buffer the buffer
+     * @return the value
+     */
+    private static int readVarint(final ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < MAX_VARINT * PAYLOAD_BITS;
+             shift += PAYLOAD_BITS) {
+            final int b = buffer.get();
+            value |= (b & PAYLOAD) << shift;
+            if ((b & MORE) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    /**
+     * Read a machine's fields.
+     *
+     * @param machine the machine
+     * @return the fields
+     */
+    private static int[] fields(final Machine machine) {
+        final int[] fields = new int[FIELDS];
+        for (BankSlot slot : SLOTS) {
+            final Inventory<Currency> bank = slot.of(machine).getInventory();
+            for (Currency currency : CURRENCIES) {
+                fields[field(MachineCodec.offset(slot, currency))] =
+                        bank.quantity(currency);
+            }
+        }
+        final Inventory<Product> inventory = machine.getInventory();
+        for (Product product : PRODUCTS) {
+            fields[field(MachineCodec.offset(product))] =
+                    inventory.quantity(product);
+        }
+        final String display = machine.getDisplay();
+        fields[FIELDS - 2] = DisplayCode.parse(display).ordinal();
+        fields[FIELDS - 1] = DisplayCode.cents(display);
+        return fields;
+    }
+
+    /**
+     * Read a record's fields.
+     *
+     * @param record buffer with the record
+     * @param index  where the record starts
+     * @return the fields
+     */
+    private static int[] fields(final ByteBuffer record, final int index) {
+        if (!MachineCodec.isMachine(record, index)) {
+            throw new IllegalArgumentException("no machine record at "
+                    + index);
+        }
+        final int[] fields = new int[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            fields[field] = record.getInt(index + (field + 1) * INT);
+        }
+        return fields;
+    }
+
+    /**
+     * Build a machine from its fields.
+     *
+     * @param fields the fields
+     * @return the machine
+     */
+    private static Machine machine(final int[] fields) {
+        final Bank[] banks = new Bank[SLOTS.length];
+        for (BankSlot slot : SLOTS) {
+            Bank bank = new Bank();
+            for (Currency currency : CURRENCIES) {
+                bank = bank.deposit(currency,
+                        fields[field(MachineCodec.offset(slot, currency))]);
+            }
+            banks[slot.ordinal()] = bank;
+        }
+        Inventory<Product> inventory = new Inventory<>(PRODUCTS);
+        for (Product product : PRODUCTS) {
+            inventory = inventory.add(product,
+                    fields[field(MachineCodec.offset(product))]);
+        }
+        return new Machine.Builder()
+                .coinReturn(banks[BankSlot.COIN_RETURN.ordinal()])
+                .customerBank(banks[BankSlot.CUSTOMER.ordinal()])
+                .machineBank(banks[BankSlot.MACHINE.ordinal()])
+                .inventory(inventory)
+                .display(DisplayCode.of(fields[FIELDS - 2])
+                        .format(fields[FIELDS - 1]))
+                .build();
+    }
+
+    /**
+     * Which field a record offset holds.
+     *
+     * @param offset the offset from the start of the record
+     * @return the field
+     */
+    private static int field(final int offset) {
+        return offset / INT - 1;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Fixed-layout binary encoding of machine state, readable in place.
+ */
+package kata.vending.codec;
@@ -0,0 +1,308 @@
+package kata.vending.display;
+
+import kata.vending.Machine;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes what a machine's display shows, so displays redraw when it
+ * changes instead of polling after every operation.
+ * <p/>
+ * Only changes go out: publishing the text already showing does nothing,
+ * and no subscriber is sent the same text twice in a row.  Each
+ * subscriber holds just the latest text it hasn't been sent yet, never a
+ * queue, so a burst of updates (coins going in one after another) while a
+ * subscriber has no demand reaches it as the last of them once it asks
+ * again.  A new subscriber is sent the current text first.
+ * <p/>
+ * Subscribers are signalled one at a time on the executor, or on the
+ * publishing or requesting thread if there isn't one.  Publishing only
+ * marks each subscription as behind; the drain loop then sends whatever
+ * is current, so racing publishers can't leave a subscriber on stale
+ * text.  Thread safe.
+ */
+public final class DisplayFeed implements Flow.Publisher<String>, Closeable {
+    /**
+     * Runs tasks on the calling thread.
+     */
+    private static final Executor CALLER_RUNS = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Where subscribers are signalled.
+     */
+    private final Executor executor;
+
+    /**
+     * Live subscriptions.
+     */
+    private final List<Feed> feeds = new CopyOnWriteArrayList<>();
+
+    /**
+     * What the display shows; null until something is published.
+     */
+    private final AtomicReference<String> current = new AtomicReference<>();
+
+    /**
+     * How many changes were published.
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Set once closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * DisplayFeed constructor, signalling subscribers on the calling
+     * thread.
+     */
+    public DisplayFeed() {
+        this(CALLER_RUNS);
+    }
+
+    /**
+     * DisplayFeed constructor.
+     *
+     * @param executor where subscribers are signalled
+     */
+    public DisplayFeed(final Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super String> subscriber) {
+        final Feed feed = new Feed(subscriber);
+        subscriber.onSubscribe(feed);
+        if (closed) {
+            feed.complete();
+            return;
+        }
+        feeds.add(feed);
+        if (closed) {
+            feed.complete();
+            return;
+        }
+        if (current.get() != null) {
+            feed.changed();
+        }
+    }
+
+    /**
+     * Publish a machine's display.
+     *
+     * @param machine the machine
+     * @return the same machine, for chaining
+     */
+    public Machine publish(final Machine machine) {
+        publish(machine.getDisplay());
+        return machine;
+    }
+
+    /**
+     * Publish display text.  Does nothing if it is already showing.
+     *
+     * @param display the text
+     */
+    public void publish(final String display) {
+        if (closed) {
+            throw new IllegalStateException("display feed is closed");
+        }
+        String showing = current.get();
+        while (!display.equals(showing)) {
+            if (current.compareAndSet(showing, display)) {
+                changes.incrementAndGet();
+                for (Feed feed : feeds) {
+                    feed.changed();
+                }
+                return;
+            }
+            showing = current.get();
+        }
+    }
+
+    /**
+     * What the display shows.
+     *
+     * @return the text, or null if nothing was published
+     */
+    public String getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * How many changes were published.
+     *
+     * @return the count
+     */
+    public long getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * How many subscribers are attached.
+     *
+     * @return the count
+     */
+    public int getSubscribers() {
+        return feeds.size();
+    }
+
+    /**
+     * Stop publishing.  Each subscriber gets the text it is owed, when it
+     * asks for it, and then onComplete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Feed feed : feeds) {
+            feed.complete();
+        }
+    }
+
+    /**
+     * One subscriber's subscription.  Signals are serialized by a
+     * work-in-progress count: whoever takes it from zero runs the drain
+     * loop, and anyone arriving meanwhile just makes it go round again.
+     */
+    private final class Feed implements Flow.Subscription, Runnable {
+        /**
+         * The subscriber.
+         */
+        private final Flow.Subscriber<? super String> subscriber;
+
+        /**
+         * Set when the display changed since the drain loop last looked.
+         */
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        /**
+         * Items asked for and not yet sent.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Reasons to run the drain loop.
+         */
+        private final AtomicInteger work = new AtomicInteger();
+
+        /**
+         * Last text sent; only touched by the drain loop.
+         */
+        private String sent;
+
+        /**
+         * Set when the subscriber asked for a bad amount.
+         */
+        private volatile IllegalArgumentException badRequest;
+
+        /**
+         * Set when the feed closes.
+         */
+        private volatile boolean done;
+
+        /**
+         * Set when no more signals may go out.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Feed constructor.
+         *
+         * @param subscriber the subscriber
+         */
+        Feed(final Flow.Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException(
+                        "request must be positive, not " + n);
+            } else {
+                long asked;
+                long total;
+                do {
+                    asked = demand.get();
+                    total = asked + n;
+                    if (total < 0) {
+                        total = Long.MAX_VALUE;
+                    }
+                } while (!demand.compareAndSet(asked, total));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            feeds.remove(this);
+        }
+
+        /**
+         * Note that the display changed.
+         */
+        void changed() {
+            pending.set(true);
+            schedule();
+        }
+
+        /**
+         * Finish once what is owed has been sent.
+         */
+        void complete() {
+            done = true;
+            schedule();
+        }
+
+        /**
+         * Make sure the drain loop runs.
+         */
+        private void schedule() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (!cancelled) {
+                if (badRequest != null) {
+                    cancel();
+                    subscriber.onError(badRequest);
+                    return;
+                }
+                if (demand.get() > 0 && pending.getAndSet(false)) {
+                    final String next = current.get();
+                    if (!next.equals(sent)) {
+                        sent = next;
+                        demand.decrementAndGet();
+                        subscriber.onNext(next);
+                    }
+                }
+                if (done && !pending.get()) {
+                    cancel();
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package kata.vending.display;
+
+/**
+ * The reactive-streams interfaces, shaped like java.util.concurrent.Flow,
+ * which this code base's Java version doesn't have.  Subscribers written
+ * against these carry over to the JDK's by changing the import.
+ */
+public final class Flow {
+    /**
+     * Utility class.
+     */
+    private Flow() {
+    }
+
+    /**
+     * A source of items for subscribers that ask for them.
+     *
+     * @param <T> the item type
+     */
+    public interface Publisher<T> {
+        /**
+         * Add a subscriber.  It is given a Subscription before anything
+         * else.
+         *
+         * @param subscriber the subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receives items it has asked for.
+     *
+     * @param <T> the item type
+     */
+    public interface Subscriber<T> {
+        /**
+         * Called once, before anything else.
+         *
+         * @param subscription how to ask for items or stop
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with each item asked for.
+         *
+         * @param item the item
+         */
+        void onNext(T item);
+
+        /**
+         * Called if the subscription fails; nothing follows.
+         *
+         * @param throwable what went wrong
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when there will be no more items; nothing follows.
+         */
+        void onComplete();
+    }
+
+    /**
+     * A subscriber's link to its publisher.
+     */
+    public interface Subscription {
+        /**
+         * Ask for up to n more items.
+         *
+         * @param n how many; must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items.
+         */
+        void cancel();
+    }
+}
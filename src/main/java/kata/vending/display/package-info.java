@@ -0,0 +1,5 @@
+/**
+ * A reactive feed of what a machine's display shows, emitting only real
+ * changes and coalescing them for slow subscribers.
+ */
+package kata.vending.display;
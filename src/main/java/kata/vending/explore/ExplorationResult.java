@@ -0,0 +1,117 @@
+package kata.vending.explore;
+
+import kata.vending.Bank;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What an exploration found.
+ * Immutable.
+ */
+public final class ExplorationResult {
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Distinct states reached.
+     */
+    private final long states;
+
+    public long getStates() {
+        return states;
+    }
+
+    /**
+     * Transitions taken, to new states or not.
+     */
+    private final long transitions;
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Transitions that went past the bounds and weren't followed.
+     */
+    private final long truncated;
+
+    public long getTruncated() {
+        return truncated;
+    }
+
+    /**
+     * The most actions any state needed to be reached.
+     */
+    private final int depth;
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Wall time the exploration took.
+     */
+    private final long elapsedNanos;
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Invariants that failed, one shortest counterexample each.
+     */
+    private final List<Violation> violations;
+
+    public List<Violation> getViolations() {
+        return violations;
+    }
+
+    /**
+     * Every reachable machine bank that shows EXACT CHANGE ONLY.
+     */
+    private final List<Bank> exactChangeBanks;
+
+    public List<Bank> getExactChangeBanks() {
+        return exactChangeBanks;
+    }
+
+    /**
+     * ExplorationResult constructor.
+     *
+     * @param states           distinct states reached
+     * @param transitions      transitions taken
+     * @param truncated        transitions past the bounds
+     * @param depth            the most actions any state needed
+     * @param elapsedNanos     wall time the exploration took
+     * @param violations       invariants that failed
+     * @param exactChangeBanks machine banks showing EXACT CHANGE ONLY
+     */
+    ExplorationResult(final long states, final long transitions,
+                      final long truncated, final int depth,
+                      final long elapsedNanos,
+                      final List<Violation> violations,
+                      final List<Bank> exactChangeBanks) {
+        this.states = states;
+        this.transitions = transitions;
+        this.truncated = truncated;
+        this.depth = depth;
+        this.elapsedNanos = elapsedNanos;
+        this.violations = Collections.unmodifiableList(violations);
+        this.exactChangeBanks = Collections.unmodifiableList(exactChangeBanks);
+    }
+
+    /**
+     * States explored per second.
+     *
+     * @return the rate
+     */
+    public double getStatesPerSecond() {
+        if (elapsedNanos == 0L) {
+            return 0d;
+        }
+        return states * NANOS_PER_SECOND / elapsedNanos;
+    }
+}
@@ -0,0 +1,580 @@
+package kata.vending.explore;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Explores every Machine state reachable from a start by inserting coins,
+ * good or unknown, vending and returning coins, breadth first, checking
+ * invariants in each state and across each step.
+ * <p/>
+ * States are packed into longs (see StateEncoding), so the visited set is a
+ * flat lock-free table rather than a set of Machines.  Each level of the
+ * search is expanded in parallel; every successor comes from the real
+ * Machine methods.  Banks are bounded: a transition that would put more
+ * than maxCoins of one coin in a bank is counted as truncated and not
+ * followed.  Because the search is breadth first, each counterexample is a
+ * shortest one.
+ */
+public final class Explorer {
+    /**
+     * Most coins of one kind unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_COINS = 15;
+
+    /**
+     * Most states unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_STATES = 1 << 20;
+
+    /**
+     * States expanded by one task.
+     */
+    private static final int GRAIN = 256;
+
+    /**
+     * Pool the levels are expanded in.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    /**
+     * Coins a customer can insert, largest first.
+     */
+    private static final Currency[] COINS =
+            Currency.descending().toArray(new Currency[0]);
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * A coin the machine doesn't know.
+     */
+    private static final Coin SLUG =
+            new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+
+    /**
+     * The action inserting the slug; good coins come before it.
+     */
+    private static final int INSERT_SLUG = COINS.length;
+
+    /**
+     * The returnCoins action; inserts come before it, vends after.
+     */
+    private static final int RETURN_COINS = INSERT_SLUG + 1;
+
+    /**
+     * How many actions there are.
+     */
+    private static final int ACTIONS = RETURN_COINS + 1 + PRODUCTS.length;
+
+    /**
+     * The machine to start from.
+     */
+    private final Machine start;
+
+    /**
+     * How states are packed.
+     */
+    private final StateEncoding encoding;
+
+    /**
+     * Most states to visit.
+     */
+    private final int maxStates;
+
+    /**
+     * What to check.
+     */
+    private final List<Invariant> invariants;
+
+    /**
+     * Builder for the Explorer class.
+     */
+    public static class Builder {
+        /**
+         * Builder start.
+         */
+        private Machine start = new Machine.Builder().build();
+
+        /**
+         * Builder maxCoins.
+         */
+        private int maxCoins = DEFAULT_MAX_COINS;
+
+        /**
+         * Builder maxStates.
+         */
+        private int maxStates = DEFAULT_MAX_STATES;
+
+        /**
+         * Builder invariants.
+         */
+        private final List<Invariant> invariants = new ArrayList<>();
+
+        /**
+         * Builder setter for start.
+         *
+         * @param start start
+         * @return this Builder
+         */
+        public final Builder start(final Machine start) {
+            if (start == null) {
+                return this;
+            }
+            this.start = start;
+            return this;
+        }
+
+        /**
+         * Builder setter for maxCoins.
+         *
+         * @param maxCoins most coins of one kind either bank may hold
+         * @return this Builder
+         */
+        public final Builder maxCoins(final int maxCoins) {
+            this.maxCoins = maxCoins;
+            return this;
+        }
+
+        /**
+         * Builder setter for maxStates.
+         *
+         * @param maxStates most states to visit before giving up
+         * @return this Builder
+         */
+        public final Builder maxStates(final int maxStates) {
+            this.maxStates = maxStates;
+            return this;
+        }
+
+        /**
+         * Add an invariant to check.
+         *
+         * @param invariant the invariant
+         * @return this Builder
+         */
+        public final Builder invariant(final Invariant invariant) {
+            if (invariant == null) {
+                return this;
+            }
+            invariants.add(invariant);
+            return this;
+        }
+
+        /**
+         * Build the explorer.
+         *
+         * @return the explorer
+         */
+        public final Explorer build() {
+            return new Explorer(this);
+        }
+    }
+
+    /**
+     * Explorer constructor.
+     *
+     * @param builder the builder
+     */
+    private Explorer(final Builder builder) {
+        this.start = builder.start;
+        final int[] stock = new int[PRODUCTS.length];
+        for (Product product : PRODUCTS) {
+            stock[product.ordinal()] =
+                    start.getInventory().quantity(product);
+        }
+        this.encoding = new StateEncoding(builder.maxCoins, stock);
+        if (encoding.encode(start) < 0) {
+            throw new IllegalArgumentException(
+                    "start machine holds more than " + builder.maxCoins
+                            + " of a coin");
+        }
+        this.maxStates = builder.maxStates;
+        this.invariants = Collections.unmodifiableList(
+                new ArrayList<>(builder.invariants));
+    }
+
+    /**
+     * Explore every reachable state.  Throws IllegalStateException if
+     * there are more than maxStates of them.
+     *
+     * @return what was found
+     */
+    public ExplorationResult explore() {
+        final long begin = System.nanoTime();
+        final Search search = new Search();
+        final long first = encoding.encode(start);
+        search.visited.add(first, -1L, -1);
+        search.check(first, encoding.decode(first));
+        long[] frontier = {first};
+        int depth = 0;
+        while (true) {
+            final States next = POOL.invoke(
+                    new Expand(search, frontier, 0, frontier.length));
+            if (next.size == 0) {
+                break;
+            }
+            depth++;
+            frontier = Arrays.copyOf(next.values, next.size);
+        }
+        final List<Violation> violations = new ArrayList<>();
+        for (Invariant invariant : invariants) {
+            final Found found = search.violations.get(invariant.getName());
+            if (found == null) {
+                continue;
+            }
+            List<String> trace = trace(search.visited, found.state);
+            if (found.before >= 0) {
+                trace = trace(search.visited, found.before);
+                trace.add(describe(found.action));
+            }
+            violations.add(new Violation(invariant.getName(), trace,
+                    found.machine));
+        }
+        final Long[] banks = search.exactChange.toArray(new Long[0]);
+        Arrays.sort(banks);
+        final List<Bank> exactChangeBanks = new ArrayList<>();
+        for (Long bank : banks) {
+            exactChangeBanks.add(encoding.bank(bank));
+        }
+        return new ExplorationResult(search.visited.size(),
+                search.transitions.get(), search.truncated.get(), depth,
+                System.nanoTime() - begin, violations, exactChangeBanks);
+    }
+
+    /**
+     * Apply an action to a machine.
+     *
+     * @param machine the machine
+     * @param action  the action
+     * @return the machine after it
+     */
+    private static Machine apply(final Machine machine, final int action) {
+        if (action < INSERT_SLUG) {
+            return machine.insertCoin(COINS[action].getCoin());
+        }
+        if (action == INSERT_SLUG) {
+            return machine.insertCoin(SLUG);
+        }
+        if (action == RETURN_COINS) {
+            return machine.returnCoins();
+        }
+        return machine.vend(PRODUCTS[action - RETURN_COINS - 1]);
+    }
+
+    /**
+     * The coin an action inserts.
+     *
+     * @param action the action
+     * @return the coin's currency, or null if it inserts none
+     */
+    private static Currency inserted(final int action) {
+        if (action < INSERT_SLUG) {
+            return COINS[action];
+        }
+        if (action == INSERT_SLUG) {
+            return Currency.UNKNOWN;
+        }
+        return null;
+    }
+
+    /**
+     * Describe an action.
+     *
+     * @param action the action
+     * @return e.g. "vend(CANDY)"
+     */
+    private static String describe(final int action) {
+        if (action < RETURN_COINS) {
+            return "insertCoin(" + inserted(action).name() + ")";
+        }
+        if (action == RETURN_COINS) {
+            return "returnCoins()";
+        }
+        return "vend(" + PRODUCTS[action - RETURN_COINS - 1].name() + ")";
+    }
+
+    /**
+     * Follow parents back from a state to the start.
+     *
+     * @param visited the visited set
+     * @param state   the state
+     * @return the actions from the start
+     */
+    private static List<String> trace(final VisitedSet visited,
+                                      final long state) {
+        final LinkedList<String> trace = new LinkedList<>();
+        long current = state;
+        long parent = visited.parent(current);
+        while (parent >= 0) {
+            trace.addFirst(describe(visited.action(current)));
+            current = parent;
+            parent = visited.parent(current);
+        }
+        return new ArrayList<>(trace);
+    }
+
+    /**
+     * Shared state of one exploration.
+     */
+    private final class Search {
+        /**
+         * States seen.
+         */
+        private final VisitedSet visited = new VisitedSet(maxStates);
+
+        /**
+         * Transitions taken.
+         */
+        private final AtomicLong transitions = new AtomicLong();
+
+        /**
+         * Transitions past the bounds.
+         */
+        private final AtomicLong truncated = new AtomicLong();
+
+        /**
+         * First violation found, by invariant name.
+         */
+        private final ConcurrentMap<String, Found> violations =
+                new ConcurrentHashMap<>();
+
+        /**
+         * Machine banks that show EXACT CHANGE ONLY, packed.
+         */
+        private final Set<Long> exactChange = Collections.newSetFromMap(
+                new ConcurrentHashMap<Long, Boolean>());
+
+        /**
+         * Check a newly reached state.
+         *
+         * @param state   the state
+         * @param machine the state as a machine
+         */
+        private void check(final long state, final Machine machine) {
+            for (Invariant invariant : invariants) {
+                if (!violations.containsKey(invariant.getName())
+                        && !invariant.holds(start, machine)) {
+                    violations.putIfAbsent(invariant.getName(),
+                            new Found(state, -1L, -1, machine));
+                }
+            }
+            if (machine.getCustomerBank().calculateBalance() == 0L) {
+                final long bank = encoding.machineBank(state);
+                if (!exactChange.contains(bank)
+                        && Message.EXACT_CHANGE.getText().equals(
+                        machine.checkDisplay().getDisplay())) {
+                    exactChange.add(bank);
+                }
+            }
+        }
+
+        /**
+         * Check a step, whether or not the state it reaches is new.
+         *
+         * @param state     the state before it
+         * @param machine   the state before it, as a machine
+         * @param action    the step's action
+         * @param successor the state after it
+         * @param after     the state after it, as a machine
+         */
+        private void check(final long state, final Machine machine,
+                           final int action, final long successor,
+                           final Machine after) {
+            final Currency coin = inserted(action);
+            for (Invariant invariant : invariants) {
+                if (!violations.containsKey(invariant.getName())
+                        && !invariant.holds(machine, coin, after)) {
+                    violations.putIfAbsent(invariant.getName(),
+                            new Found(successor, state, action, after));
+                }
+            }
+        }
+    }
+
+    /**
+     * Where an invariant was found broken.
+     */
+    private static final class Found {
+        /**
+         * The state it was broken in, or reached by the step that broke
+         * it.
+         */
+        private final long state;
+
+        /**
+         * The state the breaking step started from, or -1 if the state
+         * itself was checked.
+         */
+        private final long before;
+
+        /**
+         * The breaking step's action, or -1.
+         */
+        private final int action;
+
+        /**
+         * The state as it was reached, coin return and all.
+         */
+        private final Machine machine;
+
+        /**
+         * Found constructor.
+         *
+         * @param state   the state
+         * @param before  the state before the step, or -1
+         * @param action  the step's action, or -1
+         * @param machine the state as a machine
+         */
+        Found(final long state, final long before, final int action,
+              final Machine machine) {
+            this.state = state;
+            this.before = before;
+            this.action = action;
+            this.machine = machine;
+        }
+    }
+
+    /**
+     * A growable list of states.
+     */
+    private static final class States {
+        /**
+         * The states.
+         */
+        private long[] values = new long[GRAIN];
+
+        /**
+         * How many.
+         */
+        private int size;
+
+        /**
+         * Add a state.
+         *
+         * @param state the state
+         */
+        private void add(final long state) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = state;
+        }
+
+        /**
+         * Add every state of another list.
+         *
+         * @param other the other list
+         * @return this list
+         */
+        private States addAll(final States other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values,
+                        Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            return this;
+        }
+    }
+
+    /**
+     * Fork/join task expanding part of a level.
+     */
+    private final class Expand extends RecursiveTask<States> {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The exploration.
+         */
+        private final Search search;
+
+        /**
+         * The level.
+         */
+        private final long[] frontier;
+
+        /**
+         * First state to expand.
+         */
+        private final int from;
+
+        /**
+         * One past the last state to expand.
+         */
+        private final int to;
+
+        /**
+         * Expand constructor.
+         *
+         * @param search   the exploration
+         * @param frontier the level
+         * @param from     first state to expand
+         * @param to       one past the last state to expand
+         */
+        Expand(final Search search, final long[] frontier, final int from,
+               final int to) {
+            this.search = search;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected States compute() {
+            if (to - from > GRAIN) {
+                final int middle = (from + to) >>> 1;
+                final Expand left = new Expand(search, frontier, from, middle);
+                left.fork();
+                final States right =
+                        new Expand(search, frontier, middle, to).compute();
+                return left.join().addAll(right);
+            }
+            final States next = new States();
+            long transitions = 0L;
+            long truncated = 0L;
+            for (int i = from; i < to; i++) {
+                final long state = frontier[i];
+                final Machine machine = encoding.decode(state);
+                for (int action = 0; action < ACTIONS; action++) {
+                    final Machine after = apply(machine, action);
+                    final long successor = encoding.encode(after);
+                    if (successor < 0) {
+                        truncated++;
+                        continue;
+                    }
+                    transitions++;
+                    search.check(state, machine, action, successor, after);
+                    if (search.visited.add(successor, state, action)) {
+                        search.check(successor, after);
+                        next.add(successor);
+                    }
+                }
+            }
+            search.transitions.addAndGet(transitions);
+            search.truncated.addAndGet(truncated);
+            return next;
+        }
+    }
+}
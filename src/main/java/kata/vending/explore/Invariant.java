@@ -0,0 +1,41 @@
+package kata.vending.explore;
+
+import kata.vending.Currency;
+import kata.vending.Machine;
+
+/**
+ * Something that must hold in every reachable machine state.
+ */
+public interface Invariant {
+    /**
+     * A short name for reports.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Check a state.
+     *
+     * @param start the machine exploration started from
+     * @param state a reachable machine state
+     * @return true if the invariant holds
+     */
+    boolean holds(Machine start, Machine state);
+
+    /**
+     * Check a step from one reachable state to the next, for invariants
+     * about what a step does rather than where it ends up.  Holds unless
+     * overridden.
+     *
+     * @param before   the state before the step
+     * @param inserted the coin the step inserted, or null if it inserted
+     *                 none
+     * @param after    the state after it
+     * @return true if the invariant holds
+     */
+    default boolean holds(final Machine before, final Currency inserted,
+                          final Machine after) {
+        return true;
+    }
+}
@@ -0,0 +1,92 @@
+package kata.vending.explore;
+
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+/**
+ * Invariants every machine should keep.
+ */
+public final class Invariants {
+    /**
+     * The machine bank only ever gains the prices of what was sold: a
+     * customer is never short-changed, and never given more than they paid.
+     * And no step makes or loses a coin: counting the customer bank, the
+     * machine bank and the coin return together, each step adds only the
+     * coin it inserts.
+     */
+    public static final Invariant MONEY_CONSERVED = new Invariant() {
+        @Override
+        public String getName() {
+            return "money conserved";
+        }
+
+        @Override
+        public boolean holds(final Machine start, final Machine state) {
+            long sales = 0L;
+            for (Product product : Product.values()) {
+                sales += product.getPrice()
+                        * (start.getInventory().quantity(product)
+                        - state.getInventory().quantity(product));
+            }
+            return state.getMachineBank().calculateBalance()
+                    - start.getMachineBank().calculateBalance() == sales;
+        }
+
+        @Override
+        public boolean holds(final Machine before, final Currency inserted,
+                             final Machine after) {
+            for (Currency currency : Currency.values()) {
+                int expected = coins(before, currency);
+                if (currency == inserted) {
+                    expected++;
+                }
+                if (coins(after, currency) != expected) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Stock only goes down, and never below zero.
+     */
+    public static final Invariant STOCK_NEVER_GROWS = new Invariant() {
+        @Override
+        public String getName() {
+            return "stock never grows";
+        }
+
+        @Override
+        public boolean holds(final Machine start, final Machine state) {
+            for (Product product : Product.values()) {
+                final int quantity = state.getInventory().quantity(product);
+                if (quantity < 0
+                        || quantity > start.getInventory().quantity(product)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Utility class.
+     */
+    private Invariants() {
+    }
+
+    /**
+     * Coins of one currency anywhere in a machine.
+     *
+     * @param machine  the machine
+     * @param currency the currency
+     * @return the customer bank, machine bank and coin return count
+     */
+    private static int coins(final Machine machine, final Currency currency) {
+        return machine.getCustomerBank().getInventory().quantity(currency)
+                + machine.getMachineBank().getInventory().quantity(currency)
+                + machine.getCoinReturn().getInventory().quantity(currency);
+    }
+}
@@ -0,0 +1,179 @@
+package kata.vending.explore;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+/**
+ * Packs a Machine into a long: customer bank and machine bank counts per
+ * coin, then product counts, each in just enough bits for its bound, then a
+ * bit saying whether the coin return holds anything.
+ * <p/>
+ * The display and what is in the coin return don't change how the machine
+ * behaves, so they are left out.  Whether the coin return is empty is kept
+ * because a step can lose what is there; a coin return that isn't empty
+ * decodes as one unknown coin.
+ * Immutable.
+ */
+final class StateEncoding {
+    /**
+     * Most bits a state may take; one is kept free so the visited set can
+     * tell a state from an empty slot.
+     */
+    static final int MAX_BITS = Long.SIZE - 2;
+
+    /**
+     * Coins that can be in a bank, largest first.
+     */
+    private static final Currency[] COINS =
+            Currency.descending().toArray(new Currency[0]);
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * The coin return field.
+     */
+    private static final int RETURN_FIELD = 2 * COINS.length
+            + PRODUCTS.length;
+
+    /**
+     * Fields: customer coins, machine coins, products, coin return.
+     */
+    private static final int FIELDS = RETURN_FIELD + 1;
+
+    /**
+     * Most of each field.
+     */
+    private final int[] bounds = new int[FIELDS];
+
+    /**
+     * Where each field starts.
+     */
+    private final int[] shifts = new int[FIELDS];
+
+    /**
+     * StateEncoding constructor.
+     *
+     * @param maxCoins most coins of one kind either bank may hold
+     * @param stock    most of each product, by ordinal
+     */
+    StateEncoding(final int maxCoins, final int[] stock) {
+        int shift = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if (field < 2 * COINS.length) {
+                bounds[field] = maxCoins;
+            } else if (field < RETURN_FIELD) {
+                bounds[field] = stock[field - 2 * COINS.length];
+            } else {
+                bounds[field] = 1;
+            }
+            shifts[field] = shift;
+            shift += Long.SIZE - Long.numberOfLeadingZeros(bounds[field]);
+        }
+        if (shift > MAX_BITS) {
+            throw new IllegalArgumentException("state needs " + shift
+                    + " bits, more than " + MAX_BITS);
+        }
+    }
+
+    /**
+     * Encode a machine.
+     *
+     * @param machine the machine
+     * @return the state, or -1 if a count is out of bounds
+     */
+    long encode(final Machine machine) {
+        final Inventory<Currency> customer =
+                machine.getCustomerBank().getInventory();
+        final Inventory<Currency> bank =
+                machine.getMachineBank().getInventory();
+        final Inventory<Product> inventory = machine.getInventory();
+        long state = 0L;
+        for (int field = 0; field < FIELDS; field++) {
+            final int count;
+            if (field < COINS.length) {
+                count = customer.quantity(COINS[field]);
+            } else if (field < 2 * COINS.length) {
+                count = bank.quantity(COINS[field - COINS.length]);
+            } else if (field < RETURN_FIELD) {
+                count = inventory.quantity(
+                        PRODUCTS[field - 2 * COINS.length]);
+            } else {
+                count = Math.min(1, machine.getCoinReturn().countCoins());
+            }
+            if (count < 0 || count > bounds[field]) {
+                return -1L;
+            }
+            state |= (long) count << shifts[field];
+        }
+        return state;
+    }
+
+    /**
+     * Decode a state into a machine.
+     *
+     * @param state the state
+     * @return the machine
+     */
+    Machine decode(final long state) {
+        Bank customer = new Bank();
+        Bank bank = new Bank();
+        for (int i = 0; i < COINS.length; i++) {
+            customer = customer.deposit(COINS[i], count(state, i));
+            bank = bank.deposit(COINS[i], count(state, COINS.length + i));
+        }
+        Inventory<Product> inventory = new Inventory<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS.length; i++) {
+            inventory = inventory.add(PRODUCTS[i],
+                    count(state, 2 * COINS.length + i));
+        }
+        final Bank returned = new Bank().deposit(Currency.UNKNOWN,
+                count(state, RETURN_FIELD));
+        return new Machine.Builder()
+                .customerBank(customer)
+                .machineBank(bank)
+                .inventory(inventory)
+                .coinReturn(returned)
+                .build();
+    }
+
+    /**
+     * Just the machine bank part of a state.
+     *
+     * @param state the state
+     * @return the machine bank counts, packed
+     */
+    long machineBank(final long state) {
+        final int first = COINS.length;
+        final int end = shifts[2 * COINS.length];
+        return (state & ((1L << end) - 1)) >>> shifts[first];
+    }
+
+    /**
+     * Turn a machine bank part back into a Bank.
+     *
+     * @param machineBank the machine bank counts, packed
+     * @return the bank
+     */
+    Bank bank(final long machineBank) {
+        return decode(machineBank << shifts[COINS.length]).getMachineBank();
+    }
+
+    /**
+     * Read one field.
+     *
+     * @param state the state
+     * @param field the field
+     * @return the count
+     */
+    private int count(final long state, final int field) {
+        final int width = Integer.SIZE
+                - Integer.numberOfLeadingZeros(bounds[field]);
+        return (int) (state >>> shifts[field] & ((1L << width) - 1));
+    }
+}
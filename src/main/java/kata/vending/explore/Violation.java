@@ -0,0 +1,59 @@
+package kata.vending.explore;
+
+import kata.vending.Machine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An invariant that failed, with a shortest sequence of actions from the
+ * start that breaks it.
+ * Immutable.
+ */
+public final class Violation {
+    /**
+     * The invariant's name.
+     */
+    private final String invariant;
+
+    public String getInvariant() {
+        return invariant;
+    }
+
+    /**
+     * The actions, e.g. "insertCoin(QUARTER)", from the start.
+     */
+    private final List<String> trace;
+
+    public List<String> getTrace() {
+        return trace;
+    }
+
+    /**
+     * The state the trace ends in.
+     */
+    private final Machine state;
+
+    public Machine getState() {
+        return state;
+    }
+
+    /**
+     * Violation constructor.
+     *
+     * @param invariant the invariant's name
+     * @param trace     the actions from the start
+     * @param state     the state the trace ends in
+     */
+    Violation(final String invariant, final List<String> trace,
+              final Machine state) {
+        this.invariant = invariant;
+        this.trace = Collections.unmodifiableList(trace);
+        this.state = state;
+    }
+
+    @Override
+    public String toString() {
+        return invariant + ": " + trace;
+    }
+}
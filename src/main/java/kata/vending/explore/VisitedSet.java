@@ -0,0 +1,174 @@
+package kata.vending.explore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size lock-free hash set of states, remembering for each state the
+ * state and action it was first reached from.  Open addressing with linear
+ * probing; slots are claimed with compare-and-set.
+ */
+final class VisitedSet {
+    /**
+     * An empty slot.  States are stored plus one so state 0 isn't empty.
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * Murmur3 finalizer constants.
+     */
+    private static final long MIX1 = 0xff51afd7ed558ccdL;
+
+    /**
+     * Murmur3 finalizer constants.
+     */
+    private static final long MIX2 = 0xc4ceb9fe1a85ec53L;
+
+    /**
+     * Shift used by the finalizer.
+     */
+    private static final int MIX_SHIFT = 33;
+
+    /**
+     * The states, plus one.
+     */
+    private final AtomicLongArray keys;
+
+    /**
+     * The state each state was reached from, or -1 for the start.
+     */
+    private final long[] parents;
+
+    /**
+     * The action each state was reached by.
+     */
+    private final byte[] actions;
+
+    /**
+     * Slots minus one.
+     */
+    private final int mask;
+
+    /**
+     * Most states it may hold; the table is kept at most half full.
+     */
+    private final int maxStates;
+
+    /**
+     * States added.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * VisitedSet constructor.
+     *
+     * @param maxStates most states it must hold
+     */
+    VisitedSet(final int maxStates) {
+        final int capacity = Integer.highestOneBit(
+                Math.max(2, maxStates) * 2 - 1) * 2;
+        keys = new AtomicLongArray(capacity);
+        parents = new long[capacity];
+        actions = new byte[capacity];
+        mask = capacity - 1;
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Add a state if it isn't there.
+     *
+     * @param state  the state
+     * @param parent the state it was reached from
+     * @param action the action it was reached by
+     * @return true if it was added, false if it was already there
+     */
+    boolean add(final long state, final long parent, final int action) {
+        final long key = state + 1;
+        int slot = slot(key);
+        while (true) {
+            long found = keys.get(slot);
+            if (found == EMPTY) {
+                if (keys.compareAndSet(slot, EMPTY, key)) {
+                    if (size.incrementAndGet() > maxStates) {
+                        throw new IllegalStateException("more than "
+                                + maxStates + " states");
+                    }
+                    parents[slot] = parent;
+                    actions[slot] = (byte) action;
+                    return true;
+                }
+                found = keys.get(slot);
+            }
+            if (found == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * How many states have been added.
+     *
+     * @return the state count
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * The state a state was first reached from.  Only safe once the level
+     * that added it is complete.
+     *
+     * @param state the state
+     * @return the parent, or -1 for the start
+     */
+    long parent(final long state) {
+        return parents[find(state)];
+    }
+
+    /**
+     * The action a state was first reached by.  Only safe once the level
+     * that added it is complete.
+     *
+     * @param state the state
+     * @return the action
+     */
+    int action(final long state) {
+        return actions[find(state)];
+    }
+
+    /**
+     * Find a state's slot.
+     *
+     * @param state the state
+     * @return the slot
+     */
+    private int find(final long state) {
+        final long key = state + 1;
+        int slot = slot(key);
+        while (keys.get(slot) != key) {
+            if (keys.get(slot) == EMPTY) {
+                throw new IllegalArgumentException("state not visited: "
+                        + state);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Where a key hashes to.
+     *
+     * @param key the key
+     * @return the first slot to try
+     */
+    private int slot(final long key) {
+        long h = key;
+        h ^= h >>> MIX_SHIFT;
+        h *= MIX1;
+        h ^= h >>> MIX_SHIFT;
+        h *= MIX2;
+        h ^= h >>> MIX_SHIFT;
+        return (int) h & mask;
+    }
+}
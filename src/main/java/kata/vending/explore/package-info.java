@@ -0,0 +1,5 @@
+/**
+ * Breadth-first exploration of every Machine state reachable from a start,
+ * checking invariants and reporting counterexample traces.
+ */
+package kata.vending.explore;
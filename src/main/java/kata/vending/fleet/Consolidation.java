@@ -0,0 +1,338 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Product;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The cash collected and products restocked across many pickups, in total
+ * and per route.  Built with one parallel pass that adds counts into
+ * primitive arrays and merges them pairwise, instead of chaining
+ * Bank.deposit, which builds a new Inventory per merge.
+ * Immutable.
+ */
+public final class Consolidation {
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Where product counts start in an accumulator.
+     */
+    private static final int PRODUCTS_AT = CURRENCIES.length;
+
+    /**
+     * Where the pickup count is in an accumulator.
+     */
+    private static final int PICKUPS_AT = PRODUCTS_AT + PRODUCTS.length;
+
+    /**
+     * Longs in an accumulator: currency counts, product counts, pickups.
+     */
+    private static final int WIDTH = PICKUPS_AT + 1;
+
+    /**
+     * Counts over every route.
+     */
+    private final long[] total;
+
+    /**
+     * Counts by route name.
+     */
+    private final Map<String, long[]> routes;
+
+    /**
+     * Consolidation constructor.
+     *
+     * @param routes counts by route name
+     */
+    private Consolidation(final Map<String, long[]> routes) {
+        this.routes = Collections.unmodifiableMap(new TreeMap<>(routes));
+        this.total = new long[WIDTH];
+        for (long[] route : routes.values()) {
+            add(total, route);
+        }
+    }
+
+    /**
+     * Consolidate some pickups.
+     *
+     * @param pickups the pickups
+     * @return the totals
+     */
+    public static Consolidation of(final List<Pickup> pickups) {
+        return new Consolidation(Ranges.reduce(pickups.size(),
+                new Ranges.Reducer<Map<String, long[]>>() {
+                    @Override
+                    public Map<String, long[]> reduce(final int from,
+                                                      final int to) {
+                        return accumulate(pickups, from, to);
+                    }
+
+                    @Override
+                    public Map<String, long[]> combine(
+                            final Map<String, long[]> left,
+                            final Map<String, long[]> right) {
+                        return merge(left, right);
+                    }
+                }));
+    }
+
+    /**
+     * Add up some banks.
+     *
+     * @param banks the banks
+     * @return one bank holding every coin
+     */
+    public static Bank total(final List<Bank> banks) {
+        return bank(Ranges.reduce(banks.size(),
+                new Ranges.Reducer<long[]>() {
+                    @Override
+                    public long[] reduce(final int from, final int to) {
+                        final long[] counts = new long[WIDTH];
+                        for (int i = from; i < to; i++) {
+                            addBank(counts, banks.get(i));
+                        }
+                        return counts;
+                    }
+
+                    @Override
+                    public long[] combine(final long[] left,
+                                          final long[] right) {
+                        add(left, right);
+                        return left;
+                    }
+                }));
+    }
+
+    /**
+     * Count some pickups into accumulators by route.
+     *
+     * @param pickups the pickups
+     * @param from    first index
+     * @param to      one past the last index
+     * @return counts by route name
+     */
+    private static Map<String, long[]> accumulate(final List<Pickup> pickups,
+                                                  final int from,
+                                                  final int to) {
+        final Map<String, long[]> routes = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            final Pickup pickup = pickups.get(i);
+            long[] counts = routes.get(pickup.getRoute());
+            if (counts == null) {
+                counts = new long[WIDTH];
+                routes.put(pickup.getRoute(), counts);
+            }
+            addBank(counts, pickup.getCollected());
+            final Inventory<Product> restocked = pickup.getRestocked();
+            for (Product product : PRODUCTS) {
+                counts[PRODUCTS_AT + product.ordinal()] +=
+                        restocked.quantity(product);
+            }
+            counts[PICKUPS_AT]++;
+        }
+        return routes;
+    }
+
+    /**
+     * Merge one set of route accumulators into another.
+     *
+     * @param left  the accumulators merged into
+     * @param right the accumulators merged from
+     * @return left
+     */
+    private static Map<String, long[]> merge(final Map<String, long[]> left,
+                                             final Map<String, long[]> right) {
+        for (Map.Entry<String, long[]> route : right.entrySet()) {
+            final long[] counts = left.get(route.getKey());
+            if (counts == null) {
+                left.put(route.getKey(), route.getValue());
+            } else {
+                add(counts, route.getValue());
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Add a bank's coins to an accumulator.
+     *
+     * @param counts the accumulator
+     * @param bank   the bank
+     */
+    private static void addBank(final long[] counts, final Bank bank) {
+        final Inventory<Currency> coins = bank.getInventory();
+        for (Currency currency : CURRENCIES) {
+            counts[currency.ordinal()] += coins.quantity(currency);
+        }
+    }
+
+    /**
+     * Add one accumulator to another.
+     *
+     * @param into the accumulator added to
+     * @param from the accumulator added
+     */
+    private static void add(final long[] into, final long[] from) {
+        for (int i = 0; i < WIDTH; i++) {
+            into[i] += from[i];
+        }
+    }
+
+    /**
+     * Turn an accumulator's coins into a Bank.
+     *
+     * @param counts the accumulator
+     * @return the bank
+     */
+    private static Bank bank(final long[] counts) {
+        Bank bank = new Bank();
+        for (Currency currency : CURRENCIES) {
+            bank = bank.deposit(currency, toInt(counts[currency.ordinal()]));
+        }
+        return bank;
+    }
+
+    /**
+     * Turn an accumulator's products into an Inventory.
+     *
+     * @param counts the accumulator
+     * @return the inventory
+     */
+    private static Inventory<Product> inventory(final long[] counts) {
+        Inventory<Product> inventory = new Inventory<>(PRODUCTS);
+        for (Product product : PRODUCTS) {
+            inventory = inventory.add(product,
+                    toInt(counts[PRODUCTS_AT + product.ordinal()]));
+        }
+        return inventory;
+    }
+
+    /**
+     * Narrow a count to what Bank and Inventory hold.
+     *
+     * @param count the count
+     * @return the count as an int
+     */
+    private static int toInt(final long count) {
+        if (count > Integer.MAX_VALUE) {
+            throw new ArithmeticException("count too large: " + count);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Counts for a route.
+     *
+     * @param route the route name
+     * @return the accumulator
+     */
+    private long[] route(final String route) {
+        final long[] counts = routes.get(route);
+        if (counts == null) {
+            throw new IllegalArgumentException("no such route: " + route);
+        }
+        return counts;
+    }
+
+    /**
+     * The routes that had pickups.
+     *
+     * @return the route names, sorted
+     */
+    public Set<String> getRoutes() {
+        return routes.keySet();
+    }
+
+    /**
+     * How many pickups there were.
+     *
+     * @return the pickup count
+     */
+    public long getPickups() {
+        return total[PICKUPS_AT];
+    }
+
+    /**
+     * How many pickups there were on a route.
+     *
+     * @param route the route name
+     * @return the pickup count
+     */
+    public long getPickups(final String route) {
+        return route(route)[PICKUPS_AT];
+    }
+
+    /**
+     * How many coins of a currency were collected.
+     *
+     * @param currency the currency
+     * @return the coin count
+     */
+    public long getCoins(final Currency currency) {
+        return total[currency.ordinal()];
+    }
+
+    /**
+     * How many of a product were restocked.
+     *
+     * @param product the product
+     * @return the unit count
+     */
+    public long getUnits(final Product product) {
+        return total[PRODUCTS_AT + product.ordinal()];
+    }
+
+    /**
+     * Everything collected as one bank.
+     *
+     * @return the bank
+     */
+    public Bank getCollected() {
+        return bank(total);
+    }
+
+    /**
+     * Everything collected on a route as one bank.
+     *
+     * @param route the route name
+     * @return the bank
+     */
+    public Bank getCollected(final String route) {
+        return bank(route(route));
+    }
+
+    /**
+     * Everything restocked as one inventory.
+     *
+     * @return the inventory
+     */
+    public Inventory<Product> getRestocked() {
+        return inventory(total);
+    }
+
+    /**
+     * Everything restocked on a route as one inventory.
+     *
+     * @param route the route name
+     * @return the inventory
+     */
+    public Inventory<Product> getRestocked(final String route) {
+        return inventory(route(route));
+    }
+}
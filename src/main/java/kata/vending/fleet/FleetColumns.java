@@ -0,0 +1,327 @@
+package kata.vending.fleet;
+
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import kata.vending.codec.BankSlot;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * A columnar snapshot of a fleet: one int array per bank and currency and
+ * one per product, indexed by the machine's position in the collection the
+ * snapshot was built from.  Scans, filters and totals run over the arrays in
+ * parallel rather than walking Machine objects.
+ * Immutable.
+ */
+public final class FleetColumns {
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Currencies change is made from, largest first.
+     */
+    private static final Currency[] DESCENDING =
+            Currency.descending().toArray(new Currency[0]);
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Cached bank slots.
+     */
+    private static final BankSlot[] SLOTS = BankSlot.values();
+
+    /**
+     * How many machines.
+     */
+    private final int size;
+
+    /**
+     * Bank counts: [slot][currency][machine].
+     */
+    private final int[][][] banks;
+
+    /**
+     * Product counts: [product][machine].
+     */
+    private final int[][] products;
+
+    /**
+     * FleetColumns constructor.  Allocates empty columns.
+     *
+     * @param size how many machines
+     */
+    private FleetColumns(final int size) {
+        this.size = size;
+        this.banks = new int[SLOTS.length][CURRENCIES.length][size];
+        this.products = new int[PRODUCTS.length][size];
+    }
+
+    /**
+     * Build a snapshot.  Machine i of the collection's iteration order is
+     * index i of every column.
+     *
+     * @param machines the machines
+     * @return the snapshot
+     */
+    public static FleetColumns of(final Collection<Machine> machines) {
+        final Machine[] array = machines.toArray(new Machine[0]);
+        final FleetColumns columns = new FleetColumns(array.length);
+        Ranges.forEach(array.length, new Ranges.Action() {
+            @Override
+            public void run(final int from, final int to) {
+                columns.fill(array, from, to);
+            }
+        });
+        return columns;
+    }
+
+    /**
+     * Copy some machines into the columns.
+     *
+     * @param machines the machines
+     * @param from     first index
+     * @param to       one past the last index
+     */
+    private void fill(final Machine[] machines, final int from,
+                      final int to) {
+        for (int i = from; i < to; i++) {
+            final Machine machine = machines[i];
+            for (BankSlot slot : SLOTS) {
+                final Inventory<Currency> bank =
+                        slot.of(machine).getInventory();
+                final int[][] columns = banks[slot.ordinal()];
+                for (Currency currency : CURRENCIES) {
+                    columns[currency.ordinal()][i] = bank.quantity(currency);
+                }
+            }
+            final Inventory<Product> inventory = machine.getInventory();
+            for (Product product : PRODUCTS) {
+                products[product.ordinal()][i] = inventory.quantity(product);
+            }
+        }
+    }
+
+    /**
+     * How many machines are in the snapshot.
+     *
+     * @return the machine count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * One machine's bank count.
+     *
+     * @param machine  the machine index
+     * @param slot     the bank
+     * @param currency the currency
+     * @return the count
+     */
+    public int quantity(final int machine, final BankSlot slot,
+                        final Currency currency) {
+        return banks[slot.ordinal()][currency.ordinal()][machine];
+    }
+
+    /**
+     * One machine's product count.
+     *
+     * @param machine the machine index
+     * @param product the product
+     * @return the count
+     */
+    public int quantity(final int machine, final Product product) {
+        return products[product.ordinal()][machine];
+    }
+
+    /**
+     * Total of a currency held in one bank across the fleet, e.g. every
+     * quarter in every machine bank.
+     *
+     * @param slot     the bank
+     * @param currency the currency
+     * @return the total count
+     */
+    public long total(final BankSlot slot, final Currency currency) {
+        return sum(banks[slot.ordinal()][currency.ordinal()]);
+    }
+
+    /**
+     * Total of a currency held in one bank across some machines.
+     *
+     * @param slot     the bank
+     * @param currency the currency
+     * @param machines the machine indexes to include
+     * @return the total count
+     */
+    public long total(final BankSlot slot, final Currency currency,
+                      final BitSet machines) {
+        final int[] column = banks[slot.ordinal()][currency.ordinal()];
+        final long[] words = machines.toLongArray();
+        return Ranges.sum(size, new Ranges.Sum() {
+            @Override
+            public long sum(final int from, final int to) {
+                long total = 0L;
+                for (int i = from; i < to; i++) {
+                    final int word = i / Ranges.WORD;
+                    if (word < words.length
+                            && (words[word] & 1L << i) != 0) {
+                        total += column[i];
+                    }
+                }
+                return total;
+            }
+        });
+    }
+
+    /**
+     * Total value of one bank across the fleet.
+     *
+     * @param slot the bank
+     * @return the total in cents
+     */
+    public long balance(final BankSlot slot) {
+        long balance = 0L;
+        for (Currency currency : CURRENCIES) {
+            balance += currency.getCents() * total(slot, currency);
+        }
+        return balance;
+    }
+
+    /**
+     * Total stock of a product across the fleet.
+     *
+     * @param product the product
+     * @return the total count
+     */
+    public long stock(final Product product) {
+        return sum(products[product.ordinal()]);
+    }
+
+    /**
+     * Machines that have run out of a product.
+     *
+     * @param product the product
+     * @return the machine indexes
+     */
+    public BitSet soldOut(final Product product) {
+        final int[] column = products[product.ordinal()];
+        final long[] words = words();
+        Ranges.forEach(size, new Ranges.Action() {
+            @Override
+            public void run(final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    if (column[i] <= 0) {
+                        words[i / Ranges.WORD] |= 1L << i;
+                    }
+                }
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Machines whose machine bank can't make change for a product's price,
+     * worked out the way Bank.makeChange does.
+     *
+     * @param product the product
+     * @return the machine indexes
+     */
+    public BitSet cannotMakeChange(final Product product) {
+        final long[] words = words();
+        Ranges.forEach(size, new Ranges.Action() {
+            @Override
+            public void run(final int from, final int to) {
+                shortOfChange(product.getPrice(), from, to, words);
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Machines that would show EXACT CHANGE ONLY: those that can't make
+     * change for at least one product.
+     *
+     * @return the machine indexes
+     */
+    public BitSet exactChangeOnly() {
+        final long[] words = words();
+        Ranges.forEach(size, new Ranges.Action() {
+            @Override
+            public void run(final int from, final int to) {
+                for (Product product : PRODUCTS) {
+                    shortOfChange(product.getPrice(), from, to, words);
+                }
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Set the bit of every machine in a range that can't make change for an
+     * amount.  Works a denomination at a time down the columns.
+     *
+     * @param amount the change wanted
+     * @param from   first index, a multiple of 64
+     * @param to     one past the last index
+     * @param words  the bits to set
+     */
+    private void shortOfChange(final long amount, final int from,
+                               final int to, final long[] words) {
+        final long[] remaining = new long[to - from];
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = amount;
+        }
+        final int[][] machineBank = banks[BankSlot.MACHINE.ordinal()];
+        for (Currency currency : DESCENDING) {
+            final int[] column = machineBank[currency.ordinal()];
+            final long cents = currency.getCents();
+            for (int i = 0; i < remaining.length; i++) {
+                final long used = Math.min(remaining[i] / cents,
+                        column[from + i]);
+                remaining[i] -= used * cents;
+            }
+        }
+        for (int i = 0; i < remaining.length; i++) {
+            if (remaining[i] != 0) {
+                words[(from + i) / Ranges.WORD] |= 1L << (from + i);
+            }
+        }
+    }
+
+    /**
+     * Sum a column in parallel.
+     *
+     * @param column the column
+     * @return the sum
+     */
+    private long sum(final int[] column) {
+        return Ranges.sum(size, new Ranges.Sum() {
+            @Override
+            public long sum(final int from, final int to) {
+                long total = 0L;
+                for (int i = from; i < to; i++) {
+                    total += column[i];
+                }
+                return total;
+            }
+        });
+    }
+
+    /**
+     * Words for a bit set over every machine.
+     *
+     * @return zeroed words
+     */
+    private long[] words() {
+        return new long[(size + Ranges.WORD - 1) / Ranges.WORD];
+    }
+}
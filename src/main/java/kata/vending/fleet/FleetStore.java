@@ -0,0 +1,440 @@
+package kata.vending.fleet;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Product;
+import kata.vending.codec.BankSlot;
+import kata.vending.codec.DisplayCode;
+import kata.vending.codec.MachineCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps every machine in a fleet as a fixed-size MachineCodec record in a
+ * memory-mapped file, indexed by machine id.  Machine operations update the
+ * record in place, so the state survives restarts and the heap holds nothing
+ * per machine.
+ * <p/>
+ * The in-place operations behave exactly like the Machine methods of the
+ * same name.  Operations on one machine are serialized by a striped lock;
+ * operations on different machines run in parallel.
+ */
+public final class FleetStore implements Closeable {
+    /**
+     * File magic, "VFLT".
+     */
+    private static final int MAGIC = 0x56464C54;
+
+    /**
+     * File header: magic, record size, capacity.
+     */
+    private static final int HEADER_SIZE = 3 * Integer.SIZE / Byte.SIZE;
+
+    /**
+     * Number of lock stripes.  A power of two.
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Currencies change is made from, largest first.
+     */
+    private static final Currency[] DESCENDING =
+            Currency.descending().toArray(new Currency[0]);
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapped records.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * How many machine ids the file holds.
+     */
+    private final int capacity;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Per stripe lock and scratch space.
+     */
+    private final Scratch[] stripes = new Scratch[STRIPES];
+
+    /**
+     * Lock and working counts for one stripe of machines.
+     */
+    private static final class Scratch {
+        /**
+         * Machine bank plus customer bank, by currency ordinal.
+         */
+        private final int[] combined = new int[CURRENCIES.length];
+
+        /**
+         * Change being made, by currency ordinal.
+         */
+        private final int[] change = new int[CURRENCIES.length];
+    }
+
+    /**
+     * Open (or create) a fleet file.
+     *
+     * @param file     the file
+     * @param capacity how many machine ids it holds; must match an existing
+     *                 file
+     * @throws IOException if the file can't be opened or doesn't match
+     */
+    public FleetStore(final Path file, final int capacity) throws IOException {
+        final long size = HEADER_SIZE + (long) capacity * MachineCodec.SIZE;
+        if (capacity <= 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity out of range: "
+                    + capacity);
+        }
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        final boolean fresh = channel.size() == 0;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (fresh) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, MachineCodec.SIZE);
+            buffer.putInt(8, capacity);
+        } else if (buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != MachineCodec.SIZE
+                || buffer.getInt(8) != capacity) {
+            channel.close();
+            throw new IOException("not a fleet file with this layout and "
+                    + "capacity: " + file);
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Scratch();
+        }
+    }
+
+    /**
+     * Where a machine's record starts.
+     *
+     * @param id the machine id
+     * @return the record index in the buffer
+     */
+    private int index(final int id) {
+        if (id < 0 || id >= capacity) {
+            throw new IndexOutOfBoundsException("machine id " + id);
+        }
+        return HEADER_SIZE + id * MachineCodec.SIZE;
+    }
+
+    /**
+     * The lock and scratch space for a machine.
+     *
+     * @param id the machine id
+     * @return its stripe
+     */
+    private Scratch stripe(final int id) {
+        return stripes[id & (STRIPES - 1)];
+    }
+
+    /**
+     * Whether a machine has been stored under an id.
+     *
+     * @param id the machine id
+     * @return true if there is a record
+     */
+    public boolean contains(final int id) {
+        return MachineCodec.isMachine(buffer, index(id));
+    }
+
+    /**
+     * Store a machine, replacing whatever was there.
+     *
+     * @param id      the machine id
+     * @param machine the machine
+     */
+    public void put(final int id, final Machine machine) {
+        final int index = index(id);
+        synchronized (stripe(id)) {
+            MachineCodec.encode(machine, buffer, index);
+        }
+    }
+
+    /**
+     * Read a machine back as a Machine.
+     *
+     * @param id the machine id
+     * @return the machine
+     */
+    public Machine get(final int id) {
+        final int index = index(id);
+        synchronized (stripe(id)) {
+            return MachineCodec.decode(buffer, index);
+        }
+    }
+
+    /**
+     * Forget a machine.
+     *
+     * @param id the machine id
+     */
+    public void remove(final int id) {
+        final int index = index(id);
+        synchronized (stripe(id)) {
+            buffer.putInt(index, 0);
+        }
+    }
+
+    /**
+     * The buffer the records live in, for reading fields in place with
+     * MachineCodec.  Don't write to it.
+     *
+     * @return a read-only view of the mapped file
+     */
+    public ByteBuffer records() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Where a machine's record starts in the records buffer.
+     *
+     * @param id the machine id
+     * @return the record index
+     */
+    public int recordIndex(final int id) {
+        return index(id);
+    }
+
+    /**
+     * The display of a stored machine.
+     *
+     * @param id the machine id
+     * @return the display text
+     */
+    public String display(final int id) {
+        final int index = index(id);
+        synchronized (stripe(id)) {
+            return MachineCodec.display(buffer, index);
+        }
+    }
+
+    /**
+     * Machine.insertCoin, in place.
+     *
+     * @param id   the machine id
+     * @param coin the coin to insert
+     * @return the display code afterwards
+     */
+    public DisplayCode insertCoin(final int id, final Coin coin) {
+        final int index = index(id);
+        final Currency currency = Currency.toCurrency(coin);
+        synchronized (stripe(id)) {
+            present(index);
+            if (currency == Currency.UNKNOWN) {
+                add(index, BankSlot.COIN_RETURN, currency, 1);
+                return MachineCodec.displayCode(buffer, index);
+            }
+            add(index, BankSlot.CUSTOMER, currency, 1);
+            MachineCodec.setDisplay(buffer, index, DisplayCode.BALANCE,
+                    MachineCodec.balance(buffer, index, BankSlot.CUSTOMER));
+            return DisplayCode.BALANCE;
+        }
+    }
+
+    /**
+     * Machine.returnCoins, in place.
+     *
+     * @param id the machine id
+     * @return the display code afterwards
+     */
+    public DisplayCode returnCoins(final int id) {
+        final int index = index(id);
+        synchronized (stripe(id)) {
+            present(index);
+            for (Currency currency : CURRENCIES) {
+                add(index, BankSlot.COIN_RETURN, currency,
+                        MachineCodec.quantity(buffer, index,
+                                BankSlot.CUSTOMER, currency));
+                MachineCodec.setQuantity(buffer, index, BankSlot.CUSTOMER,
+                        currency, 0);
+            }
+            MachineCodec.setDisplay(buffer, index, DisplayCode.BALANCE, 0L);
+            return DisplayCode.BALANCE;
+        }
+    }
+
+    /**
+     * Machine.checkDisplay, in place.
+     *
+     * @param id the machine id
+     * @return the display code afterwards
+     */
+    public DisplayCode checkDisplay(final int id) {
+        final int index = index(id);
+        final Scratch scratch = stripe(id);
+        synchronized (scratch) {
+            present(index);
+            final long balance =
+                    MachineCodec.balance(buffer, index, BankSlot.CUSTOMER);
+            DisplayCode code = DisplayCode.BALANCE;
+            if (balance == 0) {
+                code = DisplayCode.INSERT_COIN;
+                for (Currency currency : CURRENCIES) {
+                    scratch.combined[currency.ordinal()] =
+                            MachineCodec.quantity(buffer, index,
+                                    BankSlot.MACHINE, currency);
+                }
+                for (Product product : PRODUCTS) {
+                    final long price = product.getPrice();
+                    if (makeChange(scratch.combined, price, scratch.change)
+                            != price) {
+                        code = DisplayCode.EXACT_CHANGE;
+                        break;
+                    }
+                }
+            }
+            MachineCodec.setDisplay(buffer, index, code, balance);
+            return code;
+        }
+    }
+
+    /**
+     * Machine.vend, in place.
+     *
+     * @param id      the machine id
+     * @param product the product to dispense
+     * @return the display code afterwards
+     */
+    public DisplayCode vend(final int id, final Product product) {
+        final int index = index(id);
+        final Scratch scratch = stripe(id);
+        synchronized (scratch) {
+            present(index);
+            if (product == null
+                    || MachineCodec.quantity(buffer, index, product) <= 0) {
+                MachineCodec.setDisplay(buffer, index, DisplayCode.SOLD_OUT,
+                        0L);
+                return DisplayCode.SOLD_OUT;
+            }
+            final long balance =
+                    MachineCodec.balance(buffer, index, BankSlot.CUSTOMER);
+            final long price = product.getPrice();
+            if (balance < price) {
+                MachineCodec.setDisplay(buffer, index, DisplayCode.PRICE,
+                        price);
+                return DisplayCode.PRICE;
+            }
+            for (Currency currency : CURRENCIES) {
+                scratch.combined[currency.ordinal()] =
+                        MachineCodec.quantity(buffer, index,
+                                BankSlot.MACHINE, currency)
+                        + MachineCodec.quantity(buffer, index,
+                                BankSlot.CUSTOMER, currency);
+            }
+            makeChange(scratch.combined, balance - price, scratch.change);
+            for (Currency currency : CURRENCIES) {
+                final int ordinal = currency.ordinal();
+                MachineCodec.setQuantity(buffer, index, BankSlot.MACHINE,
+                        currency,
+                        scratch.combined[ordinal] - scratch.change[ordinal]);
+                MachineCodec.setQuantity(buffer, index, BankSlot.CUSTOMER,
+                        currency, 0);
+                MachineCodec.setQuantity(buffer, index, BankSlot.COIN_RETURN,
+                        currency, scratch.change[ordinal]);
+            }
+            MachineCodec.setQuantity(buffer, index, product,
+                    MachineCodec.quantity(buffer, index, product) - 1);
+            MachineCodec.setDisplay(buffer, index, DisplayCode.THANK_YOU, 0L);
+            return DisplayCode.THANK_YOU;
+        }
+    }
+
+    /**
+     * Flush the records to disk.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Flush the records and close the file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Make change the way Bank.makeChange does: largest coins first, as
+     * close to the amount as the coins allow.
+     *
+     * @param counts coins available, by currency ordinal
+     * @param amount the change wanted
+     * @param change filled with the coins used, by currency ordinal
+     * @return the amount of change made
+     */
+    static long makeChange(final int[] counts, final long amount,
+                           final int[] change) {
+        long remaining = amount;
+        for (Currency currency : CURRENCIES) {
+            change[currency.ordinal()] = 0;
+        }
+        for (Currency currency : DESCENDING) {
+            final long cents = currency.getCents();
+            final int ordinal = currency.ordinal();
+            final long wanted = remaining / cents;
+            final int used = (int) Math.min(wanted, counts[ordinal]);
+            change[ordinal] = used;
+            remaining -= used * cents;
+        }
+        return amount - remaining;
+    }
+
+    /**
+     * Add to a bank count in place.
+     *
+     * @param index    where the record starts
+     * @param slot     the bank
+     * @param currency the currency
+     * @param quantity how many to add
+     */
+    private void add(final int index, final BankSlot slot,
+                     final Currency currency, final int quantity) {
+        MachineCodec.setQuantity(buffer, index, slot, currency,
+                MachineCodec.quantity(buffer, index, slot, currency)
+                        + quantity);
+    }
+
+    /**
+     * Make sure there is a machine to operate on.
+     *
+     * @param index where the record starts
+     */
+    private void present(final int index) {
+        if (!MachineCodec.isMachine(buffer, index)) {
+            throw new IllegalStateException("no machine stored at record "
+                    + (index - HEADER_SIZE) / MachineCodec.SIZE);
+        }
+    }
+}
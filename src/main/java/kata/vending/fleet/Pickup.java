@@ -0,0 +1,65 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Inventory;
+import kata.vending.Product;
+
+/**
+ * One machine visit on a route: the cash emptied from the machine bank and
+ * the products loaded to restock it.
+ * Immutable.
+ */
+public final class Pickup {
+    /**
+     * The route the machine is on.
+     */
+    private final String route;
+
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * The cash collected.
+     */
+    private final Bank collected;
+
+    public Bank getCollected() {
+        return collected;
+    }
+
+    /**
+     * The products loaded.
+     */
+    private final Inventory<Product> restocked;
+
+    public Inventory<Product> getRestocked() {
+        return restocked;
+    }
+
+    /**
+     * Pickup constructor.  Throws IllegalArgumentException for a null
+     * route.
+     *
+     * @param route     the route the machine is on
+     * @param collected the cash collected, or null for none
+     * @param restocked the products loaded, or null for none
+     */
+    public Pickup(final String route, final Bank collected,
+                  final Inventory<Product> restocked) {
+        if (route == null) {
+            throw new IllegalArgumentException("no route");
+        }
+        this.route = route;
+        if (collected == null) {
+            this.collected = new Bank();
+        } else {
+            this.collected = collected;
+        }
+        if (restocked == null) {
+            this.restocked = new Inventory<>(Product.values());
+        } else {
+            this.restocked = restocked;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package kata.vending.fleet;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits work over a range of machine indexes across a fork/join pool.
+ * Ranges are split on multiples of 64 so work that sets bits in a shared
+ * long[] never shares a word.
+ */
+final class Ranges {
+    /**
+     * Ranges at most this long are done on one thread.
+     */
+    static final int THRESHOLD = 1 << 13;
+
+    /**
+     * Bits in a word of a bit set.
+     */
+    static final int WORD = Long.SIZE;
+
+    /**
+     * Pool the work runs in.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    /**
+     * Utility class.
+     */
+    private Ranges() {
+    }
+
+    /**
+     * Work done on part of a range.
+     */
+    interface Action {
+        /**
+         * Do the work for some indexes.
+         *
+         * @param from first index, a multiple of 64
+         * @param to   one past the last index
+         */
+        void run(int from, int to);
+    }
+
+    /**
+     * A sum over part of a range.
+     */
+    interface Sum {
+        /**
+         * Sum some indexes.
+         *
+         * @param from first index
+         * @param to   one past the last index
+         * @return the sum
+         */
+        long sum(int from, int to);
+    }
+
+    /**
+     * A reduction over part of a range.
+     *
+     * @param <T> what is reduced to
+     */
+    interface Reducer<T> {
+        /**
+         * Reduce some indexes.
+         *
+         * @param from first index
+         * @param to   one past the last index
+         * @return the result
+         */
+        T reduce(int from, int to);
+
+        /**
+         * Combine the results of two neighbouring parts.
+         *
+         * @param left  the lower part's result
+         * @param right the upper part's result
+         * @return both together
+         */
+        T combine(T left, T right);
+    }
+
+    /**
+     * Run an action over a whole range in parallel.
+     *
+     * @param size   the range is 0 until size
+     * @param action the action
+     */
+    static void forEach(final int size, final Action action) {
+        if (size <= THRESHOLD) {
+            action.run(0, size);
+        } else {
+            POOL.invoke(new ForEach(action, 0, size));
+        }
+    }
+
+    /**
+     * Sum over a whole range in parallel.
+     *
+     * @param size the range is 0 until size
+     * @param sum  the sum
+     * @return the total
+     */
+    static long sum(final int size, final Sum sum) {
+        if (size <= THRESHOLD) {
+            return sum.sum(0, size);
+        }
+        return POOL.invoke(new Reduce(sum, 0, size));
+    }
+
+    /**
+     * Reduce a whole range in parallel.
+     *
+     * @param size    the range is 0 until size
+     * @param reducer the reduction
+     * @param <T>     what is reduced to
+     * @return the result
+     */
+    static <T> T reduce(final int size, final Reducer<T> reducer) {
+        if (size <= THRESHOLD) {
+            return reducer.reduce(0, size);
+        }
+        return POOL.invoke(new Reduction<>(reducer, 0, size));
+    }
+
+    /**
+     * Where to split a range: near the middle, on a multiple of 64.
+     *
+     * @param from first index
+     * @param to   one past the last index
+     * @return the split point
+     */
+    private static int split(final int from, final int to) {
+        return (from + (to - from) / 2) & -WORD;
+    }
+
+    /**
+     * Fork/join task for forEach.
+     */
+    private static final class ForEach extends RecursiveAction {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The action.
+         */
+        private final Action action;
+
+        /**
+         * First index.
+         */
+        private final int from;
+
+        /**
+         * One past the last index.
+         */
+        private final int to;
+
+        /**
+         * ForEach constructor.
+         *
+         * @param action the action
+         * @param from   first index
+         * @param to     one past the last index
+         */
+        ForEach(final Action action, final int from, final int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                action.run(from, to);
+                return;
+            }
+            final int middle = split(from, to);
+            invokeAll(new ForEach(action, from, middle),
+                    new ForEach(action, middle, to));
+        }
+    }
+
+    /**
+     * Fork/join task for sum.
+     */
+    private static final class Reduce extends RecursiveTask<Long> {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The sum.
+         */
+        private final Sum sum;
+
+        /**
+         * First index.
+         */
+        private final int from;
+
+        /**
+         * One past the last index.
+         */
+        private final int to;
+
+        /**
+         * Reduce constructor.
+         *
+         * @param sum  the sum
+         * @param from first index
+         * @param to   one past the last index
+         */
+        Reduce(final Sum sum, final int from, final int to) {
+            this.sum = sum;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= THRESHOLD) {
+                return sum.sum(from, to);
+            }
+            final int middle = split(from, to);
+            final Reduce left = new Reduce(sum, from, middle);
+            left.fork();
+            final long right = new Reduce(sum, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * Fork/join task for reduce.
+     *
+     * @param <T> what is reduced to
+     */
+    private static final class Reduction<T> extends RecursiveTask<T> {
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The reduction.
+         */
+        private final Reducer<T> reducer;
+
+        /**
+         * First index.
+         */
+        private final int from;
+
+        /**
+         * One past the last index.
+         */
+        private final int to;
+
+        /**
+         * Reduction constructor.
+         *
+         * @param reducer the reduction
+         * @param from    first index
+         * @param to      one past the last index
+         */
+        Reduction(final Reducer<T> reducer, final int from, final int to) {
+            this.reducer = reducer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= THRESHOLD) {
+                return reducer.reduce(from, to);
+            }
+            final int middle = split(from, to);
+            final Reduction<T> left = new Reduction<>(reducer, from, middle);
+            left.fork();
+            final T right = new Reduction<>(reducer, middle, to).compute();
+            return reducer.combine(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Inventory;
+import kata.vending.Product;
+
+/**
+ * What to load into one machine, and how the simulated demand went with it.
+ * Immutable.
+ */
+public final class RestockPlan {
+    /**
+     * The machine id.
+     */
+    private final int machineId;
+
+    public int getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * Products to add.
+     */
+    private final Inventory<Product> restock;
+
+    public Inventory<Product> getRestock() {
+        return restock;
+    }
+
+    /**
+     * Coins to add to the machine bank.
+     */
+    private final Bank coinFloat;
+
+    public Bank getCoinFloat() {
+        return coinFloat;
+    }
+
+    /**
+     * Simulated customers who found their product sold out.
+     */
+    private final int soldOut;
+
+    public int getSoldOut() {
+        return soldOut;
+    }
+
+    /**
+     * Simulated customers who were met with EXACT CHANGE ONLY.
+     */
+    private final int exactChange;
+
+    public int getExactChange() {
+        return exactChange;
+    }
+
+    /**
+     * RestockPlan constructor.
+     *
+     * @param machineId   the machine id
+     * @param restock     products to add
+     * @param coinFloat   coins to add to the machine bank
+     * @param soldOut     simulated customers who found a product sold out
+     * @param exactChange simulated customers met with EXACT CHANGE ONLY
+     */
+    RestockPlan(final int machineId, final Inventory<Product> restock,
+                final Bank coinFloat, final int soldOut,
+                final int exactChange) {
+        this.machineId = machineId;
+        this.restock = restock;
+        this.coinFloat = coinFloat;
+        this.soldOut = soldOut;
+        this.exactChange = exactChange;
+    }
+}
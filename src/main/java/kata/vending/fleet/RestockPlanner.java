@@ -0,0 +1,326 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plans what to load into each machine on the next visit: products to cover
+ * the demand its sales history predicts, and a coin float that keeps it off
+ * EXACT CHANGE ONLY while that demand is served.
+ * <p/>
+ * Restock quantities fill each product up to the predicted demand, within
+ * the slot capacity.  The float is searched for greedily: starting from no
+ * float, each step tries one more coin of each currency and the coins to
+ * make change for the first product change ran out for, simulates the
+ * demand through a real Machine for each, and keeps whichever leaves the
+ * fewest customers facing EXACT CHANGE ONLY (then the fewest prices short
+ * of change, then the least cash).  It stops
+ * when nothing helps or the budget is spent.
+ * <p/>
+ * Simulations are memoized on the starting bank, stock and demand, which
+ * most machines in a fleet share, and machines are planned in parallel.
+ * Thread safe.
+ */
+public final class RestockPlanner {
+    /**
+     * Memoized simulations kept before the memo is cleared.
+     */
+    private static final int MAX_MEMO = 1 << 18;
+
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Currencies a float is made of, largest first.
+     */
+    private static final Currency[] DESCENDING =
+            Currency.descending().toArray(new Currency[0]);
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * The limits planned to.
+     */
+    private final RestockSettings settings;
+
+    /**
+     * Simulations already run.
+     */
+    private final ConcurrentMap<Scenario, Simulation> memo =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Simulations asked for.
+     */
+    private final AtomicLong evaluations = new AtomicLong();
+
+    /**
+     * Simulations actually run.
+     */
+    private final AtomicLong simulations = new AtomicLong();
+
+    /**
+     * RestockPlanner constructor.
+     *
+     * @param settings the limits to plan to
+     */
+    public RestockPlanner(final RestockSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * How many simulations plans have asked for.
+     *
+     * @return the evaluation count
+     */
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * How many simulations were run rather than remembered.
+     *
+     * @return the simulation count
+     */
+    public long getSimulations() {
+        return simulations.get();
+    }
+
+    /**
+     * Plan many machines in parallel.
+     *
+     * @param requests the machines
+     * @return the plans, in the same order
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public List<RestockPlan> planAll(final List<RestockRequest> requests)
+            throws InterruptedException {
+        final RestockPlan[] plans = new RestockPlan[requests.size()];
+        final AtomicInteger next = new AtomicInteger();
+        final Callable<Void> worker = new Callable<Void>() {
+            @Override
+            public Void call() {
+                int index = next.getAndIncrement();
+                while (index < plans.length) {
+                    plans[index] = plan(requests.get(index));
+                    index = next.getAndIncrement();
+                }
+                return null;
+            }
+        };
+        final int threads =
+                Math.max(1, Math.min(settings.getWorkers(), plans.length));
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> done
+                    : pool.invokeAll(Collections.nCopies(threads, worker))) {
+                done.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return Arrays.asList(plans);
+    }
+
+    /**
+     * Plan one machine.
+     *
+     * @param request the machine
+     * @return the plan
+     */
+    public RestockPlan plan(final RestockRequest request) {
+        final int[] demand = new int[PRODUCTS.length];
+        final int[] stock = new int[PRODUCTS.length];
+        Inventory<Product> restock = new Inventory<>(PRODUCTS);
+        final Inventory<Product> current = request.getMachine().getInventory();
+        for (Product product : PRODUCTS) {
+            final int i = product.ordinal();
+            demand[i] = (int) Math.round(request.getSales().quantity(product)
+                    * settings.getHorizon());
+            final int have = current.quantity(product);
+            final int add = Math.max(0,
+                    Math.min(demand[i], settings.getSlotCapacity()) - have);
+            restock = restock.add(product, add);
+            stock[i] = have + add;
+        }
+        final int[] bank = new int[CURRENCIES.length];
+        for (Currency currency : CURRENCIES) {
+            bank[currency.ordinal()] = request.getMachine().getMachineBank()
+                    .getInventory().quantity(currency);
+        }
+        int[] coins = new int[CURRENCIES.length];
+        Simulation best = evaluate(bank, coins, stock, demand);
+        while (best.getExactChange() > 0) {
+            int[] chosen = null;
+            Simulation chosenResult = best;
+            for (int[] candidate : candidates(coins, best)) {
+                if (!fits(bank, candidate)) {
+                    continue;
+                }
+                final Simulation result =
+                        evaluate(bank, candidate, stock, demand);
+                if (better(result, candidate, chosenResult, chosen)) {
+                    chosen = candidate;
+                    chosenResult = result;
+                }
+            }
+            if (chosen == null) {
+                break;
+            }
+            coins = chosen;
+            best = chosenResult;
+        }
+        Bank coinFloat = new Bank();
+        for (Currency currency : CURRENCIES) {
+            coinFloat = coinFloat.deposit(currency, coins[currency.ordinal()]);
+        }
+        return new RestockPlan(request.getMachineId(), restock, coinFloat,
+                best.getSoldOut(), best.getExactChange());
+    }
+
+    /**
+     * The floats to try next: one more coin of each currency, and the coins
+     * to make change for the product change last ran out for.
+     *
+     * @param coins the float so far
+     * @param last  how the float so far did
+     * @return the candidate floats
+     */
+    private static List<int[]> candidates(final int[] coins,
+                                          final Simulation last) {
+        final List<int[]> candidates = new ArrayList<>();
+        for (Currency currency : DESCENDING) {
+            final int[] candidate = coins.clone();
+            candidate[currency.ordinal()]++;
+            candidates.add(candidate);
+        }
+        if (last.getShortProduct() != null) {
+            final int[] candidate = coins.clone();
+            long remaining = last.getShortProduct().getPrice();
+            for (Currency currency : DESCENDING) {
+                final long cents = currency.getCents();
+                candidate[currency.ordinal()] += (int) (remaining / cents);
+                remaining %= cents;
+            }
+            candidates.add(candidate);
+        }
+        return candidates;
+    }
+
+    /**
+     * Whether a float fits the budget and the coin capacity.
+     *
+     * @param bank  the machine bank counts
+     * @param coins the float counts
+     * @return true if it fits
+     */
+    private boolean fits(final int[] bank, final int[] coins) {
+        if (cents(coins) > settings.getFloatBudget()) {
+            return false;
+        }
+        for (int i = 0; i < coins.length; i++) {
+            if (bank[i] + coins[i] > settings.getCoinCapacity()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a candidate float beats the best so far.
+     *
+     * @param result     how the candidate did
+     * @param candidate  the candidate
+     * @param bestResult how the best so far did
+     * @param best       the best so far, or null if nothing has beaten the
+     *                   current float yet
+     * @return true if the candidate is better
+     */
+    private static boolean better(final Simulation result,
+                                  final int[] candidate,
+                                  final Simulation bestResult,
+                                  final int[] best) {
+        if (result.getExactChange() != bestResult.getExactChange()) {
+            return result.getExactChange() < bestResult.getExactChange();
+        }
+        if (result.getShortfalls() != bestResult.getShortfalls()) {
+            return result.getShortfalls() < bestResult.getShortfalls();
+        }
+        return best != null && cents(candidate) < cents(best);
+    }
+
+    /**
+     * Value of some coin counts.
+     *
+     * @param coins counts by currency ordinal
+     * @return the value in cents
+     */
+    private static long cents(final int[] coins) {
+        long cents = 0L;
+        for (Currency currency : CURRENCIES) {
+            cents += currency.getCents() * coins[currency.ordinal()];
+        }
+        return cents;
+    }
+
+    /**
+     * Simulate the demand with a float, or remember how it went last time.
+     *
+     * @param bank   the machine bank counts
+     * @param coins  the float counts
+     * @param stock  product counts after restocking
+     * @param demand customers by product
+     * @return how it went
+     */
+    private Simulation evaluate(final int[] bank, final int[] coins,
+                                final int[] stock, final int[] demand) {
+        evaluations.incrementAndGet();
+        final int[] start = new int[bank.length];
+        for (int i = 0; i < start.length; i++) {
+            start[i] = bank[i] + coins[i];
+        }
+        final Scenario scenario = new Scenario(start, stock, demand);
+        Simulation result = memo.get(scenario);
+        if (result == null) {
+            Bank machineBank = new Bank();
+            for (Currency currency : CURRENCIES) {
+                machineBank = machineBank.deposit(currency,
+                        start[currency.ordinal()]);
+            }
+            Inventory<Product> inventory = new Inventory<>(PRODUCTS);
+            for (Product product : PRODUCTS) {
+                inventory = inventory.add(product, stock[product.ordinal()]);
+            }
+            result = Simulation.run(machineBank, inventory, demand);
+            simulations.incrementAndGet();
+            if (memo.size() >= MAX_MEMO) {
+                memo.clear();
+            }
+            memo.put(scenario, result);
+        }
+        return result;
+    }
+}
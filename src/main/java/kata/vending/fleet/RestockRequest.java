@@ -0,0 +1,52 @@
+package kata.vending.fleet;
+
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+/**
+ * A machine to plan a visit for: its state now and what it sold recently.
+ * Immutable.
+ */
+public final class RestockRequest {
+    /**
+     * The machine id.
+     */
+    private final int machineId;
+
+    public int getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * The machine as it is now.
+     */
+    private final Machine machine;
+
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Units sold over the sales history period.
+     */
+    private final Inventory<Product> sales;
+
+    public Inventory<Product> getSales() {
+        return sales;
+    }
+
+    /**
+     * RestockRequest constructor.
+     *
+     * @param machineId the machine id
+     * @param machine   the machine as it is now
+     * @param sales     units sold over the sales history period
+     */
+    public RestockRequest(final int machineId, final Machine machine,
+                          final Inventory<Product> sales) {
+        this.machineId = machineId;
+        this.machine = machine;
+        this.sales = sales;
+    }
+}
@@ -0,0 +1,179 @@
+package kata.vending.fleet;
+
+/**
+ * Limits and assumptions the restock planner works to.
+ * Immutable.
+ */
+public final class RestockSettings {
+    /**
+     * Slot capacity unless told otherwise.
+     */
+    public static final int DEFAULT_SLOT_CAPACITY = 20;
+
+    /**
+     * Coin capacity unless told otherwise.
+     */
+    public static final int DEFAULT_COIN_CAPACITY = 40;
+
+    /**
+     * Float budget unless told otherwise: ten dollars.
+     */
+    public static final long DEFAULT_FLOAT_BUDGET = 1000L;
+
+    /**
+     * Most units of one product a machine holds.
+     */
+    private final int slotCapacity;
+
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    /**
+     * Most coins of one currency a machine bank holds.
+     */
+    private final int coinCapacity;
+
+    public int getCoinCapacity() {
+        return coinCapacity;
+    }
+
+    /**
+     * Most cash, in cents, that may be added to one machine as float.
+     */
+    private final long floatBudget;
+
+    public long getFloatBudget() {
+        return floatBudget;
+    }
+
+    /**
+     * Time until the next visit over the time the sales history covers.
+     */
+    private final double horizon;
+
+    public double getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * How many machines are planned at once.
+     */
+    private final int workers;
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Builder for the immutable RestockSettings class.
+     */
+    public static class Builder {
+        /**
+         * Builder slotCapacity.
+         */
+        private int slotCapacity = DEFAULT_SLOT_CAPACITY;
+
+        /**
+         * Builder coinCapacity.
+         */
+        private int coinCapacity = DEFAULT_COIN_CAPACITY;
+
+        /**
+         * Builder floatBudget.
+         */
+        private long floatBudget = DEFAULT_FLOAT_BUDGET;
+
+        /**
+         * Builder horizon.
+         */
+        private double horizon = 1d;
+
+        /**
+         * Builder workers.
+         */
+        private int workers = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Builder setter for slotCapacity.
+         *
+         * @param slotCapacity slotCapacity
+         * @return this Builder
+         */
+        public final Builder slotCapacity(final int slotCapacity) {
+            this.slotCapacity = slotCapacity;
+            return this;
+        }
+
+        /**
+         * Builder setter for coinCapacity.
+         *
+         * @param coinCapacity coinCapacity
+         * @return this Builder
+         */
+        public final Builder coinCapacity(final int coinCapacity) {
+            this.coinCapacity = coinCapacity;
+            return this;
+        }
+
+        /**
+         * Builder setter for floatBudget.
+         *
+         * @param floatBudget floatBudget
+         * @return this Builder
+         */
+        public final Builder floatBudget(final long floatBudget) {
+            this.floatBudget = floatBudget;
+            return this;
+        }
+
+        /**
+         * Builder setter for horizon.
+         *
+         * @param horizon horizon
+         * @return this Builder
+         */
+        public final Builder horizon(final double horizon) {
+            this.horizon = horizon;
+            return this;
+        }
+
+        /**
+         * Builder setter for workers.
+         *
+         * @param workers workers
+         * @return this Builder
+         */
+        public final Builder workers(final int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Build the settings.
+         *
+         * @return the settings
+         */
+        public final RestockSettings build() {
+            return new RestockSettings(this);
+        }
+    }
+
+    /**
+     * RestockSettings constructor.
+     *
+     * @param builder the builder
+     */
+    private RestockSettings(final Builder builder) {
+        if (builder.slotCapacity < 0 || builder.coinCapacity < 0
+                || builder.floatBudget < 0L || builder.horizon < 0d
+                || builder.workers <= 0) {
+            throw new IllegalArgumentException("bad restock settings");
+        }
+        this.slotCapacity = builder.slotCapacity;
+        this.coinCapacity = builder.coinCapacity;
+        this.floatBudget = builder.floatBudget;
+        this.horizon = builder.horizon;
+        this.workers = builder.workers;
+    }
+}
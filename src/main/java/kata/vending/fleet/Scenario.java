@@ -0,0 +1,47 @@
+package kata.vending.fleet;
+
+import java.util.Arrays;
+
+/**
+ * Everything a Simulation depends on, as counts, so simulations can be
+ * looked up instead of run again.
+ * Immutable.
+ */
+final class Scenario {
+    /**
+     * Machine bank counts, product counts, then demand.
+     */
+    private final int[] counts;
+
+    /**
+     * Cached hash.
+     */
+    private final int hash;
+
+    /**
+     * Scenario constructor.
+     *
+     * @param bank      machine bank counts by currency ordinal
+     * @param inventory product counts by ordinal
+     * @param demand    customers by product ordinal
+     */
+    Scenario(final int[] bank, final int[] inventory, final int[] demand) {
+        counts = new int[bank.length + inventory.length + demand.length];
+        System.arraycopy(bank, 0, counts, 0, bank.length);
+        System.arraycopy(inventory, 0, counts, bank.length, inventory.length);
+        System.arraycopy(demand, 0, counts, bank.length + inventory.length,
+                demand.length);
+        hash = Arrays.hashCode(counts);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Scenario
+                && Arrays.equals(counts, ((Scenario) other).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,171 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+
+/**
+ * Runs simulated customers through a real Machine and counts how many are
+ * turned away or met with EXACT CHANGE ONLY.  Each customer checks the
+ * display, pays for their product in quarters, vends, and takes back their
+ * coins if it was sold out.  Customers are interleaved evenly by demand.
+ * Immutable.
+ */
+final class Simulation {
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * The coin customers pay with.
+     */
+    private static final Coin QUARTER = Currency.QUARTER.getCoin();
+
+    /**
+     * Customers who found their product sold out.
+     */
+    private final int soldOut;
+
+    public int getSoldOut() {
+        return soldOut;
+    }
+
+    /**
+     * Customers met with EXACT CHANGE ONLY.
+     */
+    private final int exactChange;
+
+    public int getExactChange() {
+        return exactChange;
+    }
+
+    /**
+     * Products change couldn't be made for, summed over the customers met
+     * with EXACT CHANGE ONLY.  Finer than exactChange, so a float that
+     * fixes some prices but not all still shows up as better.
+     */
+    private final int shortfalls;
+
+    public int getShortfalls() {
+        return shortfalls;
+    }
+
+    /**
+     * The first product the machine couldn't make change for, or null.
+     */
+    private final Product shortProduct;
+
+    public Product getShortProduct() {
+        return shortProduct;
+    }
+
+    /**
+     * Simulation constructor.
+     *
+     * @param soldOut      customers who found their product sold out
+     * @param exactChange  customers met with EXACT CHANGE ONLY
+     * @param shortfalls   products short of change, summed over customers
+     * @param shortProduct the first product change couldn't be made for
+     */
+    private Simulation(final int soldOut, final int exactChange,
+                       final int shortfalls, final Product shortProduct) {
+        this.soldOut = soldOut;
+        this.exactChange = exactChange;
+        this.shortfalls = shortfalls;
+        this.shortProduct = shortProduct;
+    }
+
+    /**
+     * Run customers through a machine.
+     *
+     * @param machineBank the machine bank to start with
+     * @param inventory   the products to start with
+     * @param demand      customers wanting each product, by ordinal
+     * @return how it went
+     */
+    static Simulation run(final Bank machineBank,
+                          final Inventory<Product> inventory,
+                          final int[] demand) {
+        Machine machine = new Machine.Builder()
+                .machineBank(machineBank)
+                .inventory(inventory)
+                .build();
+        int total = 0;
+        for (int wanted : demand) {
+            total += wanted;
+        }
+        final long[] credit = new long[PRODUCTS.length];
+        int soldOut = 0;
+        int exactChange = 0;
+        int shortfalls = 0;
+        Product shortProduct = null;
+        for (int customer = 0; customer < total; customer++) {
+            final Product product = next(demand, credit, total);
+            machine = machine.checkDisplay();
+            if (Message.EXACT_CHANGE.getText().equals(machine.getDisplay())) {
+                exactChange++;
+                for (Product price : PRODUCTS) {
+                    if (!canMakeChange(machine.getMachineBank(), price)) {
+                        shortfalls++;
+                        if (shortProduct == null) {
+                            shortProduct = price;
+                        }
+                    }
+                }
+            }
+            final long quarters = (product.getPrice()
+                    + Currency.QUARTER.getCents() - 1)
+                    / Currency.QUARTER.getCents();
+            for (long i = 0; i < quarters; i++) {
+                machine = machine.insertCoin(QUARTER);
+            }
+            machine = machine.vend(product);
+            if (Message.SOLD_OUT.getText().equals(machine.getDisplay())) {
+                soldOut++;
+                machine = machine.returnCoins();
+            }
+        }
+        return new Simulation(soldOut, exactChange, shortfalls,
+                shortProduct);
+    }
+
+    /**
+     * Pick the next customer's product, spreading each product's customers
+     * evenly through the run.
+     *
+     * @param demand customers wanting each product
+     * @param credit running credit per product
+     * @param total  customers in the run
+     * @return the product
+     */
+    private static Product next(final int[] demand, final long[] credit,
+                                final int total) {
+        int best = 0;
+        for (int i = 0; i < PRODUCTS.length; i++) {
+            credit[i] += demand[i];
+            if (credit[i] > credit[best]) {
+                best = i;
+            }
+        }
+        credit[best] -= total;
+        return PRODUCTS[best];
+    }
+
+    /**
+     * Whether a bank can make change for a product's price.
+     *
+     * @param bank    the bank
+     * @param product the product
+     * @return true if it can
+     */
+    private static boolean canMakeChange(final Bank bank,
+                                         final Product product) {
+        final long price = product.getPrice();
+        return bank.makeChange(price).calculateBalance() == price;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Holding state for a whole fleet of machines without a Machine object per
+ * machine.
+ */
+package kata.vending.fleet;
@@ -0,0 +1,85 @@
+package kata.vending.gateway;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of same-size direct buffers.  Direct buffers are slow to allocate
+ * and are only freed by the garbage collector, so the gateway reuses them
+ * rather than making one per connection or per response.  Thread safe.
+ */
+final class BufferPool {
+    /**
+     * Bytes in each buffer.
+     */
+    private final int size;
+
+    /**
+     * Most buffers kept for reuse.
+     */
+    private final int capacity;
+
+    /**
+     * Buffers ready for reuse.
+     */
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    /**
+     * How many buffers are in the free queue.
+     */
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * BufferPool constructor.
+     *
+     * @param size     bytes in each buffer
+     * @param capacity most buffers kept for reuse
+     */
+    BufferPool(final int size, final int capacity) {
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Take a buffer, cleared.
+     *
+     * @return the buffer
+     */
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back.  Buffers beyond the capacity are left for the
+     * garbage collector.
+     *
+     * @param buffer the buffer, which the caller must not use again
+     */
+    void release(final ByteBuffer buffer) {
+        if (buffer.capacity() != size || !buffer.isDirect()) {
+            throw new IllegalArgumentException("buffer not from this pool");
+        }
+        if (pooled.incrementAndGet() > capacity) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    /**
+     * How many buffers are waiting to be reused.
+     *
+     * @return the number of buffers
+     */
+    int pooled() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,62 @@
+package kata.vending.gateway;
+
+/**
+ * What a request asks a machine to do.  Sent as its ordinal.
+ */
+public enum Command {
+    /**
+     * Insert a coin; the argument is the Currency ordinal, UNKNOWN for a
+     * coin the terminal didn't recognize.
+     */
+    INSERT_COIN,
+
+    /**
+     * Return the inserted coins.
+     */
+    RETURN_COINS,
+
+    /**
+     * Vend a product; the argument is the Product ordinal.
+     */
+    VEND,
+
+    /**
+     * Check the display.
+     */
+    CHECK_DISPLAY,
+
+    /**
+     * Read the machine without changing it.
+     */
+    SNAPSHOT,
+
+    /**
+     * Remove the machine and send it back as it was, to hand it to another
+     * gateway.
+     */
+    RELEASE,
+
+    /**
+     * Add or replace the machine with the MachineCodec record that follows
+     * the request.
+     */
+    RESTORE;
+
+    /**
+     * Cached values.
+     */
+    private static final Command[] COMMANDS = values();
+
+    /**
+     * The command with an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the command, or null if there isn't one
+     */
+    static Command of(final int ordinal) {
+        if (ordinal < 0 || ordinal >= COMMANDS.length) {
+            return null;
+        }
+        return COMMANDS[ordinal];
+    }
+}
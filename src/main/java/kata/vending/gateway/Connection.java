@@ -0,0 +1,248 @@
+package kata.vending.gateway;
+
+import kata.vending.Machine;
+import kata.vending.codec.MachineCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One terminal's connection.  Reading, writing and closing happen on the
+ * selector thread; responses are handed in from lane threads through a
+ * queue, and the selector is woken to write them.
+ * <p/>
+ * Responses waiting in the queue are copied into one output buffer so that
+ * a burst of pipelined responses goes out in a single write.  Once too many
+ * requests are waiting for their responses, the connection stops reading
+ * until the terminal catches up.
+ */
+final class Connection {
+    /**
+     * Most requests waiting for their responses before reading pauses.
+     */
+    static final int MAX_IN_FLIGHT = 1024;
+
+    /**
+     * The gateway.
+     */
+    private final Gateway gateway;
+
+    /**
+     * The socket.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The socket's registration with the selector.
+     */
+    private final SelectionKey key;
+
+    /**
+     * Bytes read and not yet a whole request.
+     */
+    private final ByteBuffer in;
+
+    /**
+     * Bytes waiting to be written.
+     */
+    private final ByteBuffer out;
+
+    /**
+     * Responses from the lanes, not yet copied to out.
+     */
+    private final Queue<ByteBuffer> responses =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether the connection is queued to be flushed or waiting to write.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Requests dispatched and not yet written back.
+     */
+    private int inFlight;
+
+    /**
+     * Whether the connection is still open.
+     */
+    private volatile boolean open = true;
+
+    /**
+     * Connection constructor.
+     *
+     * @param gateway the gateway
+     * @param channel the socket
+     * @param key     the socket's registration
+     * @param in      buffer for reading
+     * @param out     buffer for writing
+     */
+    Connection(final Gateway gateway, final SocketChannel channel,
+               final SelectionKey key, final ByteBuffer in,
+               final ByteBuffer out) {
+        this.gateway = gateway;
+        this.channel = channel;
+        this.key = key;
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Read what the socket has and dispatch every whole request.
+     *
+     * @throws IOException if reading fails
+     */
+    void read() throws IOException {
+        if (channel.read(in) < 0) {
+            close();
+            return;
+        }
+        in.flip();
+        while (in.remaining() >= Protocol.REQUEST_SIZE) {
+            final int command =
+                    in.get(in.position() + Protocol.COMMAND_OFFSET);
+            if (in.remaining() < Protocol.requestSize(command)) {
+                break;
+            }
+            final int machineId = in.getInt();
+            final int sequence = in.getInt();
+            in.get();
+            final int argument = in.get();
+            in.getShort();
+            if (command == Command.RESTORE.ordinal()) {
+                gateway.restore(this, machineId, sequence, restored());
+            } else {
+                gateway.dispatch(this, machineId, sequence, command,
+                        argument);
+            }
+            inFlight++;
+        }
+        in.compact();
+        interest();
+    }
+
+    /**
+     * Read the machine record of a RESTORE request and move past it.
+     *
+     * @return the machine, or null if the record isn't one
+     */
+    private Machine restored() {
+        final int start = in.position();
+        in.position(start + MachineCodec.SIZE);
+        if (!MachineCodec.isMachine(in, start)) {
+            return null;
+        }
+        try {
+            return MachineCodec.decode(in, start);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hand over a response.  Called from lane threads.  If the connection
+     * closed while the response was being queued, close may already have
+     * drained the queue, so the queue is drained again here; whichever
+     * thread polls a buffer releases it.
+     *
+     * @param response the response, ready to read
+     */
+    void send(final ByteBuffer response) {
+        if (!open) {
+            gateway.release(response);
+            return;
+        }
+        responses.offer(response);
+        if (!open) {
+            drain();
+            return;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            gateway.schedule(this);
+        }
+    }
+
+    /**
+     * Release every response still queued.
+     */
+    private void drain() {
+        ByteBuffer response = responses.poll();
+        while (response != null) {
+            gateway.release(response);
+            response = responses.poll();
+        }
+    }
+
+    /**
+     * Write as many responses as the socket will take.
+     *
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException {
+        while (open) {
+            ByteBuffer next = responses.peek();
+            while (next != null && out.remaining() >= next.remaining()) {
+                out.put(next);
+                responses.poll();
+                gateway.release(next);
+                inFlight--;
+                next = responses.peek();
+            }
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                final boolean full = out.hasRemaining();
+                out.compact();
+                if (full) {
+                    break;
+                }
+                continue;
+            }
+            scheduled.set(false);
+            if (responses.isEmpty()
+                    || !scheduled.compareAndSet(false, true)) {
+                break;
+            }
+        }
+        interest();
+    }
+
+    /**
+     * Set what the selector should wait for.
+     */
+    private void interest() {
+        if (!open) {
+            return;
+        }
+        int ops = 0;
+        if (inFlight < MAX_IN_FLIGHT) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (out.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Close the connection.  Responses still to come are dropped.
+     *
+     * @throws IOException if closing the socket fails
+     */
+    void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        key.cancel();
+        gateway.releaseIo(in);
+        gateway.releaseIo(out);
+        drain();
+        channel.close();
+    }
+}
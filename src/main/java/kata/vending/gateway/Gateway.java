@@ -0,0 +1,445 @@
+package kata.vending.gateway;
+
+import kata.vending.Machine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves machines to kiosk terminals over the Protocol.
+ * <p/>
+ * One selector thread accepts connections, reads requests and writes
+ * responses for every terminal, so thousands of connections cost a few
+ * buffers each rather than a thread each.  Requests are handed to a lane
+ * chosen by machine id; each lane is a single thread that owns its
+ * machines, so every machine sees its requests one at a time and in order
+ * without locks.  Terminals may pipeline: the gateway reads and dispatches
+ * every whole request in a read before any response goes back.
+ * <p/>
+ * Read, write and response buffers are direct and pooled.
+ */
+public final class Gateway implements Closeable {
+    /**
+     * Bytes in each connection's read and write buffers.
+     */
+    static final int IO_BUFFER_SIZE = 1 << 14;
+
+    /**
+     * Most idle connection buffers kept.
+     */
+    private static final int POOLED_IO_BUFFERS = 1 << 10;
+
+    /**
+     * Most idle response buffers kept.
+     */
+    private static final int POOLED_RESPONSES = 1 << 14;
+
+    /**
+     * Where to listen.
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * The lanes.
+     */
+    private final Lane[] lanes;
+
+    /**
+     * Pool of connection buffers.
+     */
+    private final BufferPool io =
+            new BufferPool(IO_BUFFER_SIZE, POOLED_IO_BUFFERS);
+
+    /**
+     * Pool of response buffers.
+     */
+    private final BufferPool responses =
+            new BufferPool(Protocol.RESPONSE_SIZE, POOLED_RESPONSES);
+
+    /**
+     * Connections with responses to write.
+     */
+    private final Queue<Connection> writable = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The selector; null until started.
+     */
+    private Selector selector;
+
+    /**
+     * The listening socket; null until started.
+     */
+    private ServerSocketChannel server;
+
+    /**
+     * The selector thread; null until started.
+     */
+    private Thread thread;
+
+    /**
+     * Whether the selector thread should keep going.
+     */
+    private volatile boolean running;
+
+    /**
+     * Builder for the Gateway class.
+     */
+    public static class Builder {
+        /**
+         * Builder address.
+         */
+        private InetSocketAddress address =
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+        /**
+         * Builder lanes.
+         */
+        private int lanes = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Builder machines.
+         */
+        private final Map<Integer, Machine> machines = new HashMap<>();
+
+        /**
+         * Builder setter for address.
+         *
+         * @param address where to listen; port 0 picks a free port
+         * @return this Builder
+         */
+        public final Builder address(final InetSocketAddress address) {
+            if (address == null) {
+                return this;
+            }
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * Builder setter for lanes.
+         *
+         * @param lanes how many threads run requests
+         * @return this Builder
+         */
+        public final Builder lanes(final int lanes) {
+            this.lanes = lanes;
+            return this;
+        }
+
+        /**
+         * Add a machine.
+         *
+         * @param machineId the id terminals use for it
+         * @param machine   the machine
+         * @return this Builder
+         */
+        public final Builder machine(final int machineId,
+                                     final Machine machine) {
+            machines.put(machineId, machine);
+            return this;
+        }
+
+        /**
+         * Build the gateway.  It doesn't listen until started.
+         *
+         * @return the gateway
+         */
+        public final Gateway build() {
+            return new Gateway(this);
+        }
+    }
+
+    /**
+     * Gateway constructor.
+     *
+     * @param builder the builder
+     */
+    private Gateway(final Builder builder) {
+        if (builder.lanes <= 0) {
+            throw new IllegalArgumentException("lanes must be positive: "
+                    + builder.lanes);
+        }
+        this.address = builder.address;
+        this.lanes = new Lane[builder.lanes];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, responses);
+        }
+        for (Map.Entry<Integer, Machine> entry
+                : builder.machines.entrySet()) {
+            register(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Add or replace a machine.  Requests already sent for it run first.
+     *
+     * @param machineId the id terminals use for it
+     * @param machine   the machine
+     */
+    public void register(final int machineId, final Machine machine) {
+        lane(machineId).register(machineId, machine);
+    }
+
+    /**
+     * Start listening.
+     *
+     * @throws IOException if the address can't be bound
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "gateway-selector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Where the gateway is listening.
+     *
+     * @return the bound address
+     * @throws IOException if the gateway isn't listening
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        if (server == null) {
+            throw new IOException("gateway not started");
+        }
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Stop listening, close every connection and stop the lanes.
+     *
+     * @throws IOException if closing the listening socket fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.shutdown();
+        }
+        if (thread == null) {
+            return;
+        }
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        server.close();
+        selector.close();
+        thread = null;
+    }
+
+    /**
+     * The lane a machine belongs to.
+     *
+     * @param machineId the machine
+     * @return its lane
+     */
+    private Lane lane(final int machineId) {
+        return lanes[(machineId & Integer.MAX_VALUE) % lanes.length];
+    }
+
+    /**
+     * Hand a request to its machine's lane.
+     *
+     * @param connection where the response goes
+     * @param machineId  the machine
+     * @param sequence   the request's sequence number
+     * @param command    the command ordinal
+     * @param argument   the argument
+     */
+    void dispatch(final Connection connection, final int machineId,
+                  final int sequence, final int command, final int argument) {
+        lane(machineId).submit(connection, machineId, sequence, command,
+                argument);
+    }
+
+    /**
+     * Hand a RESTORE request to its machine's lane.
+     *
+     * @param connection where the response goes
+     * @param machineId  the machine
+     * @param sequence   the request's sequence number
+     * @param machine    the machine to restore, or null if the request's
+     *                   record was bad
+     */
+    void restore(final Connection connection, final int machineId,
+                 final int sequence, final Machine machine) {
+        lane(machineId).restore(connection, machineId, sequence, machine);
+    }
+
+    /**
+     * Ask the selector thread to flush a connection.
+     *
+     * @param connection the connection
+     */
+    void schedule(final Connection connection) {
+        writable.offer(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Give back a response buffer.
+     *
+     * @param buffer the buffer
+     */
+    void release(final ByteBuffer buffer) {
+        responses.release(buffer);
+    }
+
+    /**
+     * Give back a connection buffer.
+     *
+     * @param buffer the buffer
+     */
+    void releaseIo(final ByteBuffer buffer) {
+        io.release(buffer);
+    }
+
+    /**
+     * The selector thread.
+     */
+    private void loop() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                running = false;
+                return;
+            }
+            Connection connection = writable.poll();
+            while (connection != null) {
+                flush(connection);
+                connection = writable.poll();
+            }
+            final Iterator<SelectionKey> keys =
+                    selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                final Connection selected = (Connection) key.attachment();
+                if (key.isReadable()) {
+                    read(selected);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(selected);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accept every waiting connection.
+     */
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = server.accept();
+            while (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                final SelectionKey key =
+                        channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this, channel, key, io.acquire(),
+                        io.acquire()));
+                channel = server.accept();
+            }
+        } catch (IOException e) {
+            close(channel);
+        }
+    }
+
+    /**
+     * Read from a connection, closing it if that fails.
+     *
+     * @param connection the connection
+     */
+    private void read(final Connection connection) {
+        try {
+            connection.read();
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Flush a connection, closing it if that fails.
+     *
+     * @param connection the connection
+     */
+    private void flush(final Connection connection) {
+        try {
+            connection.flush();
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Close a connection that failed.
+     *
+     * @param connection the connection
+     */
+    private static void close(final Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            return;
+        }
+    }
+
+    /**
+     * Close a socket that failed before it became a connection.
+     *
+     * @param channel the socket, or null
+     */
+    private static void close(final SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            return;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package kata.vending.gateway;
+
+import kata.vending.Machine;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A blocking terminal-side client for the Protocol.  Requests are buffered
+ * until flushed, so a terminal can pipeline a batch and then read the
+ * responses.  A batch should be small enough for its responses to fit in
+ * the socket buffers, since nothing is read while it is being sent.
+ * Not thread safe.
+ * <p/>
+ * A client with a timeout gives up waiting for a response after that long
+ * and closes the connection, since a response arriving later would be
+ * taken for the answer to the next request.
+ */
+public final class GatewayClient implements Closeable {
+    /**
+     * Bytes buffered for requests and responses.
+     */
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    /**
+     * The socket.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Reads the socket, honouring the timeout.
+     */
+    private final InputStream input;
+
+    /**
+     * Requests not yet sent.
+     */
+    private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Responses read and not yet returned; kept ready to read.
+     */
+    private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Sequence number of the next request.
+     */
+    private int sequence;
+
+    /**
+     * Connect to a gateway, waiting as long as it takes for responses.
+     *
+     * @param address the gateway's address
+     * @throws IOException if it can't connect
+     */
+    public GatewayClient(final InetSocketAddress address) throws IOException {
+        this(address, 0);
+    }
+
+    /**
+     * Connect to a gateway.
+     *
+     * @param address       the gateway's address
+     * @param timeoutMillis how long receive waits for a response; 0 waits
+     *                      as long as it takes
+     * @throws IOException if it can't connect
+     */
+    public GatewayClient(final InetSocketAddress address,
+                         final int timeoutMillis) throws IOException {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "negative timeout: " + timeoutMillis);
+        }
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.socket().setSoTimeout(timeoutMillis);
+        this.input = channel.socket().getInputStream();
+        in.flip();
+    }
+
+    /**
+     * Buffer a request; it is sent when the buffer fills or on flush.
+     *
+     * @param machineId the machine
+     * @param command   the command
+     * @param argument  Currency or Product ordinal, or 0
+     * @return the request's sequence number
+     * @throws IOException if sending a full buffer fails
+     */
+    public int send(final int machineId, final Command command,
+                    final int argument) throws IOException {
+        if (out.remaining() < Protocol.REQUEST_SIZE) {
+            flush();
+        }
+        final int sent = sequence++;
+        Protocol.putRequest(out, machineId, sent, command, argument);
+        return sent;
+    }
+
+    /**
+     * Buffer a RESTORE request, which hands the gateway a whole machine.
+     *
+     * @param machineId the machine
+     * @param machine   the machine to add or replace
+     * @return the request's sequence number
+     * @throws IOException if sending a full buffer fails
+     */
+    public int sendRestore(final int machineId, final Machine machine)
+            throws IOException {
+        if (out.remaining() < Protocol.RESTORE_SIZE) {
+            flush();
+        }
+        final int sent = sequence++;
+        Protocol.putRestore(out, machineId, sent, machine);
+        return sent;
+    }
+
+    /**
+     * Send every buffered request.
+     *
+     * @throws IOException if sending fails
+     */
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Wait for the next response.  Flush first, or this waits until the
+     * timeout.
+     *
+     * @return the response
+     * @throws IOException if reading fails, the gateway hangs up, or the
+     *                     timeout passes; the connection is closed on a
+     *                     timeout
+     */
+    public Response receive() throws IOException {
+        if (in.remaining() < Protocol.RESPONSE_SIZE) {
+            in.compact();
+            try {
+                while (in.position() < Protocol.RESPONSE_SIZE) {
+                    final int read = input.read(in.array(),
+                            in.arrayOffset() + in.position(), in.remaining());
+                    if (read < 0) {
+                        throw new EOFException(
+                                "gateway closed the connection");
+                    }
+                    in.position(in.position() + read);
+                }
+            } catch (SocketTimeoutException e) {
+                channel.close();
+                throw e;
+            }
+            in.flip();
+        }
+        return Protocol.getResponse(in);
+    }
+
+    /**
+     * Send one request and wait for its response, when nothing else is
+     * outstanding.
+     *
+     * @param machineId the machine
+     * @param command   the command
+     * @param argument  Currency or Product ordinal, or 0
+     * @return the response
+     * @throws IOException if sending or reading fails
+     */
+    public Response call(final int machineId, final Command command,
+                         final int argument) throws IOException {
+        send(machineId, command, argument);
+        flush();
+        return receive();
+    }
+
+    /**
+     * Whether the connection is still open; it closes on a timeout.
+     *
+     * @return true if it is
+     */
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,197 @@
+package kata.vending.gateway;
+
+import kata.vending.Machine;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * One thread and the machines it owns.  Every request for a machine runs on
+ * its lane's thread, in the order it arrived, so a machine has a single
+ * writer and its map needs no locking.
+ * <p/>
+ * Every request gets a response, or its terminal would wait for ever.  A
+ * request that throws, or whose machine can't be encoded, is answered
+ * BAD_REQUEST with no machine, and the machine is left as it was.
+ */
+final class Lane {
+    /**
+     * Runs the requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Machines by id; only touched on the lane's thread.
+     */
+    private final Map<Integer, Machine> machines = new HashMap<>();
+
+    /**
+     * Where response buffers come from.
+     */
+    private final BufferPool responses;
+
+    /**
+     * Lane constructor.  The lane's thread is a daemon, like the selector
+     * thread, so a gateway that is never closed doesn't keep the JVM up.
+     *
+     * @param index     the lane's number, for its thread's name
+     * @param responses where response buffers come from
+     */
+    Lane(final int index, final BufferPool responses) {
+        this.responses = responses;
+        this.executor = Executors.newSingleThreadExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread =
+                                new Thread(runnable, "gateway-lane-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Add or replace a machine.
+     *
+     * @param machineId the id
+     * @param machine   the machine
+     */
+    void register(final int machineId, final Machine machine) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                machines.put(machineId, machine);
+            }
+        });
+    }
+
+    /**
+     * Run a request and send the response.
+     *
+     * @param connection where to send the response
+     * @param machineId  the machine
+     * @param sequence   the request's sequence number
+     * @param command    the command ordinal
+     * @param argument   the argument
+     */
+    void submit(final Connection connection, final int machineId,
+                final int sequence, final int command, final int argument) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Machine machine = machines.get(machineId);
+                final Command known = Command.of(command);
+                Machine after = null;
+                Status status = Status.UNKNOWN_MACHINE;
+                if (machine != null) {
+                    status = Status.BAD_REQUEST;
+                    try {
+                        after = execute(machine, known, argument);
+                    } catch (RuntimeException e) {
+                        after = null;
+                    }
+                    if (after != null) {
+                        status = Status.OK;
+                    }
+                }
+                if (respond(connection, machineId, sequence, status, after)
+                        && status == Status.OK) {
+                    if (known == Command.RELEASE) {
+                        machines.remove(machineId);
+                    } else {
+                        machines.put(machineId, after);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Add or replace a machine from a RESTORE request and send the
+     * response.
+     *
+     * @param connection where to send the response
+     * @param machineId  the machine
+     * @param sequence   the request's sequence number
+     * @param machine    the machine, or null if the request's record was bad
+     */
+    void restore(final Connection connection, final int machineId,
+                 final int sequence, final Machine machine) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Status status = Status.BAD_REQUEST;
+                if (machine != null) {
+                    status = Status.OK;
+                }
+                if (respond(connection, machineId, sequence, status, machine)
+                        && machine != null) {
+                    machines.put(machineId, machine);
+                }
+            }
+        });
+    }
+
+    /**
+     * Work out a command against a machine the lane owns.  The map isn't
+     * changed until the response is on its way.
+     *
+     * @param machine  the machine as it is
+     * @param command  the command, or null if it isn't one we know
+     * @param argument the argument
+     * @return the machine to send back, or null if the request is bad
+     */
+    private static Machine execute(final Machine machine,
+                                   final Command command,
+                                   final int argument) {
+        if (command == null || command == Command.RESTORE) {
+            return null;
+        }
+        if (command == Command.SNAPSHOT || command == Command.RELEASE) {
+            return machine;
+        }
+        return Protocol.apply(machine, command, argument);
+    }
+
+    /**
+     * Send a response.
+     *
+     * @param connection where to send it
+     * @param machineId  the machine
+     * @param sequence   the request's sequence number
+     * @param status     how it turned out
+     * @param machine    the machine to send back, or null
+     * @return false if the machine couldn't be encoded, so BAD_REQUEST was
+     *         sent instead
+     */
+    private boolean respond(final Connection connection, final int machineId,
+                            final int sequence, final Status status,
+                            final Machine machine) {
+        final ByteBuffer response = responses.acquire();
+        boolean encoded = true;
+        try {
+            Protocol.putResponse(response, machineId, sequence, status,
+                    machine);
+        } catch (RuntimeException e) {
+            response.clear();
+            Protocol.putResponse(response, machineId, sequence,
+                    Status.BAD_REQUEST, null);
+            encoded = false;
+        }
+        response.flip();
+        connection.send(response);
+        return encoded;
+    }
+
+    /**
+     * Stop the lane's thread.  Requests not yet run are dropped.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
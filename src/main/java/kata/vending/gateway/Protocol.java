@@ -0,0 +1,220 @@
+package kata.vending.gateway;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Product;
+import kata.vending.codec.MachineCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The gateway wire format.  Requests and responses are fixed size, so a
+ * terminal can send as many requests as it likes before reading any
+ * responses, and either side can find frame boundaries by counting bytes.
+ * <p/>
+ * Request, big-endian:
+ * <pre>
+ *   int   machine id
+ *   int   sequence     echoed in the response
+ *   byte  command      Command ordinal
+ *   byte  argument     Currency or Product ordinal, or 0
+ *   short reserved     0
+ *   ...   machine      RESTORE only: a MachineCodec record
+ * </pre>
+ * Response, big-endian:
+ * <pre>
+ *   int   machine id
+ *   int   sequence
+ *   byte  status       Status ordinal
+ *   byte  reserved x3  0
+ *   ...   machine      a MachineCodec record; all zeros unless OK
+ * </pre>
+ * Responses for one machine come back in the order its requests were sent.
+ * Responses for different machines may be interleaved in any order.
+ */
+public final class Protocol {
+    /**
+     * Bytes in a request.
+     */
+    public static final int REQUEST_SIZE = 12;
+
+    /**
+     * Bytes in a RESTORE request.
+     */
+    public static final int RESTORE_SIZE = REQUEST_SIZE + MachineCodec.SIZE;
+
+    /**
+     * Where the command is in a request.
+     */
+    static final int COMMAND_OFFSET = 8;
+
+    /**
+     * Bytes in a response header.
+     */
+    static final int HEADER_SIZE = 12;
+
+    /**
+     * Bytes in a response.
+     */
+    public static final int RESPONSE_SIZE = HEADER_SIZE + MachineCodec.SIZE;
+
+    /**
+     * Bytes in an int.
+     */
+    private static final int INT = Integer.SIZE / Byte.SIZE;
+
+    /**
+     * Where the status is in a response.
+     */
+    private static final int STATUS_OFFSET = 8;
+
+    /**
+     * Stands for a coin no currency matches.
+     */
+    private static final Coin SLUG =
+            new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Cached products.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Utility class.
+     */
+    private Protocol() {
+    }
+
+    /**
+     * Write a request.
+     *
+     * @param buffer    where to write it
+     * @param machineId the machine
+     * @param sequence  echoed in the response
+     * @param command   the command
+     * @param argument  Currency or Product ordinal, or 0
+     */
+    public static void putRequest(final ByteBuffer buffer,
+                                  final int machineId, final int sequence,
+                                  final Command command, final int argument) {
+        buffer.putInt(machineId)
+                .putInt(sequence)
+                .put((byte) command.ordinal())
+                .put((byte) argument)
+                .putShort((short) 0);
+    }
+
+    /**
+     * Write a RESTORE request.
+     *
+     * @param buffer    where to write it
+     * @param machineId the machine
+     * @param sequence  echoed in the response
+     * @param machine   the machine to restore
+     */
+    public static void putRestore(final ByteBuffer buffer,
+                                  final int machineId, final int sequence,
+                                  final Machine machine) {
+        putRequest(buffer, machineId, sequence, Command.RESTORE, 0);
+        MachineCodec.encode(machine, buffer);
+    }
+
+    /**
+     * Bytes in a request with a command.
+     *
+     * @param command the command ordinal
+     * @return the request size
+     */
+    static int requestSize(final int command) {
+        if (command == Command.RESTORE.ordinal()) {
+            return RESTORE_SIZE;
+        }
+        return REQUEST_SIZE;
+    }
+
+    /**
+     * Write a response.
+     *
+     * @param buffer    where to write it
+     * @param machineId the machine
+     * @param sequence  the request's sequence number
+     * @param status    how it turned out
+     * @param machine   the machine after the request, or null
+     */
+    static void putResponse(final ByteBuffer buffer, final int machineId,
+                            final int sequence, final Status status,
+                            final Machine machine) {
+        buffer.putInt(machineId)
+                .putInt(sequence)
+                .put((byte) status.ordinal())
+                .put((byte) 0)
+                .putShort((short) 0);
+        if (machine == null) {
+            for (int i = 0; i < MachineCodec.SIZE / INT; i++) {
+                buffer.putInt(0);
+            }
+        } else {
+            MachineCodec.encode(machine, buffer);
+        }
+    }
+
+    /**
+     * Read a response.
+     *
+     * @param buffer where to read it from
+     * @return the response
+     */
+    public static Response getResponse(final ByteBuffer buffer) {
+        final int start = buffer.position();
+        final int machineId = buffer.getInt(start);
+        final int sequence = buffer.getInt(start + INT);
+        final Status status = Status.of(buffer.get(start + STATUS_OFFSET));
+        Machine machine = null;
+        buffer.position(start + HEADER_SIZE);
+        if (status == Status.OK) {
+            machine = MachineCodec.decode(buffer);
+        }
+        buffer.position(start + RESPONSE_SIZE);
+        return new Response(machineId, sequence, status, machine);
+    }
+
+    /**
+     * Run a request against a machine.
+     *
+     * @param machine  the machine
+     * @param command  the command
+     * @param argument its argument
+     * @return the machine after it, or null if the request is bad
+     */
+    static Machine apply(final Machine machine, final Command command,
+                         final int argument) {
+        switch (command) {
+            case INSERT_COIN:
+                if (argument < 0 || argument >= CURRENCIES.length) {
+                    return null;
+                }
+                final Currency currency = CURRENCIES[argument];
+                if (currency == Currency.UNKNOWN) {
+                    return machine.insertCoin(SLUG);
+                }
+                return machine.insertCoin(currency.getCoin());
+            case RETURN_COINS:
+                return machine.returnCoins();
+            case VEND:
+                if (argument < 0 || argument >= PRODUCTS.length) {
+                    return null;
+                }
+                return machine.vend(PRODUCTS[argument]);
+            case CHECK_DISPLAY:
+                return machine.checkDisplay();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package kata.vending.gateway;
+
+import kata.vending.Machine;
+
+/**
+ * A decoded gateway response.
+ * Immutable.
+ */
+public final class Response {
+    /**
+     * The machine the request was for.
+     */
+    private final int machineId;
+
+    public int getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * The sequence number the request was sent with.
+     */
+    private final int sequence;
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * How it turned out.
+     */
+    private final Status status;
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * The machine after the request; null unless the status is OK.
+     */
+    private final Machine machine;
+
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Response constructor.
+     *
+     * @param machineId the machine the request was for
+     * @param sequence  the sequence number the request was sent with
+     * @param status    how it turned out
+     * @param machine   the machine after the request, or null
+     */
+    Response(final int machineId, final int sequence, final Status status,
+             final Machine machine) {
+        this.machineId = machineId;
+        this.sequence = sequence;
+        this.status = status;
+        this.machine = machine;
+    }
+
+    @Override
+    public String toString() {
+        return "machine " + machineId + " #" + sequence + " " + status;
+    }
+}
@@ -0,0 +1,39 @@
+package kata.vending.gateway;
+
+/**
+ * How a request turned out.  Sent as its ordinal.
+ */
+public enum Status {
+    /**
+     * Done; the response carries the machine.
+     */
+    OK,
+
+    /**
+     * No machine has the id.
+     */
+    UNKNOWN_MACHINE,
+
+    /**
+     * The command or its argument isn't one we know.
+     */
+    BAD_REQUEST;
+
+    /**
+     * Cached values.
+     */
+    private static final Status[] STATUSES = values();
+
+    /**
+     * The status with an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the status
+     */
+    static Status of(final int ordinal) {
+        if (ordinal < 0 || ordinal >= STATUSES.length) {
+            throw new IllegalArgumentException("unknown status " + ordinal);
+        }
+        return STATUSES[ordinal];
+    }
+}
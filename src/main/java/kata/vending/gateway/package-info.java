@@ -0,0 +1,5 @@
+/**
+ * A non-blocking gateway that lets kiosk terminals drive machines over a
+ * compact binary protocol.
+ */
+package kata.vending.gateway;
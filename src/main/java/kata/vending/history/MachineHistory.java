@@ -0,0 +1,323 @@
+package kata.vending.history;
+
+import kata.vending.Machine;
+import kata.vending.codec.MachineCodec;
+import kata.vending.codec.MachineDelta;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The last few states of a machine, for stepping back through what it did
+ * (around a disputed vend, say) without holding on to every Machine.
+ * <p/>
+ * States are kept in segments.  Each segment starts with a keyframe, a
+ * whole MachineCodec record, and the states after it are MachineDelta
+ * deltas, each from the state before.  A typical operation changes a
+ * couple of counts and the display, so a delta is a few bytes and memory
+ * goes with how much changed rather than with the number of Machines.
+ * Getting a state back decodes its segment's keyframe and applies the
+ * deltas up to it, so the cost is the distance to the keyframe.  Segments
+ * are reused in a ring, the oldest first, once more than capacity states
+ * have been recorded.
+ * <p/>
+ * Thread-safe; every method locks the history.
+ */
+public final class MachineHistory {
+    /**
+     * States kept unless told otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * States between keyframes unless told otherwise.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+    /**
+     * Delta bytes a segment starts with room for.
+     */
+    private static final int INITIAL_DELTA_BYTES = 64;
+
+    /**
+     * How many states are kept.
+     */
+    private final int capacity;
+
+    /**
+     * States per segment, the keyframe included.
+     */
+    private final int interval;
+
+    /**
+     * The segments, used in a ring.
+     */
+    private final Segment[] segments;
+
+    /**
+     * The most recent state, as a record.
+     */
+    private ByteBuffer latest = ByteBuffer.allocate(MachineCodec.SIZE);
+
+    /**
+     * Where the next state is encoded before it becomes the latest.
+     */
+    private ByteBuffer incoming = ByteBuffer.allocate(MachineCodec.SIZE);
+
+    /**
+     * Where a delta is written before it is copied into its segment.
+     */
+    private final ByteBuffer scratch =
+            ByteBuffer.allocate(MachineDelta.MAX_SIZE);
+
+    /**
+     * How many states have ever been recorded.
+     */
+    private long recorded;
+
+    /**
+     * Builder for the MachineHistory class.
+     */
+    public static class Builder {
+        /**
+         * Builder capacity.
+         */
+        private int capacity = DEFAULT_CAPACITY;
+
+        /**
+         * Builder keyframeInterval.
+         */
+        private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+
+        /**
+         * Builder setter for capacity.
+         *
+         * @param capacity how many states to keep
+         * @return this Builder
+         */
+        public final Builder capacity(final int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Builder setter for keyframeInterval.
+         *
+         * @param keyframeInterval states between keyframes; 1 keeps every
+         *                         state whole
+         * @return this Builder
+         */
+        public final Builder keyframeInterval(final int keyframeInterval) {
+            this.keyframeInterval = keyframeInterval;
+            return this;
+        }
+
+        /**
+         * Build the history.
+         *
+         * @return the history
+         */
+        public final MachineHistory build() {
+            return new MachineHistory(this);
+        }
+    }
+
+    /**
+     * MachineHistory constructor.
+     *
+     * @param builder the builder
+     */
+    private MachineHistory(final Builder builder) {
+        if (builder.capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "capacity must be positive: " + builder.capacity);
+        }
+        if (builder.keyframeInterval <= 0) {
+            throw new IllegalArgumentException(
+                    "keyframe interval must be positive: "
+                            + builder.keyframeInterval);
+        }
+        this.capacity = builder.capacity;
+        this.interval = builder.keyframeInterval;
+        final int count = (capacity + interval - 1) / interval + 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(interval);
+        }
+    }
+
+    /**
+     * Record a machine as the newest state.
+     *
+     * @param machine the machine
+     * @return the same machine, to chain after an operation
+     */
+    public synchronized Machine record(final Machine machine) {
+        MachineCodec.encode(machine, incoming, 0);
+        final Segment segment = segment(recorded);
+        if (recorded % interval == 0) {
+            segment.reset(incoming);
+        } else {
+            scratch.clear();
+            final int length = MachineDelta.encode(latest, 0, incoming, 0,
+                    scratch);
+            segment.append(scratch.array(), length);
+        }
+        final ByteBuffer swap = latest;
+        latest = incoming;
+        incoming = swap;
+        recorded++;
+        return machine;
+    }
+
+    /**
+     * A state from the history.  Throws IndexOutOfBoundsException unless
+     * stepsBack is at least 0 and less than size.
+     *
+     * @param stepsBack how many states before the newest; 0 is the newest
+     * @return the machine as it was then
+     */
+    public synchronized Machine get(final int stepsBack) {
+        if (stepsBack < 0 || stepsBack >= size()) {
+            throw new IndexOutOfBoundsException("no state " + stepsBack
+                    + " back; history holds " + size());
+        }
+        if (stepsBack == 0) {
+            return MachineCodec.decode(latest, 0);
+        }
+        final long state = recorded - 1 - stepsBack;
+        final ByteBuffer record = ByteBuffer.allocate(MachineCodec.SIZE);
+        segment(state).rebuild((int) (state % interval), record);
+        return MachineCodec.decode(record, 0);
+    }
+
+    /**
+     * How many states can be got back.
+     *
+     * @return the count, at most the capacity
+     */
+    public synchronized int size() {
+        return (int) Math.min(recorded, capacity);
+    }
+
+    /**
+     * How many states have ever been recorded.
+     *
+     * @return the count
+     */
+    public synchronized long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Bytes of keyframes and deltas in use.  Spare room in the segments
+     * isn't counted.
+     *
+     * @return the bytes
+     */
+    public synchronized long getBytes() {
+        final long started = (recorded + interval - 1) / interval;
+        final int live = (int) Math.min(started, segments.length);
+        long bytes = 0L;
+        for (int i = 0; i < live; i++) {
+            bytes += MachineCodec.SIZE + segments[i].used;
+        }
+        return bytes;
+    }
+
+    /**
+     * The segment a state lives in.
+     *
+     * @param state the state number
+     * @return the segment
+     */
+    private Segment segment(final long state) {
+        return segments[(int) (state / interval % segments.length)];
+    }
+
+    /**
+     * A keyframe and the deltas recorded after it.
+     */
+    private static final class Segment {
+        /**
+         * The keyframe record.
+         */
+        private final ByteBuffer keyframe =
+                ByteBuffer.allocate(MachineCodec.SIZE);
+
+        /**
+         * The deltas, back to back.
+         */
+        private byte[] deltas = new byte[INITIAL_DELTA_BYTES];
+
+        /**
+         * Where each delta starts; delta n takes state n to state n + 1.
+         */
+        private final int[] starts;
+
+        /**
+         * Deltas recorded.
+         */
+        private int count;
+
+        /**
+         * Delta bytes used.
+         */
+        private int used;
+
+        /**
+         * Segment constructor.
+         *
+         * @param interval states per segment
+         */
+        Segment(final int interval) {
+            this.starts = new int[interval];
+        }
+
+        /**
+         * Start the segment again from a new keyframe.
+         *
+         * @param record the keyframe record
+         */
+        void reset(final ByteBuffer record) {
+            keyframe.clear();
+            keyframe.put(record.array(), record.arrayOffset(),
+                    MachineCodec.SIZE);
+            count = 0;
+            used = 0;
+        }
+
+        /**
+         * Add a delta.
+         *
+         * @param delta  the delta bytes
+         * @param length how many of them
+         */
+        void append(final byte[] delta, final int length) {
+            if (used + length > deltas.length) {
+                deltas = Arrays.copyOf(deltas,
+                        Math.max(deltas.length * 2, used + length));
+            }
+            System.arraycopy(delta, 0, deltas, used, length);
+            starts[count++] = used;
+            used += length;
+        }
+
+        /**
+         * Rebuild a state of the segment.
+         *
+         * @param offset how many states after the keyframe
+         * @param record where to rebuild it
+         */
+        void rebuild(final int offset, final ByteBuffer record) {
+            record.clear();
+            record.put(keyframe.array(), keyframe.arrayOffset(),
+                    MachineCodec.SIZE);
+            final ByteBuffer bytes = ByteBuffer.wrap(deltas, 0, used);
+            for (int i = 0; i < offset; i++) {
+                bytes.position(starts[i]);
+                MachineDelta.apply(bytes, record, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * A bounded history of a machine's recent states, kept as deltas between
+ * keyframes, for stepping back through what a machine did.
+ */
+package kata.vending.history;
@@ -0,0 +1,78 @@
+package kata.vending.intake;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+
+/**
+ * One slot of the intake ring.  Slots are allocated once and reused, so a
+ * listener must copy anything it wants to keep after it returns.
+ */
+public final class CoinEvent {
+    /**
+     * The coin as the acceptor sensed it.
+     */
+    private Coin coin;
+
+    public Coin getCoin() {
+        return coin;
+    }
+
+    /**
+     * When the coin was sensed, from System.nanoTime.
+     */
+    private long sensedNanos;
+
+    public long getSensedNanos() {
+        return sensedNanos;
+    }
+
+    /**
+     * What the coin was classified as.
+     */
+    private Currency currency;
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * The machine after the coin was inserted.
+     */
+    private Machine machine;
+
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Fill the slot with a new reading.  Called by the producer.
+     *
+     * @param sensed      the coin
+     * @param sensedAt    when it was sensed
+     */
+    void reset(final Coin sensed, final long sensedAt) {
+        this.coin = sensed;
+        this.sensedNanos = sensedAt;
+        this.currency = null;
+        this.machine = null;
+    }
+
+    /**
+     * Record the classification.  Called by the classifier stage.
+     *
+     * @param classified the currency
+     */
+    void classified(final Currency classified) {
+        this.currency = classified;
+    }
+
+    /**
+     * Record the machine.  Called by the applier stage.
+     *
+     * @param applied the machine after the coin
+     */
+    void applied(final Machine applied) {
+        this.machine = applied;
+    }
+}
@@ -0,0 +1,332 @@
+package kata.vending.intake;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes coins from the acceptor's sensor thread into a preallocated ring,
+ * in the style of the LMAX Disruptor, and runs them through three stages,
+ * each on its own thread:
+ * <ol>
+ *   <li>classify the coin as a Currency;</li>
+ *   <li>insert it into the Machine;</li>
+ *   <li>tell the listener, for the display and telemetry.</li>
+ * </ol>
+ * Each stage works through everything available in one batch, so a burst
+ * of coins costs one hand-off per stage rather than one per coin.
+ * <p/>
+ * The sensor thread never waits: offer returns false when the ring is
+ * full, and the acceptor should divert that coin to the coin return.
+ * There must be only one sensor thread.  The applier stage is the only
+ * writer of the machine.
+ */
+public final class CoinIntake implements Closeable {
+    /**
+     * Slots unless told otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 10;
+
+    /**
+     * The ring.
+     */
+    private final CoinEvent[] ring;
+
+    /**
+     * Ring index mask.
+     */
+    private final int mask;
+
+    /**
+     * Last slot the sensor published.
+     */
+    private final AtomicLong cursor = new AtomicLong(-1L);
+
+    /**
+     * Next slot the sensor will fill; only touched by the sensor thread.
+     */
+    private long next;
+
+    /**
+     * Coins refused because the ring was full.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * How stages wait.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Cleared to stop the stages.
+     */
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    /**
+     * Set once closed; offers are refused after that.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The machine, as of the last batch the applier finished.
+     */
+    private volatile Machine machine;
+
+    /**
+     * The stages, in order.
+     */
+    private final Stage[] stages;
+
+    /**
+     * The stage threads; null until started.
+     */
+    private Thread[] threads;
+
+    /**
+     * Builder for the CoinIntake class.
+     */
+    public static class Builder {
+        /**
+         * Builder machine.
+         */
+        private Machine machine = new Machine.Builder().build();
+
+        /**
+         * Builder capacity.
+         */
+        private int capacity = DEFAULT_CAPACITY;
+
+        /**
+         * Builder waitStrategy.
+         */
+        private WaitStrategy waitStrategy = WaitStrategies.yielding();
+
+        /**
+         * Builder listener.
+         */
+        private IntakeListener listener;
+
+        /**
+         * Builder setter for machine.
+         *
+         * @param machine the machine coins go into
+         * @return this Builder
+         */
+        public final Builder machine(final Machine machine) {
+            if (machine == null) {
+                return this;
+            }
+            this.machine = machine;
+            return this;
+        }
+
+        /**
+         * Builder setter for capacity.
+         *
+         * @param capacity slots in the ring; a power of two
+         * @return this Builder
+         */
+        public final Builder capacity(final int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Builder setter for waitStrategy.
+         *
+         * @param waitStrategy how stages wait for work
+         * @return this Builder
+         */
+        public final Builder waitStrategy(final WaitStrategy waitStrategy) {
+            if (waitStrategy == null) {
+                return this;
+            }
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * Builder setter for listener.
+         *
+         * @param listener told about each coin taken
+         * @return this Builder
+         */
+        public final Builder listener(final IntakeListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Build the intake.  Coins can be offered straight away; they are
+         * processed once it is started.
+         *
+         * @return the intake
+         */
+        public final CoinIntake build() {
+            return new CoinIntake(this);
+        }
+    }
+
+    /**
+     * CoinIntake constructor.
+     *
+     * @param builder the builder
+     */
+    private CoinIntake(final Builder builder) {
+        if (builder.capacity <= 0
+                || Integer.bitCount(builder.capacity) != 1) {
+            throw new IllegalArgumentException(
+                    "capacity must be a power of two: " + builder.capacity);
+        }
+        this.ring = new CoinEvent[builder.capacity];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new CoinEvent();
+        }
+        this.mask = ring.length - 1;
+        this.waitStrategy = builder.waitStrategy;
+        this.machine = builder.machine;
+        final Stage classifier = new Stage(ring, cursor, null,
+                new Stage.Handler() {
+                    @Override
+                    public void handle(final CoinEvent event,
+                                       final boolean endOfBatch) {
+                        event.classified(
+                                Currency.toCurrency(event.getCoin()));
+                    }
+                }, waitStrategy, running);
+        final Stage applier = new Stage(ring, classifier.done(), classifier,
+                new Stage.Handler() {
+                    private Machine current = builder.machine;
+
+                    @Override
+                    public void handle(final CoinEvent event,
+                                       final boolean endOfBatch) {
+                        current = current.insertCoin(event.getCoin());
+                        event.applied(current);
+                        if (endOfBatch) {
+                            machine = current;
+                        }
+                    }
+                }, waitStrategy, running);
+        final IntakeListener listener = builder.listener;
+        final Stage publisher = new Stage(ring, applier.done(), applier,
+                new Stage.Handler() {
+                    @Override
+                    public void handle(final CoinEvent event,
+                                       final boolean endOfBatch) {
+                        if (listener != null) {
+                            listener.onCoin(event, endOfBatch);
+                        }
+                    }
+                }, waitStrategy, running);
+        this.stages = new Stage[] {classifier, applier, publisher};
+    }
+
+    /**
+     * Start the stage threads.
+     */
+    public synchronized void start() {
+        if (threads != null) {
+            return;
+        }
+        threads = new Thread[stages.length];
+        final String[] names = {"classify", "apply", "publish"};
+        for (int i = 0; i < stages.length; i++) {
+            threads[i] = new Thread(stages[i], "coin-intake-" + names[i]);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Take a coin.  Never blocks.  Only call from the sensor thread.
+     *
+     * @param coin the coin as sensed
+     * @return false if the ring is full or the intake is closed; the coin
+     *         should go to the coin return
+     */
+    public boolean offer(final Coin coin) {
+        if (closed) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        final AtomicLong last = stages[stages.length - 1].done();
+        if (next - ring.length > last.get()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        ring[(int) (next & mask)].reset(coin, System.nanoTime());
+        cursor.lazySet(next);
+        next++;
+        waitStrategy.signal();
+        return true;
+    }
+
+    /**
+     * The machine as of the last batch of coins inserted.
+     *
+     * @return the machine
+     */
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * How many coins were refused.
+     *
+     * @return the count
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Coins a stage threw on.  The stage skipped each one and carried on: a
+     * coin the machine threw on was not inserted, and one the listener
+     * threw on was inserted but not reported.
+     *
+     * @return the count
+     */
+    public long getFailed() {
+        long failed = 0L;
+        for (Stage stage : stages) {
+            failed += stage.failed();
+        }
+        return failed;
+    }
+
+    /**
+     * How many coins every stage has finished with.
+     *
+     * @return the count
+     */
+    public long getProcessed() {
+        return stages[stages.length - 1].done().get() + 1L;
+    }
+
+    /**
+     * Refuse further coins, let the stages finish the ones already taken,
+     * and stop them.  Call once the sensor thread has stopped offering.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        running.set(false);
+        if (threads == null) {
+            return;
+        }
+        waitStrategy.signal();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
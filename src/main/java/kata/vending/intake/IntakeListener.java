@@ -0,0 +1,18 @@
+package kata.vending.intake;
+
+/**
+ * Told about each coin once the machine has taken it, on the intake's
+ * publishing thread.
+ */
+public interface IntakeListener {
+    /**
+     * Called for each coin, in the order they were sensed.
+     *
+     * @param event      the coin, its currency and the machine after it;
+     *                   only valid until this returns
+     * @param endOfBatch true for the last coin currently available, so a
+     *                   listener can refresh the display or flush
+     *                   telemetry once per batch
+     */
+    void onCoin(CoinEvent event, boolean endOfBatch);
+}
@@ -0,0 +1,177 @@
+package kata.vending.intake;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One consumer of the ring.  It follows the sequence of the stage ahead of
+ * it (or the producer), handles every slot up to there as one batch, then
+ * publishes its own sequence for the stage behind it.  Once told to stop,
+ * it carries on until the stage ahead has stopped and it has caught up, so
+ * nothing taken is lost.
+ * <p/>
+ * A handler that throws only loses that slot: the failure is counted and
+ * the stage moves on, so the stages behind it, and close, never wait on a
+ * stage that has died.
+ */
+final class Stage implements Runnable {
+    /**
+     * What a stage does to each slot.
+     */
+    interface Handler {
+        /**
+         * Handle a slot.
+         *
+         * @param event      the slot
+         * @param endOfBatch true for the last slot of the batch
+         */
+        void handle(CoinEvent event, boolean endOfBatch);
+    }
+
+    /**
+     * The ring.
+     */
+    private final CoinEvent[] ring;
+
+    /**
+     * Ring index mask.
+     */
+    private final int mask;
+
+    /**
+     * Last slot the stage ahead has finished.
+     */
+    private final AtomicLong ahead;
+
+    /**
+     * The stage ahead, or null if it is the producer.
+     */
+    private final Stage upstream;
+
+    /**
+     * Set once the stage has finished everything and returned.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Last slot this stage has finished.
+     */
+    private final AtomicLong done = new AtomicLong(-1L);
+
+    /**
+     * Slots the handler threw on.
+     */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * What to do to each slot.
+     */
+    private final Handler handler;
+
+    /**
+     * How to wait.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Cleared when the stage should stop once idle.
+     */
+    private final AtomicBoolean running;
+
+    /**
+     * Stage constructor.
+     *
+     * @param ring         the ring
+     * @param ahead        last slot the stage ahead has finished
+     * @param upstream     the stage ahead, or null if it is the producer
+     * @param handler      what to do to each slot
+     * @param waitStrategy how to wait
+     * @param running      cleared when the stage should stop once idle
+     */
+    Stage(final CoinEvent[] ring, final AtomicLong ahead,
+          final Stage upstream, final Handler handler,
+          final WaitStrategy waitStrategy, final AtomicBoolean running) {
+        this.ring = ring;
+        this.mask = ring.length - 1;
+        this.ahead = ahead;
+        this.upstream = upstream;
+        this.handler = handler;
+        this.waitStrategy = waitStrategy;
+        this.running = running;
+    }
+
+    /**
+     * Last slot this stage has finished.
+     *
+     * @return the sequence
+     */
+    AtomicLong done() {
+        return done;
+    }
+
+    /**
+     * Slots the handler threw on.
+     *
+     * @return the count
+     */
+    long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Whether the stage can stop: it has been told to, the stage ahead has
+     * stopped, and there is nothing left to handle.
+     *
+     * @param next the next slot to handle
+     * @return true if the stage can stop
+     */
+    private boolean finished(final long next) {
+        if (running.get() || upstream != null && !upstream.stopped) {
+            return false;
+        }
+        return ahead.get() < next;
+    }
+
+    @Override
+    public void run() {
+        try {
+            long next = done.get() + 1L;
+            int attempt = 0;
+            while (true) {
+                final long available = ahead.get();
+                if (available < next) {
+                    if (finished(next)) {
+                        return;
+                    }
+                    waitStrategy.idle(attempt++);
+                    continue;
+                }
+                attempt = 0;
+                for (long sequence = next; sequence <= available;
+                     sequence++) {
+                    handle(ring[(int) (sequence & mask)],
+                            sequence == available);
+                }
+                done.lazySet(available);
+                waitStrategy.signal();
+                next = available + 1L;
+            }
+        } finally {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Handle one slot, counting and skipping it if the handler throws.
+     *
+     * @param event      the slot
+     * @param endOfBatch true for the last slot of the batch
+     */
+    private void handle(final CoinEvent event, final boolean endOfBatch) {
+        try {
+            handler.handle(event, endOfBatch);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+        }
+    }
+}
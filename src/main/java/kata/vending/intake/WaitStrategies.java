@@ -0,0 +1,135 @@
+package kata.vending.intake;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The usual wait strategies, from lowest latency and most CPU to highest
+ * latency and least CPU.
+ */
+public final class WaitStrategies {
+    /**
+     * Spins before yielding or parking.
+     */
+    private static final int SPINS = 100;
+
+    /**
+     * Longest a blocked stage sleeps before checking again, in nanoseconds.
+     */
+    private static final long BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Utility class.
+     */
+    private WaitStrategies() {
+    }
+
+    /**
+     * Spin without pause: lowest latency, burns a core per stage.
+     *
+     * @return the strategy
+     */
+    public static WaitStrategy busySpin() {
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int attempt) {
+                return;
+            }
+
+            @Override
+            public void signal() {
+                return;
+            }
+        };
+    }
+
+    /**
+     * Spin a little, then yield the processor.
+     *
+     * @return the strategy
+     */
+    public static WaitStrategy yielding() {
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int attempt) {
+                if (attempt > SPINS) {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public void signal() {
+                return;
+            }
+        };
+    }
+
+    /**
+     * Spin a little, then sleep for a while each time.
+     *
+     * @param sleepNanos how long to sleep
+     * @return the strategy
+     */
+    public static WaitStrategy sleeping(final long sleepNanos) {
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int attempt) {
+                if (attempt > SPINS) {
+                    LockSupport.parkNanos(sleepNanos);
+                } else {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public void signal() {
+                return;
+            }
+        };
+    }
+
+    /**
+     * Park until signalled: least CPU, most latency.  Signalling never
+     * blocks the sensor thread; it unparks whichever stages are parked, and
+     * only looks when one is.  A stage that just misses a signal wakes by
+     * itself within a millisecond.
+     *
+     * @return the strategy
+     */
+    public static WaitStrategy blocking() {
+        final Set<Thread> parked = Collections.newSetFromMap(
+                new ConcurrentHashMap<Thread, Boolean>());
+        final AtomicInteger waiting = new AtomicInteger();
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int attempt) {
+                if (attempt < SPINS) {
+                    return;
+                }
+                final Thread self = Thread.currentThread();
+                parked.add(self);
+                waiting.incrementAndGet();
+                try {
+                    LockSupport.parkNanos(this, BLOCK_NANOS);
+                } finally {
+                    waiting.decrementAndGet();
+                    parked.remove(self);
+                }
+            }
+
+            @Override
+            public void signal() {
+                if (waiting.get() == 0) {
+                    return;
+                }
+                for (Thread thread : parked) {
+                    LockSupport.unpark(thread);
+                }
+            }
+        };
+    }
+}
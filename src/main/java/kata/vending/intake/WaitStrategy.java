@@ -0,0 +1,19 @@
+package kata.vending.intake;
+
+/**
+ * How a pipeline stage waits for the stage ahead of it.  The producer never
+ * waits; it only signals.
+ */
+public interface WaitStrategy {
+    /**
+     * Called each time a stage finds nothing new to do.
+     *
+     * @param attempt how many times in a row it has found nothing
+     */
+    void idle(int attempt);
+
+    /**
+     * Called after the producer or a stage makes new slots available.
+     */
+    void signal();
+}
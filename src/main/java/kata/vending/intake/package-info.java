@@ -0,0 +1,5 @@
+/**
+ * A preallocated ring-buffer pipeline that takes coins from the coin
+ * acceptor without ever blocking it.
+ */
+package kata.vending.intake;
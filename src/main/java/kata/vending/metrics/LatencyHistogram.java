@@ -0,0 +1,117 @@
+package kata.vending.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-linear histogram of nanosecond latencies.  Every power of two is
+ * split into SUB_BUCKETS linear buckets, so any recorded value is within about
+ * 6% of the bucket it lands in.  Recording is lock-free and allocation-free;
+ * each thread writes into its own stripe of buckets.
+ */
+public final class LatencyHistogram {
+    /**
+     * Bits of linear resolution inside each power of two.
+     */
+    static final int SUB_BITS = 4;
+
+    /**
+     * Linear buckets inside each power of two.
+     */
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Total buckets needed to cover every non-negative long.
+     */
+    static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * Bucket counts, one run of BUCKETS per stripe.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Stripe count minus one.
+     */
+    private final int mask;
+
+    /**
+     * Sum of recorded values.
+     */
+    private final StripedCounter total = new StripedCounter();
+
+    /**
+     * Largest recorded value.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * LatencyHistogram constructor.  Stripes by processor count.
+     */
+    public LatencyHistogram() {
+        final int stripes = Stripes.count();
+        this.mask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+    }
+
+    /**
+     * The bucket a value falls in.
+     *
+     * @param value the value, negative values count as 0
+     * @return the bucket index
+     */
+    static int bucket(final long value) {
+        if (value < 0) {
+            return 0;
+        }
+        final int shift = Math.max(0,
+                Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * The largest value that falls in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket's upper bound
+     */
+    static long upperBound(final int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long top = bucket - (long) shift * SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Record one value.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        final int offset = Stripes.current(mask) * BUCKETS;
+        counts.getAndIncrement(offset + bucket(nanos));
+        total.add(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Merge the stripes into a point-in-time view.
+     *
+     * @return the snapshot
+     */
+    public LatencySnapshot snapshot() {
+        final long[] merged = new long[BUCKETS];
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            final int offset = stripe * BUCKETS;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                merged[bucket] += counts.get(offset + bucket);
+            }
+        }
+        return new LatencySnapshot(merged, total.sum(), max.get());
+    }
+}
@@ -0,0 +1,88 @@
+package kata.vending.metrics;
+
+/**
+ * Counts and percentiles read from a LatencyHistogram.
+ * Immutable.
+ */
+public final class LatencySnapshot {
+    /**
+     * Merged bucket counts.
+     */
+    private final long[] counts;
+
+    /**
+     * How many values were recorded.
+     */
+    private final long count;
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Sum of the recorded values.
+     */
+    private final long total;
+
+    /**
+     * Largest recorded value.
+     */
+    private final long max;
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * LatencySnapshot constructor.
+     *
+     * @param counts merged bucket counts, owned by the snapshot
+     * @param total  sum of the recorded values
+     * @param max    largest recorded value
+     */
+    LatencySnapshot(final long[] counts, final long total, final long max) {
+        long sum = 0L;
+        for (long c : counts) {
+            sum += c;
+        }
+        this.counts = counts;
+        this.count = sum;
+        this.total = total;
+        this.max = max;
+    }
+
+    /**
+     * Mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        if (count == 0) {
+            return 0d;
+        }
+        return (double) total / count;
+    }
+
+    /**
+     * The value at or below which the given percentage of values fall,
+     * rounded up to the edge of its bucket (and never above the max).
+     *
+     * @param percentile between 0 and 100
+     * @return the value at the percentile, or 0 if nothing was recorded
+     */
+    public long percentile(final double percentile) {
+        if (count == 0) {
+            return 0L;
+        }
+        final long rank = Math.max(1L,
+                (long) Math.ceil(percentile / 100d * count));
+        long seen = 0L;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, LatencyHistogram.upperBound(bucket));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,72 @@
+package kata.vending.metrics;
+
+import kata.vending.Operation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The JMX view of a metrics registry.  Each attribute reads only the
+ * counters or histograms it reports, so a console polling every attribute
+ * doesn't copy the histograms once per counter.
+ */
+final class Metrics implements MetricsMXBean {
+    /**
+     * The registry being exposed.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Metrics constructor.
+     *
+     * @param registry the registry to expose
+     */
+    Metrics(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public long getCoinsAccepted() {
+        return registry.countCoinsAccepted();
+    }
+
+    @Override
+    public long getCoinsRejected() {
+        return registry.countCoinsRejected();
+    }
+
+    @Override
+    public long getSoldOut() {
+        return registry.countSoldOut();
+    }
+
+    @Override
+    public long getExactChange() {
+        return registry.countExactChange();
+    }
+
+    @Override
+    public Map<String, Long> getVends() {
+        return registry.countVends();
+    }
+
+    @Override
+    public Map<String, Long> getChangeDispensed() {
+        return registry.countChangeDispensed();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99() {
+        final Map<String, Long> p99 = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            p99.put(operation.name(),
+                    registry.latency(operation).snapshot().percentile(99d));
+        }
+        return p99;
+    }
+
+    @Override
+    public String dump() {
+        return registry.snapshot().toText();
+    }
+}
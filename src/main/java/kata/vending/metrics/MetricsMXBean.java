@@ -0,0 +1,64 @@
+package kata.vending.metrics;
+
+import java.util.Map;
+
+/**
+ * What the metrics registry exposes over JMX.
+ */
+public interface MetricsMXBean {
+    /**
+     * Coins that were accepted.
+     *
+     * @return the count
+     */
+    long getCoinsAccepted();
+
+    /**
+     * Coins that went to the coin return unrecognized.
+     *
+     * @return the count
+     */
+    long getCoinsRejected();
+
+    /**
+     * Vends refused as sold out.
+     *
+     * @return the count
+     */
+    long getSoldOut();
+
+    /**
+     * Display checks that showed EXACT CHANGE ONLY.
+     *
+     * @return the count
+     */
+    long getExactChange();
+
+    /**
+     * Successful vends by product name.
+     *
+     * @return the counts
+     */
+    Map<String, Long> getVends();
+
+    /**
+     * Coins given as change by currency name.
+     *
+     * @return the counts
+     */
+    Map<String, Long> getChangeDispensed();
+
+    /**
+     * 99th percentile latency by operation name.
+     *
+     * @return the latencies in nanoseconds
+     */
+    Map<String, Long> getLatencyP99();
+
+    /**
+     * Everything, as the plain text dump.
+     *
+     * @return the dump
+     */
+    String dump();
+}
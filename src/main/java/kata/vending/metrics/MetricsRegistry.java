@@ -0,0 +1,286 @@
+package kata.vending.metrics;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Operation;
+import kata.vending.OperationListener;
+import kata.vending.Operations;
+import kata.vending.Outcome;
+import kata.vending.Product;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts what the machines are doing and how long it takes.  Listens to
+ * machine operations once started; recording is lock-free and doesn't
+ * allocate.
+ */
+public final class MetricsRegistry implements OperationListener {
+    /**
+     * Default JMX name.
+     */
+    public static final String OBJECT_NAME = "kata.vending:type=Metrics";
+
+    /**
+     * Cached so recording doesn't clone the values array.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Coins that were classified and accepted.
+     */
+    private final StripedCounter coinsAccepted = new StripedCounter();
+
+    /**
+     * Coins that went straight to the coin return.
+     */
+    private final StripedCounter coinsRejected = new StripedCounter();
+
+    /**
+     * Vends that were refused because the product was sold out.
+     */
+    private final StripedCounter soldOut = new StripedCounter();
+
+    /**
+     * Display checks that came up EXACT CHANGE ONLY.
+     */
+    private final StripedCounter exactChange = new StripedCounter();
+
+    /**
+     * Successful vends, by product ordinal.
+     */
+    private final StripedCounter[] vends =
+            counters(Product.values().length);
+
+    /**
+     * Coins given as change, by currency ordinal.
+     */
+    private final StripedCounter[] changeDispensed =
+            counters(CURRENCIES.length);
+
+    /**
+     * Latencies, by operation ordinal.
+     */
+    private final LatencyHistogram[] latencies =
+            new LatencyHistogram[Operation.values().length];
+
+    /**
+     * MetricsRegistry constructor.
+     */
+    public MetricsRegistry() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Create an array of counters.
+     *
+     * @param size how many
+     * @return the counters
+     */
+    private static StripedCounter[] counters(final int size) {
+        final StripedCounter[] counters = new StripedCounter[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new StripedCounter();
+        }
+        return counters;
+    }
+
+    /**
+     * Start counting machine operations.
+     */
+    public void start() {
+        Operations.addListener(this);
+    }
+
+    /**
+     * Stop counting.  The counts are kept.
+     */
+    public void stop() {
+        Operations.removeListener(this);
+    }
+
+    @Override
+    public void onOperation(final Operation operation, final Outcome outcome,
+                            final long amount, final Product product,
+                            final Currency currency, final Bank coins,
+                            final long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+        switch (outcome) {
+            case ACCEPTED:
+                coinsAccepted.increment();
+                break;
+            case REJECTED:
+                coinsRejected.increment();
+                break;
+            case SOLD_OUT:
+                soldOut.increment();
+                break;
+            case VENDED:
+                vends[product.ordinal()].increment();
+                countChange(coins);
+                break;
+            case EXACT_CHANGE:
+                if (operation == Operation.CHECK_DISPLAY) {
+                    exactChange.increment();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Count the coins given as change.
+     *
+     * @param change the change, may be null
+     */
+    private void countChange(final Bank change) {
+        if (change == null) {
+            return;
+        }
+        final Inventory<Currency> inventory = change.getInventory();
+        for (Currency currency : CURRENCIES) {
+            final int quantity = inventory.quantity(currency);
+            if (quantity > 0) {
+                changeDispensed[currency.ordinal()].add(quantity);
+            }
+        }
+    }
+
+    /**
+     * Read every counter and histogram.
+     *
+     * @return the snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        final long[] vendCounts = new long[vends.length];
+        for (int i = 0; i < vends.length; i++) {
+            vendCounts[i] = vends[i].sum();
+        }
+        final long[] changeCounts = new long[changeDispensed.length];
+        for (int i = 0; i < changeDispensed.length; i++) {
+            changeCounts[i] = changeDispensed[i].sum();
+        }
+        final LatencySnapshot[] latencySnapshots =
+                new LatencySnapshot[latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencySnapshots[i] = latencies[i].snapshot();
+        }
+        return new MetricsSnapshot.Builder()
+                .coinsAccepted(coinsAccepted.sum())
+                .coinsRejected(coinsRejected.sum())
+                .soldOut(soldOut.sum())
+                .exactChange(exactChange.sum())
+                .vends(vendCounts)
+                .changeDispensed(changeCounts)
+                .latencies(latencySnapshots)
+                .build();
+    }
+
+    /**
+     * Coins accepted so far.
+     *
+     * @return the count
+     */
+    long countCoinsAccepted() {
+        return coinsAccepted.sum();
+    }
+
+    /**
+     * Coins rejected so far.
+     *
+     * @return the count
+     */
+    long countCoinsRejected() {
+        return coinsRejected.sum();
+    }
+
+    /**
+     * Vends refused as sold out so far.
+     *
+     * @return the count
+     */
+    long countSoldOut() {
+        return soldOut.sum();
+    }
+
+    /**
+     * Display checks that came up EXACT CHANGE ONLY so far.
+     *
+     * @return the count
+     */
+    long countExactChange() {
+        return exactChange.sum();
+    }
+
+    /**
+     * Successful vends by product name, without reading the histograms.
+     *
+     * @return the counts
+     */
+    Map<String, Long> countVends() {
+        final Map<String, Long> map = new LinkedHashMap<>();
+        for (Product product : Product.values()) {
+            map.put(product.name(), vends[product.ordinal()].sum());
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Coins given as change by currency name, without reading the
+     * histograms.
+     *
+     * @return the counts
+     */
+    Map<String, Long> countChangeDispensed() {
+        final Map<String, Long> map = new LinkedHashMap<>();
+        for (Currency currency : CURRENCIES) {
+            map.put(currency.name(), changeDispensed[currency.ordinal()].sum());
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * The latency histogram of an operation.
+     *
+     * @param operation the operation
+     * @return the histogram
+     */
+    LatencyHistogram latency(final Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Register this registry with the platform MBean server.
+     *
+     * @param name the JMX object name, e.g. OBJECT_NAME
+     * @return the registered name
+     * @throws JMException if the name is bad or already taken
+     */
+    public ObjectName registerMBean(final String name) throws JMException {
+        final ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new Metrics(this), objectName);
+        return objectName;
+    }
+
+    /**
+     * Remove a registration made by registerMBean.
+     *
+     * @param objectName the registered name
+     * @throws JMException if nothing is registered under the name
+     */
+    public static void unregisterMBean(final ObjectName objectName)
+            throws JMException {
+        ManagementFactory.getPlatformMBeanServer()
+                .unregisterMBean(objectName);
+    }
+}
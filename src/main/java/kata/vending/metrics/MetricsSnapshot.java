@@ -0,0 +1,331 @@
+package kata.vending.metrics;
+
+import kata.vending.Currency;
+import kata.vending.Operation;
+import kata.vending.Product;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Everything the metrics registry counted, read at one point in time.
+ * Immutable.
+ */
+public final class MetricsSnapshot {
+    /**
+     * Percentiles included in the text dump.
+     */
+    private static final double[] PERCENTILES = {50d, 90d, 99d, 99.9d};
+
+    /**
+     * Coins accepted.
+     */
+    private final long coinsAccepted;
+
+    public long getCoinsAccepted() {
+        return coinsAccepted;
+    }
+
+    /**
+     * Coins rejected.
+     */
+    private final long coinsRejected;
+
+    public long getCoinsRejected() {
+        return coinsRejected;
+    }
+
+    /**
+     * Vends refused as sold out.
+     */
+    private final long soldOut;
+
+    public long getSoldOut() {
+        return soldOut;
+    }
+
+    /**
+     * Display checks that showed EXACT CHANGE ONLY.
+     */
+    private final long exactChange;
+
+    public long getExactChange() {
+        return exactChange;
+    }
+
+    /**
+     * Successful vends by product ordinal.
+     */
+    private final long[] vends;
+
+    /**
+     * Change coins by currency ordinal.
+     */
+    private final long[] changeDispensed;
+
+    /**
+     * Latencies by operation ordinal.
+     */
+    private final LatencySnapshot[] latencies;
+
+    /**
+     * Builder for the immutable MetricsSnapshot class.
+     */
+    public static class Builder {
+        /**
+         * Builder coinsAccepted.
+         */
+        private long coinsAccepted;
+
+        /**
+         * Builder coinsRejected.
+         */
+        private long coinsRejected;
+
+        /**
+         * Builder soldOut.
+         */
+        private long soldOut;
+
+        /**
+         * Builder exactChange.
+         */
+        private long exactChange;
+
+        /**
+         * Builder vends.
+         */
+        private long[] vends = new long[Product.values().length];
+
+        /**
+         * Builder changeDispensed.
+         */
+        private long[] changeDispensed = new long[Currency.values().length];
+
+        /**
+         * Builder latencies.
+         */
+        private LatencySnapshot[] latencies =
+                new LatencySnapshot[Operation.values().length];
+
+        /**
+         * Builder setter for coinsAccepted.
+         *
+         * @param coinsAccepted coinsAccepted
+         * @return this Builder
+         */
+        public final Builder coinsAccepted(final long coinsAccepted) {
+            this.coinsAccepted = coinsAccepted;
+            return this;
+        }
+
+        /**
+         * Builder setter for coinsRejected.
+         *
+         * @param coinsRejected coinsRejected
+         * @return this Builder
+         */
+        public final Builder coinsRejected(final long coinsRejected) {
+            this.coinsRejected = coinsRejected;
+            return this;
+        }
+
+        /**
+         * Builder setter for soldOut.
+         *
+         * @param soldOut soldOut
+         * @return this Builder
+         */
+        public final Builder soldOut(final long soldOut) {
+            this.soldOut = soldOut;
+            return this;
+        }
+
+        /**
+         * Builder setter for exactChange.
+         *
+         * @param exactChange exactChange
+         * @return this Builder
+         */
+        public final Builder exactChange(final long exactChange) {
+            this.exactChange = exactChange;
+            return this;
+        }
+
+        /**
+         * Builder setter for vends, by product ordinal.
+         *
+         * @param vends vends
+         * @return this Builder
+         */
+        public final Builder vends(final long[] vends) {
+            this.vends = Arrays.copyOf(vends, vends.length);
+            return this;
+        }
+
+        /**
+         * Builder setter for changeDispensed, by currency ordinal.
+         *
+         * @param changeDispensed changeDispensed
+         * @return this Builder
+         */
+        public final Builder changeDispensed(final long[] changeDispensed) {
+            this.changeDispensed =
+                    Arrays.copyOf(changeDispensed, changeDispensed.length);
+            return this;
+        }
+
+        /**
+         * Builder setter for latencies, by operation ordinal.
+         *
+         * @param latencies latencies
+         * @return this Builder
+         */
+        public final Builder latencies(final LatencySnapshot[] latencies) {
+            this.latencies = Arrays.copyOf(latencies, latencies.length);
+            return this;
+        }
+
+        /**
+         * Build a new instance of MetricsSnapshot.
+         *
+         * @return the new MetricsSnapshot instance
+         */
+        public final MetricsSnapshot build() {
+            return new MetricsSnapshot(this);
+        }
+    }
+
+    /**
+     * MetricsSnapshot constructor.
+     * Private to enforce creation through builder.
+     *
+     * @param builder the MetricsSnapshot builder
+     */
+    private MetricsSnapshot(final Builder builder) {
+        this.coinsAccepted = builder.coinsAccepted;
+        this.coinsRejected = builder.coinsRejected;
+        this.soldOut = builder.soldOut;
+        this.exactChange = builder.exactChange;
+        this.vends = builder.vends;
+        this.changeDispensed = builder.changeDispensed;
+        this.latencies = builder.latencies;
+    }
+
+    /**
+     * Successful vends of a product.
+     *
+     * @param product the product
+     * @return the count
+     */
+    public long getVends(final Product product) {
+        return vends[product.ordinal()];
+    }
+
+    /**
+     * Successful vends by product name.
+     *
+     * @return the counts
+     */
+    public Map<String, Long> getVends() {
+        final Map<String, Long> map = new LinkedHashMap<>();
+        for (Product product : Product.values()) {
+            map.put(product.name(), vends[product.ordinal()]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Coins of a currency given as change.
+     *
+     * @param currency the currency
+     * @return the count
+     */
+    public long getChangeDispensed(final Currency currency) {
+        return changeDispensed[currency.ordinal()];
+    }
+
+    /**
+     * Coins given as change by currency name.
+     *
+     * @return the counts
+     */
+    public Map<String, Long> getChangeDispensed() {
+        final Map<String, Long> map = new LinkedHashMap<>();
+        for (Currency currency : Currency.values()) {
+            map.put(currency.name(), changeDispensed[currency.ordinal()]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Latencies of an operation.
+     *
+     * @param operation the operation
+     * @return the latency snapshot
+     */
+    public LatencySnapshot getLatency(final Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Everything as plain text, one metric per line.
+     *
+     * @return the dump
+     */
+    public String toText() {
+        final StringBuilder out = new StringBuilder();
+        line(out, "coins.accepted", coinsAccepted);
+        line(out, "coins.rejected", coinsRejected);
+        line(out, "vends.sold_out", soldOut);
+        line(out, "display.exact_change", exactChange);
+        for (Product product : Product.values()) {
+            line(out, "vends." + product.name(), getVends(product));
+        }
+        for (Currency currency : Currency.values()) {
+            line(out, "change." + currency.name(),
+                    getChangeDispensed(currency));
+        }
+        for (Operation operation : Operation.values()) {
+            final LatencySnapshot latency = getLatency(operation);
+            out.append("latency.").append(operation.name())
+                    .append(" count=").append(latency.getCount())
+                    .append(" mean=")
+                    .append(String.format("%.1f", latency.getMean()));
+            for (double percentile : PERCENTILES) {
+                out.append(" p").append(percentileName(percentile))
+                        .append('=').append(latency.percentile(percentile));
+            }
+            out.append(" max=").append(latency.getMax()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Append one counter line.
+     *
+     * @param out   where to append
+     * @param name  the metric name
+     * @param value the metric value
+     */
+    private static void line(final StringBuilder out, final String name,
+                             final long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Name a percentile the usual way: 50 is "50", 99.9 is "999".
+     *
+     * @param percentile the percentile
+     * @return its name
+     */
+    private static String percentileName(final double percentile) {
+        final String name = Double.toString(percentile);
+        if (name.endsWith(".0")) {
+            return name.substring(0, name.length() - 2);
+        }
+        return name.replace(".", "");
+    }
+}
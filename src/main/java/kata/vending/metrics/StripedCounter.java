@@ -0,0 +1,57 @@
+package kata.vending.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can bump without contending on one value.
+ * Each thread adds into its own padded cell; reading sums the cells.
+ */
+public final class StripedCounter {
+    /**
+     * The cells, PAD longs apart.
+     */
+    private final AtomicLongArray cells;
+
+    /**
+     * Stripe count minus one.
+     */
+    private final int mask;
+
+    /**
+     * StripedCounter constructor.  Stripes by processor count.
+     */
+    public StripedCounter() {
+        final int stripes = Stripes.count();
+        this.mask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * Stripes.PAD);
+    }
+
+    /**
+     * Add one.
+     */
+    public void increment() {
+        add(1L);
+    }
+
+    /**
+     * Add to the count.
+     *
+     * @param delta the amount to add
+     */
+    public void add(final long delta) {
+        cells.getAndAdd(Stripes.current(mask) * Stripes.PAD, delta);
+    }
+
+    /**
+     * The current total.  Not an atomic snapshot while threads are adding.
+     *
+     * @return the sum of the cells
+     */
+    public long sum() {
+        long sum = 0L;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            sum += cells.get(stripe * Stripes.PAD);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,45 @@
+package kata.vending.metrics;
+
+/**
+ * Picks the stripe a thread records into, so threads mostly stay off each
+ * other's cache lines.
+ */
+final class Stripes {
+    /**
+     * Longs per cache line.  Striped values are spaced this far apart.
+     */
+    static final int PAD = 8;
+
+    /**
+     * Utility class.
+     */
+    private Stripes() {
+    }
+
+    /**
+     * Number of stripes to use: the processor count rounded up to a power of
+     * two.
+     *
+     * @return the stripe count
+     */
+    static int count() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final int stripes = Integer.highestOneBit(processors);
+        if (stripes < processors) {
+            return stripes << 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * The stripe for the current thread.
+     *
+     * @param mask the stripe count minus one
+     * @return the stripe index
+     */
+    static int current(final int mask) {
+        long id = Thread.currentThread().getId();
+        id = id * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & mask;
+    }
+}
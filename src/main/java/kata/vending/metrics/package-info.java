@@ -0,0 +1,5 @@
+/**
+ * Lock-free counters and latency histograms for machine operations, with JMX
+ * and plain text export.
+ */
+package kata.vending.metrics;
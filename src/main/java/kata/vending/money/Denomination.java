@@ -0,0 +1,180 @@
+package kata.vending.money;
+
+/**
+ * One kind of money a machine takes, such as a US quarter or a $5 bill.
+ * Immutable.
+ */
+public final class Denomination {
+    /**
+     * The name, unique within a registry.
+     */
+    private final String name;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The currency code, e.g. "USD".
+     */
+    private final String currency;
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * The value in minor units of the currency (cents for USD).
+     */
+    private final long value;
+
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Coin or bill.
+     */
+    private final Form form;
+
+    public Form getForm() {
+        return form;
+    }
+
+    /**
+     * Whether the machine can pay it out as change.
+     */
+    private final boolean dispensable;
+
+    public boolean isDispensable() {
+        return dispensable;
+    }
+
+    /**
+     * Builder for the immutable Denomination class.
+     */
+    public static class Builder {
+        /**
+         * Builder name.
+         */
+        private String name;
+
+        /**
+         * Builder currency.
+         */
+        private String currency;
+
+        /**
+         * Builder value.
+         */
+        private long value;
+
+        /**
+         * Builder form.
+         */
+        private Form form = Form.COIN;
+
+        /**
+         * Builder dispensable.  Null means coins are and bills aren't.
+         */
+        private Boolean dispensable;
+
+        /**
+         * Builder setter for name.
+         *
+         * @param name the name, unique within a registry
+         * @return this Builder
+         */
+        public final Builder name(final String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Builder setter for currency.
+         *
+         * @param currency the currency code
+         * @return this Builder
+         */
+        public final Builder currency(final String currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        /**
+         * Builder setter for value.
+         *
+         * @param value the value in minor units
+         * @return this Builder
+         */
+        public final Builder value(final long value) {
+            this.value = value;
+            return this;
+        }
+
+        /**
+         * Builder setter for form.
+         *
+         * @param form coin or bill
+         * @return this Builder
+         */
+        public final Builder form(final Form form) {
+            this.form = form;
+            return this;
+        }
+
+        /**
+         * Builder setter for dispensable.
+         *
+         * @param dispensable whether it can be paid out as change
+         * @return this Builder
+         */
+        public final Builder dispensable(final boolean dispensable) {
+            this.dispensable = dispensable;
+            return this;
+        }
+
+        /**
+         * Build a new instance of Denomination.  Throws
+         * IllegalArgumentException without a name, a currency, a form and a
+         * positive value.
+         *
+         * @return the new Denomination instance
+         */
+        public final Denomination build() {
+            return new Denomination(this);
+        }
+    }
+
+    /**
+     * Denomination constructor.
+     * Private to enforce creation through builder.
+     *
+     * @param builder the Denomination builder
+     */
+    private Denomination(final Builder builder) {
+        if (builder.name == null || builder.currency == null
+                || builder.form == null) {
+            throw new IllegalArgumentException(
+                    "denomination needs a name, currency and form");
+        }
+        if (builder.value <= 0L) {
+            throw new IllegalArgumentException(builder.name
+                    + " must have a positive value: " + builder.value);
+        }
+        this.name = builder.name;
+        this.currency = builder.currency;
+        this.value = builder.value;
+        this.form = builder.form;
+        if (builder.dispensable == null) {
+            this.dispensable = builder.form == Form.COIN;
+        } else {
+            this.dispensable = builder.dispensable;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + value + " " + currency + " " + form + ")";
+    }
+}
@@ -0,0 +1,411 @@
+package kata.vending.money;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+
+import java.util.Arrays;
+
+/**
+ * Money held by a machine, counted per denomination of a registry in a
+ * primitive array.  Unlike Bank this is mutable: deposits and withdrawals
+ * change the counts in place, and balance and change calculations only
+ * loop over arrays, so none of them allocate however many denominations
+ * are registered.  Not thread-safe.
+ * <p/>
+ * Change comes from the dispensable denominations of one currency, largest
+ * first.  Where that gets stuck (a 60 from one 50 and three 20s, say) it
+ * backtracks, trying fewer of the larger denominations, until it finds
+ * exact change or has made SEARCH_LIMIT attempts; then it settles for the
+ * largest-first amount, the same as Bank.
+ */
+public final class DenominationBank {
+    /**
+     * Most attempts a change search makes.
+     */
+    public static final int SEARCH_LIMIT = 1 << 16;
+
+    /**
+     * The registry the counts are indexed by.
+     */
+    private final DenominationRegistry registry;
+
+    public DenominationRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Count per denomination index.
+     */
+    private final int[] counts;
+
+    /**
+     * Per index, the value that index and every later one in its currency
+     * could pay out.  Scratch for the change search.
+     */
+    private final long[] reach;
+
+    /**
+     * Counts being tried by the change search.
+     */
+    private final int[] trial;
+
+    /**
+     * Attempts left in the current change search.
+     */
+    private int budget;
+
+    /**
+     * DenominationBank constructor, for an empty bank.
+     *
+     * @param registry the denominations it can hold
+     */
+    public DenominationBank(final DenominationRegistry registry) {
+        this.registry = registry;
+        this.counts = new int[registry.size()];
+        this.reach = new long[registry.size()];
+        this.trial = new int[registry.size()];
+    }
+
+    /**
+     * A bank holding the coins of a Bank.  Each Currency goes to the
+     * denomination with the same name; the registry must have one for every
+     * currency the bank holds, or IllegalArgumentException is thrown.
+     *
+     * @param registry the denominations it can hold
+     * @param bank     the coins
+     * @return the new bank
+     */
+    public static DenominationBank of(final DenominationRegistry registry,
+                                      final Bank bank) {
+        final DenominationBank converted = new DenominationBank(registry);
+        for (Currency currency : Currency.descending()) {
+            final int quantity = bank.getInventory().quantity(currency);
+            if (quantity > 0) {
+                converted.deposit(currency.name(), quantity);
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * The coins named after a Currency, as a Bank.  Other denominations are
+     * left out.
+     *
+     * @return the Bank
+     */
+    public Bank toBank() {
+        Bank bank = new Bank();
+        for (Currency currency : Currency.descending()) {
+            final int index = registry.indexOf(currency.name());
+            if (index >= 0) {
+                bank = bank.deposit(currency, counts[index]);
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * A copy of this bank.
+     *
+     * @return the copy
+     */
+    public DenominationBank copy() {
+        return new DenominationBank(registry).deposit(this);
+    }
+
+    /**
+     * How many of a denomination the bank holds.
+     *
+     * @param index the denomination index
+     * @return the count
+     */
+    public int count(final int index) {
+        return counts[index];
+    }
+
+    /**
+     * How many of a denomination the bank holds.
+     *
+     * @param name the denomination's name
+     * @return the count, 0 for a denomination that isn't registered
+     */
+    public int count(final String name) {
+        final int index = registry.indexOf(name);
+        if (index < 0) {
+            return 0;
+        }
+        return counts[index];
+    }
+
+    /**
+     * How many coins and bills the bank holds, in every currency.
+     *
+     * @return the count
+     */
+    public long countPieces() {
+        long pieces = 0L;
+        for (int count : counts) {
+            pieces += count;
+        }
+        return pieces;
+    }
+
+    /**
+     * The value held in one currency.
+     *
+     * @param currency the currency code
+     * @return the balance in minor units
+     */
+    public long balance(final String currency) {
+        final int end = registry.end(currency);
+        long balance = 0L;
+        for (int i = registry.first(currency); i < end; i++) {
+            balance += registry.value(i) * counts[i];
+        }
+        return balance;
+    }
+
+    /**
+     * Add some of a denomination.
+     *
+     * @param index    the denomination index
+     * @param quantity how many; not negative
+     * @return this bank
+     */
+    public DenominationBank deposit(final int index, final int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException(
+                    "negative quantity: " + quantity);
+        }
+        counts[index] += quantity;
+        return this;
+    }
+
+    /**
+     * Add some of a denomination.  Throws IllegalArgumentException for a
+     * denomination that isn't registered.
+     *
+     * @param name     the denomination's name
+     * @param quantity how many; not negative
+     * @return this bank
+     */
+    public DenominationBank deposit(final String name, final int quantity) {
+        return deposit(index(name), quantity);
+    }
+
+    /**
+     * Add everything in another bank of the same registry.
+     *
+     * @param bank the other bank
+     * @return this bank
+     */
+    public DenominationBank deposit(final DenominationBank bank) {
+        sameRegistry(bank);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += bank.counts[i];
+        }
+        return this;
+    }
+
+    /**
+     * Take out some of a denomination.  Throws IllegalArgumentException if
+     * the bank doesn't hold that many.
+     *
+     * @param index    the denomination index
+     * @param quantity how many; not negative
+     * @return this bank
+     */
+    public DenominationBank withdraw(final int index, final int quantity) {
+        if (quantity < 0 || quantity > counts[index]) {
+            throw new IllegalArgumentException("can't withdraw " + quantity
+                    + " of " + registry.get(index).getName() + ", have "
+                    + counts[index]);
+        }
+        counts[index] -= quantity;
+        return this;
+    }
+
+    /**
+     * Take out everything in another bank of the same registry.  Throws
+     * IllegalArgumentException, changing nothing, if this bank doesn't hold
+     * all of it.
+     *
+     * @param bank the other bank
+     * @return this bank
+     */
+    public DenominationBank withdraw(final DenominationBank bank) {
+        sameRegistry(bank);
+        for (int i = 0; i < counts.length; i++) {
+            if (bank.counts[i] > counts[i]) {
+                withdraw(i, bank.counts[i]);
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= bank.counts[i];
+        }
+        return this;
+    }
+
+    /**
+     * Take everything out.
+     *
+     * @return this bank
+     */
+    public DenominationBank clear() {
+        Arrays.fill(counts, 0);
+        return this;
+    }
+
+    /**
+     * Work out change from this bank.  The bank doesn't change.  Throws
+     * IllegalArgumentException for a negative amount.
+     *
+     * @param currency the currency code
+     * @param amount   the change due, in minor units
+     * @param change   where to put the change; its counts in the currency
+     *                 are replaced
+     * @return how much of the amount couldn't be made; 0 for full change
+     */
+    public long makeChange(final String currency, final long amount,
+                           final DenominationBank change) {
+        sameRegistry(change);
+        checkAmount(amount);
+        final int first = registry.first(currency);
+        final int end = registry.end(currency);
+        if (search(first, end, amount)) {
+            System.arraycopy(trial, first, change.counts, first, end - first);
+            return 0L;
+        }
+        long left = amount;
+        for (int i = first; i < end; i++) {
+            change.counts[i] = 0;
+            if (registry.isDispensable(i) && left > 0L) {
+                change.counts[i] = (int) Math.min(counts[i],
+                        left / registry.value(i));
+                left -= change.counts[i] * registry.value(i);
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Whether this bank can make exact change for an amount.  Throws
+     * IllegalArgumentException for a negative amount.
+     *
+     * @param currency the currency code
+     * @param amount   the change due, in minor units
+     * @return true if it can
+     */
+    public boolean canMakeChange(final String currency, final long amount) {
+        checkAmount(amount);
+        return search(registry.first(currency), registry.end(currency),
+                amount);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder("DenominationBank{");
+        String separator = "";
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                text.append(separator).append(registry.get(i).getName())
+                        .append('=').append(counts[i]);
+                separator = ", ";
+            }
+        }
+        return text.append('}').toString();
+    }
+
+    /**
+     * Search for exact change, leaving it in trial.
+     *
+     * @param first  the currency's first index
+     * @param end    one past its last index
+     * @param amount the change due
+     * @return true if exact change was found
+     */
+    private boolean search(final int first, final int end,
+                           final long amount) {
+        long total = 0L;
+        for (int i = end - 1; i >= first; i--) {
+            trial[i] = 0;
+            if (registry.isDispensable(i)) {
+                total += registry.value(i) * counts[i];
+            }
+            reach[i] = total;
+        }
+        budget = SEARCH_LIMIT;
+        return fill(first, end, amount);
+    }
+
+    /**
+     * Try to pay the rest of the change from one index on.
+     *
+     * @param index  the index to choose a count for
+     * @param end    one past the currency's last index
+     * @param amount what is left to pay
+     * @return true if it was paid exactly
+     */
+    private boolean fill(final int index, final int end, final long amount) {
+        if (amount == 0L) {
+            return true;
+        }
+        budget--;
+        if (index == end || reach[index] < amount || budget < 0) {
+            return false;
+        }
+        if (!registry.isDispensable(index)) {
+            return fill(index + 1, end, amount);
+        }
+        final long value = registry.value(index);
+        for (int n = (int) Math.min(counts[index], amount / value); n >= 0;
+             n--) {
+            trial[index] = n;
+            if (fill(index + 1, end, amount - n * value)) {
+                return true;
+            }
+            if (budget < 0) {
+                break;
+            }
+        }
+        trial[index] = 0;
+        return false;
+    }
+
+    /**
+     * The index of a denomination, which must be registered.
+     *
+     * @param name the denomination's name
+     * @return the index
+     */
+    private int index(final String name) {
+        final int index = registry.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("no denomination " + name);
+        }
+        return index;
+    }
+
+    /**
+     * Check an amount of change isn't negative.
+     *
+     * @param amount the amount
+     */
+    private static void checkAmount(final long amount) {
+        if (amount < 0L) {
+            throw new IllegalArgumentException("negative amount: " + amount);
+        }
+    }
+
+    /**
+     * Check another bank uses the same registry.
+     *
+     * @param bank the other bank
+     */
+    private void sameRegistry(final DenominationBank bank) {
+        if (bank.registry != registry) {
+            throw new IllegalArgumentException(
+                    "banks use different registries");
+        }
+    }
+}
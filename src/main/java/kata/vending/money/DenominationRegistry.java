@@ -0,0 +1,309 @@
+package kata.vending.money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The denominations one machine takes, in one or more currencies.
+ * Immutable.
+ * <p/>
+ * Each denomination gets an index, and a DenominationBank keeps one count
+ * per index.  Indexes are grouped by currency, in the order currencies were
+ * first added, and run from largest value to smallest within a currency, so
+ * a balance or change calculation is a loop over a contiguous range.
+ */
+public final class DenominationRegistry {
+    /**
+     * Currency code of the standard registry.
+     */
+    public static final String USD = "USD";
+
+    /**
+     * Cents in a nickel.
+     */
+    private static final long NICKEL = 5L;
+
+    /**
+     * Cents in a dime.
+     */
+    private static final long DIME = 10L;
+
+    /**
+     * Cents in a quarter.
+     */
+    private static final long QUARTER = 25L;
+
+    /**
+     * Cents in a dollar.
+     */
+    private static final long DOLLAR = 100L;
+
+    /**
+     * Cents in five dollars.
+     */
+    private static final long FIVE_DOLLARS = 500L;
+
+    /**
+     * The denominations, by index.
+     */
+    private final Denomination[] denominations;
+
+    /**
+     * Values, by index.
+     */
+    private final long[] values;
+
+    /**
+     * Whether each can be paid out, by index.
+     */
+    private final boolean[] dispensable;
+
+    /**
+     * Index by name.
+     */
+    private final Map<String, Integer> byName;
+
+    /**
+     * First index and one past the last, by currency code.
+     */
+    private final Map<String, int[]> ranges;
+
+    /**
+     * Builder for the immutable DenominationRegistry class.
+     */
+    public static class Builder {
+        /**
+         * Builder denominations.
+         */
+        private final List<Denomination> denominations = new ArrayList<>();
+
+        /**
+         * Builder setter to add a denomination.
+         *
+         * @param denomination the denomination
+         * @return this Builder
+         */
+        public final Builder add(final Denomination denomination) {
+            if (denomination != null) {
+                denominations.add(denomination);
+            }
+            return this;
+        }
+
+        /**
+         * Build a new instance of DenominationRegistry.  Throws
+         * IllegalArgumentException if two denominations share a name.
+         *
+         * @return the new DenominationRegistry instance
+         */
+        public final DenominationRegistry build() {
+            return new DenominationRegistry(this);
+        }
+    }
+
+    /**
+     * DenominationRegistry constructor.
+     * Private to enforce creation through builder.
+     *
+     * @param builder the DenominationRegistry builder
+     */
+    private DenominationRegistry(final Builder builder) {
+        final Map<String, List<Denomination>> grouped = new LinkedHashMap<>();
+        for (Denomination denomination : builder.denominations) {
+            List<Denomination> group = grouped.get(denomination.getCurrency());
+            if (group == null) {
+                group = new ArrayList<>();
+                grouped.put(denomination.getCurrency(), group);
+            }
+            group.add(denomination);
+        }
+        final int size = builder.denominations.size();
+        this.denominations = new Denomination[size];
+        this.values = new long[size];
+        this.dispensable = new boolean[size];
+        final Map<String, Integer> names = new HashMap<>();
+        final Map<String, int[]> currencies = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<String, List<Denomination>> entry
+                : grouped.entrySet()) {
+            final List<Denomination> group = entry.getValue();
+            Collections.sort(group, new Comparator<Denomination>() {
+                @Override
+                public int compare(final Denomination a,
+                                   final Denomination b) {
+                    return Long.compare(b.getValue(), a.getValue());
+                }
+            });
+            final int first = index;
+            for (Denomination denomination : group) {
+                if (names.put(denomination.getName(), index) != null) {
+                    throw new IllegalArgumentException(
+                            "two denominations named "
+                                    + denomination.getName());
+                }
+                denominations[index] = denomination;
+                values[index] = denomination.getValue();
+                dispensable[index] = denomination.isDispensable();
+                index++;
+            }
+            currencies.put(entry.getKey(), new int[] {first, index});
+        }
+        this.byName = Collections.unmodifiableMap(names);
+        this.ranges = Collections.unmodifiableMap(currencies);
+    }
+
+    /**
+     * The US registry: nickel, dime, quarter and dollar coins, named after
+     * the matching Currency constants, plus $1 and $5 bills.
+     *
+     * @return the shared standard registry
+     */
+    public static DenominationRegistry standard() {
+        return Standard.REGISTRY;
+    }
+
+    /**
+     * How many denominations there are.
+     *
+     * @return the count
+     */
+    public int size() {
+        return denominations.length;
+    }
+
+    /**
+     * The denomination at an index.
+     *
+     * @param index the index
+     * @return the denomination
+     */
+    public Denomination get(final int index) {
+        return denominations[index];
+    }
+
+    /**
+     * The index of a denomination.
+     *
+     * @param name the denomination's name
+     * @return the index, or -1 if there is no such denomination
+     */
+    public int indexOf(final String name) {
+        final Integer index = byName.get(name);
+        if (index == null) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * The currency codes, in the order they were first added.
+     *
+     * @return the codes
+     */
+    public List<String> getCurrencies() {
+        return new ArrayList<>(ranges.keySet());
+    }
+
+    /**
+     * The first index of a currency.  Throws IllegalArgumentException for a
+     * currency that isn't registered.
+     *
+     * @param currency the currency code
+     * @return the index of its largest denomination
+     */
+    public int first(final String currency) {
+        return range(currency)[0];
+    }
+
+    /**
+     * One past the last index of a currency.  Throws
+     * IllegalArgumentException for a currency that isn't registered.
+     *
+     * @param currency the currency code
+     * @return one past the index of its smallest denomination
+     */
+    public int end(final String currency) {
+        return range(currency)[1];
+    }
+
+    /**
+     * The value of the denomination at an index.
+     *
+     * @param index the index
+     * @return the value in minor units
+     */
+    public long value(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Whether the denomination at an index can be paid out as change.
+     *
+     * @param index the index
+     * @return true if it can
+     */
+    public boolean isDispensable(final int index) {
+        return dispensable[index];
+    }
+
+    /**
+     * The index range of a currency.
+     *
+     * @param currency the currency code
+     * @return first index and one past the last
+     */
+    private int[] range(final String currency) {
+        final int[] range = ranges.get(currency);
+        if (range == null) {
+            throw new IllegalArgumentException("no currency " + currency);
+        }
+        return range;
+    }
+
+    /**
+     * Holder for the standard registry, built on first use.
+     */
+    private static final class Standard {
+        /**
+         * The standard registry.
+         */
+        private static final DenominationRegistry REGISTRY =
+                new DenominationRegistry.Builder()
+                        .add(usd("NICKEL", NICKEL, Form.COIN))
+                        .add(usd("DIME", DIME, Form.COIN))
+                        .add(usd("QUARTER", QUARTER, Form.COIN))
+                        .add(usd("DOLLAR_COIN", DOLLAR, Form.COIN))
+                        .add(usd("DOLLAR_BILL", DOLLAR, Form.BILL))
+                        .add(usd("FIVE_DOLLAR_BILL", FIVE_DOLLARS, Form.BILL))
+                        .build();
+
+        /**
+         * Utility class.
+         */
+        private Standard() {
+        }
+
+        /**
+         * A US denomination.
+         *
+         * @param name  the name
+         * @param cents the value
+         * @param form  coin or bill
+         * @return the denomination
+         */
+        private static Denomination usd(final String name, final long cents,
+                                        final Form form) {
+            return new Denomination.Builder()
+                    .name(name)
+                    .currency(USD)
+                    .value(cents)
+                    .form(form)
+                    .build();
+        }
+    }
+}
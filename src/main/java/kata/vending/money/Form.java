@@ -0,0 +1,16 @@
+package kata.vending.money;
+
+/**
+ * The physical form of a denomination.
+ */
+public enum Form {
+    /**
+     * A coin.
+     */
+    COIN,
+
+    /**
+     * A bill.
+     */
+    BILL
+}
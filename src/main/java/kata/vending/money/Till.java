@@ -0,0 +1,153 @@
+package kata.vending.money;
+
+import kata.vending.Product;
+import kata.vending.Tender;
+
+/**
+ * Takes coins and bills of one currency from a customer and pays for vends
+ * from them, giving change out of a cash box.  Pass it to
+ * Machine.vend(Product, Tender) for a machine that accepts any denomination
+ * in a registry rather than only the Currency coins.  Not thread-safe.
+ * <p/>
+ * Product prices are in US cents, so a till only takes US dollars until
+ * prices carry a currency of their own.
+ * <p/>
+ * Unlike the coin machine, which pays what change it can, a till declines a
+ * vend it can't give exact change for; the money stays inserted until the
+ * customer picks something else or asks for it back.
+ */
+public final class Till implements Tender {
+    /**
+     * The denominations taken.
+     */
+    private final DenominationRegistry registry;
+
+    /**
+     * The currency code taken.
+     */
+    private final String currency;
+
+    /**
+     * Money paid in for past vends, and the change for future ones.
+     */
+    private final DenominationBank cashBox;
+
+    /**
+     * Money the customer has inserted and not yet spent.
+     */
+    private final DenominationBank inserted;
+
+    /**
+     * Change and returned money waiting to be collected.
+     */
+    private final DenominationBank coinReturn;
+
+    /**
+     * Scratch for working out change.
+     */
+    private final DenominationBank change;
+
+    /**
+     * Till constructor.  Throws IllegalArgumentException if the cash box's
+     * registry has no such currency, or if it isn't US dollars, the only
+     * currency prices are in.
+     *
+     * @param cashBox  the money to start with; the till keeps and changes
+     *                 it
+     * @param currency the currency code taken
+     */
+    public Till(final DenominationBank cashBox, final String currency) {
+        this.registry = cashBox.getRegistry();
+        registry.first(currency);
+        if (!DenominationRegistry.USD.equals(currency)) {
+            throw new IllegalArgumentException(
+                    "prices are in " + DenominationRegistry.USD + ", not "
+                    + currency);
+        }
+        this.currency = currency;
+        this.cashBox = cashBox;
+        this.inserted = new DenominationBank(registry);
+        this.coinReturn = new DenominationBank(registry);
+        this.change = new DenominationBank(registry);
+    }
+
+    /**
+     * Insert a coin or bill.
+     *
+     * @param name the denomination's name
+     * @return false if the till doesn't take it; nothing changes
+     */
+    public boolean insert(final String name) {
+        final int index = registry.indexOf(name);
+        if (index < 0
+                || !currency.equals(registry.get(index).getCurrency())) {
+            return false;
+        }
+        inserted.deposit(index, 1);
+        return true;
+    }
+
+    /**
+     * The value the customer has inserted.
+     *
+     * @return the balance in minor units
+     */
+    public long getBalance() {
+        return inserted.balance(currency);
+    }
+
+    /**
+     * Move what the customer has inserted to the coin return.
+     */
+    public void returnMoney() {
+        coinReturn.deposit(inserted);
+        inserted.clear();
+    }
+
+    /**
+     * Take everything out of the coin return.
+     *
+     * @return what was in it
+     */
+    public DenominationBank collect() {
+        final DenominationBank collected = coinReturn.copy();
+        coinReturn.clear();
+        return collected;
+    }
+
+    /**
+     * What the cash box holds.
+     *
+     * @return a copy of the cash box
+     */
+    public DenominationBank getCashBox() {
+        return cashBox.copy();
+    }
+
+    /**
+     * Pay for a product from the inserted money, if it covers the price and
+     * the cash box and inserted money can make exact change together.  The
+     * inserted money goes into the cash box and the change to the coin
+     * return.
+     *
+     * @param product the product being vended
+     * @param cents   the price to pay
+     * @return true if the price was paid, false if it was declined
+     */
+    @Override
+    public boolean charge(final Product product, final long cents) {
+        final long due = getBalance() - cents;
+        if (cents < 0L || due < 0L) {
+            return false;
+        }
+        cashBox.deposit(inserted);
+        if (cashBox.makeChange(currency, due, change) != 0L) {
+            cashBox.withdraw(inserted);
+            return false;
+        }
+        cashBox.withdraw(change);
+        coinReturn.deposit(change);
+        inserted.clear();
+        return true;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Denominations a machine is configured to accept, in any number of
+ * currencies and including bills, a bank that counts them in primitive
+ * arrays, and a till that pays for vends with them.
+ */
+package kata.vending.money;
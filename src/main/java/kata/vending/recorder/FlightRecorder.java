@@ -0,0 +1,276 @@
+package kata.vending.recorder;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Operation;
+import kata.vending.OperationListener;
+import kata.vending.Operations;
+import kata.vending.Outcome;
+import kata.vending.Product;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent machine operations in a fixed-size ring so they can
+ * be dumped when a machine misbehaves.  Nothing is recorded until the recorder
+ * is started, and a started recorder writes into preallocated arrays without
+ * allocating.
+ * <p/>
+ * Operations faster than the threshold are dropped, the same way a profiler
+ * drops uninteresting events.
+ * <p/>
+ * Each slot is a seqlock.  A writer claims its slot by swapping the slot's
+ * stamp to WRITING, writes the fields, then stamps the slot with its
+ * sequence number.  Every field lives in an atomic array, so a reader that
+ * sees the same stamp before and after copying a slot has a consistent
+ * copy; a slot that changed while it was read is skipped.  When writers
+ * wrap onto the same slot, the one that loses the claim, or is older than
+ * what the slot already holds, drops its operation rather than wait.
+ */
+public final class FlightRecorder implements OperationListener {
+    /**
+     * Stands in for a null enum in the ordinal arrays.
+     */
+    private static final byte NONE = -1;
+
+    /**
+     * Stamp of a slot that is being written.
+     */
+    private static final long WRITING = -1L;
+
+    /**
+     * Bits per ordinal in a packed detail.
+     */
+    private static final int ORDINAL_BITS = 8;
+
+    /**
+     * Mask for one packed ordinal.
+     */
+    private static final long ORDINAL_MASK = 0xFFL;
+
+    /**
+     * Where the ordinals start in a packed detail, above the coin count.
+     */
+    private static final int ORDINALS_SHIFT = 32;
+
+    /**
+     * Mask for the coin count in a packed detail.
+     */
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Slot index mask.  Capacity is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Operations that took less than this many nanoseconds are dropped.
+     */
+    private final long thresholdNanos;
+
+    /**
+     * Sequence number of the next operation to record.
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Per slot, one more than the sequence number written there, 0 if
+     * never written, or WRITING while being written.
+     */
+    private final AtomicLongArray stamps;
+
+    /**
+     * Operation, outcome, product and currency ordinals, a byte each, over
+     * the coin count.
+     */
+    private final AtomicLongArray details;
+
+    /**
+     * Amounts in cents.
+     */
+    private final AtomicLongArray amounts;
+
+    /**
+     * Durations in nanoseconds.
+     */
+    private final AtomicLongArray durations;
+
+    /**
+     * FlightRecorder constructor.
+     *
+     * @param capacity       how many operations to keep; rounded up to a
+     *                       power of two
+     * @param thresholdNanos operations quicker than this aren't recorded
+     */
+    public FlightRecorder(final int capacity, final long thresholdNanos) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size = size << 1;
+        }
+        this.mask = size - 1;
+        this.thresholdNanos = thresholdNanos;
+        this.stamps = new AtomicLongArray(size);
+        this.details = new AtomicLongArray(size);
+        this.amounts = new AtomicLongArray(size);
+        this.durations = new AtomicLongArray(size);
+    }
+
+    /**
+     * Start recording machine operations.
+     */
+    public void start() {
+        Operations.addListener(this);
+    }
+
+    /**
+     * Stop recording.  What was recorded is kept.
+     */
+    public void stop() {
+        Operations.removeListener(this);
+    }
+
+    @Override
+    public void onOperation(final Operation operation, final Outcome outcome,
+                            final long amount, final Product product,
+                            final Currency currency, final Bank coins,
+                            final long nanos) {
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        final long sequence = next.getAndIncrement();
+        final int slot = (int) (sequence & mask);
+        final long previous = stamps.get(slot);
+        if (previous == WRITING || previous > sequence
+                || !stamps.compareAndSet(slot, previous, WRITING)) {
+            return;
+        }
+        long detail = ordinal(operation);
+        detail = detail << ORDINAL_BITS | ordinal(outcome) & ORDINAL_MASK;
+        detail = detail << ORDINAL_BITS | ordinal(product) & ORDINAL_MASK;
+        detail = detail << ORDINAL_BITS | ordinal(currency) & ORDINAL_MASK;
+        detail = detail << ORDINALS_SHIFT
+                | coinCount(currency, coins) & COUNT_MASK;
+        details.set(slot, detail);
+        amounts.set(slot, amount);
+        durations.set(slot, nanos);
+        stamps.set(slot, sequence + 1);
+    }
+
+    /**
+     * Copy out the recorded operations, oldest first.
+     *
+     * @return the recorded operations still in the ring
+     */
+    public List<RecordedOperation> events() {
+        final long end = next.get();
+        final long begin = Math.max(0L, end - (mask + 1));
+        final List<RecordedOperation> events = new ArrayList<>();
+        for (long sequence = begin; sequence < end; sequence++) {
+            final int slot = (int) (sequence & mask);
+            if (stamps.get(slot) != sequence + 1) {
+                continue;
+            }
+            final long detail = details.get(slot);
+            final long amount = amounts.get(slot);
+            final long nanos = durations.get(slot);
+            if (stamps.get(slot) != sequence + 1) {
+                continue;
+            }
+            events.add(new RecordedOperation(
+                    Operation.values()[ordinal(detail, 3)],
+                    Outcome.values()[ordinal(detail, 2)],
+                    amount,
+                    product(ordinal(detail, 1)),
+                    currency(ordinal(detail, 0)),
+                    (int) (detail & COUNT_MASK),
+                    nanos));
+        }
+        return events;
+    }
+
+    /**
+     * Write the recorded operations out, one per line, oldest first.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void dump(final Appendable out) throws IOException {
+        for (RecordedOperation event : events()) {
+            out.append(event.toString()).append('\n');
+        }
+    }
+
+    /**
+     * Count the coins that changed hands.
+     *
+     * @param currency the single currency involved, if any
+     * @param coins    the coins involved, if any
+     * @return the number of coins
+     */
+    private static int coinCount(final Currency currency, final Bank coins) {
+        if (coins != null) {
+            return coins.countCoins();
+        }
+        if (currency != null) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Ordinal of an enum that may be null.
+     *
+     * @param e the enum
+     * @return its ordinal, or NONE
+     */
+    private static byte ordinal(final Enum<?> e) {
+        if (e == null) {
+            return NONE;
+        }
+        return (byte) e.ordinal();
+    }
+
+    /**
+     * One ordinal from a packed detail.
+     *
+     * @param detail the packed detail
+     * @param index  which ordinal, counting from the currency's at 0
+     * @return the ordinal, or NONE
+     */
+    private static byte ordinal(final long detail, final int index) {
+        return (byte) (detail >>> (ORDINALS_SHIFT + ORDINAL_BITS * index));
+    }
+
+    /**
+     * Product for a stored ordinal.
+     *
+     * @param ordinal the stored ordinal
+     * @return the product, or null
+     */
+    private static Product product(final byte ordinal) {
+        if (ordinal == NONE) {
+            return null;
+        }
+        return Product.values()[ordinal];
+    }
+
+    /**
+     * Currency for a stored ordinal.
+     *
+     * @param ordinal the stored ordinal
+     * @return the currency, or null
+     */
+    private static Currency currency(final byte ordinal) {
+        if (ordinal == NONE) {
+            return null;
+        }
+        return Currency.values()[ordinal];
+    }
+}
@@ -0,0 +1,109 @@
+package kata.vending.recorder;
+
+import kata.vending.Currency;
+import kata.vending.Operation;
+import kata.vending.Outcome;
+import kata.vending.Product;
+
+/**
+ * One operation as captured by the flight recorder.
+ * Immutable.
+ */
+public final class RecordedOperation {
+    /**
+     * The operation.
+     */
+    private final Operation operation;
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * How it turned out.
+     */
+    private final Outcome outcome;
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * The amount (in cents) the operation dealt with.
+     */
+    private final long amount;
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * The product involved, if any.
+     */
+    private final Product product;
+
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * The currency involved, if any.
+     */
+    private final Currency currency;
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * How many coins changed hands.
+     */
+    private final int coinCount;
+
+    public int getCoinCount() {
+        return coinCount;
+    }
+
+    /**
+     * How long the operation took (in nanoseconds).
+     */
+    private final long nanos;
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * RecordedOperation constructor.
+     *
+     * @param operation the operation
+     * @param outcome   how it turned out
+     * @param amount    the amount (in cents)
+     * @param product   the product involved
+     * @param currency  the currency involved
+     * @param coinCount how many coins changed hands
+     * @param nanos     how long the operation took
+     */
+    RecordedOperation(final Operation operation, final Outcome outcome,
+                      final long amount, final Product product,
+                      final Currency currency, final int coinCount,
+                      final long nanos) {
+        this.operation = operation;
+        this.outcome = outcome;
+        this.amount = amount;
+        this.product = product;
+        this.currency = currency;
+        this.coinCount = coinCount;
+        this.nanos = nanos;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + outcome
+                + " amount=" + amount
+                + " product=" + product
+                + " currency=" + currency
+                + " coins=" + coinCount
+                + " nanos=" + nanos;
+    }
+}
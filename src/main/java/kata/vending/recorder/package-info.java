@@ -0,0 +1,5 @@
+/**
+ * An always-available, off-by-default recorder of machine operations for
+ * profiling machines in the field.
+ */
+package kata.vending.recorder;
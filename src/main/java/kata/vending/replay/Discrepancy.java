@@ -0,0 +1,98 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+
+/**
+ * A machine whose counted bank doesn't match what its journal says it should
+ * hold.
+ * Immutable.
+ */
+public final class Discrepancy {
+    /**
+     * The machine id.
+     */
+    private final int machineId;
+
+    public int getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * The machine bank the journal replays to.
+     */
+    private final Bank expected;
+
+    public Bank getExpected() {
+        return expected;
+    }
+
+    /**
+     * The machine bank as counted.
+     */
+    private final Bank reported;
+
+    public Bank getReported() {
+        return reported;
+    }
+
+    /**
+     * Discrepancy constructor.
+     *
+     * @param machineId the machine id
+     * @param expected  the machine bank the journal replays to
+     * @param reported  the machine bank as counted
+     */
+    Discrepancy(final int machineId, final Bank expected,
+                final Bank reported) {
+        this.machineId = machineId;
+        this.expected = expected;
+        this.reported = reported;
+    }
+
+    /**
+     * How many more coins of a currency were counted than expected.
+     *
+     * @param currency the currency
+     * @return the difference, negative when coins are missing
+     */
+    public int getDifference(final Currency currency) {
+        return reported.getInventory().quantity(currency)
+                - expected.getInventory().quantity(currency);
+    }
+
+    /**
+     * How much more was counted than expected.
+     *
+     * @return the difference in cents, negative when money is missing
+     */
+    public long getBalanceDifference() {
+        return reported.calculateBalance() - expected.calculateBalance();
+    }
+
+    /**
+     * Describe the discrepancy on one line.
+     *
+     * @return the text
+     */
+    public String toText() {
+        final StringBuilder out = new StringBuilder("machine ")
+                .append(machineId);
+        for (Currency currency : Currency.values()) {
+            final int difference = getDifference(currency);
+            if (difference != 0) {
+                out.append(' ').append(currency.name()).append('=');
+                if (difference > 0) {
+                    out.append('+');
+                }
+                out.append(difference);
+            }
+        }
+        final long balance = getBalanceDifference();
+        out.append(" balance=");
+        if (balance < 0) {
+            out.append('-');
+        }
+        return out.append(Currency.format(Math.abs(balance))).toString();
+    }
+}
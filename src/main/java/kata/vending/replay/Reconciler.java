@@ -0,0 +1,214 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Machine;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reconciles collection visits: replays each machine's journal from its last
+ * visit to the machine bank it should now hold, and compares that with the
+ * bank the driver counted, coin by coin.
+ * <p/>
+ * Visits are shared out to a fixed number of workers.  Each worker streams
+ * one journal at a time through a TraceReader and keeps only the machine
+ * being replayed, so memory is bounded by the worker count, not by the
+ * fleet or journal size.  Only machines that don't balance are kept.
+ */
+public final class Reconciler {
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * How many journals are replayed at once.
+     */
+    private final int workers;
+
+    /**
+     * Reconciler constructor with a worker per processor.
+     */
+    public Reconciler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reconciler constructor.
+     *
+     * @param workers how many journals are replayed at once
+     */
+    public Reconciler(final int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive: "
+                    + workers);
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * Reconcile some visits.  A journal that can't be read is reported as a
+     * failure; the rest of the run carries on.  Results are reported by
+     * machine id, so visits that repeat one throw IllegalArgumentException
+     * before anything is replayed.
+     *
+     * @param visits the visits
+     * @return what was found
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public ReconciliationReport reconcile(final List<Visit> visits)
+            throws InterruptedException {
+        final Set<Integer> machineIds = new HashSet<>();
+        for (Visit visit : visits) {
+            if (!machineIds.add(visit.getMachineId())) {
+                throw new IllegalArgumentException(
+                        "machine visited twice: " + visit.getMachineId());
+            }
+        }
+        final long begin = System.nanoTime();
+        final Run run = new Run(visits);
+        final int threads = Math.max(1, Math.min(workers, visits.size()));
+        final List<Callable<Long>> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            tasks.add(run);
+        }
+        long events = 0L;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Long> done : pool.invokeAll(tasks)) {
+                events += done.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new ReconciliationReport(visits.size(), events,
+                System.nanoTime() - begin,
+                new ArrayList<>(run.discrepancies), run.failures);
+    }
+
+    /**
+     * Compare the bank a journal replays to with the counted bank.
+     *
+     * @param visit    the visit
+     * @param expected the bank the journal replays to
+     * @return the discrepancy, or null if they match
+     */
+    private static Discrepancy compare(final Visit visit, final Bank expected) {
+        final Bank reported = visit.getReported();
+        for (Currency currency : CURRENCIES) {
+            if (expected.getInventory().quantity(currency)
+                    != reported.getInventory().quantity(currency)) {
+                return new Discrepancy(visit.getMachineId(), expected,
+                        reported);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One reconciliation run.  Every worker calls the same Run, which hands
+     * out the visits in turn.
+     */
+    private static final class Run implements Callable<Long> {
+        /**
+         * The visits.
+         */
+        private final List<Visit> visits;
+
+        /**
+         * The next visit to hand out.
+         */
+        private final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Machines that didn't balance.
+         */
+        private final Queue<Discrepancy> discrepancies =
+                new ConcurrentLinkedQueue<>();
+
+        /**
+         * Why journals couldn't be replayed, by machine id.
+         */
+        private final Map<Integer, String> failures =
+                new ConcurrentHashMap<>();
+
+        /**
+         * Run constructor.
+         *
+         * @param visits the visits
+         */
+        Run(final List<Visit> visits) {
+            this.visits = visits;
+        }
+
+        /**
+         * Reconcile visits until there are none left.
+         *
+         * @return the journal events this worker replayed
+         */
+        @Override
+        public Long call() {
+            long events = 0L;
+            int index = next.getAndIncrement();
+            while (index < visits.size()) {
+                final Visit visit = visits.get(index);
+                try {
+                    events += reconcile(visit);
+                } catch (IOException | RuntimeException e) {
+                    failures.put(visit.getMachineId(),
+                            String.valueOf(e.getMessage()));
+                }
+                index = next.getAndIncrement();
+            }
+            return events;
+        }
+
+        /**
+         * Replay one journal and compare the result.
+         *
+         * @param visit the visit
+         * @return the journal events replayed
+         * @throws IOException if the journal can't be read
+         */
+        private long reconcile(final Visit visit) throws IOException {
+            long events = 0L;
+            Machine machine;
+            try (FileChannel channel = FileChannel.open(visit.getJournal(),
+                    StandardOpenOption.READ)) {
+                final TraceReader reader = new TraceReader(channel);
+                machine = reader.readHeader();
+                int event = reader.next();
+                while (event != Trace.END) {
+                    machine = ReplayDriver.apply(machine, event);
+                    events++;
+                    event = reader.next();
+                }
+            }
+            final Discrepancy discrepancy =
+                    compare(visit, machine.getMachineBank());
+            if (discrepancy != null) {
+                discrepancies.add(discrepancy);
+            }
+            return events;
+        }
+    }
+}
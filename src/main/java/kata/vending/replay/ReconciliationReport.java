@@ -0,0 +1,120 @@
+package kata.vending.replay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What a reconciliation run found.
+ * Immutable.
+ */
+public final class ReconciliationReport {
+    /**
+     * Visits reconciled, including those whose journal couldn't be read.
+     */
+    private final int visits;
+
+    public int getVisits() {
+        return visits;
+    }
+
+    /**
+     * Journal events replayed.
+     */
+    private final long events;
+
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Wall time the run took.
+     */
+    private final long elapsedNanos;
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Machines that didn't balance, by machine id.
+     */
+    private final List<Discrepancy> discrepancies;
+
+    public List<Discrepancy> getDiscrepancies() {
+        return discrepancies;
+    }
+
+    /**
+     * Why journals couldn't be replayed, by machine id.
+     */
+    private final Map<Integer, String> failures;
+
+    public Map<Integer, String> getFailures() {
+        return failures;
+    }
+
+    /**
+     * ReconciliationReport constructor.
+     *
+     * @param visits        visits reconciled
+     * @param events        journal events replayed
+     * @param elapsedNanos  wall time the run took
+     * @param discrepancies machines that didn't balance, in any order
+     * @param failures      why journals couldn't be replayed
+     */
+    ReconciliationReport(final int visits, final long events,
+                         final long elapsedNanos,
+                         final List<Discrepancy> discrepancies,
+                         final Map<Integer, String> failures) {
+        this.visits = visits;
+        this.events = events;
+        this.elapsedNanos = elapsedNanos;
+        final List<Discrepancy> sorted = new ArrayList<>(discrepancies);
+        Collections.sort(sorted, new Comparator<Discrepancy>() {
+            @Override
+            public int compare(final Discrepancy a, final Discrepancy b) {
+                return Integer.compare(a.getMachineId(), b.getMachineId());
+            }
+        });
+        this.discrepancies = Collections.unmodifiableList(sorted);
+        this.failures = Collections.unmodifiableMap(
+                new TreeMap<>(failures));
+    }
+
+    /**
+     * Whether every machine balanced and every journal was read.
+     *
+     * @return true if there is nothing to follow up
+     */
+    public boolean isBalanced() {
+        return discrepancies.isEmpty() && failures.isEmpty();
+    }
+
+    /**
+     * Describe the run, one line per problem after a summary line.
+     *
+     * @return the text
+     */
+    public String toText() {
+        final StringBuilder out = new StringBuilder()
+                .append("visits=").append(visits)
+                .append(" events=").append(events)
+                .append(" discrepancies=").append(discrepancies.size())
+                .append(" failures=").append(failures.size())
+                .append(" elapsedMs=").append(elapsedNanos / 1000000L)
+                .append('\n');
+        for (Discrepancy discrepancy : discrepancies) {
+            out.append(discrepancy.toText()).append('\n');
+        }
+        for (Map.Entry<Integer, String> failure : failures.entrySet()) {
+            out.append("machine ").append(failure.getKey())
+                    .append(" failed: ").append(failure.getValue())
+                    .append('\n');
+        }
+        return out.toString();
+    }
+}
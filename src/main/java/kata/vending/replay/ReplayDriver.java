@@ -0,0 +1,96 @@
+package kata.vending.replay;
+
+import kata.vending.Machine;
+import kata.vending.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays traces against a Machine as fast as it will go, timing every event
+ * and checking the machine ends where the trace says it should.
+ */
+public final class ReplayDriver {
+    /**
+     * Replay one trace.
+     *
+     * @param channel the trace
+     * @return what was measured
+     * @throws IOException if the trace can't be read
+     */
+    public ReplayResult replay(final ReadableByteChannel channel)
+            throws IOException {
+        final TraceReader reader = new TraceReader(channel);
+        Machine machine = reader.readHeader();
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long operations = 0L;
+        final long begin = System.nanoTime();
+        while (true) {
+            final int event = reader.next();
+            if (event == Trace.END) {
+                break;
+            }
+            final long start = System.nanoTime();
+            machine = apply(machine, event);
+            latencies.record(System.nanoTime() - start);
+            operations++;
+        }
+        final long elapsed = System.nanoTime() - begin;
+        return new ReplayResult(operations, elapsed, latencies.snapshot(),
+                machine, new int[] {
+                    reader.expectedDisplay(),
+                    reader.expectedBanks(),
+                    reader.expectedInventory()
+                });
+    }
+
+    /**
+     * Apply one event to the machine.
+     *
+     * @param machine the machine
+     * @param event   the event byte
+     * @return the machine after the event
+     * @throws IOException if the event isn't one we know
+     */
+    static Machine apply(final Machine machine, final int event)
+            throws IOException {
+        switch (event & Trace.TYPE_MASK) {
+            case Trace.COIN:
+                return machine.insertCoin(Trace.decodeCoin(event));
+            case Trace.VEND:
+                return machine.vend(Trace.decodeVend(event));
+            case Trace.RETURN_COINS:
+                return machine.returnCoins();
+            case Trace.CHECK_DISPLAY:
+                return machine.checkDisplay();
+            default:
+                throw new IOException("unknown trace event " + event);
+        }
+    }
+
+    /**
+     * Replay each trace file given, printing a report line per file.  Exits
+     * with 1 if any replay ends somewhere other than its trace says.
+     *
+     * @param args trace file paths
+     * @throws IOException if a trace can't be read
+     */
+    public static void main(final String[] args) throws IOException {
+        final ReplayDriver driver = new ReplayDriver();
+        boolean verified = true;
+        for (String path : args) {
+            try (FileChannel channel = FileChannel.open(Paths.get(path),
+                    StandardOpenOption.READ)) {
+                final ReplayResult result = driver.replay(channel);
+                System.out.println(path + ": " + result.toText());
+                verified = verified && result.isVerified();
+            }
+        }
+        if (!verified) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package kata.vending.replay;
+
+import kata.vending.Machine;
+import kata.vending.metrics.LatencySnapshot;
+
+import java.util.Arrays;
+
+/**
+ * What a replay measured and whether it ended where the trace said it would.
+ * Immutable.
+ */
+public final class ReplayResult {
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Events replayed.
+     */
+    private final long operations;
+
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * Wall time the replay took.
+     */
+    private final long elapsedNanos;
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Per event latencies.
+     */
+    private final LatencySnapshot latencies;
+
+    public LatencySnapshot getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * The machine the replay ended with.
+     */
+    private final Machine machine;
+
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Checksums from the trace footer: display, banks, inventory.
+     */
+    private final int[] expected;
+
+    /**
+     * Checksums of the machine the replay ended with.
+     */
+    private final int[] actual;
+
+    /**
+     * ReplayResult constructor.
+     *
+     * @param operations   events replayed
+     * @param elapsedNanos wall time the replay took
+     * @param latencies    per event latencies
+     * @param machine      the machine the replay ended with
+     * @param expected     checksums from the trace footer
+     */
+    ReplayResult(final long operations, final long elapsedNanos,
+                 final LatencySnapshot latencies, final Machine machine,
+                 final int[] expected) {
+        this.operations = operations;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.machine = machine;
+        this.expected = Arrays.copyOf(expected, expected.length);
+        this.actual = new int[] {
+            StateChecksum.display(machine),
+            StateChecksum.banks(machine),
+            StateChecksum.inventory(machine)
+        };
+    }
+
+    /**
+     * Sustained throughput.
+     *
+     * @return events per second
+     */
+    public double getOpsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0d;
+        }
+        return operations * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * Whether the display matches the trace.
+     *
+     * @return true if it matches
+     */
+    public boolean isDisplayVerified() {
+        return expected[0] == actual[0];
+    }
+
+    /**
+     * Whether the banks match the trace.
+     *
+     * @return true if they match
+     */
+    public boolean isBanksVerified() {
+        return expected[1] == actual[1];
+    }
+
+    /**
+     * Whether the product inventory matches the trace.
+     *
+     * @return true if it matches
+     */
+    public boolean isInventoryVerified() {
+        return expected[2] == actual[2];
+    }
+
+    /**
+     * Whether the whole machine matches the trace.
+     *
+     * @return true if display, banks and inventory all match
+     */
+    public boolean isVerified() {
+        return Arrays.equals(expected, actual);
+    }
+
+    /**
+     * A short human readable report.
+     *
+     * @return the report
+     */
+    public String toText() {
+        return String.format("events=%d elapsed=%.3fs ops/s=%.0f"
+                        + " p50=%dns p99=%dns p99.9=%dns max=%dns"
+                        + " display=%s banks=%s inventory=%s",
+                operations, elapsedNanos / NANOS_PER_SECOND,
+                getOpsPerSecond(),
+                latencies.percentile(50d), latencies.percentile(99d),
+                latencies.percentile(99.9d), latencies.getMax(),
+                verdict(isDisplayVerified()), verdict(isBanksVerified()),
+                verdict(isInventoryVerified()));
+    }
+
+    /**
+     * Word for a verification.
+     *
+     * @param verified whether it matched
+     * @return "ok" or "MISMATCH"
+     */
+    private static String verdict(final boolean verified) {
+        if (verified) {
+            return "ok";
+        }
+        return "MISMATCH";
+    }
+}
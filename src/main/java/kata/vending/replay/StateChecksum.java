@@ -0,0 +1,88 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * CRC32 checksums of the parts of a machine a replay is verified against.
+ */
+public final class StateChecksum {
+    /**
+     * Utility class.
+     */
+    private StateChecksum() {
+    }
+
+    /**
+     * Checksum of the display text.
+     *
+     * @param machine the machine
+     * @return the checksum
+     */
+    public static int display(final Machine machine) {
+        final CRC32 crc = new CRC32();
+        crc.update(machine.getDisplay().getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Checksum of the coin return, customer bank and machine bank counts.
+     *
+     * @param machine the machine
+     * @return the checksum
+     */
+    public static int banks(final Machine machine) {
+        final CRC32 crc = new CRC32();
+        update(crc, machine.getCoinReturn());
+        update(crc, machine.getCustomerBank());
+        update(crc, machine.getMachineBank());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Checksum of the product counts.
+     *
+     * @param machine the machine
+     * @return the checksum
+     */
+    public static int inventory(final Machine machine) {
+        final CRC32 crc = new CRC32();
+        final Inventory<Product> inventory = machine.getInventory();
+        for (Product product : Product.values()) {
+            update(crc, inventory.quantity(product));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Add a bank's counts to a checksum.
+     *
+     * @param crc  the checksum
+     * @param bank the bank
+     */
+    private static void update(final CRC32 crc, final Bank bank) {
+        final Inventory<Currency> inventory = bank.getInventory();
+        for (Currency currency : Currency.values()) {
+            update(crc, inventory.quantity(currency));
+        }
+    }
+
+    /**
+     * Add an int to a checksum, big-endian.
+     *
+     * @param crc   the checksum
+     * @param value the value
+     */
+    private static void update(final CRC32 crc, final int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+}
@@ -0,0 +1,190 @@
+package kata.vending.replay;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Product;
+
+/**
+ * The trace file format.
+ * <p/>
+ * A header (magic, version, then the starting machine bank and product
+ * inventory as counts by ordinal), one byte per recorded event, an END byte,
+ * and a footer of checksums of the machine the session ended with.  An event
+ * byte keeps the event type in the high nibble and its argument in the low
+ * nibble: the coin's size and weight ordinals (two bits each), or the
+ * product's ordinal.
+ */
+final class Trace {
+    /**
+     * File magic, "VTRC".
+     */
+    static final int MAGIC = 0x56545243;
+
+    /**
+     * Format version.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * A coin was inserted.
+     */
+    static final int COIN = 0x10;
+
+    /**
+     * A product was selected.
+     */
+    static final int VEND = 0x20;
+
+    /**
+     * The coin return was pressed.
+     */
+    static final int RETURN_COINS = 0x30;
+
+    /**
+     * The display was checked.
+     */
+    static final int CHECK_DISPLAY = 0x40;
+
+    /**
+     * No more events; the footer follows.
+     */
+    static final int END = 0xF0;
+
+    /**
+     * Event type bits.
+     */
+    static final int TYPE_MASK = 0xF0;
+
+    /**
+     * Event argument bits.
+     */
+    static final int ARG_MASK = 0x0F;
+
+    /**
+     * Argument standing in for a null size, weight or product.
+     */
+    static final int NONE = 0x03;
+
+    /**
+     * Argument standing in for a null product.
+     */
+    static final int NO_PRODUCT = 0x0F;
+
+    /**
+     * Coins by encoded argument.  Where a size and weight belong to a
+     * currency, the currency's own coin is used so the replay allocates
+     * nothing and classifies the same way the acceptor did.
+     */
+    private static final Coin[] COINS = coins();
+
+    /**
+     * Products by ordinal, cached.
+     */
+    private static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Utility class.
+     */
+    private Trace() {
+    }
+
+    /**
+     * Build the coin lookup table.
+     *
+     * @return coins by argument
+     */
+    private static Coin[] coins() {
+        final Coin[] coins = new Coin[ARG_MASK + 1];
+        for (int size = 0; size <= NONE; size++) {
+            for (int weight = 0; weight <= NONE; weight++) {
+                coins[size << 2 | weight] = coin(size, weight);
+            }
+        }
+        return coins;
+    }
+
+    /**
+     * The coin for a size and weight ordinal.
+     *
+     * @param size   size ordinal or NONE
+     * @param weight weight ordinal or NONE
+     * @return the coin, or null if both are NONE
+     */
+    private static Coin coin(final int size, final int weight) {
+        if (size == NONE && weight == NONE) {
+            return null;
+        }
+        Coin.Size s = null;
+        if (size < Coin.Size.values().length) {
+            s = Coin.Size.values()[size];
+        }
+        Coin.Weight w = null;
+        if (weight < Coin.Weight.values().length) {
+            w = Coin.Weight.values()[weight];
+        }
+        final Coin coin = new Coin(s, w);
+        for (Currency currency : Currency.values()) {
+            if (coin.equals(currency.getCoin())) {
+                return currency.getCoin();
+            }
+        }
+        return coin;
+    }
+
+    /**
+     * Encode a coin insert.
+     *
+     * @param coin the coin, may be null
+     * @return the event byte
+     */
+    static int encodeCoin(final Coin coin) {
+        int size = NONE;
+        int weight = NONE;
+        if (coin != null) {
+            if (coin.getSize() != null) {
+                size = coin.getSize().ordinal();
+            }
+            if (coin.getWeight() != null) {
+                weight = coin.getWeight().ordinal();
+            }
+        }
+        return COIN | size << 2 | weight;
+    }
+
+    /**
+     * Decode a coin insert.
+     *
+     * @param event the event byte
+     * @return the coin, may be null
+     */
+    static Coin decodeCoin(final int event) {
+        return COINS[event & ARG_MASK];
+    }
+
+    /**
+     * Encode a product selection.
+     *
+     * @param product the product, may be null
+     * @return the event byte
+     */
+    static int encodeVend(final Product product) {
+        if (product == null) {
+            return VEND | NO_PRODUCT;
+        }
+        return VEND | product.ordinal();
+    }
+
+    /**
+     * Decode a product selection.
+     *
+     * @param event the event byte
+     * @return the product, may be null
+     */
+    static Product decodeVend(final int event) {
+        final int ordinal = event & ARG_MASK;
+        if (ordinal >= PRODUCTS.length) {
+            return null;
+        }
+        return PRODUCTS[ordinal];
+    }
+}
@@ -0,0 +1,164 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Streams a trace through a direct buffer, one event at a time.  Read the
+ * header, then events until END, then the footer.  Not thread safe.
+ */
+public final class TraceReader {
+    /**
+     * Size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Where the trace comes from.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * Buffered reads.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The three footer checksums: display, banks, inventory.
+     */
+    private final int[] checksums = new int[3];
+
+    /**
+     * TraceReader constructor.
+     *
+     * @param channel where the trace comes from
+     */
+    public TraceReader(final ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Read the header.
+     *
+     * @return the machine the trace starts from
+     * @throws IOException if reading fails or this isn't a trace
+     */
+    public Machine readHeader() throws IOException {
+        fill(Integer.SIZE / Byte.SIZE + 2);
+        if (buffer.getInt() != Trace.MAGIC) {
+            throw new IOException("not a vending trace");
+        }
+        final byte version = buffer.get();
+        if (version != Trace.VERSION) {
+            throw new IOException("unsupported trace version " + version);
+        }
+        final Currency[] currencies = Currency.values();
+        final int currencyCount = buffer.get();
+        Bank bank = new Bank();
+        for (int i = 0; i < currencyCount; i++) {
+            final int quantity = readInt();
+            for (int j = 0; j < quantity && i < currencies.length; j++) {
+                bank = bank.deposit(currencies[i]);
+            }
+        }
+        final Product[] products = Product.values();
+        fill(1);
+        final int productCount = buffer.get();
+        Inventory<Product> inventory = new Inventory<>(products);
+        for (int i = 0; i < productCount; i++) {
+            final int quantity = readInt();
+            for (int j = 0; j < quantity && i < products.length; j++) {
+                inventory = inventory.add(products[i]);
+            }
+        }
+        return new Machine.Builder()
+                .machineBank(bank)
+                .inventory(inventory)
+                .build();
+    }
+
+    /**
+     * Read the next event byte.  After END the footer has been read too.
+     *
+     * @return the event byte; Trace.END when there are no more events
+     * @throws IOException if reading fails or the trace is cut short
+     */
+    public int next() throws IOException {
+        if (!buffer.hasRemaining()) {
+            fill(1);
+        }
+        final int event = buffer.get() & 0xFF;
+        if (event == Trace.END) {
+            for (int i = 0; i < checksums.length; i++) {
+                checksums[i] = readInt();
+            }
+        }
+        return event;
+    }
+
+    /**
+     * The display checksum from the footer.
+     *
+     * @return the checksum
+     */
+    public int expectedDisplay() {
+        return checksums[0];
+    }
+
+    /**
+     * The banks checksum from the footer.
+     *
+     * @return the checksum
+     */
+    public int expectedBanks() {
+        return checksums[1];
+    }
+
+    /**
+     * The inventory checksum from the footer.
+     *
+     * @return the checksum
+     */
+    public int expectedInventory() {
+        return checksums[2];
+    }
+
+    /**
+     * Read a big-endian int.
+     *
+     * @return the int
+     * @throws IOException if reading fails
+     */
+    private int readInt() throws IOException {
+        fill(Integer.SIZE / Byte.SIZE);
+        return buffer.getInt();
+    }
+
+    /**
+     * Make sure the buffer has at least the given number of bytes.
+     *
+     * @param bytes how many bytes are needed
+     * @throws IOException if the channel runs out first
+     */
+    private void fill(final int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("trace ends early");
+            }
+        }
+        buffer.flip();
+    }
+}
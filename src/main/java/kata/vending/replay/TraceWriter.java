@@ -0,0 +1,172 @@
+package kata.vending.replay;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes a trace of one machine's events.  Not thread safe.
+ */
+public final class TraceWriter implements Closeable {
+    /**
+     * Size of the write buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Where the trace goes.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * Buffered writes.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Whether the footer has been written.
+     */
+    private boolean finished;
+
+    /**
+     * TraceWriter constructor.  Writes the header.
+     *
+     * @param channel where the trace goes
+     * @param start   the machine the session starts from; only its machine
+     *                bank and inventory are recorded
+     * @throws IOException if writing fails
+     */
+    public TraceWriter(final WritableByteChannel channel, final Machine start)
+            throws IOException {
+        this.channel = channel;
+        buffer.putInt(Trace.MAGIC);
+        buffer.put(Trace.VERSION);
+        buffer.put((byte) Currency.values().length);
+        for (Currency currency : Currency.values()) {
+            buffer.putInt(start.getMachineBank().getInventory()
+                    .quantity(currency));
+        }
+        buffer.put((byte) Product.values().length);
+        for (Product product : Product.values()) {
+            buffer.putInt(start.getInventory().quantity(product));
+        }
+    }
+
+    /**
+     * Record a coin insert.
+     *
+     * @param coin the coin, may be null
+     * @return this TraceWriter
+     * @throws IOException if writing fails
+     */
+    public TraceWriter insertCoin(final Coin coin) throws IOException {
+        return event(Trace.encodeCoin(coin));
+    }
+
+    /**
+     * Record a product selection.
+     *
+     * @param product the product, may be null
+     * @return this TraceWriter
+     * @throws IOException if writing fails
+     */
+    public TraceWriter vend(final Product product) throws IOException {
+        return event(Trace.encodeVend(product));
+    }
+
+    /**
+     * Record a press of the coin return.
+     *
+     * @return this TraceWriter
+     * @throws IOException if writing fails
+     */
+    public TraceWriter returnCoins() throws IOException {
+        return event(Trace.RETURN_COINS);
+    }
+
+    /**
+     * Record a display check.
+     *
+     * @return this TraceWriter
+     * @throws IOException if writing fails
+     */
+    public TraceWriter checkDisplay() throws IOException {
+        return event(Trace.CHECK_DISPLAY);
+    }
+
+    /**
+     * End the trace with checksums of the machine the session ended with.
+     *
+     * @param end the machine after the last event
+     * @throws IOException if writing fails
+     */
+    public void finish(final Machine end) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("trace already finished");
+        }
+        event(Trace.END);
+        room(3 * Integer.SIZE / Byte.SIZE);
+        buffer.putInt(StateChecksum.display(end));
+        buffer.putInt(StateChecksum.banks(end));
+        buffer.putInt(StateChecksum.inventory(end));
+        flush();
+        finished = true;
+    }
+
+    /**
+     * Write out anything buffered.  Does not close the channel.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Buffer one event byte.
+     *
+     * @param event the event byte
+     * @return this TraceWriter
+     * @throws IOException if writing fails
+     */
+    private TraceWriter event(final int event) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("trace already finished");
+        }
+        room(1);
+        buffer.put((byte) event);
+        return this;
+    }
+
+    /**
+     * Make room in the buffer.
+     *
+     * @param bytes how many bytes are about to be written
+     * @throws IOException if writing fails
+     */
+    private void room(final int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the buffer to the channel.
+     *
+     * @throws IOException if writing fails
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,53 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+
+import java.nio.file.Path;
+
+/**
+ * One collection visit to reconcile: the machine, the journal of what it did
+ * since the last visit, and the machine bank the driver counted.
+ * Immutable.
+ */
+public final class Visit {
+    /**
+     * The machine id.
+     */
+    private final int machineId;
+
+    public int getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * The journal, a trace starting from the last visit.
+     */
+    private final Path journal;
+
+    public Path getJournal() {
+        return journal;
+    }
+
+    /**
+     * The machine bank as counted.
+     */
+    private final Bank reported;
+
+    public Bank getReported() {
+        return reported;
+    }
+
+    /**
+     * Visit constructor.
+     *
+     * @param machineId the machine id
+     * @param journal   the journal
+     * @param reported  the machine bank as counted
+     */
+    public Visit(final int machineId, final Path journal,
+                 final Bank reported) {
+        this.machineId = machineId;
+        this.journal = journal;
+        this.reported = reported;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Compact traces of customer sessions and a driver that replays them against
+ * a Machine as fast as it can.
+ */
+package kata.vending.replay;
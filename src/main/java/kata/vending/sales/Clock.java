@@ -0,0 +1,23 @@
+package kata.vending.sales;
+
+/**
+ * Where the sales windows get the time from.
+ */
+public interface Clock {
+    /**
+     * The wall clock.
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * The current time.
+     *
+     * @return milliseconds since the epoch
+     */
+    long millis();
+}
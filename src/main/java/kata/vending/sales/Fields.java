@@ -0,0 +1,95 @@
+package kata.vending.sales;
+
+import kata.vending.Currency;
+import kata.vending.Product;
+
+/**
+ * Where each total sits in a window's array of counts.
+ */
+final class Fields {
+    /**
+     * Products.
+     */
+    private static final int PRODUCTS = Product.values().length;
+
+    /**
+     * Currencies.
+     */
+    private static final int CURRENCIES = Currency.values().length;
+
+    /**
+     * Units sold, by product ordinal.
+     */
+    private static final int UNITS = 0;
+
+    /**
+     * Revenue in cents, by product ordinal.
+     */
+    private static final int REVENUE = UNITS + PRODUCTS;
+
+    /**
+     * Coins taken in, by currency ordinal.
+     */
+    private static final int CASH_IN = REVENUE + PRODUCTS;
+
+    /**
+     * Coins paid out as change or returned, by currency ordinal.
+     */
+    private static final int CASH_OUT = CASH_IN + CURRENCIES;
+
+    /**
+     * Coins rejected.
+     */
+    static final int REJECTED = CASH_OUT + CURRENCIES;
+
+    /**
+     * How many counts a window has.
+     */
+    static final int COUNT = REJECTED + 1;
+
+    /**
+     * Utility class.
+     */
+    private Fields() {
+    }
+
+    /**
+     * Where units sold of a product are.
+     *
+     * @param product the product
+     * @return the index
+     */
+    static int units(final Product product) {
+        return UNITS + product.ordinal();
+    }
+
+    /**
+     * Where revenue from a product is.
+     *
+     * @param product the product
+     * @return the index
+     */
+    static int revenue(final Product product) {
+        return REVENUE + product.ordinal();
+    }
+
+    /**
+     * Where coins of a currency taken in are.
+     *
+     * @param currency the currency
+     * @return the index
+     */
+    static int cashIn(final Currency currency) {
+        return CASH_IN + currency.ordinal();
+    }
+
+    /**
+     * Where coins of a currency paid out are.
+     *
+     * @param currency the currency
+     * @return the index
+     */
+    static int cashOut(final Currency currency) {
+        return CASH_OUT + currency.ordinal();
+    }
+}
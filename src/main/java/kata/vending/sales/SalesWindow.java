@@ -0,0 +1,157 @@
+package kata.vending.sales;
+
+import kata.vending.Currency;
+import kata.vending.Product;
+
+import java.util.Arrays;
+
+/**
+ * Sales and cash-flow totals for one span of time.
+ * Immutable.
+ */
+public final class SalesWindow {
+    /**
+     * When the window starts, in milliseconds since the epoch.
+     */
+    private final long start;
+
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * When the window ends (exclusive), in milliseconds since the epoch.
+     */
+    private final long end;
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * The totals, laid out as Fields describes.
+     */
+    private final long[] counts;
+
+    /**
+     * SalesWindow constructor.
+     *
+     * @param start  when the window starts
+     * @param end    when the window ends
+     * @param counts the totals, copied
+     */
+    SalesWindow(final long start, final long end, final long[] counts) {
+        this.start = start;
+        this.end = end;
+        this.counts = Arrays.copyOf(counts, Fields.COUNT);
+    }
+
+    /**
+     * How many of a product were sold.
+     *
+     * @param product the product
+     * @return the units sold
+     */
+    public long getUnits(final Product product) {
+        return counts[Fields.units(product)];
+    }
+
+    /**
+     * How much a product took.
+     *
+     * @param product the product
+     * @return the revenue in cents
+     */
+    public long getRevenue(final Product product) {
+        return counts[Fields.revenue(product)];
+    }
+
+    /**
+     * How much every product took.
+     *
+     * @return the revenue in cents
+     */
+    public long getRevenue() {
+        long revenue = 0L;
+        for (Product product : Product.values()) {
+            revenue += getRevenue(product);
+        }
+        return revenue;
+    }
+
+    /**
+     * How many coins of a currency were accepted.
+     *
+     * @param currency the currency
+     * @return the coin count
+     */
+    public long getCashIn(final Currency currency) {
+        return counts[Fields.cashIn(currency)];
+    }
+
+    /**
+     * How many coins of a currency went out as change or returned coins.
+     *
+     * @param currency the currency
+     * @return the coin count
+     */
+    public long getCashOut(final Currency currency) {
+        return counts[Fields.cashOut(currency)];
+    }
+
+    /**
+     * How many coins were rejected.
+     *
+     * @return the coin count
+     */
+    public long getRejected() {
+        return counts[Fields.REJECTED];
+    }
+
+    /**
+     * Value of the coins accepted less the coins paid out.
+     *
+     * @return the net cash flow in cents
+     */
+    public long getNetCash() {
+        long net = 0L;
+        for (Currency currency : Currency.values()) {
+            net += currency.getCents()
+                    * (getCashIn(currency) - getCashOut(currency));
+        }
+        return net;
+    }
+
+    /**
+     * Dump the window as text, one total per line.
+     *
+     * @return the text
+     */
+    public String toText() {
+        final StringBuilder out = new StringBuilder();
+        line(out, "window.start", start);
+        line(out, "window.end", end);
+        for (Product product : Product.values()) {
+            line(out, "units." + product.name(), getUnits(product));
+            line(out, "revenue." + product.name(), getRevenue(product));
+        }
+        for (Currency currency : Currency.values()) {
+            line(out, "cash_in." + currency.name(), getCashIn(currency));
+            line(out, "cash_out." + currency.name(), getCashOut(currency));
+        }
+        line(out, "coins.rejected", getRejected());
+        return out.toString();
+    }
+
+    /**
+     * Append one total line.
+     *
+     * @param out   where to append
+     * @param name  the total name
+     * @param value the total
+     */
+    private static void line(final StringBuilder out, final String name,
+                             final long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+}
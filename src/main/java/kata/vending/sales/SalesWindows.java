@@ -0,0 +1,278 @@
+package kata.vending.sales;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Operation;
+import kata.vending.OperationListener;
+import kata.vending.Operations;
+import kata.vending.Outcome;
+import kata.vending.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps sales and cash-flow totals over a fixed number of tumbling windows
+ * of equal width, and over the sliding window they make up together.
+ * Listens to machine operations once started.
+ * <p/>
+ * Each event adds to the current window and to the running sliding totals.
+ * When time moves into a new window the oldest one is taken off the sliding
+ * totals and reused, so an event costs the same however long the windows
+ * are, and memory only grows with the number of windows.
+ */
+public final class SalesWindows implements OperationListener {
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Width of a tumbling window in milliseconds.
+     */
+    private final long width;
+
+    /**
+     * How many tumbling windows are kept.
+     */
+    private final int windows;
+
+    /**
+     * Where the time comes from.
+     */
+    private final Clock clock;
+
+    /**
+     * Counts of every kept window; window n is at (n % windows) * COUNT.
+     */
+    private final long[] buckets;
+
+    /**
+     * The sum of every kept window.
+     */
+    private final long[] totals = new long[Fields.COUNT];
+
+    /**
+     * The first window, when the totals started.
+     */
+    private final long first;
+
+    /**
+     * The current window, counted from the epoch.
+     */
+    private long current;
+
+    /**
+     * SalesWindows constructor using the wall clock.
+     *
+     * @param width   width of a tumbling window in milliseconds
+     * @param windows how many tumbling windows to keep
+     */
+    public SalesWindows(final long width, final int windows) {
+        this(width, windows, Clock.SYSTEM);
+    }
+
+    /**
+     * SalesWindows constructor.
+     *
+     * @param width   width of a tumbling window in milliseconds
+     * @param windows how many tumbling windows to keep
+     * @param clock   where the time comes from
+     */
+    public SalesWindows(final long width, final int windows,
+                        final Clock clock) {
+        if (width <= 0 || windows <= 0) {
+            throw new IllegalArgumentException("windows must be positive: "
+                    + windows + " of " + width + "ms");
+        }
+        this.width = width;
+        this.windows = windows;
+        this.clock = clock;
+        this.buckets = new long[windows * Fields.COUNT];
+        this.first = clock.millis() / width;
+        this.current = first;
+    }
+
+    /**
+     * Start totalling machine operations.
+     */
+    public void start() {
+        Operations.addListener(this);
+    }
+
+    /**
+     * Stop totalling.  The totals are kept.
+     */
+    public void stop() {
+        Operations.removeListener(this);
+    }
+
+    @Override
+    public void onOperation(final Operation operation, final Outcome outcome,
+                            final long amount, final Product product,
+                            final Currency currency, final Bank coins,
+                            final long nanos) {
+        switch (outcome) {
+            case ACCEPTED:
+                record(Fields.cashIn(currency), 1L, null);
+                break;
+            case REJECTED:
+                record(Fields.REJECTED, 1L, null);
+                break;
+            case VENDED:
+                recordVend(product, amount, coins);
+                break;
+            case RETURNED:
+                record(-1, 0L, coins);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Add a count and any coins paid out to the current window.
+     *
+     * @param field where the count goes, or -1 for none
+     * @param count the count
+     * @param out   coins paid out, may be null
+     */
+    private synchronized void record(final int field, final long count,
+                                     final Bank out) {
+        final int base = advance();
+        if (field >= 0) {
+            add(base, field, count);
+        }
+        payOut(base, out);
+    }
+
+    /**
+     * Add a vend and its change to the current window.
+     *
+     * @param product the product
+     * @param price   what it cost
+     * @param change  the change given, may be null
+     */
+    private synchronized void recordVend(final Product product,
+                                         final long price,
+                                         final Bank change) {
+        final int base = advance();
+        add(base, Fields.units(product), 1L);
+        add(base, Fields.revenue(product), price);
+        payOut(base, change);
+    }
+
+    /**
+     * Add coins paid out to a window.
+     *
+     * @param base where the window starts in the buckets
+     * @param out  the coins, may be null
+     */
+    private void payOut(final int base, final Bank out) {
+        if (out == null) {
+            return;
+        }
+        final Inventory<Currency> inventory = out.getInventory();
+        for (Currency currency : CURRENCIES) {
+            final int quantity = inventory.quantity(currency);
+            if (quantity > 0) {
+                add(base, Fields.cashOut(currency), quantity);
+            }
+        }
+    }
+
+    /**
+     * Add to a window and the sliding totals.
+     *
+     * @param base  where the window starts in the buckets
+     * @param field which count
+     * @param count how much
+     */
+    private void add(final int base, final int field, final long count) {
+        buckets[base + field] += count;
+        totals[field] += count;
+    }
+
+    /**
+     * Move the current window up to the clock, dropping any windows that
+     * fall out of the sliding window.  Must hold the lock.
+     *
+     * @return where the current window starts in the buckets
+     */
+    private int advance() {
+        final long now = clock.millis() / width;
+        if (now > current) {
+            final long from = Math.max(current + 1, now - windows + 1);
+            for (long window = from; window <= now; window++) {
+                final int base = base(window);
+                for (int field = 0; field < Fields.COUNT; field++) {
+                    totals[field] -= buckets[base + field];
+                    buckets[base + field] = 0L;
+                }
+            }
+            current = now;
+        }
+        return base(current);
+    }
+
+    /**
+     * Where a window starts in the buckets.
+     *
+     * @param window the window
+     * @return the index of its first count
+     */
+    private int base(final long window) {
+        return (int) (window % windows) * Fields.COUNT;
+    }
+
+    /**
+     * The oldest window still kept.
+     *
+     * @return the window
+     */
+    private long oldest() {
+        return Math.max(first, current - windows + 1);
+    }
+
+    /**
+     * Read the window the clock is in now.
+     *
+     * @return the current tumbling window
+     */
+    public synchronized SalesWindow current() {
+        final int base = advance();
+        final long[] counts = new long[Fields.COUNT];
+        System.arraycopy(buckets, base, counts, 0, Fields.COUNT);
+        return new SalesWindow(current * width, (current + 1) * width,
+                counts);
+    }
+
+    /**
+     * Read every kept tumbling window.
+     *
+     * @return the windows, oldest first, ending with the current one
+     */
+    public synchronized List<SalesWindow> tumbling() {
+        advance();
+        final List<SalesWindow> list = new ArrayList<>();
+        final long[] counts = new long[Fields.COUNT];
+        for (long window = oldest(); window <= current; window++) {
+            System.arraycopy(buckets, base(window), counts, 0, Fields.COUNT);
+            list.add(new SalesWindow(window * width, (window + 1) * width,
+                    counts));
+        }
+        return list;
+    }
+
+    /**
+     * Read the totals of every kept window together.
+     *
+     * @return the sliding window
+     */
+    public synchronized SalesWindow sliding() {
+        advance();
+        return new SalesWindow(oldest() * width, (current + 1) * width,
+                totals);
+    }
+}
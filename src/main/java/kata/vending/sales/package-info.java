@@ -0,0 +1,5 @@
+/**
+ * Streaming sales and cash-flow totals over tumbling and sliding time
+ * windows, fed by machine operations.
+ */
+package kata.vending.sales;
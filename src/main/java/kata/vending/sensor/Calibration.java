@@ -0,0 +1,177 @@
+package kata.vending.sensor;
+
+import kata.vending.Currency;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds coin profiles from sample readings of known coins, for when the
+ * sensors drift or a machine's sensors differ from the standard ones.
+ * Each axis gets the sample mean, and a tolerance of some standard
+ * deviations either side, never less than a small fraction of the mean.
+ * Means and variances are kept as running totals, so samples aren't kept.
+ * Not thread safe.
+ */
+public final class Calibration {
+    /**
+     * Standard deviations of tolerance unless told otherwise.
+     */
+    public static final double DEFAULT_SIGMAS = 4.0;
+
+    /**
+     * Smallest tolerance, as a fraction of the mean.
+     */
+    static final double MIN_RELATIVE_TOLERANCE = 0.005;
+
+    /**
+     * Samples needed per currency.
+     */
+    static final int MIN_SAMPLES = 2;
+
+    /**
+     * Axes: diameter, mass, conductivity.
+     */
+    private static final int AXES = 3;
+
+    /**
+     * Index of the mass axis.
+     */
+    private static final int MASS = 1;
+
+    /**
+     * Index of the conductivity axis.
+     */
+    private static final int CONDUCTIVITY = 2;
+
+    /**
+     * Running totals by currency.
+     */
+    private final Map<Currency, Totals> totals =
+            new EnumMap<>(Currency.class);
+
+    /**
+     * Running count, mean and sum of squared differences per axis.
+     */
+    private static final class Totals {
+        /**
+         * Samples.
+         */
+        private long count;
+
+        /**
+         * Mean per axis.
+         */
+        private final double[] mean = new double[AXES];
+
+        /**
+         * Sum of squared differences from the mean per axis.
+         */
+        private final double[] squares = new double[AXES];
+
+        /**
+         * Add a sample, by Welford's method.
+         *
+         * @param values the sample, one value per axis
+         */
+        private void add(final double... values) {
+            count++;
+            for (int axis = 0; axis < AXES; axis++) {
+                final double delta = values[axis] - mean[axis];
+                mean[axis] += delta / count;
+                squares[axis] += delta * (values[axis] - mean[axis]);
+            }
+        }
+
+        /**
+         * Tolerance on an axis.
+         *
+         * @param axis   the axis
+         * @param sigmas standard deviations either side
+         * @return the tolerance
+         */
+        private double tolerance(final int axis, final double sigmas) {
+            final double deviation = Math.sqrt(squares[axis] / (count - 1));
+            return Math.max(sigmas * deviation,
+                    Math.abs(mean[axis]) * MIN_RELATIVE_TOLERANCE);
+        }
+    }
+
+    /**
+     * Add a reading of a known coin.
+     *
+     * @param currency what the coin is
+     * @param reading  what the sensors measured
+     * @return this calibration
+     */
+    public Calibration add(final Currency currency, final Reading reading) {
+        if (currency == Currency.UNKNOWN) {
+            throw new IllegalArgumentException(
+                    "can't calibrate an unknown coin");
+        }
+        Totals forCurrency = totals.get(currency);
+        if (forCurrency == null) {
+            forCurrency = new Totals();
+            totals.put(currency, forCurrency);
+        }
+        forCurrency.add(reading.getDiameter(), reading.getMass(),
+                reading.getConductivity());
+        return this;
+    }
+
+    /**
+     * How many readings there are of a currency.
+     *
+     * @param currency the currency
+     * @return the count
+     */
+    public long samples(final Currency currency) {
+        final Totals forCurrency = totals.get(currency);
+        if (forCurrency == null) {
+            return 0L;
+        }
+        return forCurrency.count;
+    }
+
+    /**
+     * Profiles for every currency with enough readings.
+     *
+     * @param sigmas standard deviations of tolerance either side
+     * @return the profiles
+     */
+    public List<CoinProfile> profiles(final double sigmas) {
+        final List<CoinProfile> profiles = new ArrayList<>();
+        for (Map.Entry<Currency, Totals> entry : totals.entrySet()) {
+            final Totals sampled = entry.getValue();
+            if (sampled.count < MIN_SAMPLES) {
+                continue;
+            }
+            profiles.add(new CoinProfile.Builder()
+                    .currency(entry.getKey())
+                    .diameter(sampled.mean[0], sampled.tolerance(0, sigmas))
+                    .mass(sampled.mean[MASS],
+                            sampled.tolerance(MASS, sigmas))
+                    .conductivity(sampled.mean[CONDUCTIVITY],
+                            sampled.tolerance(CONDUCTIVITY, sigmas))
+                    .build());
+        }
+        return profiles;
+    }
+
+    /**
+     * Rebuild the classifier from the readings.  Throws
+     * IllegalStateException if no currency has enough of them.
+     *
+     * @return the classifier
+     */
+    public CoinClassifier compile() {
+        final List<CoinProfile> profiles = profiles(DEFAULT_SIGMAS);
+        if (profiles.isEmpty()) {
+            throw new IllegalStateException("need at least " + MIN_SAMPLES
+                    + " readings of a coin to calibrate");
+        }
+        return CoinClassifier.compile(profiles);
+    }
+}
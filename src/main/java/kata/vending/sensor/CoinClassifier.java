@@ -0,0 +1,307 @@
+package kata.vending.sensor;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classifies raw sensor readings as currencies.
+ * <p/>
+ * The profiles are compiled once into a grid over diameter, mass and
+ * conductivity, each axis cut into the same number of cells.  A cell
+ * holds the currency whose tolerance region contains the cell's centre;
+ * cells in no region, or in more than one, hold UNKNOWN, so overlapping
+ * profiles reject rather than guess.  Classifying is then three multiplies
+ * and one array index.  The price is that region edges are only as sharp
+ * as a cell.
+ * <p/>
+ * Immutable and thread safe.
+ */
+public final class CoinClassifier {
+    /**
+     * Cells per axis unless told otherwise.
+     */
+    public static final int DEFAULT_CELLS = 64;
+
+    /**
+     * Most cells per axis.
+     */
+    static final int MAX_CELLS = 256;
+
+    /**
+     * Axes: diameter, mass, conductivity.
+     */
+    private static final int AXES = 3;
+
+    /**
+     * Index of the mass axis.
+     */
+    private static final int MASS = 1;
+
+    /**
+     * Index of the conductivity axis.
+     */
+    private static final int CONDUCTIVITY = 2;
+
+    /**
+     * Cached currencies.
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * Stands for a coin no currency matches.
+     */
+    private static final Coin SLUG =
+            new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+
+    /**
+     * The profiles compiled.
+     */
+    private final List<CoinProfile> profiles;
+
+    public List<CoinProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * Cells per axis.
+     */
+    private final int cells;
+
+    public int getCells() {
+        return cells;
+    }
+
+    /**
+     * Low edge of the grid on each axis.
+     */
+    private final double[] low = new double[AXES];
+
+    /**
+     * Cells per unit on each axis.
+     */
+    private final double[] scale = new double[AXES];
+
+    /**
+     * Currency ordinal for each cell.
+     */
+    private final byte[] grid;
+
+    /**
+     * Cells more than one profile claimed.
+     */
+    private final int ambiguous;
+
+    /**
+     * The standard classifier, built the first time it is asked for.
+     */
+    private static final class Standard {
+        /**
+         * The classifier.
+         */
+        private static final CoinClassifier CLASSIFIER =
+                compile(CoinProfile.standard());
+
+        /**
+         * Utility class.
+         */
+        private Standard() {
+        }
+    }
+
+    /**
+     * A classifier for the standard profiles, built once and shared.
+     *
+     * @return the classifier
+     */
+    public static CoinClassifier standard() {
+        return Standard.CLASSIFIER;
+    }
+
+    /**
+     * Compile profiles with the default number of cells.
+     *
+     * @param profiles the profiles
+     * @return the classifier
+     */
+    public static CoinClassifier compile(final List<CoinProfile> profiles) {
+        return compile(profiles, DEFAULT_CELLS);
+    }
+
+    /**
+     * Compile profiles.
+     *
+     * @param profiles the profiles
+     * @param cells    cells per axis; more is sharper and bigger
+     * @return the classifier
+     */
+    public static CoinClassifier compile(final List<CoinProfile> profiles,
+                                         final int cells) {
+        return new CoinClassifier(profiles, cells);
+    }
+
+    /**
+     * CoinClassifier constructor.
+     *
+     * @param profiles the profiles
+     * @param cells    cells per axis
+     */
+    private CoinClassifier(final List<CoinProfile> profiles,
+                           final int cells) {
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("no profiles to compile");
+        }
+        if (cells < 1 || cells > MAX_CELLS) {
+            throw new IllegalArgumentException("cells must be 1 to "
+                    + MAX_CELLS + ", not " + cells);
+        }
+        this.profiles = Collections.unmodifiableList(
+                new ArrayList<>(profiles));
+        this.cells = cells;
+        final double[] high = new double[AXES];
+        for (int axis = 0; axis < AXES; axis++) {
+            low[axis] = Double.MAX_VALUE;
+            high[axis] = -Double.MAX_VALUE;
+        }
+        for (CoinProfile profile : profiles) {
+            extend(high, 0, profile.getDiameter(),
+                    profile.getDiameterTolerance());
+            extend(high, MASS, profile.getMass(), profile.getMassTolerance());
+            extend(high, CONDUCTIVITY, profile.getConductivity(),
+                    profile.getConductivityTolerance());
+        }
+        final double[] width = new double[AXES];
+        for (int axis = 0; axis < AXES; axis++) {
+            width[axis] = Math.max(high[axis] - low[axis], Double.MIN_NORMAL);
+            scale[axis] = cells / width[axis];
+        }
+        this.grid = new byte[cells * cells * cells];
+        int claimedTwice = 0;
+        for (int d = 0; d < cells; d++) {
+            final double diameter = centre(0, d, width);
+            for (int m = 0; m < cells; m++) {
+                final double mass = centre(MASS, m, width);
+                for (int c = 0; c < cells; c++) {
+                    final double conductivity =
+                            centre(CONDUCTIVITY, c, width);
+                    Currency found = Currency.UNKNOWN;
+                    for (CoinProfile profile : profiles) {
+                        if (!profile.contains(diameter, mass,
+                                conductivity)) {
+                            continue;
+                        }
+                        if (found != Currency.UNKNOWN
+                                && found != profile.getCurrency()) {
+                            found = Currency.UNKNOWN;
+                            claimedTwice++;
+                            break;
+                        }
+                        found = profile.getCurrency();
+                    }
+                    grid[(d * cells + m) * cells + c] =
+                            (byte) found.ordinal();
+                }
+            }
+        }
+        this.ambiguous = claimedTwice;
+    }
+
+    /**
+     * Widen the grid on an axis to take in a profile's region.
+     *
+     * @param high      high edges
+     * @param axis      the axis
+     * @param centre    the profile's value
+     * @param tolerance its tolerance
+     */
+    private void extend(final double[] high, final int axis,
+                        final double centre, final double tolerance) {
+        low[axis] = Math.min(low[axis], centre - tolerance);
+        high[axis] = Math.max(high[axis], centre + tolerance);
+    }
+
+    /**
+     * Centre of a cell on an axis.
+     *
+     * @param axis  the axis
+     * @param cell  the cell
+     * @param width width of the grid on each axis
+     * @return the centre
+     */
+    private double centre(final int axis, final int cell,
+                          final double[] width) {
+        return low[axis] + (cell + 0.5) * width[axis] / cells;
+    }
+
+    /**
+     * The cell a value falls in on an axis.
+     *
+     * @param axis  the axis
+     * @param value the value
+     * @return the cell, or -1 if it is off the grid
+     */
+    private int cell(final int axis, final double value) {
+        final double offset = (value - low[axis]) * scale[axis];
+        if (!(offset >= 0.0) || offset > cells) {
+            return -1;
+        }
+        return Math.min((int) offset, cells - 1);
+    }
+
+    /**
+     * Classify a reading.
+     *
+     * @param reading the reading
+     * @return the currency, or UNKNOWN
+     */
+    public Currency classify(final Reading reading) {
+        return classify(reading.getDiameter(), reading.getMass(),
+                reading.getConductivity());
+    }
+
+    /**
+     * Classify raw measurements.
+     *
+     * @param diameter     diameter, mm
+     * @param mass         mass, g
+     * @param conductivity conductivity, %IACS
+     * @return the currency, or UNKNOWN
+     */
+    public Currency classify(final double diameter, final double mass,
+                             final double conductivity) {
+        final int d = cell(0, diameter);
+        final int m = cell(MASS, mass);
+        final int c = cell(CONDUCTIVITY, conductivity);
+        if (d < 0 || m < 0 || c < 0) {
+            return Currency.UNKNOWN;
+        }
+        return CURRENCIES[grid[(d * cells + m) * cells + c]];
+    }
+
+    /**
+     * The coin to hand Machine.insertCoin for a reading: the currency's
+     * coin, or one the machine won't recognize.
+     *
+     * @param reading the reading
+     * @return the coin
+     */
+    public Coin coin(final Reading reading) {
+        final Currency currency = classify(reading);
+        if (currency == Currency.UNKNOWN) {
+            return SLUG;
+        }
+        return currency.getCoin();
+    }
+
+    /**
+     * How many cells more than one profile claimed.
+     *
+     * @return the number of cells
+     */
+    int getAmbiguousCells() {
+        return ambiguous;
+    }
+}
@@ -0,0 +1,302 @@
+package kata.vending.sensor;
+
+import kata.vending.Currency;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a denomination measures, and how far a reading may stray from it on
+ * each axis and still count.
+ * Immutable.
+ */
+public final class CoinProfile {
+    /**
+     * Nickel diameter, mm.
+     */
+    private static final double NICKEL_DIAMETER = 21.21;
+
+    /**
+     * Nickel mass, g.
+     */
+    private static final double NICKEL_MASS = 5.0;
+
+    /**
+     * Nickel conductivity, %IACS; solid cupronickel.
+     */
+    private static final double NICKEL_CONDUCTIVITY = 5.5;
+
+    /**
+     * Dime diameter, mm.
+     */
+    private static final double DIME_DIAMETER = 17.91;
+
+    /**
+     * Dime mass, g.
+     */
+    private static final double DIME_MASS = 2.268;
+
+    /**
+     * Quarter diameter, mm.
+     */
+    private static final double QUARTER_DIAMETER = 24.26;
+
+    /**
+     * Quarter mass, g.
+     */
+    private static final double QUARTER_MASS = 5.67;
+
+    /**
+     * Clad coin conductivity, %IACS; copper core.
+     */
+    private static final double CLAD_CONDUCTIVITY = 27.0;
+
+    /**
+     * Standard diameter tolerance, mm.
+     */
+    private static final double DIAMETER_TOLERANCE = 0.3;
+
+    /**
+     * Standard mass tolerance, g.
+     */
+    private static final double MASS_TOLERANCE = 0.2;
+
+    /**
+     * Standard conductivity tolerance, %IACS.
+     */
+    private static final double CONDUCTIVITY_TOLERANCE = 4.0;
+
+    /**
+     * The denomination.
+     */
+    private final Currency currency;
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Expected diameter, mm.
+     */
+    private final double diameter;
+
+    public double getDiameter() {
+        return diameter;
+    }
+
+    /**
+     * How far the diameter may be off, mm.
+     */
+    private final double diameterTolerance;
+
+    public double getDiameterTolerance() {
+        return diameterTolerance;
+    }
+
+    /**
+     * Expected mass, g.
+     */
+    private final double mass;
+
+    public double getMass() {
+        return mass;
+    }
+
+    /**
+     * How far the mass may be off, g.
+     */
+    private final double massTolerance;
+
+    public double getMassTolerance() {
+        return massTolerance;
+    }
+
+    /**
+     * Expected conductivity, %IACS.
+     */
+    private final double conductivity;
+
+    public double getConductivity() {
+        return conductivity;
+    }
+
+    /**
+     * How far the conductivity may be off, %IACS.
+     */
+    private final double conductivityTolerance;
+
+    public double getConductivityTolerance() {
+        return conductivityTolerance;
+    }
+
+    /**
+     * Builder for the CoinProfile class.
+     */
+    public static class Builder {
+        /**
+         * Builder currency.
+         */
+        private Currency currency = Currency.UNKNOWN;
+
+        /**
+         * Builder diameter.
+         */
+        private double diameter;
+
+        /**
+         * Builder diameterTolerance.
+         */
+        private double diameterTolerance = DIAMETER_TOLERANCE;
+
+        /**
+         * Builder mass.
+         */
+        private double mass;
+
+        /**
+         * Builder massTolerance.
+         */
+        private double massTolerance = MASS_TOLERANCE;
+
+        /**
+         * Builder conductivity.
+         */
+        private double conductivity;
+
+        /**
+         * Builder conductivityTolerance.
+         */
+        private double conductivityTolerance = CONDUCTIVITY_TOLERANCE;
+
+        /**
+         * Builder setter for currency.
+         *
+         * @param currency the denomination
+         * @return this Builder
+         */
+        public final Builder currency(final Currency currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        /**
+         * Builder setter for diameter.
+         *
+         * @param diameter   expected diameter, mm
+         * @param tolerance  how far it may be off, mm
+         * @return this Builder
+         */
+        public final Builder diameter(final double diameter,
+                                      final double tolerance) {
+            this.diameter = diameter;
+            this.diameterTolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Builder setter for mass.
+         *
+         * @param mass      expected mass, g
+         * @param tolerance how far it may be off, g
+         * @return this Builder
+         */
+        public final Builder mass(final double mass, final double tolerance) {
+            this.mass = mass;
+            this.massTolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Builder setter for conductivity.
+         *
+         * @param conductivity expected conductivity, %IACS
+         * @param tolerance    how far it may be off, %IACS
+         * @return this Builder
+         */
+        public final Builder conductivity(final double conductivity,
+                                          final double tolerance) {
+            this.conductivity = conductivity;
+            this.conductivityTolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Build the profile.
+         *
+         * @return the profile
+         */
+        public final CoinProfile build() {
+            return new CoinProfile(this);
+        }
+    }
+
+    /**
+     * CoinProfile constructor.
+     *
+     * @param builder the builder
+     */
+    private CoinProfile(final Builder builder) {
+        if (builder.currency == null || builder.currency == Currency.UNKNOWN) {
+            throw new IllegalArgumentException(
+                    "a profile needs a known currency");
+        }
+        if (builder.diameterTolerance < 0 || builder.massTolerance < 0
+                || builder.conductivityTolerance < 0) {
+            throw new IllegalArgumentException(
+                    "tolerances can't be negative");
+        }
+        this.currency = builder.currency;
+        this.diameter = builder.diameter;
+        this.diameterTolerance = builder.diameterTolerance;
+        this.mass = builder.mass;
+        this.massTolerance = builder.massTolerance;
+        this.conductivity = builder.conductivity;
+        this.conductivityTolerance = builder.conductivityTolerance;
+    }
+
+    /**
+     * Profiles for US nickels, dimes and quarters, with standard
+     * tolerances.
+     *
+     * @return the profiles
+     */
+    public static List<CoinProfile> standard() {
+        return Collections.unmodifiableList(Arrays.asList(
+                new Builder().currency(Currency.NICKEL)
+                        .diameter(NICKEL_DIAMETER, DIAMETER_TOLERANCE)
+                        .mass(NICKEL_MASS, MASS_TOLERANCE)
+                        .conductivity(NICKEL_CONDUCTIVITY,
+                                CONDUCTIVITY_TOLERANCE)
+                        .build(),
+                new Builder().currency(Currency.DIME)
+                        .diameter(DIME_DIAMETER, DIAMETER_TOLERANCE)
+                        .mass(DIME_MASS, MASS_TOLERANCE)
+                        .conductivity(CLAD_CONDUCTIVITY,
+                                CONDUCTIVITY_TOLERANCE)
+                        .build(),
+                new Builder().currency(Currency.QUARTER)
+                        .diameter(QUARTER_DIAMETER, DIAMETER_TOLERANCE)
+                        .mass(QUARTER_MASS, MASS_TOLERANCE)
+                        .conductivity(CLAD_CONDUCTIVITY,
+                                CONDUCTIVITY_TOLERANCE)
+                        .build()));
+    }
+
+    /**
+     * Whether a measurement is within tolerance on every axis.
+     *
+     * @param measuredDiameter     diameter, mm
+     * @param measuredMass         mass, g
+     * @param measuredConductivity conductivity, %IACS
+     * @return true if it is
+     */
+    boolean contains(final double measuredDiameter,
+                     final double measuredMass,
+                     final double measuredConductivity) {
+        return Math.abs(measuredDiameter - diameter) <= diameterTolerance
+                && Math.abs(measuredMass - mass) <= massTolerance
+                && Math.abs(measuredConductivity - conductivity)
+                <= conductivityTolerance;
+    }
+}
@@ -0,0 +1,53 @@
+package kata.vending.sensor;
+
+/**
+ * What the coin sensors measured.
+ * Immutable.
+ */
+public final class Reading {
+    /**
+     * Diameter in millimetres.
+     */
+    private final double diameter;
+
+    public double getDiameter() {
+        return diameter;
+    }
+
+    /**
+     * Mass in grams.
+     */
+    private final double mass;
+
+    public double getMass() {
+        return mass;
+    }
+
+    /**
+     * Conductivity as a percentage of annealed copper (%IACS).
+     */
+    private final double conductivity;
+
+    public double getConductivity() {
+        return conductivity;
+    }
+
+    /**
+     * Reading constructor.
+     *
+     * @param diameter     diameter in millimetres
+     * @param mass         mass in grams
+     * @param conductivity conductivity in %IACS
+     */
+    public Reading(final double diameter, final double mass,
+                   final double conductivity) {
+        this.diameter = diameter;
+        this.mass = mass;
+        this.conductivity = conductivity;
+    }
+
+    @Override
+    public String toString() {
+        return diameter + "mm " + mass + "g " + conductivity + "%IACS";
+    }
+}
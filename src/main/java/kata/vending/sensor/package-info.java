@@ -0,0 +1,5 @@
+/**
+ * Coin recognition from raw sensor measurements, compiled into a lookup
+ * grid and calibrated from samples.
+ */
+package kata.vending.sensor;
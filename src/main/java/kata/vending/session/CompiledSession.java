@@ -0,0 +1,290 @@
+package kata.vending.session;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Operations;
+import kata.vending.Product;
+
+import static kata.vending.session.SessionTables.COINS;
+import static kata.vending.session.SessionTables.PRODUCTS;
+
+/**
+ * A machine driven through SessionTables: insertCoin, vend, returnCoins and
+ * checkDisplay become table lookups and updates to a few int arrays, and
+ * behave exactly as the same calls on Machine would.
+ * <p/>
+ * When the state leaves what the tables cover (more than maxCoins of a coin
+ * inserted, an unknown coin in the customer bank, or change the tables
+ * don't hold) the session hands over to a
+ * Machine, and takes back over once the customer bank is small again.  It
+ * also hands over while operation listeners are attached, so that they see
+ * every operation as before.
+ * <p/>
+ * Mutable and not thread safe: one session per machine.
+ */
+public final class CompiledSession {
+    /**
+     * The tables.
+     */
+    private final SessionTables tables;
+
+    /**
+     * The customer state.
+     */
+    private int customer;
+
+    /**
+     * Machine bank coin counts, by index into COINS.
+     */
+    private final int[] bank = new int[COINS.length];
+
+    /**
+     * Unknown coins in the machine bank.  The tables don't count them and
+     * no operation moves them, so they are carried through as they are.
+     */
+    private int unknownBanked;
+
+    /**
+     * Machine and customer coins together, while vending.
+     */
+    private final int[] combined = new int[COINS.length];
+
+    /**
+     * Stock, by product ordinal.
+     */
+    private final int[] stock = new int[PRODUCTS.length];
+
+    /**
+     * Coin return, by currency ordinal.
+     */
+    private final int[] coinReturn = new int[Currency.values().length];
+
+    /**
+     * The display.
+     */
+    private String display;
+
+    /**
+     * The machine, while the state is outside the tables; otherwise null.
+     */
+    private Machine machine;
+
+    /**
+     * CompiledSession constructor.
+     *
+     * @param tables  the tables
+     * @param machine the machine to start from
+     */
+    CompiledSession(final SessionTables tables, final Machine machine) {
+        this.tables = tables;
+        load(machine);
+    }
+
+    /**
+     * Whether the next event will be a table lookup.
+     *
+     * @return true if the state is inside the tables
+     */
+    public boolean isCompiled() {
+        return machine == null;
+    }
+
+    /**
+     * What the display shows.
+     *
+     * @return the display text
+     */
+    public String getDisplay() {
+        if (machine != null) {
+            return machine.getDisplay();
+        }
+        return display;
+    }
+
+    /**
+     * Insert a coin.
+     *
+     * @param coin the coin to insert
+     * @return this session
+     */
+    public CompiledSession insertCoin(final Coin coin) {
+        if (machine != null || Operations.isEnabled()) {
+            load(toMachine().insertCoin(coin));
+            return this;
+        }
+        for (int i = 0; i < COINS.length; i++) {
+            if (COINS[i].getCoin() == coin) {
+                if (tables.customerCount(customer, i)
+                        == tables.getMaxCoins()) {
+                    load(toMachine().insertCoin(coin));
+                    return this;
+                }
+                customer += tables.customerStride(i);
+                display = tables.balanceText(customer);
+                return this;
+            }
+        }
+        coinReturn[Currency.UNKNOWN.ordinal()]++;
+        return this;
+    }
+
+    /**
+     * Return the inserted coins to the coin return.
+     *
+     * @return this session
+     */
+    public CompiledSession returnCoins() {
+        if (machine != null || Operations.isEnabled()) {
+            load(toMachine().returnCoins());
+            return this;
+        }
+        for (int i = 0; i < COINS.length; i++) {
+            coinReturn[COINS[i].ordinal()] +=
+                    tables.customerCount(customer, i);
+        }
+        customer = 0;
+        display = tables.balanceText(customer);
+        return this;
+    }
+
+    /**
+     * Recalculate the display.
+     *
+     * @return this session
+     */
+    public CompiledSession checkDisplay() {
+        if (machine != null || Operations.isEnabled()) {
+            load(toMachine().checkDisplay());
+            return this;
+        }
+        if (tables.balance(customer) != 0L) {
+            display = tables.balanceText(customer);
+        } else if (tables.exactChange(tables.summarize(bank))) {
+            display = Message.EXACT_CHANGE.getText();
+        } else {
+            display = Message.INSERT_COIN.getText();
+        }
+        return this;
+    }
+
+    /**
+     * Vend a product if the customer has paid enough.
+     *
+     * @param product the product
+     * @return this session
+     */
+    public CompiledSession vend(final Product product) {
+        if (machine != null || Operations.isEnabled()) {
+            load(toMachine().vend(product));
+            return this;
+        }
+        if (product == null || stock[product.ordinal()] <= 0) {
+            display = Message.SOLD_OUT.getText();
+            return this;
+        }
+        final long balance = tables.balance(customer);
+        if (balance < product.getPrice()) {
+            display = tables.priceText(product);
+            return this;
+        }
+        final long amount = balance - product.getPrice();
+        if (!tables.coversChange(amount)) {
+            load(toMachine().vend(product));
+            return this;
+        }
+        for (int i = 0; i < COINS.length; i++) {
+            combined[i] = bank[i] + tables.customerCount(customer, i);
+        }
+        final int change = tables.change(amount, tables.summarize(combined));
+        for (int i = 0; i < coinReturn.length; i++) {
+            coinReturn[i] = 0;
+        }
+        for (int i = 0; i < COINS.length; i++) {
+            final int given = SessionTables.changeCount(change, i);
+            bank[i] = combined[i] - given;
+            coinReturn[COINS[i].ordinal()] = given;
+        }
+        customer = 0;
+        stock[product.ordinal()]--;
+        display = Message.THANK_YOU.getText();
+        return this;
+    }
+
+    /**
+     * The session as a Machine.
+     *
+     * @return the machine
+     */
+    public Machine toMachine() {
+        if (machine != null) {
+            return machine;
+        }
+        Bank machineBank = new Bank().deposit(Currency.UNKNOWN, unknownBanked);
+        Bank customerBank = new Bank();
+        for (int i = 0; i < COINS.length; i++) {
+            machineBank = machineBank.deposit(COINS[i], bank[i]);
+            customerBank = customerBank.deposit(COINS[i],
+                    tables.customerCount(customer, i));
+        }
+        Bank returned = new Bank();
+        for (Currency currency : Currency.values()) {
+            returned = returned.deposit(currency,
+                    coinReturn[currency.ordinal()]);
+        }
+        Inventory<Product> inventory = new Inventory<>(PRODUCTS);
+        for (Product product : PRODUCTS) {
+            inventory = inventory.add(product, stock[product.ordinal()]);
+        }
+        return new Machine.Builder()
+                .coinReturn(returned)
+                .customerBank(customerBank)
+                .machineBank(machineBank)
+                .inventory(inventory)
+                .display(display)
+                .build();
+    }
+
+    /**
+     * Take over a machine's state, compiled if the tables cover it.
+     *
+     * @param from the machine
+     */
+    private void load(final Machine from) {
+        final Inventory<Currency> customerCoins =
+                from.getCustomerBank().getInventory();
+        if (customerCoins.quantity(Currency.UNKNOWN) > 0) {
+            machine = from;
+            return;
+        }
+        int state = 0;
+        for (int i = 0; i < COINS.length; i++) {
+            final int count = customerCoins.quantity(COINS[i]);
+            if (count > tables.getMaxCoins()) {
+                machine = from;
+                return;
+            }
+            state += count * tables.customerStride(i);
+        }
+        machine = null;
+        customer = state;
+        final Inventory<Currency> banked =
+                from.getMachineBank().getInventory();
+        for (int i = 0; i < COINS.length; i++) {
+            bank[i] = banked.quantity(COINS[i]);
+        }
+        unknownBanked = banked.quantity(Currency.UNKNOWN);
+        for (Currency currency : Currency.values()) {
+            coinReturn[currency.ordinal()] =
+                    from.getCoinReturn().getInventory().quantity(currency);
+        }
+        for (Product product : PRODUCTS) {
+            stock[product.ordinal()] =
+                    from.getInventory().quantity(product);
+        }
+        display = from.getDisplay();
+    }
+}
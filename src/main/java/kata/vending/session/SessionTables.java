@@ -0,0 +1,388 @@
+package kata.vending.session;
+
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+
+/**
+ * Machine's session logic compiled into lookup tables over a bounded state.
+ * <p/>
+ * A customer state is the count of each coin inserted, up to maxCoins of
+ * each; the tables give its balance and display text.  Change is looked up
+ * by amount and by a summary of the bank it is made from: Bank.makeChange
+ * is greedy, so it never uses more of a coin than the largest change divided
+ * by the coin's value, and counts above that can be clamped without changing
+ * the answer.  The same summary of the machine bank says whether the display
+ * should read EXACT CHANGE ONLY.
+ * <p/>
+ * Change entries follow the same greedy rule as Bank.makeChange, worked on
+ * plain counts so that building the tables stays quick.  Immutable.
+ */
+public final class SessionTables {
+    /**
+     * Most coins of one kind in a customer state unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_COINS = 8;
+
+    /**
+     * Most coins of one kind a table may be built for.
+     */
+    static final int MAX_COINS = 10;
+
+    /**
+     * Bits per coin in a packed change entry.
+     */
+    static final int COIN_BITS = 8;
+
+    /**
+     * Mask for one coin of a packed change entry.
+     */
+    static final int COIN_MASK = (1 << COIN_BITS) - 1;
+
+    /**
+     * Coins, largest first.
+     */
+    static final Currency[] COINS =
+            Currency.descending().toArray(new Currency[0]);
+
+    /**
+     * Cached products.
+     */
+    static final Product[] PRODUCTS = Product.values();
+
+    /**
+     * Most coins of one kind in a customer state.
+     */
+    private final int maxCoins;
+
+    public int getMaxCoins() {
+        return maxCoins;
+    }
+
+    /**
+     * How far a customer state moves for one more of each coin.
+     */
+    private final int[] customerStrides = new int[COINS.length];
+
+    /**
+     * Balance of each customer state.
+     */
+    private final long[] balances;
+
+    /**
+     * Display text of each customer state.
+     */
+    private final String[] balanceTexts;
+
+    /**
+     * Most of each coin in a bank summary.
+     */
+    private final int[] bankCaps = new int[COINS.length];
+
+    /**
+     * How far a bank summary moves for one more of each coin.
+     */
+    private final int[] bankStrides = new int[COINS.length];
+
+    /**
+     * How many bank summaries there are.
+     */
+    private final int banks;
+
+    /**
+     * Cents between change amounts.
+     */
+    private final long step;
+
+    /**
+     * Largest change amount in the table.
+     */
+    private final long maxChange;
+
+    /**
+     * Change given, packed COIN_BITS per coin, by amount then bank summary.
+     */
+    private final int[] change;
+
+    /**
+     * Whether each bank summary means EXACT CHANGE ONLY.
+     */
+    private final boolean[] exactChange;
+
+    /**
+     * Display text after asking the price of each product.
+     */
+    private final String[] priceTexts = new String[PRODUCTS.length];
+
+    /**
+     * The tables for the default bounds.
+     */
+    private static final class Standard {
+        /**
+         * Built the first time they are asked for.
+         */
+        private static final SessionTables TABLES =
+                new SessionTables(DEFAULT_MAX_COINS);
+
+        /**
+         * Utility class.
+         */
+        private Standard() {
+        }
+    }
+
+    /**
+     * The tables for DEFAULT_MAX_COINS, built once and shared.
+     *
+     * @return the tables
+     */
+    public static SessionTables standard() {
+        return Standard.TABLES;
+    }
+
+    /**
+     * Build the tables.
+     *
+     * @param maxCoins most coins of one kind a customer state may hold
+     */
+    public SessionTables(final int maxCoins) {
+        if (maxCoins < 1 || maxCoins > MAX_COINS) {
+            throw new IllegalArgumentException("maxCoins must be 1 to "
+                    + MAX_COINS + ", not " + maxCoins);
+        }
+        this.maxCoins = maxCoins;
+        int customers = 1;
+        long maxBalance = 0L;
+        long gcd = 0L;
+        for (int coin = COINS.length - 1; coin >= 0; coin--) {
+            customerStrides[coin] = customers;
+            customers *= maxCoins + 1;
+            maxBalance += maxCoins * COINS[coin].getCents();
+            gcd = gcd(gcd, COINS[coin].getCents());
+        }
+        long minPrice = Long.MAX_VALUE;
+        long maxPrice = 0L;
+        for (Product product : PRODUCTS) {
+            minPrice = Math.min(minPrice, product.getPrice());
+            maxPrice = Math.max(maxPrice, product.getPrice());
+            priceTexts[product.ordinal()] = Message.PRICE.getText() + " "
+                    + Currency.format(product.getPrice());
+        }
+        this.step = gcd;
+        this.maxChange = Math.max(maxPrice, maxBalance - minPrice);
+        int summaries = 1;
+        for (int coin = COINS.length - 1; coin >= 0; coin--) {
+            bankCaps[coin] = (int) (maxChange / COINS[coin].getCents());
+            bankStrides[coin] = summaries;
+            summaries *= bankCaps[coin] + 1;
+        }
+        this.banks = summaries;
+        this.balances = new long[customers];
+        this.balanceTexts = new String[customers];
+        for (int state = 0; state < customers; state++) {
+            long balance = 0L;
+            for (int coin = 0; coin < COINS.length; coin++) {
+                balance += customerCount(state, coin)
+                        * COINS[coin].getCents();
+            }
+            balances[state] = balance;
+            balanceTexts[state] = Currency.format(balance);
+        }
+        this.change = new int[(int) (maxChange / step + 1) * banks];
+        this.exactChange = new boolean[banks];
+        final int[] counts = new int[COINS.length];
+        for (int summary = 0; summary < banks; summary++) {
+            for (int coin = 0; coin < COINS.length; coin++) {
+                counts[coin] =
+                        summary / bankStrides[coin] % (bankCaps[coin] + 1);
+            }
+            for (long amount = 0L; amount <= maxChange; amount += step) {
+                change[(int) (amount / step) * banks + summary] =
+                        makeChange(counts, amount);
+            }
+            for (Product product : PRODUCTS) {
+                final long price = product.getPrice();
+                if (price % step != 0
+                        || changeTotal(change(price, summary)) != price) {
+                    exactChange[summary] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Greatest common divisor.
+     *
+     * @param a one number
+     * @param b another
+     * @return their greatest common divisor
+     */
+    private static long gcd(final long a, final long b) {
+        if (b == 0L) {
+            return a;
+        }
+        return gcd(b, a % b);
+    }
+
+    /**
+     * Make change greedily, largest coin first, as Bank.makeChange does.
+     *
+     * @param counts coin counts, by index into COINS
+     * @param amount the change amount
+     * @return the change given, packed COIN_BITS per coin
+     */
+    private static int makeChange(final int[] counts, final long amount) {
+        long remaining = amount;
+        int packed = 0;
+        for (int coin = 0; coin < COINS.length; coin++) {
+            final long cents = COINS[coin].getCents();
+            final int used = (int) Math.min(counts[coin], remaining / cents);
+            remaining -= used * cents;
+            packed |= used << (coin * COIN_BITS);
+        }
+        return packed;
+    }
+
+    /**
+     * How many of a coin a packed change entry gives.
+     *
+     * @param packed the entry
+     * @param coin   the coin, by index into COINS
+     * @return how many
+     */
+    static int changeCount(final int packed, final int coin) {
+        return packed >>> (coin * COIN_BITS) & COIN_MASK;
+    }
+
+    /**
+     * What a packed change entry adds up to.
+     *
+     * @param packed the entry
+     * @return the cents
+     */
+    static long changeTotal(final int packed) {
+        long total = 0L;
+        for (int coin = 0; coin < COINS.length; coin++) {
+            total += changeCount(packed, coin) * COINS[coin].getCents();
+        }
+        return total;
+    }
+
+    /**
+     * How many customer states there are.
+     *
+     * @return the number of customer states
+     */
+    int customerStates() {
+        return balances.length;
+    }
+
+    /**
+     * How far a customer state moves for one more of a coin.
+     *
+     * @param coin the coin, by index into COINS
+     * @return the stride
+     */
+    int customerStride(final int coin) {
+        return customerStrides[coin];
+    }
+
+    /**
+     * How many of a coin are in a customer state.
+     *
+     * @param state the customer state
+     * @param coin  the coin, by index into COINS
+     * @return how many
+     */
+    int customerCount(final int state, final int coin) {
+        return state / customerStrides[coin] % (maxCoins + 1);
+    }
+
+    /**
+     * Balance of a customer state.
+     *
+     * @param state the customer state
+     * @return the cents
+     */
+    long balance(final int state) {
+        return balances[state];
+    }
+
+    /**
+     * Display text for a customer state.
+     *
+     * @param state the customer state
+     * @return the formatted balance
+     */
+    String balanceText(final int state) {
+        return balanceTexts[state];
+    }
+
+    /**
+     * Display text after asking a price.
+     *
+     * @param product the product
+     * @return e.g. "PRICE $1.00"
+     */
+    String priceText(final Product product) {
+        return priceTexts[product.ordinal()];
+    }
+
+    /**
+     * Summarize a bank's coin counts, clamping each to what change could
+     * ever use.
+     *
+     * @param counts coin counts, by index into COINS
+     * @return the summary
+     */
+    int summarize(final int[] counts) {
+        int summary = 0;
+        for (int coin = 0; coin < COINS.length; coin++) {
+            summary += Math.min(counts[coin], bankCaps[coin])
+                    * bankStrides[coin];
+        }
+        return summary;
+    }
+
+    /**
+     * Whether change can be looked up for an amount.
+     *
+     * @param amount the change amount
+     * @return true if it is in the table
+     */
+    boolean coversChange(final long amount) {
+        return amount >= 0L && amount <= maxChange && amount % step == 0L;
+    }
+
+    /**
+     * Change given for an amount from a bank.
+     *
+     * @param amount  the change amount; see coversChange
+     * @param summary the bank summary
+     * @return the coins, packed
+     */
+    int change(final long amount, final int summary) {
+        return change[(int) (amount / step) * banks + summary];
+    }
+
+    /**
+     * Whether a machine bank means EXACT CHANGE ONLY.
+     *
+     * @param summary the bank summary
+     * @return true if some price can't be changed
+     */
+    boolean exactChange(final int summary) {
+        return exactChange[summary];
+    }
+
+    /**
+     * Start a session on a machine.
+     *
+     * @param machine the machine
+     * @return the session
+     */
+    public CompiledSession open(final Machine machine) {
+        return new CompiledSession(this, machine);
+    }
+}
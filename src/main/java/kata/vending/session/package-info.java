@@ -0,0 +1,5 @@
+/**
+ * Customer sessions run from precompiled transition tables, falling back to
+ * the Machine for states the tables don't cover.
+ */
+package kata.vending.session;
@@ -0,0 +1,199 @@
+package kata.vending.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Places machine ids on workers by consistent hashing.  Each worker is
+ * hashed onto a ring of longs at many points, and a machine belongs to the
+ * first worker point at or after its own hash, wrapping round.  Adding or
+ * removing a worker only moves the machines between its points and the
+ * ones before them, about 1/n of the fleet, and the many points per worker
+ * keep the shares even.
+ * Immutable.
+ */
+public final class HashRing {
+    /**
+     * Points per worker unless told otherwise.
+     */
+    public static final int DEFAULT_REPLICAS = 128;
+
+    /**
+     * FNV-1a 64-bit offset basis.
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64-bit prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Bits shifted in each step of the finalizer.
+     */
+    private static final int MIX_SHIFT = 33;
+
+    /**
+     * Byte mask.
+     */
+    private static final int BYTE = 0xFF;
+
+    /**
+     * Points per worker.
+     */
+    private final int replicas;
+
+    /**
+     * The workers, sorted.
+     */
+    private final List<String> workers;
+
+    /**
+     * Point hashes, ascending.
+     */
+    private final long[] points;
+
+    /**
+     * The worker at each point.
+     */
+    private final String[] owners;
+
+    /**
+     * HashRing constructor with the default points per worker.
+     *
+     * @param workers the worker names
+     */
+    public HashRing(final Collection<String> workers) {
+        this(workers, DEFAULT_REPLICAS);
+    }
+
+    /**
+     * HashRing constructor.
+     *
+     * @param workers  the worker names
+     * @param replicas points per worker
+     */
+    public HashRing(final Collection<String> workers, final int replicas) {
+        if (replicas <= 0) {
+            throw new IllegalArgumentException(
+                    "replicas must be positive: " + replicas);
+        }
+        this.replicas = replicas;
+        this.workers = Collections.unmodifiableList(
+                new ArrayList<>(new TreeSet<>(workers)));
+        final int size = this.workers.size() * replicas;
+        final long[] hashes = new long[size];
+        final Integer[] order = new Integer[size];
+        for (int w = 0; w < this.workers.size(); w++) {
+            for (int r = 0; r < replicas; r++) {
+                final int i = w * replicas + r;
+                hashes[i] = hash(this.workers.get(w), r);
+                order[i] = i;
+            }
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return Long.compare(hashes[a], hashes[b]);
+            }
+        });
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = this.workers.get(order[i] / replicas);
+        }
+    }
+
+    /**
+     * This ring with a worker added.
+     *
+     * @param worker the worker name
+     * @return the new ring
+     */
+    public HashRing with(final String worker) {
+        final List<String> added = new ArrayList<>(workers);
+        added.add(worker);
+        return new HashRing(added, replicas);
+    }
+
+    /**
+     * This ring with a worker removed.
+     *
+     * @param worker the worker name
+     * @return the new ring
+     */
+    public HashRing without(final String worker) {
+        final List<String> removed = new ArrayList<>(workers);
+        removed.remove(worker);
+        return new HashRing(removed, replicas);
+    }
+
+    /**
+     * The workers, sorted.
+     *
+     * @return the worker names
+     */
+    public List<String> getWorkers() {
+        return workers;
+    }
+
+    /**
+     * The worker a machine belongs to.
+     *
+     * @param machineId the machine
+     * @return the worker name, or null if there are no workers
+     */
+    public String owner(final int machineId) {
+        if (points.length == 0) {
+            return null;
+        }
+        final long hash = mix(machineId);
+        int at = Arrays.binarySearch(points, hash);
+        if (at < 0) {
+            at = -at - 1;
+        }
+        if (at == points.length) {
+            at = 0;
+        }
+        return owners[at];
+    }
+
+    /**
+     * The hash of one of a worker's points.
+     *
+     * @param worker  the worker name
+     * @param replica which point
+     * @return the hash
+     */
+    private static long hash(final String worker, final int replica) {
+        long hash = FNV_OFFSET;
+        for (byte b : worker.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & BYTE;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash ^ replica);
+    }
+
+    /**
+     * Spread the bits of a key (the MurmurHash3 finalizer).
+     *
+     * @param key the key
+     * @return the hash
+     */
+    private static long mix(final long key) {
+        long h = key;
+        h ^= h >>> MIX_SHIFT;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> MIX_SHIFT;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> MIX_SHIFT;
+        return h;
+    }
+}
@@ -0,0 +1,467 @@
+package kata.vending.shard;
+
+import kata.vending.Machine;
+import kata.vending.gateway.Command;
+import kata.vending.gateway.GatewayClient;
+import kata.vending.gateway.Response;
+import kata.vending.gateway.Status;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hosts a fleet on several gateway workers, usually separate processes,
+ * placing each machine id on a worker with a HashRing and forwarding
+ * operations to it over the gateway Protocol.
+ * <p/>
+ * When a worker joins or leaves, the machines whose owner changes are
+ * handed over: RELEASE on the old worker sends the machine back as a
+ * MachineCodec record, and RESTORE sends the same record to the new one.
+ * Operations share a read lock and a handoff takes the write lock, so no
+ * operation runs against a machine while it moves.  Operations on
+ * different workers run in parallel; each worker's connection is used by
+ * one caller at a time.  Workers must be leaving gracefully, since their
+ * machines are fetched from them.
+ * <p/>
+ * A worker that doesn't answer within the timeout fails the operation or
+ * handoff with an IOException rather than holding the router up, and its
+ * connection is closed.  Its machines can't be fetched from it any more,
+ * so it can't leave; forget drops it and reports its machines as lost, and
+ * it can then join again, empty, or its machines be registered elsewhere.
+ */
+public final class ShardRouter implements Closeable {
+    /**
+     * How long to wait for a worker's response unless told otherwise.
+     */
+    public static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Guards the ring and the connections.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Points per worker on the ring.
+     */
+    private final int replicas;
+
+    /**
+     * How long to wait for a worker's response.
+     */
+    private final int timeoutMillis;
+
+    /**
+     * Where machines live.
+     */
+    private HashRing ring;
+
+    /**
+     * A connection per worker.
+     */
+    private final Map<String, GatewayClient> clients = new HashMap<>();
+
+    /**
+     * Every machine id placed.
+     */
+    private final Set<Integer> machines = ConcurrentHashMap.newKeySet();
+
+    /**
+     * ShardRouter constructor with the default points per worker.
+     */
+    public ShardRouter() {
+        this(HashRing.DEFAULT_REPLICAS);
+    }
+
+    /**
+     * ShardRouter constructor with the default timeout.
+     *
+     * @param replicas points per worker on the ring
+     */
+    public ShardRouter(final int replicas) {
+        this(replicas, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * ShardRouter constructor.
+     *
+     * @param replicas      points per worker on the ring
+     * @param timeoutMillis how long to wait for a worker's response; 0
+     *                      waits as long as it takes
+     */
+    public ShardRouter(final int replicas, final int timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "negative timeout: " + timeoutMillis);
+        }
+        this.replicas = replicas;
+        this.timeoutMillis = timeoutMillis;
+        this.ring = new HashRing(Collections.<String>emptyList(), replicas);
+    }
+
+    /**
+     * Add a worker and hand it the machines that now belong to it.  If a
+     * handoff fails the machines already moved are moved back and the
+     * worker isn't added.
+     *
+     * @param worker  the worker's name
+     * @param address where its gateway listens
+     * @return how many machines moved to it
+     * @throws IOException if it can't be reached or a handoff fails
+     */
+    public int join(final String worker, final InetSocketAddress address)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (clients.containsKey(worker)) {
+                throw new IllegalArgumentException(
+                        "worker already joined: " + worker);
+            }
+            final GatewayClient client =
+                    new GatewayClient(address, timeoutMillis);
+            clients.put(worker, client);
+            try {
+                return rebalance(ring.with(worker));
+            } catch (IOException e) {
+                clients.remove(worker);
+                client.close();
+                throw e;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hand a worker's machines to the others and stop using it.  The
+     * worker process itself is left running.  Throws
+     * IllegalArgumentException for a worker that hasn't joined, and
+     * IllegalStateException if it is the last worker and has machines.
+     *
+     * @param worker the worker's name
+     * @return how many machines moved off it
+     * @throws IOException if a handoff fails; the worker stays, and if it
+     *                     has stopped answering it has to be forgotten
+     */
+    public int leave(final String worker) throws IOException {
+        lock.writeLock().lock();
+        try {
+            final GatewayClient client = clients.get(worker);
+            if (client == null) {
+                throw new IllegalArgumentException("no worker " + worker);
+            }
+            final HashRing smaller = ring.without(worker);
+            if (smaller.getWorkers().isEmpty() && !machines.isEmpty()) {
+                throw new IllegalStateException(
+                        "last worker still has machines");
+            }
+            final int moved = rebalance(smaller);
+            clients.remove(worker);
+            client.close();
+            return moved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop a worker that can't hand its machines over, say one that has
+     * timed out or died, without asking it for them.  Its machines are no
+     * longer placed; register them again from wherever they can be
+     * recovered.  Throws IllegalArgumentException for a worker that hasn't
+     * joined.
+     *
+     * @param worker the worker's name
+     * @return the ids of the machines it had, sorted
+     */
+    public List<Integer> forget(final String worker) {
+        lock.writeLock().lock();
+        try {
+            final GatewayClient client = clients.remove(worker);
+            if (client == null) {
+                throw new IllegalArgumentException("no worker " + worker);
+            }
+            final List<Integer> lost = new ArrayList<>();
+            for (Integer machineId : machines) {
+                if (worker.equals(ring.owner(machineId))) {
+                    lost.add(machineId);
+                }
+            }
+            machines.removeAll(lost);
+            ring = ring.without(worker);
+            Collections.sort(lost);
+            try {
+                client.close();
+            } catch (IOException e) {
+                return lost;
+            }
+            return lost;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Place a machine on its worker, replacing any machine with the id.
+     * Throws IllegalStateException if there are no workers.
+     *
+     * @param machineId the id
+     * @param machine   the machine
+     * @return the worker's response
+     * @throws IOException if the worker can't be reached
+     */
+    public Response register(final int machineId, final Machine machine)
+            throws IOException {
+        lock.readLock().lock();
+        try {
+            final Response response =
+                    restore(client(machineId), machineId, machine);
+            if (response.getStatus() == Status.OK) {
+                machines.add(machineId);
+            }
+            return response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forward an operation to a machine's worker.  Throws
+     * IllegalStateException if there are no workers.
+     *
+     * @param machineId the machine
+     * @param command   the command
+     * @param argument  Currency or Product ordinal, or 0
+     * @return the worker's response
+     * @throws IOException if the worker can't be reached
+     */
+    public Response call(final int machineId, final Command command,
+                         final int argument) throws IOException {
+        if (command == Command.RELEASE || command == Command.RESTORE) {
+            throw new IllegalArgumentException(
+                    command + " is only used for handoff");
+        }
+        lock.readLock().lock();
+        try {
+            final GatewayClient client = client(machineId);
+            synchronized (client) {
+                return client.call(machineId, command, argument);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The worker a machine is on.
+     *
+     * @param machineId the machine
+     * @return the worker's name, or null if there are no workers
+     */
+    public String owner(final int machineId) {
+        lock.readLock().lock();
+        try {
+            return ring.owner(machineId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The workers.
+     *
+     * @return the worker names, sorted
+     */
+    public List<String> getWorkers() {
+        lock.readLock().lock();
+        try {
+            return ring.getWorkers();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * How many machines are placed.
+     *
+     * @return the count
+     */
+    public int size() {
+        return machines.size();
+    }
+
+    /**
+     * Close the connection to every worker.  The workers keep running.
+     *
+     * @throws IOException if closing a connection fails
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (GatewayClient client : clients.values()) {
+                client.close();
+            }
+            clients.clear();
+            ring = new HashRing(Collections.<String>emptyList(), replicas);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move every machine whose owner differs on a new ring, then switch to
+     * it.  Holds the write lock.  If a move fails, the moves already made
+     * are undone and the old ring stays; an undo that fails too is added
+     * to the failure, and its machine is left where the undo found it.
+     *
+     * @param next the new ring
+     * @return how many machines moved
+     * @throws IOException if a move fails
+     */
+    private int rebalance(final HashRing next) throws IOException {
+        final List<Integer> moved = new ArrayList<>();
+        final List<String> froms = new ArrayList<>();
+        final List<String> tos = new ArrayList<>();
+        try {
+            for (Integer machineId : machines) {
+                final String from = ring.owner(machineId);
+                final String to = next.owner(machineId);
+                if (to != null && !to.equals(from)) {
+                    move(machineId, from, to);
+                    moved.add(machineId);
+                    froms.add(from);
+                    tos.add(to);
+                }
+            }
+        } catch (IOException e) {
+            for (int i = moved.size() - 1; i >= 0; i--) {
+                try {
+                    move(moved.get(i), tos.get(i), froms.get(i));
+                } catch (IOException undo) {
+                    e.addSuppressed(undo);
+                }
+            }
+            throw e;
+        }
+        ring = next;
+        return moved.size();
+    }
+
+    /**
+     * Hand a machine from one worker to another.  If the new worker doesn't
+     * take it, it is put back on the old one.  If the RELEASE itself fails
+     * the machine may be on the old worker or, if it answered too late, on
+     * no worker at all; the old worker's connection is closed so nothing
+     * else is sent to it, and it has to be forgotten, which reports the
+     * machine as lost.
+     *
+     * @param machineId the machine
+     * @param from      the worker it is on
+     * @param to        the worker it goes to
+     * @throws IOException if either worker fails
+     */
+    private void move(final int machineId, final String from,
+                      final String to) throws IOException {
+        final GatewayClient source = clients.get(from);
+        final Response released;
+        try {
+            released = source.call(machineId, Command.RELEASE, 0);
+        } catch (IOException e) {
+            final IOException unknown = new IOException("worker " + from
+                    + " may have released " + machineId + "; forget it", e);
+            try {
+                source.close();
+            } catch (IOException closing) {
+                unknown.addSuppressed(closing);
+            }
+            throw unknown;
+        }
+        if (released.getStatus() != Status.OK) {
+            throw new IOException("worker " + from + " can't release "
+                    + machineId + ": " + released.getStatus());
+        }
+        final Machine machine = released.getMachine();
+        final Response restored;
+        try {
+            restored = restore(clients.get(to), machineId, machine);
+        } catch (IOException e) {
+            putBack(source, machineId, machine, e);
+            throw e;
+        }
+        if (restored.getStatus() != Status.OK) {
+            final IOException e = new IOException("worker " + to
+                    + " can't restore " + machineId + ": "
+                    + restored.getStatus());
+            putBack(source, machineId, machine, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Put a released machine back on the worker it came from after a
+     * handoff failed.  If that fails too it is added to the handoff's
+     * failure.
+     *
+     * @param source    the worker's connection
+     * @param machineId the id
+     * @param machine   the machine
+     * @param failure   why the handoff failed
+     */
+    private static void putBack(final GatewayClient source,
+                                final int machineId, final Machine machine,
+                                final IOException failure) {
+        try {
+            final Response restored = restore(source, machineId, machine);
+            if (restored.getStatus() != Status.OK) {
+                failure.addSuppressed(new IOException("can't put back "
+                        + machineId + ": " + restored.getStatus()));
+            }
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Send a machine to a worker.
+     *
+     * @param client    the worker's connection
+     * @param machineId the id
+     * @param machine   the machine
+     * @return the worker's response
+     * @throws IOException if the worker can't be reached
+     */
+    private static Response restore(final GatewayClient client,
+                                    final int machineId,
+                                    final Machine machine)
+            throws IOException {
+        synchronized (client) {
+            client.sendRestore(machineId, machine);
+            client.flush();
+            return client.receive();
+        }
+    }
+
+    /**
+     * The connection to a machine's worker.
+     *
+     * @param machineId the machine
+     * @return the connection
+     */
+    private GatewayClient client(final int machineId) {
+        final String worker = ring.owner(machineId);
+        if (worker == null) {
+            throw new IllegalStateException("no workers");
+        }
+        return clients.get(worker);
+    }
+}
@@ -0,0 +1,170 @@
+package kata.vending.shard;
+
+import kata.vending.gateway.Gateway;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker process: a Gateway with no machines of its own, which a
+ * ShardRouter fills.  Run from the command line with
+ * <pre>
+ *   java kata.vending.shard.ShardWorker [port [lanes]]
+ * </pre>
+ * It listens on loopback, port 0 picking a free port, prints
+ * "LISTENING port" once it is ready, and runs until its standard input is
+ * closed, so it goes away with whatever started it.  launch starts one
+ * with this JVM's java, for running a fleet as several processes on one
+ * box.
+ */
+public final class ShardWorker implements Closeable {
+    /**
+     * What the worker prints before its port once it is listening.
+     */
+    public static final String READY = "LISTENING";
+
+    /**
+     * How long launch waits for a worker to close before killing it.
+     */
+    private static final long CLOSE_SECONDS = 10L;
+
+    /**
+     * The worker's name.
+     */
+    private final String name;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The worker process.
+     */
+    private final Process process;
+
+    /**
+     * Where the worker listens.
+     */
+    private final InetSocketAddress address;
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * ShardWorker constructor.
+     *
+     * @param name    the worker's name
+     * @param process the worker process
+     * @param address where it listens
+     */
+    private ShardWorker(final String name, final Process process,
+                        final InetSocketAddress address) {
+        this.name = name;
+        this.process = process;
+        this.address = address;
+    }
+
+    /**
+     * Start a worker process and wait until it is listening.
+     *
+     * @param name  the worker's name, for the router
+     * @param lanes how many lane threads it runs
+     * @return the running worker
+     * @throws IOException if it can't be started or exits early
+     */
+    public static ShardWorker launch(final String name, final int lanes)
+            throws IOException {
+        final String java = Paths.get(System.getProperty("java.home"),
+                "bin", "java").toString();
+        final Process process = new ProcessBuilder(java, "-cp", classPath(),
+                ShardWorker.class.getName(), "0", Integer.toString(lanes))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        final BufferedReader out = new BufferedReader(new InputStreamReader(
+                process.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        while (line != null && !line.startsWith(READY + " ")) {
+            line = out.readLine();
+        }
+        if (line == null) {
+            process.destroy();
+            throw new IOException("worker " + name + " exited before it was"
+                    + " listening");
+        }
+        final int port = Integer.parseInt(
+                line.substring(READY.length() + 1).trim());
+        return new ShardWorker(name, process, new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Where this class was loaded from, which holds everything a worker
+     * needs.  Test runners don't always put it on java.class.path.
+     *
+     * @return the class path for a worker
+     * @throws IOException if the location can't be worked out
+     */
+    private static String classPath() throws IOException {
+        try {
+            return Paths.get(ShardWorker.class.getProtectionDomain()
+                    .getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("can't find the worker classes", e);
+        }
+    }
+
+    /**
+     * Stop the worker by closing its standard input, killing it if it
+     * doesn't go.
+     *
+     * @throws IOException if its input can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        process.getOutputStream().close();
+        try {
+            if (!process.waitFor(CLOSE_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a worker until standard input closes.
+     *
+     * @param args optional port, then optional number of lanes
+     * @throws IOException if the gateway can't start
+     */
+    public static void main(final String[] args) throws IOException {
+        int port = 0;
+        if (args.length > 0) {
+            port = Integer.parseInt(args[0]);
+        }
+        final Gateway.Builder builder = new Gateway.Builder().address(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        if (args.length > 1) {
+            builder.lanes(Integer.parseInt(args[1]));
+        }
+        try (Gateway gateway = builder.build()) {
+            gateway.start();
+            System.out.println(READY + " " + gateway.getAddress().getPort());
+            System.out.flush();
+            int read = System.in.read();
+            while (read >= 0) {
+                read = System.in.read();
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Machines spread over several gateway worker processes by consistent
+ * hashing, with a router that forwards operations and hands machines over
+ * when workers join or leave.
+ */
+package kata.vending.shard;
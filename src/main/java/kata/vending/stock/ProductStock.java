@@ -0,0 +1,330 @@
+package kata.vending.stock;
+
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.LongSupplier;
+
+/**
+ * The product stock of a machine with several doors, shared by every door.
+ * A customer reserves a unit before paying, and the vend consumes the
+ * reservation, so two customers can never pay for the same last unit.
+ * <p/>
+ * Stock is one atomic counter per product ordinal and reservations move
+ * between states by compare-and-set, so nothing takes a lock and doors
+ * buying different products never touch the same counter.  Unvended
+ * reservations expire after a fixed time and their units go back on sale.
+ * Every reserve first sweeps the oldest reservations, dropping finished ones
+ * and expiring stale ones, so only those younger than the time to live (and
+ * any mid-vend) are ever kept, however well stocked the machine is.
+ */
+public final class ProductStock {
+    /**
+     * How long a reservation lasts unless told otherwise.
+     */
+    public static final long DEFAULT_TTL_MILLIS = 30000L;
+
+    /**
+     * Units on sale, by product ordinal.  Reserved units aren't counted.
+     */
+    private final AtomicIntegerArray available;
+
+    /**
+     * Reservations not yet known to be finished, oldest first.  They all
+     * last the same time, so this is also deadline order.
+     */
+    private final ConcurrentLinkedQueue<Reservation> outstanding =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * How long a reservation lasts, in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * The clock, in System.nanoTime terms.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Builder for the ProductStock class.
+     */
+    public static class Builder {
+        /**
+         * Builder inventory.
+         */
+        private Inventory<Product> inventory;
+
+        /**
+         * Builder ttlMillis.
+         */
+        private long ttlMillis = DEFAULT_TTL_MILLIS;
+
+        /**
+         * Builder clock.
+         */
+        private LongSupplier clock = System::nanoTime;
+
+        /**
+         * Builder setter for inventory.
+         *
+         * @param inventory the stock to start with
+         * @return this Builder
+         */
+        public final Builder inventory(final Inventory<Product> inventory) {
+            this.inventory = inventory;
+            return this;
+        }
+
+        /**
+         * Builder setter for ttlMillis.
+         *
+         * @param ttlMillis how long a reservation lasts
+         * @return this Builder
+         */
+        public final Builder ttlMillis(final long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Builder setter for clock.
+         *
+         * @param clock the clock, in System.nanoTime terms
+         * @return this Builder
+         */
+        public final Builder clock(final LongSupplier clock) {
+            if (clock == null) {
+                return this;
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Build the stock.
+         *
+         * @return the stock
+         */
+        public final ProductStock build() {
+            return new ProductStock(this);
+        }
+    }
+
+    /**
+     * ProductStock constructor.
+     *
+     * @param builder the builder
+     */
+    private ProductStock(final Builder builder) {
+        if (builder.ttlMillis <= 0L) {
+            throw new IllegalArgumentException(
+                    "ttl must be positive: " + builder.ttlMillis);
+        }
+        final Product[] products = Product.values();
+        this.available = new AtomicIntegerArray(products.length);
+        if (builder.inventory != null) {
+            for (Product product : products) {
+                available.set(product.ordinal(),
+                        builder.inventory.quantity(product));
+            }
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(builder.ttlMillis);
+        this.clock = builder.clock;
+    }
+
+    /**
+     * Set aside one unit of a product.
+     *
+     * @param product the product
+     * @return the reservation, or null if the product is sold out
+     */
+    public Reservation reserve(final Product product) {
+        if (product == null) {
+            return null;
+        }
+        expire();
+        final int i = product.ordinal();
+        int units = available.get(i);
+        while (units > 0 && !available.compareAndSet(i, units, units - 1)) {
+            units = available.get(i);
+        }
+        if (units <= 0) {
+            return null;
+        }
+        final Reservation reservation =
+                new Reservation(this, product, clock.getAsLong() + ttlNanos);
+        outstanding.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * Give a reserved unit back.
+     *
+     * @param reservation the reservation
+     * @return false if it was not this stock's, or was no longer held
+     */
+    public boolean release(final Reservation reservation) {
+        if (reservation == null || reservation.getStock() != this
+                || !reservation.move(Reservation.HELD, Reservation.RELEASED)) {
+            return false;
+        }
+        available.incrementAndGet(reservation.getProduct().ordinal());
+        return true;
+    }
+
+    /**
+     * Vend the reserved product from a door.  The door's own inventory is
+     * ignored: it sees one unit of the reserved product if the reservation
+     * is held, and none otherwise.  A vend that goes through consumes the
+     * reservation; one that doesn't (not enough money, say), or that
+     * throws, leaves it held for another try.  Either way the machine
+     * returned carries the shared stock as its inventory.
+     *
+     * @param door        the door's machine
+     * @param reservation the customer's reservation
+     * @return the door's machine after the vend
+     */
+    public Machine vend(final Machine door, final Reservation reservation) {
+        final Inventory<Product> none = new Inventory<>(Product.values());
+        if (reservation == null || reservation.getStock() != this
+                || !pin(reservation)) {
+            Product product = null;
+            if (reservation != null) {
+                product = reservation.getProduct();
+            }
+            final Machine refused = new Machine.Builder(door)
+                    .inventory(none)
+                    .build()
+                    .vend(product);
+            return new Machine.Builder(refused)
+                    .inventory(toInventory())
+                    .build();
+        }
+        final Product product = reservation.getProduct();
+        Machine vended = null;
+        try {
+            vended = new Machine.Builder(door)
+                    .inventory(none.add(product))
+                    .build()
+                    .vend(product);
+        } finally {
+            if (vended != null
+                    && vended.getInventory().quantity(product) == 0) {
+                reservation.move(Reservation.VENDING, Reservation.CONSUMED);
+            } else {
+                reservation.move(Reservation.VENDING, Reservation.HELD);
+            }
+        }
+        return new Machine.Builder(vended).inventory(toInventory()).build();
+    }
+
+    /**
+     * Give back the units of every reservation that has expired, and drop
+     * finished reservations from the oldest up to the first one still in
+     * time.  A reservation past its deadline but mid-vend is left for the
+     * vend to finish and the sweep carries on behind it.
+     *
+     * @return how many units went back on sale
+     */
+    public int expire() {
+        final Reservation head = outstanding.peek();
+        if (head == null || (head.state() == Reservation.HELD
+                && !isPast(head.getDeadline()))) {
+            return 0;
+        }
+        int expired = 0;
+        final Iterator<Reservation> oldest = outstanding.iterator();
+        while (oldest.hasNext()) {
+            final Reservation next = oldest.next();
+            final int state = next.state();
+            if (state == Reservation.HELD || state == Reservation.VENDING) {
+                if (!isPast(next.getDeadline())) {
+                    break;
+                }
+                if (!next.move(Reservation.HELD, Reservation.EXPIRED)) {
+                    continue;
+                }
+                available.incrementAndGet(next.getProduct().ordinal());
+                expired++;
+            }
+            oldest.remove();
+        }
+        return expired;
+    }
+
+    /**
+     * How many reservations are kept for sweeping.
+     *
+     * @return the count
+     */
+    int outstanding() {
+        return outstanding.size();
+    }
+
+    /**
+     * Put more of a product on sale.
+     *
+     * @param product  the product
+     * @param quantity how many units
+     */
+    public void restock(final Product product, final int quantity) {
+        available.addAndGet(product.ordinal(), quantity);
+    }
+
+    /**
+     * Units of a product on sale, not counting reserved ones.
+     *
+     * @param product the product
+     * @return the count
+     */
+    public int available(final Product product) {
+        return available.get(product.ordinal());
+    }
+
+    /**
+     * The units on sale, as an inventory.
+     *
+     * @return the inventory
+     */
+    public Inventory<Product> toInventory() {
+        Inventory<Product> inventory = new Inventory<>(Product.values());
+        for (Product product : Product.values()) {
+            inventory = inventory.add(product, available(product));
+        }
+        return inventory;
+    }
+
+    /**
+     * Whether a deadline has passed.
+     *
+     * @param deadline the deadline
+     * @return true if it has
+     */
+    boolean isPast(final long deadline) {
+        return clock.getAsLong() - deadline >= 0L;
+    }
+
+    /**
+     * Pin a held reservation for a vend, or expire it if it ran out of
+     * time.
+     *
+     * @param reservation the reservation
+     * @return true if it is pinned
+     */
+    private boolean pin(final Reservation reservation) {
+        if (isPast(reservation.getDeadline())) {
+            if (reservation.move(Reservation.HELD, Reservation.EXPIRED)) {
+                available.incrementAndGet(
+                        reservation.getProduct().ordinal());
+            }
+            return false;
+        }
+        return reservation.move(Reservation.HELD, Reservation.VENDING);
+    }
+}
@@ -0,0 +1,121 @@
+package kata.vending.stock;
+
+import kata.vending.Product;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One unit of a product set aside for a customer until it is vended,
+ * released, or expires.  Made by ProductStock.reserve.
+ */
+public final class Reservation {
+    /**
+     * Set aside and waiting.
+     */
+    static final int HELD = 0;
+
+    /**
+     * Pinned while a vend is using it; can't expire.
+     */
+    static final int VENDING = 1;
+
+    /**
+     * Vended; the unit is gone.
+     */
+    static final int CONSUMED = 2;
+
+    /**
+     * Given back by the customer.
+     */
+    static final int RELEASED = 3;
+
+    /**
+     * Given back because it was held too long.
+     */
+    static final int EXPIRED = 4;
+
+    /**
+     * The stock it was taken from.
+     */
+    private final ProductStock stock;
+
+    /**
+     * The product reserved.
+     */
+    private final Product product;
+
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * When it expires, in System.nanoTime terms.
+     */
+    private final long deadline;
+
+    /**
+     * Where it is in its life.
+     */
+    private final AtomicInteger state = new AtomicInteger(HELD);
+
+    /**
+     * Reservation constructor.
+     *
+     * @param stock    the stock it was taken from
+     * @param product  the product reserved
+     * @param deadline when it expires
+     */
+    Reservation(final ProductStock stock, final Product product,
+                final long deadline) {
+        this.stock = stock;
+        this.product = product;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Whether the unit is still set aside for the customer.
+     *
+     * @return true if it can still be vended
+     */
+    public boolean isHeld() {
+        return state.get() == HELD && !stock.isPast(deadline);
+    }
+
+    /**
+     * The stock it was taken from.
+     *
+     * @return the stock
+     */
+    ProductStock getStock() {
+        return stock;
+    }
+
+    /**
+     * When it expires.
+     *
+     * @return the deadline
+     */
+    long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Move from one state to another, if it is still in the first.
+     *
+     * @param from the expected state
+     * @param to   the new state
+     * @return true if it moved
+     */
+    boolean move(final int from, final int to) {
+        return state.compareAndSet(from, to);
+    }
+
+    /**
+     * Where it is in its life.
+     *
+     * @return the state
+     */
+    int state() {
+        return state.get();
+    }
+}
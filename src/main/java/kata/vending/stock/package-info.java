@@ -0,0 +1,5 @@
+/**
+ * Product stock shared by several doors of one machine, with lock-free
+ * reservations so concurrent customers never buy the same last unit.
+ */
+package kata.vending.stock;
@@ -0,0 +1,53 @@
+package kata.vending.wallet;
+
+/**
+ * A debit waiting to be posted to the ledger.  Immutable.
+ */
+public final class Debit {
+    /**
+     * The account to debit.
+     */
+    private final long account;
+
+    public long getAccount() {
+        return account;
+    }
+
+    /**
+     * The transaction id; posting the same one twice debits once.
+     */
+    private final long transaction;
+
+    public long getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * The amount in cents.
+     */
+    private final long cents;
+
+    public long getCents() {
+        return cents;
+    }
+
+    /**
+     * Debit constructor.
+     *
+     * @param account     the account to debit
+     * @param transaction the transaction id
+     * @param cents       the amount in cents
+     */
+    public Debit(final long account, final long transaction,
+                 final long cents) {
+        this.account = account;
+        this.transaction = transaction;
+        this.cents = cents;
+    }
+
+    @Override
+    public String toString() {
+        return "Debit{account=" + account + ", transaction=" + transaction
+                + ", cents=" + cents + "}";
+    }
+}
@@ -0,0 +1,32 @@
+package kata.vending.wallet;
+
+/**
+ * What happened to a credit or debit posted to the ledger.
+ */
+public enum Posting {
+    /**
+     * The balance was changed.
+     */
+    APPLIED,
+
+    /**
+     * The transaction had already been applied; nothing changed.
+     */
+    DUPLICATE,
+
+    /**
+     * The transaction is too far below the account's newest for the ledger
+     * to tell whether it was applied; nothing changed.
+     */
+    STALE,
+
+    /**
+     * The balance is too low for the debit; nothing changed.
+     */
+    INSUFFICIENT_FUNDS,
+
+    /**
+     * There is no such account; nothing changed.
+     */
+    NO_ACCOUNT
+}
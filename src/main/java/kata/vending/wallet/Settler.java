@@ -0,0 +1,557 @@
+package kata.vending.wallet;
+
+import kata.vending.Product;
+import kata.vending.Tender;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pays for vends from a WalletLedger without making the machine wait on
+ * it.  A vend only authorizes: it checks the balance with an optimistic
+ * read, puts a hold on the amount, and queues the debit.  A background
+ * thread posts the queued debits to the ledger in batches and then lets
+ * the holds go.  Until a debit is posted its hold counts against the
+ * account, so one account can't be spent twice over on the same settler.
+ * Holds are kept like the ledger keeps balances, in striped open-addressed
+ * tables of longs, and a vend never waits on the ledger's locks.
+ * <p/>
+ * Another writer can still take an account's balance below its holds (a
+ * second settler, say), in which case the debit is declined when it is
+ * posted; the product has already been vended by then, so declined debits
+ * are kept for someone to chase up.
+ */
+public final class Settler implements Closeable {
+    /**
+     * Debits posted in a batch unless told otherwise.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    /**
+     * How long the background thread waits between batches unless told
+     * otherwise.
+     */
+    public static final long DEFAULT_INTERVAL_MILLIS = 10L;
+
+    /**
+     * Stripes of the hold table.
+     */
+    private static final int HOLD_STRIPES = 64;
+
+    /**
+     * Bits to shift a hash to pick the hold stripe.
+     */
+    private static final int STRIPE_SHIFT = 32;
+
+    /**
+     * The ledger.
+     */
+    private final WalletLedger ledger;
+
+    /**
+     * Most debits posted in a batch.
+     */
+    private final int batchSize;
+
+    /**
+     * Wait between batches.
+     */
+    private final long intervalMillis;
+
+    /**
+     * Debits waiting to be posted.
+     */
+    private final ConcurrentLinkedQueue<Debit> queue =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * How many debits are queued.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Cents held per account until its debits are posted, by stripe.
+     */
+    private final Holds[] holds = new Holds[HOLD_STRIPES];
+
+    /**
+     * Account and transaction ids queued and not yet posted.
+     */
+    private final Set<Queued> queued = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Debits the ledger declined when they were posted.
+     */
+    private final ConcurrentLinkedQueue<Debit> declined =
+            new ConcurrentLinkedQueue<>();
+
+    /**
+     * Serializes posting, so debits reach the ledger in the order queued.
+     */
+    private final Object posting = new Object();
+
+    /**
+     * Set once closed; authorizations are declined after that.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The background thread; null until started.
+     */
+    private Thread thread;
+
+    /**
+     * Builder for the Settler class.
+     */
+    public static class Builder {
+        /**
+         * Builder ledger.
+         */
+        private WalletLedger ledger;
+
+        /**
+         * Builder batchSize.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        /**
+         * Builder intervalMillis.
+         */
+        private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+        /**
+         * Builder setter for ledger.
+         *
+         * @param ledger the ledger to settle to
+         * @return this Builder
+         */
+        public final Builder ledger(final WalletLedger ledger) {
+            this.ledger = ledger;
+            return this;
+        }
+
+        /**
+         * Builder setter for batchSize.
+         *
+         * @param batchSize most debits posted in a batch
+         * @return this Builder
+         */
+        public final Builder batchSize(final int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Builder setter for intervalMillis.
+         *
+         * @param intervalMillis how long the background thread waits
+         *                       between batches
+         * @return this Builder
+         */
+        public final Builder intervalMillis(final long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+            return this;
+        }
+
+        /**
+         * Build the settler.  Debits are only posted by settle until it is
+         * started.
+         *
+         * @return the settler
+         */
+        public final Settler build() {
+            return new Settler(this);
+        }
+    }
+
+    /**
+     * Settler constructor.
+     *
+     * @param builder the builder
+     */
+    private Settler(final Builder builder) {
+        if (builder.ledger == null) {
+            throw new IllegalArgumentException("no ledger");
+        }
+        if (builder.batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "batch size must be positive: " + builder.batchSize);
+        }
+        this.ledger = builder.ledger;
+        this.batchSize = builder.batchSize;
+        this.intervalMillis = Math.max(1L, builder.intervalMillis);
+        for (int i = 0; i < HOLD_STRIPES; i++) {
+            holds[i] = new Holds();
+        }
+    }
+
+    /**
+     * Start the background thread.
+     */
+    public synchronized void start() {
+        if (thread != null || closed) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "wallet-settler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * A tender that pays from an account.
+     *
+     * @param account     the account id
+     * @param transaction the transaction id for the vend
+     * @return the tender
+     */
+    public Tender tender(final long account, final long transaction) {
+        return new Tender() {
+            @Override
+            public boolean charge(final Product product, final long cents) {
+                return authorize(account, transaction, cents);
+            }
+        };
+    }
+
+    /**
+     * Hold an amount on an account and queue the debit.  Never waits on
+     * settlement.  A transaction id that is queued for the account, or
+     * already applied to it, is declined rather than charged again.  If
+     * the settler closes while the debit is being queued, close may already
+     * have posted its last batch, so the debit is posted here instead.
+     *
+     * @param account     the account id
+     * @param transaction the transaction id
+     * @param cents       the amount
+     * @return true if the debit was queued, false if it was declined
+     */
+    public boolean authorize(final long account, final long transaction,
+                             final long cents) {
+        final Queued key = new Queued(account, transaction);
+        if (closed || cents < 0L || !queued.add(key)) {
+            return false;
+        }
+        if (ledger.isApplied(account, transaction)
+                || !holds(account).hold(ledger, account, cents)) {
+            queued.remove(key);
+            return false;
+        }
+        queue.offer(new Debit(account, transaction, cents));
+        pending.incrementAndGet();
+        if (closed) {
+            drain();
+        }
+        return true;
+    }
+
+    /**
+     * What an account can still spend: its balance less its holds.
+     *
+     * @param account the account id
+     * @return the cents available, or WalletLedger.NO_BALANCE if the
+     *         account isn't open
+     */
+    public long available(final long account) {
+        final long balance = ledger.balance(account);
+        if (balance == WalletLedger.NO_BALANCE) {
+            return balance;
+        }
+        return balance - holds(account).held(account);
+    }
+
+    /**
+     * Post one batch of queued debits to the ledger.
+     *
+     * @return how many debits were posted
+     */
+    public int settle() {
+        synchronized (posting) {
+            final List<Debit> batch = new ArrayList<>();
+            Debit debit = queue.poll();
+            while (debit != null) {
+                batch.add(debit);
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                debit = queue.poll();
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            final Posting[] postings = ledger.debit(batch);
+            for (int i = 0; i < postings.length; i++) {
+                final Debit posted = batch.get(i);
+                holds(posted.getAccount()).release(posted.getAccount(),
+                        posted.getCents());
+                queued.remove(new Queued(posted.getAccount(),
+                        posted.getTransaction()));
+                if (postings[i] != Posting.APPLIED
+                        && postings[i] != Posting.DUPLICATE) {
+                    declined.add(posted);
+                }
+            }
+            pending.addAndGet(-batch.size());
+            return batch.size();
+        }
+    }
+
+    /**
+     * How many debits are waiting to be posted.
+     *
+     * @return the count
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * The debits the ledger declined, oldest first.
+     *
+     * @return a copy of the declined debits
+     */
+    public List<Debit> getDeclined() {
+        return new ArrayList<>(declined);
+    }
+
+    /**
+     * Decline further authorizations, stop the background thread, and post
+     * everything still queued.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Post everything queued.
+     */
+    private void drain() {
+        int posted = settle();
+        while (posted > 0) {
+            posted = settle();
+        }
+    }
+
+    /**
+     * The background thread: settle until closed.
+     */
+    private void loop() {
+        while (!closed) {
+            if (settle() < batchSize) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The hold stripe an account lives in.
+     *
+     * @param account the account id
+     * @return the stripe
+     */
+    private Holds holds(final long account) {
+        return holds[(int) (WalletLedger.mix(account) >>> STRIPE_SHIFT)
+                & (HOLD_STRIPES - 1)];
+    }
+
+    /**
+     * One stripe of holds: account id then cents held, per slot, linear
+     * probing over a flat long array grown at half full.  An account keeps
+     * its slot once it has had a hold, as the ledger keeps its accounts.
+     */
+    private static final class Holds {
+        /**
+         * Marks a free slot; not allowed as an account id.
+         */
+        private static final long FREE = Long.MIN_VALUE;
+
+        /**
+         * Slots in a new table.
+         */
+        private static final int INITIAL_SLOTS = 16;
+
+        /**
+         * Account id then cents held, per slot.
+         */
+        private long[] table = free(INITIAL_SLOTS);
+
+        /**
+         * Accounts in the table.
+         */
+        private int accounts;
+
+        /**
+         * A table of free slots.
+         *
+         * @param slots how many slots
+         * @return the table
+         */
+        private static long[] free(final int slots) {
+            final long[] free = new long[slots * 2];
+            for (int i = 0; i < free.length; i += 2) {
+                free[i] = FREE;
+            }
+            return free;
+        }
+
+        /**
+         * Find the slot for an account.
+         *
+         * @param in      the table
+         * @param account the account id
+         * @return the index of the account's slot, or of the free slot
+         *         where it would go
+         */
+        private static int find(final long[] in, final long account) {
+            final int slots = in.length / 2;
+            int slot = (int) WalletLedger.mix(account) & (slots - 1);
+            while (in[slot * 2] != FREE && in[slot * 2] != account) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            return slot * 2;
+        }
+
+        /**
+         * The cents held on an account.
+         *
+         * @param account the account id
+         * @return the cents held
+         */
+        private synchronized long held(final long account) {
+            final int at = find(table, account);
+            if (table[at] == FREE) {
+                return 0L;
+            }
+            return table[at + 1];
+        }
+
+        /**
+         * Hold an amount on an account if its balance covers it on top of
+         * what is already held.  The balance is read under this stripe's
+         * monitor, so a release can't slip in between the read and the
+         * hold.
+         *
+         * @param ledger  the ledger
+         * @param account the account id
+         * @param cents   the amount
+         * @return true if the hold was taken
+         */
+        private synchronized boolean hold(final WalletLedger ledger,
+                                          final long account,
+                                          final long cents) {
+            final long balance = ledger.balance(account);
+            if (balance == WalletLedger.NO_BALANCE
+                    || balance - held(account) < cents) {
+                return false;
+            }
+            int at = find(table, account);
+            if (table[at] == FREE) {
+                if ((accounts + 1) * 2 > table.length / 2) {
+                    table = grow(table);
+                    at = find(table, account);
+                }
+                table[at] = account;
+                table[at + 1] = 0L;
+                accounts++;
+            }
+            table[at + 1] += cents;
+            return true;
+        }
+
+        /**
+         * Let go of a hold.
+         *
+         * @param account the account id
+         * @param cents   the amount
+         */
+        private synchronized void release(final long account,
+                                          final long cents) {
+            final int at = find(table, account);
+            if (table[at] != FREE) {
+                table[at + 1] = Math.max(0L, table[at + 1] - cents);
+            }
+        }
+
+        /**
+         * Copy a table into one twice the size.
+         *
+         * @param from the table
+         * @return the new table
+         */
+        private static long[] grow(final long[] from) {
+            final long[] grown = free(from.length);
+            for (int i = 0; i < from.length; i += 2) {
+                if (from[i] != FREE) {
+                    final int at = find(grown, from[i]);
+                    grown[at] = from[i];
+                    grown[at + 1] = from[i + 1];
+                }
+            }
+            return grown;
+        }
+    }
+
+    /**
+     * An account and transaction id pair, for the set of queued debits.
+     */
+    private static final class Queued {
+        /**
+         * The account id.
+         */
+        private final long account;
+
+        /**
+         * The transaction id.
+         */
+        private final long transaction;
+
+        /**
+         * Queued constructor.
+         *
+         * @param account     the account id
+         * @param transaction the transaction id
+         */
+        private Queued(final long account, final long transaction) {
+            this.account = account;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Queued)) {
+                return false;
+            }
+            final Queued that = (Queued) other;
+            return account == that.account && transaction == that.transaction;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(WalletLedger.mix(account) ^ transaction);
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package kata.vending.wallet;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Account balances in cents, for millions of accounts.  Accounts are split
+ * across stripes by hash, and each stripe keeps its balances in one
+ * open-addressed array of longs, so there is no boxing and no per-account
+ * object.  Each stripe has its own lock: writers to different stripes never
+ * meet, and reads are optimistic and never park on the lock; they retry
+ * only while a write to the same stripe is in progress.
+ * <p/>
+ * Credits and debits carry a transaction id and are idempotent: posting a
+ * transaction the account has already seen changes nothing.  Transaction
+ * ids are per account and should rise, as a terminal's counter does.  An
+ * account remembers only its newest transaction id and which of the WINDOW
+ * ids below it were posted, so the memory per account is fixed however
+ * many transactions it sees.  An id further than that below the newest is
+ * refused as STALE, since the ledger can no longer tell whether it was
+ * posted.
+ */
+public final class WalletLedger {
+    /**
+     * Stripes unless told otherwise.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * What balance returns for an account that isn't open.
+     */
+    public static final long NO_BALANCE = -1L;
+
+    /**
+     * How far below an account's newest transaction id an id may be and
+     * still be posted.
+     */
+    public static final int WINDOW = Long.SIZE;
+
+    /**
+     * Marks a free slot; not allowed as an account id.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    /**
+     * Marks an account with no transactions yet; not allowed as a
+     * transaction id.
+     */
+    private static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Longs per account slot: the account id, its balance, its newest
+     * transaction id, and which of the ids below that were posted.
+     */
+    private static final int SLOT = 4;
+
+    /**
+     * Offset of the balance in a slot.
+     */
+    private static final int BALANCE = 1;
+
+    /**
+     * Offset of the newest transaction id in a slot.
+     */
+    private static final int NEWEST = 2;
+
+    /**
+     * Offset of the posted bits in a slot; bit n is set if the transaction
+     * n below the newest was posted, bit 0 being the newest itself.
+     */
+    private static final int SEEN = 3;
+
+    /**
+     * Slots in a new stripe table.
+     */
+    private static final int INITIAL_SLOTS = 16;
+
+    /**
+     * Bits to shift a hash to pick the stripe.
+     */
+    private static final int STRIPE_SHIFT = 32;
+
+    /**
+     * The stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Stripe index mask.
+     */
+    private final int mask;
+
+    /**
+     * WalletLedger constructor with the default stripes.
+     */
+    public WalletLedger() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * WalletLedger constructor.
+     *
+     * @param stripes how many stripes; a power of two
+     */
+    public WalletLedger(final int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException(
+                    "stripes must be a power of two: " + stripes);
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = stripes - 1;
+    }
+
+    /**
+     * Open an account.  Throws IllegalArgumentException for a negative
+     * balance or for Long.MIN_VALUE as the account id.
+     *
+     * @param account the account id
+     * @param cents   the opening balance
+     * @return false if the account was already open; its balance is left
+     *         alone
+     */
+    public boolean open(final long account, final long cents) {
+        check(account, cents);
+        final Stripe stripe = stripe(account);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.open(account, cents);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * The balance of an account.
+     *
+     * @param account the account id
+     * @return the balance in cents, or NO_BALANCE if the account isn't open
+     */
+    public long balance(final long account) {
+        final Stripe stripe = stripe(account);
+        long stamp;
+        long balance;
+        do {
+            stamp = optimistic(stripe.lock);
+            balance = stripe.balance(account);
+        } while (!stripe.lock.validate(stamp));
+        return balance;
+    }
+
+    /**
+     * Add to an account.
+     *
+     * @param account     the account id
+     * @param transaction the transaction id
+     * @param cents       the amount to add; not negative
+     * @return how it was posted
+     */
+    public Posting credit(final long account, final long transaction,
+                          final long cents) {
+        check(account, transaction, cents);
+        final Stripe stripe = stripe(account);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.post(account, transaction, cents);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Take from an account, if the balance covers it.
+     *
+     * @param account     the account id
+     * @param transaction the transaction id
+     * @param cents       the amount to take; not negative
+     * @return how it was posted
+     */
+    public Posting debit(final long account, final long transaction,
+                         final long cents) {
+        check(account, transaction, cents);
+        final Stripe stripe = stripe(account);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.post(account, transaction, -cents);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Post a batch of debits, taking each stripe's lock once for all of the
+     * debits that land on it.
+     *
+     * @param debits the debits
+     * @return how each debit was posted, in the same order
+     */
+    public Posting[] debit(final List<Debit> debits) {
+        final int size = debits.size();
+        final Posting[] postings = new Posting[size];
+        final int[] start = new int[stripes.length + 1];
+        final int[] owner = new int[size];
+        for (int i = 0; i < size; i++) {
+            final Debit debit = debits.get(i);
+            check(debit.getAccount(), debit.getTransaction(),
+                    debit.getCents());
+            owner[i] = index(debit.getAccount());
+            start[owner[i] + 1]++;
+        }
+        for (int s = 0; s < stripes.length; s++) {
+            start[s + 1] += start[s];
+        }
+        final int[] order = new int[size];
+        final int[] fill = start.clone();
+        for (int i = 0; i < size; i++) {
+            order[fill[owner[i]]++] = i;
+        }
+        for (int s = 0; s < stripes.length; s++) {
+            if (start[s] == start[s + 1]) {
+                continue;
+            }
+            final Stripe stripe = stripes[s];
+            final long stamp = stripe.lock.writeLock();
+            try {
+                for (int k = start[s]; k < start[s + 1]; k++) {
+                    final Debit debit = debits.get(order[k]);
+                    postings[order[k]] = stripe.post(debit.getAccount(),
+                            debit.getTransaction(), -debit.getCents());
+                }
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Whether a transaction has been applied to an account.  A transaction
+     * too far below the account's newest to be posted counts as applied.
+     *
+     * @param account     the account id
+     * @param transaction the transaction id
+     * @return true if it has
+     */
+    public boolean isApplied(final long account, final long transaction) {
+        final Stripe stripe = stripe(account);
+        long stamp;
+        boolean applied;
+        do {
+            stamp = optimistic(stripe.lock);
+            applied = stripe.applied(account, transaction);
+        } while (!stripe.lock.validate(stamp));
+        return applied;
+    }
+
+    /**
+     * How many accounts are open.
+     *
+     * @return the count
+     */
+    public long size() {
+        long size = 0L;
+        for (Stripe stripe : stripes) {
+            final long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.accounts;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Check an account id and amount.
+     *
+     * @param account the account id
+     * @param cents   the amount
+     */
+    private static void check(final long account, final long cents) {
+        if (account == FREE) {
+            throw new IllegalArgumentException("not an account: " + account);
+        }
+        if (cents < 0L) {
+            throw new IllegalArgumentException("negative amount: " + cents);
+        }
+    }
+
+    /**
+     * Check an account id, transaction id and amount.
+     *
+     * @param account     the account id
+     * @param transaction the transaction id
+     * @param cents       the amount
+     */
+    private static void check(final long account, final long transaction,
+                              final long cents) {
+        check(account, cents);
+        if (transaction == NONE) {
+            throw new IllegalArgumentException(
+                    "not a transaction: " + transaction);
+        }
+    }
+
+    /**
+     * Start an optimistic read, spinning past a write in progress rather
+     * than parking on the lock; writes to a stripe are short.
+     *
+     * @param lock the stripe's lock
+     * @return a stamp to validate
+     */
+    private static long optimistic(final StampedLock lock) {
+        long stamp = lock.tryOptimisticRead();
+        while (stamp == 0L) {
+            Thread.yield();
+            stamp = lock.tryOptimisticRead();
+        }
+        return stamp;
+    }
+
+    /**
+     * The stripe an account lives in.
+     *
+     * @param account the account id
+     * @return the stripe
+     */
+    private Stripe stripe(final long account) {
+        return stripes[index(account)];
+    }
+
+    /**
+     * The index of the stripe an account lives in.
+     *
+     * @param account the account id
+     * @return the index
+     */
+    private int index(final long account) {
+        return (int) (mix(account) >>> STRIPE_SHIFT) & mask;
+    }
+
+    /**
+     * Spread the bits of a key (the MurmurHash3 finalizer).
+     *
+     * @param key the key
+     * @return the hash
+     */
+    static long mix(final long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * One stripe: an account table, linear probing over a flat long array,
+     * grown at half full.  Every method expects the caller to hold the
+     * lock, except balance and applied, which may run under an optimistic
+     * read.
+     */
+    private static final class Stripe {
+        /**
+         * Guards the table.
+         */
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * Account id, balance, newest transaction id and posted bits, per
+         * slot.
+         */
+        private long[] balances = free(INITIAL_SLOTS);
+
+        /**
+         * Open accounts.
+         */
+        private int accounts;
+
+        /**
+         * A table of free slots.
+         *
+         * @param slots how many slots
+         * @return the table
+         */
+        private static long[] free(final int slots) {
+            final long[] table = new long[slots * SLOT];
+            for (int i = 0; i < table.length; i += SLOT) {
+                table[i] = FREE;
+            }
+            return table;
+        }
+
+        /**
+         * Find the slot for an account.  Reads the table once, so it is
+         * safe against a concurrent grow; the answer may be stale.  Under an
+         * optimistic read the table may not be fully written yet and may
+         * have no free slot, so the probe gives up after every slot has
+         * been tried; the caller's validate then fails and it reads again.
+         *
+         * @param table   the account table
+         * @param account the account id
+         * @return the index of the account's slot, or of the free slot
+         *         where it would go, or of some other account's slot if the
+         *         probe gave up
+         */
+        private static int find(final long[] table, final long account) {
+            final int slots = table.length / SLOT;
+            int slot = (int) mix(account) & (slots - 1);
+            for (int probes = 1; probes < slots
+                    && table[slot * SLOT] != FREE
+                    && table[slot * SLOT] != account; probes++) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            return slot * SLOT;
+        }
+
+        /**
+         * The balance of an account.
+         *
+         * @param account the account id
+         * @return the balance, or NO_BALANCE
+         */
+        private long balance(final long account) {
+            final long[] table = balances;
+            final int at = find(table, account);
+            if (table[at] != account) {
+                return NO_BALANCE;
+            }
+            return table[at + BALANCE];
+        }
+
+        /**
+         * Open an account.
+         *
+         * @param account the account id
+         * @param cents   the opening balance
+         * @return false if it was already open
+         */
+        private boolean open(final long account, final long cents) {
+            if (balances[find(balances, account)] == account) {
+                return false;
+            }
+            if ((accounts + 1) * 2 > balances.length / SLOT) {
+                balances = grow(balances);
+            }
+            final int at = find(balances, account);
+            balances[at] = account;
+            balances[at + BALANCE] = cents;
+            balances[at + NEWEST] = NONE;
+            balances[at + SEEN] = 0L;
+            accounts++;
+            return true;
+        }
+
+        /**
+         * Whether a transaction has been applied, or is too old to post.
+         *
+         * @param account     the account id
+         * @param transaction the transaction id
+         * @return true if it has
+         */
+        private boolean applied(final long account, final long transaction) {
+            final long[] table = balances;
+            final int at = find(table, account);
+            if (table[at] != account) {
+                return false;
+            }
+            final long newest = table[at + NEWEST];
+            if (newest == NONE || transaction > newest) {
+                return false;
+            }
+            final long below = newest - transaction;
+            if (below < 0L || below >= WINDOW) {
+                return true;
+            }
+            return (table[at + SEEN] >>> below & 1L) != 0L;
+        }
+
+        /**
+         * Post a change to an account's balance.
+         *
+         * @param account     the account id
+         * @param transaction the transaction id
+         * @param cents       the change; negative for a debit
+         * @return how it was posted
+         */
+        private Posting post(final long account, final long transaction,
+                             final long cents) {
+            final int at = find(balances, account);
+            if (balances[at] == FREE) {
+                return Posting.NO_ACCOUNT;
+            }
+            final long newest = balances[at + NEWEST];
+            final boolean older = newest != NONE && transaction <= newest;
+            final long below = newest - transaction;
+            if (older && (below < 0L || below >= WINDOW)) {
+                return Posting.STALE;
+            }
+            if (older && (balances[at + SEEN] >>> below & 1L) != 0L) {
+                return Posting.DUPLICATE;
+            }
+            if (balances[at + BALANCE] + cents < 0L) {
+                return Posting.INSUFFICIENT_FUNDS;
+            }
+            if (older) {
+                balances[at + SEEN] |= 1L << below;
+            } else {
+                final long above = transaction - newest;
+                long seen = 1L;
+                if (newest != NONE && above > 0L && above < WINDOW) {
+                    seen |= balances[at + SEEN] << above;
+                }
+                balances[at + NEWEST] = transaction;
+                balances[at + SEEN] = seen;
+            }
+            balances[at + BALANCE] += cents;
+            return Posting.APPLIED;
+        }
+
+        /**
+         * Copy a table into one twice the size.
+         *
+         * @param table the table
+         * @return the new table
+         */
+        private static long[] grow(final long[] table) {
+            final long[] grown = free(table.length / SLOT * 2);
+            for (int i = 0; i < table.length; i += SLOT) {
+                if (table[i] != FREE) {
+                    System.arraycopy(table, i, grown, find(grown, table[i]),
+                            SLOT);
+                }
+            }
+            return grown;
+        }
+    }
+}
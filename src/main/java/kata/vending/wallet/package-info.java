@@ -0,0 +1,5 @@
+/**
+ * Cashless wallets: a striped ledger of account balances, and a settler that
+ * pays for vends from it without making the machine wait on the ledger.
+ */
+package kata.vending.wallet;
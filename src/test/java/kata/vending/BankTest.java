@@ -190,4 +190,29 @@ public class BankTest {
     public final void whenWithdrawSelfJustZero() {
         assertEquals(0, bank.withdraw(bank).calculateBalance());
     }
+
+    /**
+     * Test that coins are counted whatever their currency.
+     */
+    @Test
+    public final void whenCountCoinsUnknownCurrencyCounts() {
+        assertEquals(0, bank.countCoins());
+        assertEquals(3, bank
+                .deposit(Currency.QUARTER)
+                .deposit(Currency.UNKNOWN)
+                .deposit(Currency.QUARTER)
+                .countCoins());
+    }
+
+    /**
+     * Test depositing several of a currency at once.
+     */
+    @Test
+    public final void whenDepositQuantityBalanceIsAppropriate() {
+        assertEquals(3 * Currency.DIME.getCents(), bank
+                .deposit(Currency.DIME, 3)
+                .deposit((Currency) null, 2)
+                .deposit(Currency.NICKEL, 0)
+                .calculateBalance());
+    }
 }
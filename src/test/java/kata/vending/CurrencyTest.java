@@ -33,4 +33,15 @@ public class CurrencyTest {
     public final void whenNullToCurrencyGetUnknown() {
         assertEquals(Currency.UNKNOWN, Currency.toCurrency(null));
     }
+
+    /**
+     * Test that amounts are formatted as dollars and cents.
+     */
+    @Test
+    public final void whenFormatCentsDollarsAndCentsShown() {
+        assertEquals("$0.00", Currency.format(0L));
+        assertEquals("$0.05", Currency.format(5L));
+        assertEquals("$1.65", Currency.format(165L));
+        assertEquals("$12.10", Currency.format(1210L));
+    }
 }
@@ -29,6 +29,8 @@ public class EnumsTest {
         enums.add(Coin.Size.class);
         enums.add(Coin.Weight.class);
         enums.add(Message.class);
+        enums.add(Operation.class);
+        enums.add(Outcome.class);
     }
 
     /**
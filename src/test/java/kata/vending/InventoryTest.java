@@ -165,4 +165,19 @@ public class InventoryTest {
     public final void whenQuantifyNullGetZero() {
         assertEquals(0, empty.quantity(null));
     }
+
+    /**
+     * Test adding several of an item at once.
+     */
+    @Test
+    public final void whenAddQuantityItemQuantityIncreases() {
+        Inventory<Fruit> fruits = empty
+                .add(Fruit.GRAPE, 3)
+                .add(Fruit.GRAPE, 2)
+                .add(Fruit.APPLE, 0)
+                .add(Fruit.APPLE, -1)
+                .add(null, 4);
+        assertEquals(5, fruits.quantity(Fruit.GRAPE));
+        assertEquals(0, fruits.quantity(Fruit.APPLE));
+    }
 }
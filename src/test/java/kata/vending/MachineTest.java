@@ -324,4 +324,52 @@ public class MachineTest {
         assertEquals(Message.SOLD_OUT.getText(),
                 machine.vend(null).getDisplay());
     }
+
+    /**
+     * Test that a vend paid by a tender leaves the coins alone.
+     */
+    @Test
+    public final void whenTenderPaysVendLeavesCoinsAlone() {
+        Product product = Product.COLA;
+        Machine before = machine.insertCoin(quarter);
+        long[] charged = new long[1];
+        Machine vended = before.vend(product, (p, cents) -> {
+            charged[0] += cents;
+            return true;
+        });
+        assertEquals(product.getPrice(), charged[0]);
+        assertEquals(Message.THANK_YOU.getText(), vended.getDisplay());
+        assertEquals(inventory.quantity(product) - 1,
+                vended.getInventory().quantity(product));
+        assertEquals(25L, vended.getCustomerBank().calculateBalance());
+        assertEquals(0L, vended.getCoinReturn().calculateBalance());
+        assertEquals(before.getMachineBank().calculateBalance(),
+                vended.getMachineBank().calculateBalance());
+    }
+
+    /**
+     * Test that a declined tender shows the price and vends nothing.
+     */
+    @Test
+    public final void whenTenderDeclinesVendDisplaysPrice() {
+        Machine declined = machine.vend(Product.CANDY, (p, cents) -> false);
+        assertEquals(Message.PRICE.getText() + " $0.65",
+                declined.getDisplay());
+        assertEquals(inventory.quantity(Product.CANDY),
+                declined.getInventory().quantity(Product.CANDY));
+        assertEquals(Message.PRICE.getText() + " $0.65",
+                machine.vend(Product.CANDY, null).getDisplay());
+    }
+
+    /**
+     * Test that a tender isn't charged for a sold out product.
+     */
+    @Test
+    public final void whenSoldOutTenderIsNotCharged() {
+        Machine empty = new Machine.Builder(machine).inventory(null).build();
+        Machine vended = empty.vend(Product.CHIPS, (p, cents) -> {
+            throw new AssertionError("charged for nothing");
+        });
+        assertEquals(Message.SOLD_OUT.getText(), vended.getDisplay());
+    }
 }
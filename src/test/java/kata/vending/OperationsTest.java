@@ -0,0 +1,204 @@
+package kata.vending;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for operation reporting.
+ */
+public class OperationsTest {
+    /**
+     * Operations reported to the listener.
+     */
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Outcomes reported to the listener.
+     */
+    private final List<Outcome> outcomes = new ArrayList<>();
+
+    /**
+     * Amounts reported to the listener.
+     */
+    private final List<Long> amounts = new ArrayList<>();
+
+    /**
+     * Products reported to the listener.
+     */
+    private final List<Product> products = new ArrayList<>();
+
+    /**
+     * Coins reported to the listener.
+     */
+    private final List<Bank> coins = new ArrayList<>();
+
+    /**
+     * A listener that remembers everything.
+     */
+    private final OperationListener listener = new OperationListener() {
+        @Override
+        public void onOperation(final Operation operation,
+                                final Outcome outcome, final long amount,
+                                final Product product,
+                                final Currency currency, final Bank bank,
+                                final long nanos) {
+            operations.add(operation);
+            outcomes.add(outcome);
+            amounts.add(amount);
+            products.add(product);
+            coins.add(bank);
+        }
+    };
+
+    /**
+     * A machine with some change and something to sell.
+     */
+    private Machine machine;
+
+    /**
+     * Set up a machine and register the listener.
+     */
+    @Before
+    public final void setUpMachineAndListen() {
+        machine = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.DIME)
+                        .deposit(Currency.DIME))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY))
+                .build();
+        Operations.addListener(listener);
+    }
+
+    /**
+     * Unregister the listener.
+     */
+    @After
+    public final void stopListening() {
+        Operations.removeListener(listener);
+    }
+
+    /**
+     * Test that reporting is off until somebody listens.
+     */
+    @Test
+    public final void whenNoListenersReportingIsDisabled() {
+        Operations.removeListener(listener);
+        assertFalse(Operations.isEnabled());
+        machine.insertCoin(Currency.QUARTER.getCoin());
+        assertTrue(operations.isEmpty());
+    }
+
+    /**
+     * Test that coins are reported as accepted or rejected.
+     */
+    @Test
+    public final void whenInsertCoinsOutcomeIsReported() {
+        assertTrue(Operations.isEnabled());
+        machine.insertCoin(Currency.QUARTER.getCoin()).insertCoin(null);
+        assertEquals(Operation.INSERT_COIN, operations.get(0));
+        assertEquals(Outcome.ACCEPTED, outcomes.get(0));
+        assertEquals(Currency.QUARTER.getCents(), (long) amounts.get(0));
+        assertEquals(Outcome.REJECTED, outcomes.get(1));
+    }
+
+    /**
+     * Test that returned coins are reported.
+     */
+    @Test
+    public final void whenReturnCoinsCoinsAreReported() {
+        machine.insertCoin(Currency.QUARTER.getCoin()).returnCoins();
+        assertEquals(Operation.RETURN_COINS, operations.get(1));
+        assertEquals(Outcome.RETURNED, outcomes.get(1));
+        assertEquals(1, coins.get(1).countCoins());
+    }
+
+    /**
+     * Test that a vend with change reports the change made and the vend.
+     */
+    @Test
+    public final void whenVendWithChangeBothAreReported() {
+        final Coin quarter = Currency.QUARTER.getCoin();
+        machine.insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CANDY);
+        final int last = operations.size() - 1;
+        assertEquals(Operation.MAKE_CHANGE, operations.get(last - 1));
+        assertEquals(Outcome.FULL_CHANGE, outcomes.get(last - 1));
+        assertEquals(Operation.VEND, operations.get(last));
+        assertEquals(Outcome.VENDED, outcomes.get(last));
+        assertEquals(Product.CANDY, products.get(last));
+        assertEquals(Product.CANDY.getPrice(), (long) amounts.get(last));
+        assertEquals(1, coins.get(last).countCoins());
+    }
+
+    /**
+     * Test that sold out and short vends are reported.
+     */
+    @Test
+    public final void whenVendFailsOutcomeIsReported() {
+        machine.vend(Product.COLA).vend(Product.CANDY);
+        assertEquals(Outcome.SOLD_OUT, outcomes.get(0));
+        assertEquals(Outcome.INSUFFICIENT_FUNDS, outcomes.get(1));
+        assertNull(coins.get(1));
+    }
+
+    /**
+     * Test that an exact change display reports the failed change check.
+     */
+    @Test
+    public final void whenExactChangeCheckIsReported() {
+        machine.checkDisplay();
+        final int last = operations.size() - 1;
+        assertEquals(Operation.CAN_MAKE_CHANGE, operations.get(last - 1));
+        assertEquals(Outcome.EXACT_CHANGE, outcomes.get(last - 1));
+        assertEquals(Operation.CHECK_DISPLAY, operations.get(last));
+        assertEquals(Outcome.EXACT_CHANGE, outcomes.get(last));
+    }
+
+    /**
+     * Test that a listener that throws is counted and changes nothing for
+     * the machine or the other listeners.
+     */
+    @Test
+    public final void whenListenerThrowsMachineCarriesOn() {
+        final OperationListener broken =
+                (operation, outcome, amount, product, currency, bank,
+                 nanos) -> {
+                    throw new IllegalStateException("listener broke");
+                };
+        Operations.removeListener(listener);
+        Operations.addListener(broken);
+        Operations.addListener(listener);
+        final long failures = Operations.getListenerFailures();
+        try {
+            final Machine paid = machine.insertCoin(Currency.QUARTER.getCoin());
+            assertEquals(25L, paid.getCustomerBank().calculateBalance());
+        } finally {
+            Operations.removeListener(broken);
+        }
+        assertEquals(Operation.INSERT_COIN, operations.get(0));
+        assertEquals(failures + 1L, Operations.getListenerFailures());
+    }
+
+    /**
+     * Test that removing a listener nobody registered does nothing.
+     */
+    @Test
+    public final void whenRemoveUnknownListenerNothingChanges() {
+        Operations.removeListener(null);
+        Operations.addListener(null);
+        machine.checkDisplay();
+        assertFalse(operations.isEmpty());
+    }
+}
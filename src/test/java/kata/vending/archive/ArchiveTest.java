@@ -0,0 +1,282 @@
+package kata.vending.archive;
+
+import kata.vending.Currency;
+import kata.vending.Outcome;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Archive and ArchiveWriter classes.
+ */
+public class ArchiveTest {
+    /**
+     * Events in the test archive.
+     */
+    private static final int EVENTS = 20000;
+
+    /**
+     * Rows per chunk in the test archive.
+     */
+    private static final int CHUNK_ROWS = 500;
+
+    /**
+     * When the events start.
+     */
+    private static final long START = 1_400_000_000_000L;
+
+    /**
+     * Machines the events come from.
+     */
+    private static final int MACHINES = 50;
+
+    /**
+     * The archive file.
+     */
+    private Path file;
+
+    /**
+     * Event times.
+     */
+    private final long[] times = new long[EVENTS];
+
+    /**
+     * Event machines.
+     */
+    private final int[] machines = new int[EVENTS];
+
+    /**
+     * Event outcomes.
+     */
+    private final Outcome[] outcomes = new Outcome[EVENTS];
+
+    /**
+     * Event products.
+     */
+    private final Product[] products = new Product[EVENTS];
+
+    /**
+     * Event currencies.
+     */
+    private final Currency[] currencies = new Currency[EVENTS];
+
+    /**
+     * Event amounts.
+     */
+    private final long[] amounts = new long[EVENTS];
+
+    /**
+     * Write an archive of random coins and vends.
+     *
+     * @throws IOException if it can't be written
+     */
+    @Before
+    public final void setUpArchive() throws IOException {
+        file = Files.createTempFile("archive", ".dat");
+        final Random random = new Random(5);
+        final Currency[] coins = Currency.descending()
+                .toArray(new Currency[0]);
+        long time = START;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             ArchiveWriter writer = new ArchiveWriter(channel, CHUNK_ROWS)) {
+            for (int i = 0; i < EVENTS; i++) {
+                time += random.nextInt(1000);
+                times[i] = time;
+                machines[i] = random.nextInt(MACHINES);
+                if (random.nextInt(4) == 0) {
+                    outcomes[i] = Outcome.VENDED;
+                    products[i] = Product.values()[random.nextInt(3)];
+                    amounts[i] = products[i].getPrice();
+                } else {
+                    outcomes[i] = Outcome.ACCEPTED;
+                    currencies[i] = coins[random.nextInt(coins.length)];
+                    amounts[i] = currencies[i].getCents();
+                }
+                writer.append(times[i], machines[i], outcomes[i],
+                        products[i], currencies[i], amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Delete the archive file.
+     *
+     * @throws IOException if it can't be deleted
+     */
+    @After
+    public final void tearDownArchive() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Scan the test events the slow way.
+     *
+     * @param query the query
+     * @return matching rows and their amount
+     */
+    private long[] expected(final ArchiveQuery query) {
+        long rows = 0L;
+        long amount = 0L;
+        for (int i = 0; i < EVENTS; i++) {
+            if (times[i] >= query.getFrom() && times[i] < query.getTo()
+                    && machines[i] >= query.getFirstMachine()
+                    && machines[i] <= query.getLastMachine()
+                    && (query.getOutcome() == null
+                    || query.getOutcome() == outcomes[i])
+                    && (query.getProduct() == null
+                    || query.getProduct() == products[i])
+                    && (query.getCurrency() == null
+                    || query.getCurrency() == currencies[i])) {
+                rows++;
+                amount += amounts[i];
+            }
+        }
+        return new long[] {rows, amount};
+    }
+
+    /**
+     * Assert that a scan matches the slow way.
+     *
+     * @param archive the archive
+     * @param query   the query
+     * @return the scan result
+     * @throws IOException if the archive can't be read
+     */
+    private ScanResult assertScan(final Archive archive,
+                                  final ArchiveQuery query)
+            throws IOException {
+        final ScanResult result = archive.scan(query);
+        final long[] expected = expected(query);
+        assertEquals(expected[0], result.getRows());
+        assertEquals(expected[1], result.getAmount());
+        assertEquals(archive.getChunkCount(),
+                result.getChunksRead() + result.getChunksSkipped());
+        return result;
+    }
+
+    /**
+     * Test that the archive holds every event in full chunks.
+     *
+     * @throws IOException if the archive can't be read
+     */
+    @Test
+    public final void whenOpenedChunksIndexed() throws IOException {
+        try (Archive archive = Archive.open(file)) {
+            assertEquals(EVENTS / CHUNK_ROWS, archive.getChunkCount());
+            assertEquals(EVENTS, archive.getRows());
+            assertTrue(Files.size(file) < EVENTS * 8L);
+        }
+    }
+
+    /**
+     * Test that queries match a scan of the raw events.
+     *
+     * @throws IOException if the archive can't be read
+     */
+    @Test
+    public final void whenScannedMatchesEvents() throws IOException {
+        final long middle = times[EVENTS / 2];
+        try (Archive archive = Archive.open(file)) {
+            assertScan(archive, new ArchiveQuery.Builder().build());
+            assertScan(archive, new ArchiveQuery.Builder()
+                    .outcome(Outcome.VENDED).product(Product.COLA).build());
+            assertScan(archive, new ArchiveQuery.Builder()
+                    .currency(Currency.QUARTER).machines(10, 19).build());
+            assertScan(archive, new ArchiveQuery.Builder()
+                    .between(middle, middle + 500_000L)
+                    .product(Product.CANDY).build());
+            assertScan(archive, new ArchiveQuery.Builder()
+                    .outcome(Outcome.REJECTED).build());
+        }
+    }
+
+    /**
+     * Test that a narrow time range skips most chunks.
+     *
+     * @throws IOException if the archive can't be read
+     */
+    @Test
+    public final void whenTimeRangeNarrowChunksSkipped() throws IOException {
+        final long from = times[EVENTS / 4];
+        try (Archive archive = Archive.open(file)) {
+            final ScanResult result = assertScan(archive,
+                    new ArchiveQuery.Builder()
+                            .between(from, from + 100_000L)
+                            .outcome(Outcome.VENDED)
+                            .product(Product.COLA)
+                            .build());
+            assertTrue(result.getChunksRead() <= 2);
+            assertTrue(result.getRows() > 0);
+        }
+    }
+
+    /**
+     * Test that a scan only reads the columns it filters on.
+     *
+     * @throws IOException if the archive can't be read
+     */
+    @Test
+    public final void whenProductFilteredOnlyNeededColumnsRead()
+            throws IOException {
+        try (Archive archive = Archive.open(file)) {
+            final ScanResult everything = archive.scan(
+                    new ArchiveQuery.Builder().build());
+            final ScanResult cola = archive.scan(new ArchiveQuery.Builder()
+                    .product(Product.COLA).build());
+            assertTrue(cola.getBytesRead() > everything.getBytesRead());
+            assertTrue(cola.getBytesRead() < Files.size(file) / 2);
+        }
+    }
+
+    /**
+     * Test that an empty archive scans to nothing.
+     *
+     * @throws IOException if the archive can't be read
+     */
+    @Test
+    public final void whenEmptyNothingFound() throws IOException {
+        Files.write(file, new byte[0]);
+        try (Archive archive = Archive.open(file)) {
+            assertEquals(0, archive.getChunkCount());
+            assertEquals(0L, archive.scan(
+                    new ArchiveQuery.Builder().build()).getRows());
+        }
+    }
+
+    /**
+     * Test that a file that isn't an archive is rejected.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public final void whenNotArchiveRejected() throws IOException {
+        Files.write(file, new byte[Chunk.HEADER_SIZE]);
+        Archive.open(file).close();
+    }
+
+    /**
+     * Test that a truncated archive is rejected.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public final void whenTruncatedRejected() throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+        Archive.open(file).close();
+    }
+}
@@ -0,0 +1,110 @@
+package kata.vending.archive;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the Encoding class.
+ */
+public class EncodingTest {
+    /**
+     * Values per test.
+     */
+    private static final int ROWS = 1000;
+
+    /**
+     * A buffer big enough for anything the tests write.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(ROWS * 16);
+
+    /**
+     * Test that deltas survive a round trip, including going backwards.
+     */
+    @Test
+    public final void whenDeltasWrittenReadBack() {
+        final long[] values = new long[ROWS];
+        final Random random = new Random(1);
+        long time = 1_400_000_000_000L;
+        for (int i = 0; i < ROWS; i++) {
+            time += random.nextInt(2000) - 100;
+            values[i] = time;
+        }
+        Encoding.writeDeltas(values, ROWS, buffer);
+        assertEquals(true, buffer.position() < ROWS * 3 + 8);
+        buffer.flip();
+        final long[] read = new long[ROWS];
+        Encoding.readDeltas(buffer, ROWS, read);
+        assertArrayEquals(values, read);
+    }
+
+    /**
+     * Test that runs survive a round trip and repeated codes compress.
+     */
+    @Test
+    public final void whenRunsWrittenReadBack() {
+        final byte[] codes = new byte[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            codes[i] = (byte) (i / 300);
+        }
+        Encoding.writeRuns(codes, ROWS, buffer);
+        assertEquals(3 * 3 + 2, buffer.position());
+        buffer.flip();
+        final byte[] read = new byte[ROWS];
+        Encoding.readRuns(buffer, ROWS, read);
+        assertArrayEquals(codes, read);
+    }
+
+    /**
+     * Test that packing works at every width.
+     */
+    @Test
+    public final void whenPackedAtEveryWidthReadBack() {
+        final Random random = new Random(2);
+        for (int width = 0; width <= Long.SIZE; width++) {
+            final long base = random.nextLong();
+            final long[] values = new long[ROWS];
+            for (int i = 0; i < ROWS; i++) {
+                long offset = random.nextLong();
+                if (width < Long.SIZE) {
+                    offset &= (1L << width) - 1;
+                }
+                values[i] = base + offset;
+            }
+            buffer.clear();
+            Encoding.pack(values, ROWS, base, width, buffer);
+            assertEquals(Encoding.packedSize(ROWS, width), buffer.position());
+            buffer.flip();
+            final long[] read = new long[ROWS];
+            Encoding.unpack(buffer, ROWS, base, width, read);
+            assertArrayEquals("width " + width, values, read);
+        }
+    }
+
+    /**
+     * Test that widths cover the range.
+     */
+    @Test
+    public final void whenWidthTakenRangeFits() {
+        assertEquals(0, Encoding.width(0L));
+        assertEquals(1, Encoding.width(1L));
+        assertEquals(7, Encoding.width(100L));
+        assertEquals(Long.SIZE, Encoding.width(-1L));
+    }
+
+    /**
+     * Test that an over-long varint is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenVarintTooLongRejected() {
+        for (int i = 0; i < Encoding.MAX_VARINT + 1; i++) {
+            buffer.put((byte) 0x80);
+        }
+        buffer.flip();
+        Encoding.readVarint(buffer);
+    }
+}
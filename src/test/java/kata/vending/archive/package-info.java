@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the event archive.
+ */
+package kata.vending.archive;
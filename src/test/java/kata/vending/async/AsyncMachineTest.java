@@ -0,0 +1,239 @@
+package kata.vending.async;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the AsyncMachine class.
+ */
+public class AsyncMachineTest {
+    /**
+     * Quarter coin.
+     */
+    private static final Coin QUARTER = Currency.QUARTER.getCoin();
+
+    /**
+     * Shared executor.
+     */
+    private ExecutorService executor;
+
+    /**
+     * A machine with stock.
+     */
+    private Machine machine;
+
+    /**
+     * Set up the executor and machine.
+     */
+    @Before
+    public final void setUp() {
+        executor = Executors.newFixedThreadPool(4, runnable -> {
+            final Thread thread = new Thread(runnable, "async-test");
+            thread.setDaemon(true);
+            return thread;
+        });
+        machine = new Machine.Builder()
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CHIPS, 10))
+                .build();
+    }
+
+    /**
+     * Stop the executor.
+     */
+    @After
+    public final void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that a purchase can be chained without blocking.
+     *
+     * @throws Exception if the purchase fails
+     */
+    @Test
+    public final void whenChainedThenPurchaseCompletes() throws Exception {
+        final AsyncMachine async = new AsyncMachine(machine, executor);
+        final Machine after = async.insertCoinAsync(QUARTER)
+                .thenCompose(m -> async.insertCoinAsync(QUARTER))
+                .thenCompose(m -> async.vendAsync(Product.CHIPS))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(Message.THANK_YOU.getText(), after.getDisplay());
+        assertEquals(9, after.getInventory().quantity(Product.CHIPS));
+        assertEquals(after, async.getMachine());
+    }
+
+    /**
+     * Test that operations run in the order they were asked for.
+     *
+     * @throws Exception if an operation fails
+     */
+    @Test
+    public final void whenFiredTogetherThenInOrder() throws Exception {
+        final AsyncMachine async = new AsyncMachine(machine, executor);
+        final List<CompletableFuture<Machine>> futures = new ArrayList<>();
+        final int coins = 500;
+        for (int i = 0; i < coins; i++) {
+            futures.add(async.insertCoinAsync(Currency.NICKEL.getCoin()));
+        }
+        for (int i = 0; i < coins; i++) {
+            assertEquals((i + 1) * 5L, futures.get(i)
+                    .get(10, TimeUnit.SECONDS)
+                    .getCustomerBank().calculateBalance());
+        }
+    }
+
+    /**
+     * Test that callbacks run on the executor thread that ran the
+     * operation.
+     *
+     * @throws Exception if the operation fails
+     */
+    @Test
+    public final void whenCallbackChainedThenNoExtraHop() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AsyncMachine async = new AsyncMachine(machine,
+                runnable -> executor.execute(() -> {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    runnable.run();
+                }));
+        final AtomicReference<String> ranOn = new AtomicReference<>();
+        final CompletableFuture<Void> chained = async.checkDisplayAsync()
+                .thenAccept(m -> ranOn.set(Thread.currentThread().getName()));
+        gate.countDown();
+        chained.get(10, TimeUnit.SECONDS);
+        assertEquals("async-test", ranOn.get());
+    }
+
+    /**
+     * Test that a failing operation fails only its own future.
+     *
+     * @throws Exception if the later operation fails
+     */
+    @Test
+    public final void whenOperationFailsThenMachineUnchanged()
+            throws Exception {
+        final AsyncMachine async = new AsyncMachine(machine, executor);
+        final CompletableFuture<Machine> failed = async.submit(m -> {
+            throw new IllegalStateException("operation broke");
+        });
+        failed.handle((m, e) -> m).get(10, TimeUnit.SECONDS);
+        final Machine later = async.checkDisplayAsync()
+                .get(10, TimeUnit.SECONDS);
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0L, later.getCustomerBank().calculateBalance());
+    }
+
+    /**
+     * Test that an Error in an operation fails its future and the
+     * operations after it still run.
+     *
+     * @throws Exception if the later operation fails
+     */
+    @Test
+    public final void whenOperationThrowsErrorThenLaterStillRun()
+            throws Exception {
+        final AsyncMachine async = new AsyncMachine(machine, executor);
+        final CompletableFuture<Machine> failed = async.submit(m -> {
+            throw new AssertionError("operation broke");
+        });
+        failed.handle((m, e) -> m).get(10, TimeUnit.SECONDS);
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(1, async.insertCoinAsync(QUARTER)
+                .get(10, TimeUnit.SECONDS).getCustomerBank().countCoins());
+    }
+
+    /**
+     * Test that when the executor rejects a drain task the waiting
+     * operations fail, and the machine recovers once it accepts again.
+     *
+     * @throws Exception if an operation fails unexpectedly
+     */
+    @Test
+    public final void whenExecutorRejectsThenWaitingFail() throws Exception {
+        final AtomicBoolean accepting = new AtomicBoolean(true);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AsyncMachine async = new AsyncMachine(machine, runnable -> {
+            if (!accepting.get()) {
+                throw new RejectedExecutionException("shut");
+            }
+            executor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                runnable.run();
+            });
+        });
+        final List<CompletableFuture<Machine>> futures = new ArrayList<>();
+        final int coins = AsyncMachine.BATCH + 10;
+        for (int i = 0; i < coins; i++) {
+            futures.add(async.insertCoinAsync(Currency.NICKEL.getCoin()));
+        }
+        accepting.set(false);
+        gate.countDown();
+        futures.get(AsyncMachine.BATCH - 1).get(10, TimeUnit.SECONDS);
+        final CompletableFuture<Machine> last = futures.get(coins - 1);
+        last.handle((m, e) -> m).get(10, TimeUnit.SECONDS);
+        assertTrue(last.isCompletedExceptionally());
+        final CompletableFuture<Machine> refused = async.checkDisplayAsync();
+        refused.handle((m, e) -> m).get(10, TimeUnit.SECONDS);
+        assertTrue(refused.isCompletedExceptionally());
+        accepting.set(true);
+        assertEquals(AsyncMachine.BATCH * 5L, async.checkDisplayAsync()
+                .get(10, TimeUnit.SECONDS).getCustomerBank()
+                .calculateBalance());
+    }
+
+    /**
+     * Test that many machines share a few threads and none loses coins.
+     *
+     * @throws Exception if an operation fails
+     */
+    @Test
+    public final void whenManySessionsThenAllComplete() throws Exception {
+        final int machines = 1000;
+        final List<AsyncMachine> fleet = new ArrayList<>();
+        final List<CompletableFuture<Machine>> sessions = new ArrayList<>();
+        for (int i = 0; i < machines; i++) {
+            final AsyncMachine async = new AsyncMachine(machine, executor);
+            fleet.add(async);
+            sessions.add(async.insertCoinAsync(QUARTER)
+                    .thenCompose(m -> async.insertCoinAsync(QUARTER))
+                    .thenCompose(m -> async.vendAsync(Product.CHIPS))
+                    .thenCompose(m -> async.checkDisplayAsync()));
+        }
+        CompletableFuture.allOf(sessions.toArray(new CompletableFuture<?>[0]))
+                .get(30, TimeUnit.SECONDS);
+        for (AsyncMachine async : fleet) {
+            assertEquals(50L, async.getMachine().getMachineBank()
+                    .calculateBalance());
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the asynchronous machine operations.
+ */
+package kata.vending.async;
@@ -0,0 +1,83 @@
+package kata.vending.codec;
+
+import kata.vending.Message;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the DisplayCode enum.
+ */
+public class DisplayCodeTest {
+    /**
+     * Test that every message parses to its code and formats back.
+     */
+    @Test
+    public final void whenMessageParsesAndFormatsBack() {
+        for (DisplayCode code : DisplayCode.values()) {
+            final String text = code.format(125L);
+            assertEquals(code, DisplayCode.parse(text));
+            assertEquals(text, DisplayCode.parse(text)
+                    .format(DisplayCode.cents(text)));
+        }
+    }
+
+    /**
+     * Test that amounts are read out of the display.
+     */
+    @Test
+    public final void whenAmountShownCentsParsed() {
+        assertEquals(DisplayCode.PRICE, DisplayCode.parse("PRICE $0.65"));
+        assertEquals(65, DisplayCode.cents("PRICE $0.65"));
+        assertEquals(1210, DisplayCode.cents("$12.10"));
+        assertEquals(0, DisplayCode.cents(Message.SOLD_OUT.getText()));
+    }
+
+    /**
+     * Test that displays a Machine wouldn't show are refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenUnknownDisplayThrows() {
+        DisplayCode.parse("HELLO");
+    }
+
+    /**
+     * Test that a mangled amount is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenAmountHasNoCentsThrows() {
+        DisplayCode.cents("$12");
+    }
+
+    /**
+     * Test that a mangled amount is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenAmountNotNumericThrows() {
+        DisplayCode.cents("$1.x5");
+    }
+
+    /**
+     * Test that an amount missing its dollars is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenAmountHasNoDollarsThrows() {
+        DisplayCode.cents("PRICE $.65");
+    }
+
+    /**
+     * Test that an amount too big for an int is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenAmountOverflowsThrows() {
+        DisplayCode.cents("$30000000.00");
+    }
+
+    /**
+     * Test that ordinals outside the enum are refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenUnknownOrdinalThrows() {
+        DisplayCode.of(DisplayCode.values().length);
+    }
+}
@@ -0,0 +1,185 @@
+package kata.vending.codec;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the MachineCodec class.
+ */
+public class MachineCodecTest {
+    /**
+     * A machine with something in every bank.
+     */
+    private Machine machine;
+
+    /**
+     * Set up the machine.
+     */
+    @Before
+    public final void setUpMachine() {
+        machine = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.QUARTER, 7)
+                        .deposit(Currency.NICKEL, 2))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 4))
+                .build()
+                .insertCoin(null)
+                .insertCoin(Currency.DIME.getCoin())
+                .insertCoin(Currency.DIME.getCoin());
+    }
+
+    /**
+     * Assert that two machines hold the same state.
+     *
+     * @param expected the expected machine
+     * @param actual   the actual machine
+     */
+    private static void assertSameState(final Machine expected,
+                                        final Machine actual) {
+        for (BankSlot slot : BankSlot.values()) {
+            for (Currency currency : Currency.values()) {
+                assertEquals(slot.of(expected).getInventory()
+                                .quantity(currency),
+                        slot.of(actual).getInventory().quantity(currency));
+            }
+        }
+        for (Product product : Product.values()) {
+            assertEquals(expected.getInventory().quantity(product),
+                    actual.getInventory().quantity(product));
+        }
+        assertEquals(expected.getDisplay(), actual.getDisplay());
+    }
+
+    /**
+     * Test that a machine survives a round trip.
+     */
+    @Test
+    public final void whenEncodedDecodesToSameMachine() {
+        final ByteBuffer buffer = ByteBuffer.allocate(MachineCodec.SIZE);
+        MachineCodec.encode(machine, buffer);
+        assertEquals(MachineCodec.SIZE, buffer.position());
+        buffer.flip();
+        assertSameState(machine, MachineCodec.decode(buffer));
+        assertEquals(MachineCodec.SIZE, buffer.position());
+    }
+
+    /**
+     * Test that every display a machine shows survives a round trip.
+     */
+    @Test
+    public final void whenEveryDisplayEncodedDecodesToSame() {
+        final Machine[] machines = {
+            machine,
+            machine.vend(Product.COLA),
+            machine.vend(Product.CHIPS),
+            machine.returnCoins().checkDisplay(),
+            new Machine.Builder().build().checkDisplay(),
+            machine.insertCoin(Currency.QUARTER.getCoin())
+                    .insertCoin(Currency.QUARTER.getCoin())
+                    .insertCoin(Currency.QUARTER.getCoin())
+                    .vend(Product.CANDY)
+        };
+        final ByteBuffer buffer =
+                ByteBuffer.allocateDirect(machines.length * MachineCodec.SIZE);
+        for (Machine m : machines) {
+            MachineCodec.encode(m, buffer);
+        }
+        buffer.flip();
+        for (Machine m : machines) {
+            assertSameState(m, MachineCodec.decode(buffer));
+        }
+    }
+
+    /**
+     * Test that fields read in place without decoding.
+     */
+    @Test
+    public final void whenEncodedFieldsReadInPlace() {
+        final int index = 16;
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(index + MachineCodec.SIZE);
+        MachineCodec.encode(machine, buffer, index);
+        assertEquals(0, buffer.position());
+        assertEquals(7, MachineCodec.quantity(buffer, index,
+                BankSlot.MACHINE, Currency.QUARTER));
+        assertEquals(1, MachineCodec.quantity(buffer, index,
+                BankSlot.COIN_RETURN, Currency.UNKNOWN));
+        assertEquals(4, MachineCodec.quantity(buffer, index, Product.CANDY));
+        assertEquals(20L, MachineCodec.balance(buffer, index,
+                BankSlot.CUSTOMER));
+        assertEquals(DisplayCode.BALANCE,
+                MachineCodec.displayCode(buffer, index));
+        assertEquals(20, MachineCodec.displayCents(buffer, index));
+        assertEquals("$0.20", MachineCodec.display(buffer, index));
+    }
+
+    /**
+     * Test that fields written in place decode.
+     */
+    @Test
+    public final void whenFieldsWrittenInPlaceDecode() {
+        final ByteBuffer buffer = ByteBuffer.allocate(MachineCodec.SIZE);
+        MachineCodec.encode(new Machine.Builder().build(), buffer, 0);
+        MachineCodec.setQuantity(buffer, 0, BankSlot.MACHINE,
+                Currency.DIME, 3);
+        MachineCodec.setQuantity(buffer, 0, Product.COLA, 2);
+        MachineCodec.setDisplay(buffer, 0, DisplayCode.SOLD_OUT, 0L);
+        final Machine decoded = MachineCodec.decode(buffer, 0);
+        assertEquals(30L, decoded.getMachineBank().calculateBalance());
+        assertEquals(2, decoded.getInventory().quantity(Product.COLA));
+        assertEquals(Message.SOLD_OUT.getText(), decoded.getDisplay());
+    }
+
+    /**
+     * Test that an amount too big for the record is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenDisplayAmountTooBigThrows() {
+        MachineCodec.setDisplay(ByteBuffer.allocate(MachineCodec.SIZE), 0,
+                DisplayCode.BALANCE, Integer.MAX_VALUE + 1L);
+    }
+
+    /**
+     * Test that an empty buffer isn't mistaken for a machine.
+     */
+    @Test
+    public final void whenNoRecordNotAMachine() {
+        final ByteBuffer buffer = ByteBuffer.allocate(MachineCodec.SIZE);
+        assertFalse(MachineCodec.isMachine(buffer, 0));
+        MachineCodec.encode(machine, buffer, 0);
+        assertTrue(MachineCodec.isMachine(buffer, 0));
+    }
+
+    /**
+     * Test that decoding garbage is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenNoRecordDecodeThrows() {
+        MachineCodec.decode(ByteBuffer.allocate(MachineCodec.SIZE), 0);
+    }
+
+    /**
+     * Test that each bank slot finds its bank.
+     */
+    @Test
+    public final void whenBankSlotFindsBank() {
+        assertEquals(machine.getCoinReturn(),
+                BankSlot.COIN_RETURN.of(machine));
+        assertEquals(machine.getCustomerBank(),
+                BankSlot.CUSTOMER.of(machine));
+        assertEquals(machine.getMachineBank(), BankSlot.MACHINE.of(machine));
+    }
+}
@@ -0,0 +1,182 @@
+package kata.vending.codec;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the MachineDelta class.
+ */
+public class MachineDeltaTest {
+    /**
+     * A stocked machine.
+     */
+    private Machine machine;
+
+    /**
+     * Where deltas are written.
+     */
+    private ByteBuffer delta;
+
+    /**
+     * Set up the machine and delta buffer.
+     */
+    @Before
+    public final void setUpMachine() {
+        machine = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.QUARTER, 300)
+                        .deposit(Currency.DIME, 40)
+                        .deposit(Currency.NICKEL, 2))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.COLA, 200)
+                        .add(Product.CHIPS, 4)
+                        .add(Product.CANDY, 4))
+                .build()
+                .checkDisplay();
+        delta = ByteBuffer.allocate(MachineDelta.MAX_SIZE);
+    }
+
+    /**
+     * Encode a machine as a record.
+     *
+     * @param state the machine
+     * @return the record
+     */
+    private static ByteBuffer record(final Machine state) {
+        final ByteBuffer record = ByteBuffer.allocate(MachineCodec.SIZE);
+        MachineCodec.encode(state, record, 0);
+        return record;
+    }
+
+    /**
+     * Take a delta, then apply it to the earlier machine.
+     *
+     * @param from the earlier machine
+     * @param to   the later machine
+     * @return the rebuilt later machine
+     */
+    private Machine roundTrip(final Machine from, final Machine to) {
+        delta.clear();
+        final int size = MachineDelta.encode(from, to, delta);
+        assertEquals(delta.position(), size);
+        delta.flip();
+        final Machine rebuilt = MachineDelta.apply(from, delta);
+        assertFalse(delta.hasRemaining());
+        return rebuilt;
+    }
+
+    /**
+     * Test that no change is one byte.
+     */
+    @Test
+    public final void whenUnchangedDeltaIsOneByte() {
+        assertEquals(1, MachineDelta.encode(machine, machine, delta));
+    }
+
+    /**
+     * Test that a vend only costs a few bytes and rebuilds the machine.
+     */
+    @Test
+    public final void whenVendedDeltaIsSmall() {
+        final Machine paid = machine
+                .insertCoin(Currency.QUARTER.getCoin())
+                .insertCoin(Currency.QUARTER.getCoin());
+        final Machine vended = paid.vend(Product.CHIPS);
+        final Machine rebuilt = roundTrip(paid, vended);
+        assertEquals(record(vended), record(rebuilt));
+        assertTrue(delta.limit() < MachineCodec.SIZE / 4);
+    }
+
+    /**
+     * Test that counts going down as well as up rebuild the machine.
+     */
+    @Test
+    public final void whenCountsFallRebuilt() {
+        final Machine empty = new Machine.Builder().build();
+        assertEquals(record(empty), record(roundTrip(machine, empty)));
+        assertEquals(record(machine), record(roundTrip(empty, machine)));
+    }
+
+    /**
+     * Test that applying a delta to a record in place matches the machine.
+     */
+    @Test
+    public final void whenAppliedInPlaceRecordMatches() {
+        final Machine later = machine
+                .insertCoin(Currency.DIME.getCoin())
+                .returnCoins();
+        final ByteBuffer from = record(machine);
+        MachineDelta.encode(from, 0, record(later), 0, delta);
+        delta.flip();
+        MachineDelta.apply(delta, from, 0);
+        assertEquals(record(later), from);
+    }
+
+    /**
+     * Test that random sessions are rebuilt exactly from their deltas.
+     */
+    @Test
+    public final void whenRandomSessionRebuiltFromDeltas() {
+        final Coin[] coins = {
+            Currency.NICKEL.getCoin(),
+            Currency.DIME.getCoin(),
+            Currency.QUARTER.getCoin(),
+            null
+        };
+        final Random random = new Random(3);
+        Machine previous = machine;
+        Machine rebuilt = machine;
+        for (int step = 0; step < 500; step++) {
+            final int choice = random.nextInt(10);
+            Machine next;
+            if (choice < 6) {
+                next = previous.insertCoin(
+                        coins[random.nextInt(coins.length)]);
+            } else if (choice < 8) {
+                next = previous.vend(
+                        Product.values()[random.nextInt(3)]);
+            } else if (choice < 9) {
+                next = previous.returnCoins();
+            } else {
+                next = previous.checkDisplay();
+            }
+            rebuilt = roundTrip(rebuilt, next);
+            previous = next;
+        }
+        assertEquals(record(previous), record(rebuilt));
+    }
+
+    /**
+     * Test that a delta naming fields that don't exist is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenUnknownFieldsRejected() {
+        delta.put((byte) 0xFF).put((byte) 0xFF).put((byte) 0x7F).flip();
+        MachineDelta.apply(machine, delta);
+    }
+
+    /**
+     * Test that an over-long varint is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenVarintTooLongRejected() {
+        for (int i = 0; i < 6; i++) {
+            delta.put((byte) 0x80);
+        }
+        delta.flip();
+        MachineDelta.apply(machine, delta);
+    }
+}
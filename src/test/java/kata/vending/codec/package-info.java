@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the machine state codec.
+ */
+package kata.vending.codec;
@@ -0,0 +1,276 @@
+package kata.vending.display;
+
+import kata.vending.Currency;
+import kata.vending.Machine;
+import kata.vending.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the DisplayFeed class.
+ */
+public class DisplayFeedTest {
+    /**
+     * A subscriber that keeps what it is sent.
+     */
+    private static final class Recorder implements Flow.Subscriber<String> {
+        /**
+         * Texts received.
+         */
+        private final List<String> items =
+                Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * Counted down on completion or error.
+         */
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * The subscription.
+         */
+        private Flow.Subscription subscription;
+
+        /**
+         * Error received, if any.
+         */
+        private volatile Throwable error;
+
+        /**
+         * Whether onComplete was called.
+         */
+        private volatile boolean completed;
+
+        /**
+         * How long each item takes to handle, in milliseconds.
+         */
+        private final long pauseMillis;
+
+        /**
+         * Recorder constructor.
+         *
+         * @param pauseMillis how long each item takes to handle
+         */
+        Recorder(final long pauseMillis) {
+            this.pauseMillis = pauseMillis;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription given) {
+            this.subscription = given;
+        }
+
+        @Override
+        public void onNext(final String item) {
+            items.add(item);
+            if (pauseMillis == 0L) {
+                return;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            finished.countDown();
+        }
+    }
+
+    /**
+     * The feed.
+     */
+    private DisplayFeed feed;
+
+    /**
+     * A subscriber.
+     */
+    private Recorder recorder;
+
+    /**
+     * Set up a feed with one subscriber.
+     */
+    @Before
+    public final void setUpFeed() {
+        feed = new DisplayFeed();
+        recorder = new Recorder(0L);
+        feed.subscribe(recorder);
+    }
+
+    /**
+     * Test that only changes are sent.
+     */
+    @Test
+    public final void whenSameTextThenSentOnce() {
+        recorder.subscription.request(Long.MAX_VALUE);
+        final Machine machine = feed.publish(new Machine.Builder().build()
+                .checkDisplay());
+        feed.publish(machine.checkDisplay());
+        feed.publish(machine.insertCoin(Currency.DIME.getCoin()));
+        assertEquals(Arrays.asList(Message.EXACT_CHANGE.getText(), "$0.10"),
+                recorder.items);
+        assertEquals(2L, feed.getChanges());
+    }
+
+    /**
+     * Test that updates without demand are coalesced to the latest.
+     */
+    @Test
+    public final void whenNoDemandThenLatestOnly() {
+        recorder.subscription.request(1);
+        feed.publish("$0.05");
+        feed.publish("$0.10");
+        feed.publish("$0.15");
+        feed.publish("$0.20");
+        assertEquals(Collections.singletonList("$0.05"), recorder.items);
+        recorder.subscription.request(1);
+        assertEquals(Arrays.asList("$0.05", "$0.20"), recorder.items);
+        recorder.subscription.request(1);
+        assertEquals(2, recorder.items.size());
+    }
+
+    /**
+     * Test that a change and back, while the subscriber isn't asking, is
+     * no change at all to it.
+     */
+    @Test
+    public final void whenChangedBackThenNothingSent() {
+        recorder.subscription.request(1);
+        feed.publish("INSERT COIN");
+        feed.publish("$0.25");
+        feed.publish("INSERT COIN");
+        recorder.subscription.request(1);
+        assertEquals(Collections.singletonList("INSERT COIN"),
+                recorder.items);
+    }
+
+    /**
+     * Test that a late subscriber is sent what is showing.
+     */
+    @Test
+    public final void whenSubscribedLateThenCurrentSent() {
+        feed.publish("THANK YOU");
+        final Recorder late = new Recorder(0L);
+        feed.subscribe(late);
+        late.subscription.request(1);
+        assertEquals(Collections.singletonList("THANK YOU"), late.items);
+        assertEquals(2, feed.getSubscribers());
+    }
+
+    /**
+     * Test that a cancelled subscriber hears nothing more.
+     */
+    @Test
+    public final void whenCancelledThenNothingSent() {
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.cancel();
+        feed.publish("SOLD OUT");
+        assertTrue(recorder.items.isEmpty());
+        assertEquals(0, feed.getSubscribers());
+    }
+
+    /**
+     * Test that closing sends what is owed and then completes.
+     */
+    @Test
+    public final void whenClosedThenOwedTextThenComplete() {
+        feed.publish("$1.00");
+        feed.close();
+        assertEquals(false, recorder.completed);
+        recorder.subscription.request(1);
+        assertEquals(Collections.singletonList("$1.00"), recorder.items);
+        assertTrue(recorder.completed);
+    }
+
+    /**
+     * Test that racing publishers leave every subscriber on what the
+     * display finally shows.
+     *
+     * @throws InterruptedException if interrupted while joining
+     */
+    @Test
+    public final void whenPublishersRaceThenSubscriberEndsOnCurrent()
+            throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            final DisplayFeed shared = new DisplayFeed();
+            final Recorder watcher = new Recorder(0L);
+            shared.subscribe(watcher);
+            watcher.subscription.request(Long.MAX_VALUE);
+            final List<Thread> publishers = new ArrayList<>();
+            for (final String name : Arrays.asList("a", "b", "c", "d")) {
+                final Thread publisher = new Thread(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        shared.publish(name + i);
+                    }
+                });
+                publisher.start();
+                publishers.add(publisher);
+            }
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+            assertEquals(shared.getCurrent(),
+                    watcher.items.get(watcher.items.size() - 1));
+        }
+    }
+
+    /**
+     * Test that asking for nothing is an error.
+     */
+    @Test
+    public final void whenRequestNotPositiveThenError() {
+        recorder.subscription.request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+    }
+
+    /**
+     * Test that a slow subscriber on another thread ends on the latest
+     * text without being sent every one.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public final void whenSlowSubscriberThenCoalesced()
+            throws InterruptedException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final DisplayFeed async = new DisplayFeed(executor);
+            final Recorder slow = new Recorder(1L);
+            async.subscribe(slow);
+            slow.subscription.request(Long.MAX_VALUE);
+            Machine machine = new Machine.Builder().build();
+            final int coins = 500;
+            for (int i = 0; i < coins; i++) {
+                machine = async.publish(
+                        machine.insertCoin(Currency.NICKEL.getCoin()));
+            }
+            async.close();
+            assertTrue(slow.finished.await(10, TimeUnit.SECONDS));
+            assertEquals(machine.getDisplay(),
+                    slow.items.get(slow.items.size() - 1));
+            assertTrue(slow.items.size() < coins);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the display feed.
+ */
+package kata.vending.display;
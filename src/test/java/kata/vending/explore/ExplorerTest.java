@@ -0,0 +1,186 @@
+package kata.vending.explore;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Explorer class.
+ */
+public class ExplorerTest {
+    /**
+     * Most coins of one kind in a bank.
+     */
+    private static final int MAX_COINS = 3;
+
+    /**
+     * A machine with one candy and no change.
+     */
+    private Machine start;
+
+    /**
+     * Set up the machine.
+     */
+    @Before
+    public final void setUpMachine() {
+        start = new Machine.Builder()
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY))
+                .build();
+    }
+
+    /**
+     * Explore from the start machine.
+     *
+     * @param invariant what to check
+     * @return the result
+     */
+    private ExplorationResult explore(final Invariant invariant) {
+        return new Explorer.Builder()
+                .start(start)
+                .maxCoins(MAX_COINS)
+                .invariant(invariant)
+                .build()
+                .explore();
+    }
+
+    /**
+     * Test that a machine with no change short-changes a customer, and the
+     * shortest way to get there is found.
+     */
+    @Test
+    public final void whenNoChangeThenMoneyNotConserved() {
+        final ExplorationResult result = explore(Invariants.MONEY_CONSERVED);
+        assertEquals(1, result.getViolations().size());
+        final Violation violation = result.getViolations().get(0);
+        assertEquals("money conserved", violation.getInvariant());
+        assertEquals(Arrays.asList("insertCoin(QUARTER)",
+                "insertCoin(QUARTER)", "insertCoin(QUARTER)", "vend(CANDY)"),
+                violation.getTrace());
+        assertEquals(0, violation.getState().getInventory()
+                .quantity(Product.CANDY));
+    }
+
+    /**
+     * Test that a vend after an unknown coin loses the coin: the change
+     * replaces whatever was already in the coin return.
+     */
+    @Test
+    public final void whenVendAfterUnknownCoinThenCoinLost() {
+        start = new Machine.Builder(start)
+                .machineBank(new Bank()
+                        .deposit(Currency.DIME, MAX_COINS)
+                        .deposit(Currency.NICKEL, MAX_COINS))
+                .build();
+        final ExplorationResult result = explore(Invariants.MONEY_CONSERVED);
+        assertEquals(1, result.getViolations().size());
+        final List<String> trace = result.getViolations().get(0).getTrace();
+        assertEquals(5, trace.size());
+        assertTrue(trace.contains("insertCoin(UNKNOWN)"));
+        assertEquals("vend(CANDY)", trace.get(4));
+        final Machine lost = result.getViolations().get(0).getState();
+        assertEquals(0, lost.getCoinReturn().getInventory()
+                .quantity(Currency.UNKNOWN));
+    }
+
+    /**
+     * Test that stock never grows anywhere.
+     */
+    @Test
+    public final void whenExploredThenStockNeverGrows() {
+        final ExplorationResult result =
+                explore(Invariants.STOCK_NEVER_GROWS);
+        assertTrue(result.getViolations().isEmpty());
+        assertTrue(result.getStates() > 1L);
+        assertTrue(result.getTransitions() >= result.getStates() - 1L);
+        assertTrue(result.getTruncated() > 0L);
+        assertTrue(result.getDepth() > 0);
+    }
+
+    /**
+     * Test that the empty machine bank is found to show EXACT CHANGE ONLY,
+     * and that every bank found really does.
+     */
+    @Test
+    public final void whenExploredThenExactChangeBanksFound() {
+        final ExplorationResult result =
+                explore(Invariants.STOCK_NEVER_GROWS);
+        assertTrue(items(result).contains(
+                new Bank().getInventory().getItems()));
+        for (Bank bank : result.getExactChangeBanks()) {
+            assertEquals(Message.EXACT_CHANGE.getText(),
+                    new Machine.Builder()
+                            .machineBank(bank)
+                            .build()
+                            .checkDisplay()
+                            .getDisplay());
+        }
+    }
+
+    /**
+     * The coins in each exact-change bank.
+     *
+     * @param result the result
+     * @return the coins, by bank
+     */
+    private static List<Map<Currency, Integer>> items(
+            final ExplorationResult result) {
+        final List<Map<Currency, Integer>> items = new ArrayList<>();
+        for (Bank bank : result.getExactChangeBanks()) {
+            items.add(bank.getInventory().getItems());
+        }
+        return items;
+    }
+
+    /**
+     * Test that every state is visited exactly once however it is reached.
+     */
+    @Test
+    public final void whenExploredTwiceThenSameStates() {
+        final ExplorationResult first = explore(Invariants.MONEY_CONSERVED);
+        final ExplorationResult second = explore(Invariants.MONEY_CONSERVED);
+        assertEquals(first.getStates(), second.getStates());
+        assertEquals(first.getTransitions(), second.getTransitions());
+        assertEquals(items(first), items(second));
+    }
+
+    /**
+     * Test that too many states is refused.
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void whenTooManyStatesThenException() {
+        new Explorer.Builder()
+                .start(start)
+                .maxCoins(MAX_COINS)
+                .maxStates(2)
+                .build()
+                .explore();
+    }
+
+    /**
+     * Test that a start machine outside the bounds is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenStartOutOfBoundsThenException() {
+        new Explorer.Builder()
+                .start(new Machine.Builder(start)
+                        .machineBank(new Bank()
+                                .deposit(Currency.NICKEL, MAX_COINS + 1))
+                        .build())
+                .maxCoins(MAX_COINS)
+                .build();
+    }
+}
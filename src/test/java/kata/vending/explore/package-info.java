@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the state-space explorer.
+ */
+package kata.vending.explore;
@@ -0,0 +1,190 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Product;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Consolidation class.
+ */
+public class ConsolidationTest {
+    /**
+     * Enough pickups that the reduction is split across threads.
+     */
+    private static final int PICKUPS = 2 * Ranges.THRESHOLD + 5;
+
+    /**
+     * Route names.
+     */
+    private static final String[] ROUTES = {"north", "south", "east"};
+
+    /**
+     * Random pickups.
+     */
+    private static List<Pickup> pickups;
+
+    /**
+     * Cash collected by chained deposits, by route.
+     */
+    private static Map<String, Bank> banks;
+
+    /**
+     * Products restocked by chained adds, by route.
+     */
+    private static Map<String, Inventory<Product>> inventories;
+
+    /**
+     * Build random pickups and total them the slow way.
+     */
+    @BeforeClass
+    public static void setUpPickups() {
+        final Random random = new Random(11);
+        pickups = new ArrayList<>();
+        banks = new HashMap<>();
+        inventories = new HashMap<>();
+        for (String route : ROUTES) {
+            banks.put(route, new Bank());
+            inventories.put(route, new Inventory<>(Product.values()));
+        }
+        for (int i = 0; i < PICKUPS; i++) {
+            final String route = ROUTES[random.nextInt(ROUTES.length)];
+            Bank bank = new Bank();
+            for (Currency currency : Currency.descending()) {
+                bank = bank.deposit(currency, random.nextInt(20));
+            }
+            Inventory<Product> inventory = null;
+            if (random.nextBoolean()) {
+                inventory = new Inventory<>(Product.values())
+                        .add(Product.values()[random.nextInt(3)],
+                                random.nextInt(10));
+                inventories.put(route,
+                        inventories.get(route).add(inventory));
+            }
+            banks.put(route, banks.get(route).deposit(bank));
+            pickups.add(new Pickup(route, bank, inventory));
+        }
+    }
+
+    /**
+     * Assert that two banks hold the same coins.
+     *
+     * @param expected the expected bank
+     * @param actual   the actual bank
+     */
+    private static void assertSameCoins(final Bank expected,
+                                        final Bank actual) {
+        for (Currency currency : Currency.values()) {
+            assertEquals(expected.getInventory().quantity(currency),
+                    actual.getInventory().quantity(currency));
+        }
+    }
+
+    /**
+     * Assert that two inventories hold the same products.
+     *
+     * @param expected the expected inventory
+     * @param actual   the actual inventory
+     */
+    private static void assertSameProducts(final Inventory<Product> expected,
+                                           final Inventory<Product> actual) {
+        for (Product product : Product.values()) {
+            assertEquals(expected.quantity(product), actual.quantity(product));
+        }
+    }
+
+    /**
+     * Test that route subtotals match chained deposits.
+     */
+    @Test
+    public final void whenConsolidatedRoutesMatchDeposits() {
+        final Consolidation consolidation = Consolidation.of(pickups);
+        assertEquals(new TreeSet<>(Arrays.asList(ROUTES)),
+                consolidation.getRoutes());
+        long count = 0L;
+        for (String route : ROUTES) {
+            assertSameCoins(banks.get(route),
+                    consolidation.getCollected(route));
+            assertSameProducts(inventories.get(route),
+                    consolidation.getRestocked(route));
+            count += consolidation.getPickups(route);
+        }
+        assertEquals(PICKUPS, count);
+        assertEquals(PICKUPS, consolidation.getPickups());
+    }
+
+    /**
+     * Test that the totals are the sum of the routes.
+     */
+    @Test
+    public final void whenConsolidatedTotalsMatchDeposits() {
+        final Consolidation consolidation = Consolidation.of(pickups);
+        Bank bank = new Bank();
+        Inventory<Product> inventory = new Inventory<>(Product.values());
+        for (String route : ROUTES) {
+            bank = bank.deposit(banks.get(route));
+            inventory = inventory.add(inventories.get(route));
+        }
+        assertSameCoins(bank, consolidation.getCollected());
+        assertSameProducts(inventory, consolidation.getRestocked());
+        assertEquals(bank.getInventory().quantity(Currency.DIME),
+                consolidation.getCoins(Currency.DIME));
+        assertEquals(inventory.quantity(Product.COLA),
+                consolidation.getUnits(Product.COLA));
+    }
+
+    /**
+     * Test that a list of banks totals to one bank.
+     */
+    @Test
+    public final void whenBanksTotalledMatchDeposits() {
+        final List<Bank> collected = new ArrayList<>();
+        Bank bank = new Bank();
+        for (Pickup pickup : pickups) {
+            collected.add(pickup.getCollected());
+            bank = bank.deposit(pickup.getCollected());
+        }
+        assertSameCoins(bank, Consolidation.total(collected));
+    }
+
+    /**
+     * Test that no pickups consolidate to nothing.
+     */
+    @Test
+    public final void whenNoPickupsEmpty() {
+        final Consolidation consolidation =
+                Consolidation.of(Collections.<Pickup>emptyList());
+        assertTrue(consolidation.getRoutes().isEmpty());
+        assertEquals(0L, consolidation.getCollected().calculateBalance());
+    }
+
+    /**
+     * Test that a pickup without a route is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenPickupHasNoRouteRejected() {
+        new Pickup(null, new Bank(), null);
+    }
+
+    /**
+     * Test that asking for a route with no pickups fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenUnknownRouteRejected() {
+        Consolidation.of(pickups).getCollected("west");
+    }
+}
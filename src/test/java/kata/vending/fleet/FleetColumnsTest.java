@@ -0,0 +1,183 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import kata.vending.codec.BankSlot;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the FleetColumns class.
+ */
+public class FleetColumnsTest {
+    /**
+     * Enough machines that scans are split across threads.
+     */
+    private static final int FLEET = 3 * Ranges.THRESHOLD + 17;
+
+    /**
+     * Machine banks hold fewer than this many of each coin.
+     */
+    private static final int MOST_COINS = 8;
+
+    /**
+     * A random fleet.
+     */
+    private static List<Machine> fleet;
+
+    /**
+     * The fleet's columns.
+     */
+    private static FleetColumns columns;
+
+    /**
+     * Build a random fleet and its columns.
+     */
+    @BeforeClass
+    public static void setUpFleet() {
+        final Random random = new Random(7);
+        fleet = new ArrayList<>();
+        for (int i = 0; i < FLEET; i++) {
+            Bank machineBank = new Bank();
+            Bank customerBank = new Bank();
+            for (Currency currency : Currency.descending()) {
+                machineBank = machineBank.deposit(currency,
+                        random.nextInt(MOST_COINS));
+                customerBank = customerBank.deposit(currency,
+                        random.nextInt(2));
+            }
+            Inventory<Product> inventory =
+                    new Inventory<>(Product.values());
+            for (Product product : Product.values()) {
+                inventory = inventory.add(product, random.nextInt(3));
+            }
+            fleet.add(new Machine.Builder()
+                    .machineBank(machineBank)
+                    .customerBank(customerBank)
+                    .inventory(inventory)
+                    .build());
+        }
+        columns = FleetColumns.of(fleet);
+    }
+
+    /**
+     * Test that every machine's counts are copied to its index.
+     */
+    @Test
+    public final void whenBuiltColumnsMatchMachines() {
+        assertEquals(FLEET, columns.size());
+        for (int i = 0; i < FLEET; i++) {
+            final Machine machine = fleet.get(i);
+            for (BankSlot slot : BankSlot.values()) {
+                for (Currency currency : Currency.values()) {
+                    assertEquals(
+                            slot.of(machine).getInventory().quantity(currency),
+                            columns.quantity(i, slot, currency));
+                }
+            }
+            for (Product product : Product.values()) {
+                assertEquals(machine.getInventory().quantity(product),
+                        columns.quantity(i, product));
+            }
+        }
+    }
+
+    /**
+     * Test that totals, balances and stock match a walk of the machines.
+     */
+    @Test
+    public final void whenTotalledMatchesMachines() {
+        for (BankSlot slot : BankSlot.values()) {
+            long balance = 0L;
+            for (Machine machine : fleet) {
+                balance += slot.of(machine).calculateBalance();
+            }
+            assertEquals(balance, columns.balance(slot));
+            for (Currency currency : Currency.values()) {
+                long total = 0L;
+                for (Machine machine : fleet) {
+                    total += slot.of(machine).getInventory()
+                            .quantity(currency);
+                }
+                assertEquals(total, columns.total(slot, currency));
+            }
+        }
+        for (Product product : Product.values()) {
+            long stock = 0L;
+            for (Machine machine : fleet) {
+                stock += machine.getInventory().quantity(product);
+            }
+            assertEquals(stock, columns.stock(product));
+        }
+    }
+
+    /**
+     * Test that filters pick the machines a walk of the machines does.
+     */
+    @Test
+    public final void whenFilteredMatchesMachines() {
+        final BitSet exactChange = new BitSet();
+        for (Product product : Product.values()) {
+            final BitSet soldOut = new BitSet();
+            final BitSet noChange = new BitSet();
+            final long price = product.getPrice();
+            for (int i = 0; i < FLEET; i++) {
+                final Machine machine = fleet.get(i);
+                if (machine.getInventory().quantity(product) == 0) {
+                    soldOut.set(i);
+                }
+                if (machine.getMachineBank().makeChange(price)
+                        .calculateBalance() != price) {
+                    noChange.set(i);
+                }
+            }
+            assertEquals(soldOut, columns.soldOut(product));
+            assertEquals(noChange, columns.cannotMakeChange(product));
+            exactChange.or(noChange);
+        }
+        assertEquals(exactChange, columns.exactChangeOnly());
+        assertTrue(exactChange.cardinality() > 0);
+        assertTrue(exactChange.cardinality() < FLEET);
+    }
+
+    /**
+     * Test that a filtered total only counts the filtered machines.
+     */
+    @Test
+    public final void whenTotalledOverFilterOnlyFilteredCounted() {
+        final BitSet soldOut = columns.soldOut(Product.COLA);
+        long total = 0L;
+        for (int i = soldOut.nextSetBit(0); i >= 0;
+             i = soldOut.nextSetBit(i + 1)) {
+            total += columns.quantity(i, BankSlot.MACHINE, Currency.QUARTER);
+        }
+        assertEquals(total, columns.total(BankSlot.MACHINE, Currency.QUARTER,
+                soldOut));
+        assertEquals(0L, columns.total(BankSlot.MACHINE, Currency.QUARTER,
+                new BitSet()));
+    }
+
+    /**
+     * Test that an empty fleet has empty columns.
+     */
+    @Test
+    public final void whenEmptyFleetNothingFound() {
+        final FleetColumns empty =
+                FleetColumns.of(Collections.<Machine>emptyList());
+        assertEquals(0, empty.size());
+        assertEquals(0L, empty.balance(BankSlot.MACHINE));
+        assertTrue(empty.exactChangeOnly().isEmpty());
+    }
+}
@@ -0,0 +1,243 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import kata.vending.codec.BankSlot;
+import kata.vending.codec.DisplayCode;
+import kata.vending.codec.MachineCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the FleetStore class.
+ */
+public class FleetStoreTest {
+    /**
+     * Machine ids the test store holds.
+     */
+    private static final int CAPACITY = 100;
+
+    /**
+     * The fleet file.
+     */
+    private Path file;
+
+    /**
+     * The store under test.
+     */
+    private FleetStore store;
+
+    /**
+     * A machine to stock the fleet with.
+     */
+    private Machine stocked;
+
+    /**
+     * Create a fresh fleet file and a stocked machine.
+     *
+     * @throws IOException if the file can't be created
+     */
+    @Before
+    public final void setUpStore() throws IOException {
+        file = Files.createTempFile("fleet", ".dat");
+        Files.delete(file);
+        store = new FleetStore(file, CAPACITY);
+        stocked = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.NICKEL, 2)
+                        .deposit(Currency.DIME, 1))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 3)
+                        .add(Product.CHIPS, 2)
+                        .add(Product.COLA, 1))
+                .build();
+    }
+
+    /**
+     * Close and delete the fleet file.
+     *
+     * @throws IOException if the file can't be deleted
+     */
+    @After
+    public final void tearDownStore() throws IOException {
+        store.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Assert that a stored machine matches a Machine.
+     *
+     * @param expected the machine
+     * @param id       the stored machine id
+     */
+    private void assertStored(final Machine expected, final int id) {
+        final Machine actual = store.get(id);
+        for (BankSlot slot : BankSlot.values()) {
+            for (Currency currency : Currency.values()) {
+                assertEquals(slot + " " + currency,
+                        slot.of(expected).getInventory().quantity(currency),
+                        slot.of(actual).getInventory().quantity(currency));
+            }
+        }
+        for (Product product : Product.values()) {
+            assertEquals(expected.getInventory().quantity(product),
+                    actual.getInventory().quantity(product));
+        }
+        assertEquals(expected.getDisplay(), actual.getDisplay());
+        assertEquals(expected.getDisplay(), store.display(id));
+    }
+
+    /**
+     * Test that random sessions in place end up exactly where Machine does.
+     */
+    @Test
+    public final void whenOperatedInPlaceMatchesMachine() {
+        final Coin[] coins = {
+            Currency.NICKEL.getCoin(),
+            Currency.DIME.getCoin(),
+            Currency.QUARTER.getCoin(),
+            null
+        };
+        final Product[] products = {
+            Product.COLA, Product.CHIPS, Product.CANDY, null
+        };
+        final Random random = new Random(42);
+        for (int id = 0; id < 20; id++) {
+            Machine machine = stocked;
+            store.put(id, machine);
+            for (int step = 0; step < 200; step++) {
+                final int choice = random.nextInt(10);
+                if (choice < 5) {
+                    final Coin coin = coins[random.nextInt(coins.length)];
+                    machine = machine.insertCoin(coin);
+                    store.insertCoin(id, coin);
+                } else if (choice < 7) {
+                    final Product product =
+                            products[random.nextInt(products.length)];
+                    machine = machine.vend(product);
+                    store.vend(id, product);
+                } else if (choice < 8) {
+                    machine = machine.returnCoins();
+                    store.returnCoins(id);
+                } else {
+                    machine = machine.checkDisplay();
+                    store.checkDisplay(id);
+                }
+                assertStored(machine, id);
+            }
+        }
+    }
+
+    /**
+     * Test that the returned display codes are the machine's.
+     */
+    @Test
+    public final void whenOperatedDisplayCodesReturned() {
+        store.put(0, stocked);
+        assertEquals(DisplayCode.EXACT_CHANGE, store.checkDisplay(0));
+        assertEquals(DisplayCode.PRICE, store.vend(0, Product.CANDY));
+        assertEquals(DisplayCode.BALANCE,
+                store.insertCoin(0, Currency.QUARTER.getCoin()));
+        assertEquals(DisplayCode.BALANCE, store.insertCoin(0, null));
+        assertEquals(DisplayCode.BALANCE, store.returnCoins(0));
+        assertEquals(DisplayCode.SOLD_OUT, store.vend(0, null));
+    }
+
+    /**
+     * Test that state survives closing and reopening the file.
+     *
+     * @throws IOException if the file can't be reopened
+     */
+    @Test
+    public final void whenReopenedStateSurvives() throws IOException {
+        store.put(CAPACITY - 1, stocked);
+        store.insertCoin(CAPACITY - 1, Currency.QUARTER.getCoin());
+        store.close();
+        store = new FleetStore(file, CAPACITY);
+        assertTrue(store.contains(CAPACITY - 1));
+        assertFalse(store.contains(0));
+        assertEquals("$0.25", store.display(CAPACITY - 1));
+        assertEquals(1, MachineCodec.quantity(store.records(),
+                store.recordIndex(CAPACITY - 1), BankSlot.CUSTOMER,
+                Currency.QUARTER));
+    }
+
+    /**
+     * Test that a file with a different capacity is refused.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public final void whenReopenedWithOtherCapacityThrows()
+            throws IOException {
+        store.close();
+        store = new FleetStore(file, CAPACITY + 1);
+    }
+
+    /**
+     * Test that removed machines are gone.
+     */
+    @Test
+    public final void whenRemovedNotContained() {
+        store.put(7, stocked);
+        assertTrue(store.contains(7));
+        store.remove(7);
+        assertFalse(store.contains(7));
+        assertEquals(CAPACITY, store.getCapacity());
+    }
+
+    /**
+     * Test that operating on a missing machine is refused.
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void whenNoMachineOperationThrows() {
+        store.vend(3, Product.COLA);
+    }
+
+    /**
+     * Test that ids outside the file are refused.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public final void whenIdOutOfRangeThrows() {
+        store.contains(CAPACITY);
+    }
+
+    /**
+     * Test that an impossible capacity is refused.
+     *
+     * @throws IOException never
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenCapacityZeroThrows() throws IOException {
+        new FleetStore(file, 0);
+    }
+
+    /**
+     * Test that change is made largest coins first, as short as needed.
+     */
+    @Test
+    public final void whenMakeChangeMatchesBank() {
+        final int[] counts = new int[Currency.values().length];
+        counts[Currency.QUARTER.ordinal()] = 1;
+        counts[Currency.NICKEL.ordinal()] = 3;
+        final int[] change = new int[counts.length];
+        assertEquals(40L, FleetStore.makeChange(counts, 45L, change));
+        assertEquals(1, change[Currency.QUARTER.ordinal()]);
+        assertEquals(3, change[Currency.NICKEL.ordinal()]);
+        assertEquals(0, change[Currency.DIME.ordinal()]);
+    }
+}
@@ -0,0 +1,172 @@
+package kata.vending.fleet;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the RestockPlanner class.
+ */
+public class RestockPlannerTest {
+    /**
+     * A machine with a little stock and no change.
+     */
+    private Machine empty;
+
+    /**
+     * What the machine sold last period.
+     */
+    private Inventory<Product> sales;
+
+    /**
+     * Set up the machine and its sales.
+     */
+    @Before
+    public final void setUpMachine() {
+        empty = new Machine.Builder()
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.COLA, 2))
+                .build();
+        sales = new Inventory<>(Product.values())
+                .add(Product.COLA, 6)
+                .add(Product.CHIPS, 4)
+                .add(Product.CANDY, 8);
+    }
+
+    /**
+     * Run the planned demand through a real machine and count the customers
+     * met with EXACT CHANGE ONLY.
+     *
+     * @param plan the plan
+     * @return the customers
+     */
+    private int exactChangeCustomers(final RestockPlan plan) {
+        Machine machine = new Machine.Builder()
+                .machineBank(empty.getMachineBank()
+                        .deposit(plan.getCoinFloat()))
+                .inventory(empty.getInventory().add(plan.getRestock()))
+                .build();
+        int exactChange = 0;
+        for (int round = 0; round < 8; round++) {
+            for (Product product : Product.values()) {
+                if (round >= sales.quantity(product)) {
+                    continue;
+                }
+                machine = machine.checkDisplay();
+                if (Message.EXACT_CHANGE.getText()
+                        .equals(machine.getDisplay())) {
+                    exactChange++;
+                }
+                for (long paid = 0; paid < product.getPrice(); paid += 25) {
+                    machine = machine.insertCoin(Currency.QUARTER.getCoin());
+                }
+                machine = machine.vend(product);
+            }
+        }
+        return exactChange;
+    }
+
+    /**
+     * Test that stock is topped up to the demand.
+     */
+    @Test
+    public final void whenPlannedRestockCoversDemand() {
+        final RestockPlan plan = new RestockPlanner(
+                new RestockSettings.Builder().build())
+                .plan(new RestockRequest(7, empty, sales));
+        assertEquals(7, plan.getMachineId());
+        assertEquals(4, plan.getRestock().quantity(Product.COLA));
+        assertEquals(4, plan.getRestock().quantity(Product.CHIPS));
+        assertEquals(8, plan.getRestock().quantity(Product.CANDY));
+        assertEquals(0, plan.getSoldOut());
+    }
+
+    /**
+     * Test that the float keeps customers off EXACT CHANGE ONLY.
+     */
+    @Test
+    public final void whenPlannedFloatAvoidsExactChange() {
+        final RestockPlan plan = new RestockPlanner(
+                new RestockSettings.Builder().build())
+                .plan(new RestockRequest(1, empty, sales));
+        assertEquals(0, plan.getExactChange());
+        assertTrue(plan.getCoinFloat().calculateBalance() > 0L);
+        assertTrue(plan.getCoinFloat().calculateBalance()
+                <= RestockSettings.DEFAULT_FLOAT_BUDGET);
+        assertEquals(0, exactChangeCustomers(plan));
+    }
+
+    /**
+     * Test that a machine that can already make change gets no float.
+     */
+    @Test
+    public final void whenChangeAlreadyHeldNoFloat() {
+        empty = new Machine.Builder(empty)
+                .machineBank(new Bank()
+                        .deposit(Currency.QUARTER, 10)
+                        .deposit(Currency.DIME, 10)
+                        .deposit(Currency.NICKEL, 10))
+                .build();
+        final RestockPlan plan = new RestockPlanner(
+                new RestockSettings.Builder().build())
+                .plan(new RestockRequest(1, empty, sales));
+        assertEquals(0L, plan.getCoinFloat().calculateBalance());
+        assertEquals(0, plan.getExactChange());
+    }
+
+    /**
+     * Test that limits are kept to.
+     */
+    @Test
+    public final void whenLimitedPlanStaysWithinLimits() {
+        final RestockPlan plan = new RestockPlanner(
+                new RestockSettings.Builder()
+                        .slotCapacity(5)
+                        .floatBudget(0L)
+                        .build())
+                .plan(new RestockRequest(1, empty, sales));
+        assertEquals(0L, plan.getCoinFloat().calculateBalance());
+        assertTrue(plan.getExactChange() > 0);
+        assertEquals(3, plan.getRestock().quantity(Product.COLA));
+        assertEquals(5, plan.getRestock().quantity(Product.CANDY));
+        assertEquals(1 + 3, plan.getSoldOut());
+    }
+
+    /**
+     * Test that a fleet of alike machines is planned from remembered
+     * simulations.
+     *
+     * @throws InterruptedException never
+     */
+    @Test
+    public final void whenFleetPlannedSimulationsRemembered()
+            throws InterruptedException {
+        final RestockPlanner planner = new RestockPlanner(
+                new RestockSettings.Builder().workers(4).build());
+        final List<RestockRequest> requests = new ArrayList<>();
+        for (int id = 0; id < 200; id++) {
+            requests.add(new RestockRequest(id, empty, sales));
+        }
+        final List<RestockPlan> plans = planner.planAll(requests);
+        assertEquals(200, plans.size());
+        final long balance = plans.get(0).getCoinFloat().calculateBalance();
+        for (int id = 0; id < plans.size(); id++) {
+            assertEquals(id, plans.get(id).getMachineId());
+            assertEquals(balance,
+                    plans.get(id).getCoinFloat().calculateBalance());
+        }
+        assertTrue(planner.getSimulations() * 10
+                < planner.getEvaluations());
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for fleet state storage.
+ */
+package kata.vending.fleet;
@@ -0,0 +1,326 @@
+package kata.vending.gateway;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Gateway class, over loopback.
+ */
+public class GatewayTest {
+    /**
+     * Machines served.
+     */
+    private static final int MACHINES = 4;
+
+    /**
+     * A machine with change and stock.
+     */
+    private Machine machine;
+
+    /**
+     * The gateway.
+     */
+    private Gateway gateway;
+
+    /**
+     * A client.
+     */
+    private GatewayClient client;
+
+    /**
+     * Start a gateway with a few machines and connect to it.
+     *
+     * @throws IOException if it can't start
+     */
+    @Before
+    public final void setUpGateway() throws IOException {
+        machine = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.DIME, 5)
+                        .deposit(Currency.NICKEL, 5))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 10)
+                        .add(Product.CHIPS, 10))
+                .build();
+        final Gateway.Builder builder = new Gateway.Builder().lanes(2);
+        for (int id = 0; id < MACHINES; id++) {
+            builder.machine(id, machine);
+        }
+        gateway = builder.build();
+        gateway.start();
+        client = new GatewayClient(gateway.getAddress());
+    }
+
+    /**
+     * Stop the client and gateway.
+     *
+     * @throws IOException if closing fails
+     */
+    @After
+    public final void tearDownGateway() throws IOException {
+        client.close();
+        gateway.close();
+    }
+
+    /**
+     * Test that a purchase goes through the gateway as it would locally.
+     *
+     * @throws IOException if the gateway can't be reached
+     */
+    @Test
+    public final void whenPurchaseThenSameAsMachine() throws IOException {
+        final int quarter = Currency.QUARTER.ordinal();
+        client.call(1, Command.INSERT_COIN, quarter);
+        client.call(1, Command.INSERT_COIN, quarter);
+        client.call(1, Command.INSERT_COIN, quarter);
+        final Response response =
+                client.call(1, Command.VEND, Product.CANDY.ordinal());
+        assertEquals(Status.OK, response.getStatus());
+        assertEquals(1, response.getMachineId());
+        assertEquals(3, response.getSequence());
+        final Machine expected = machine
+                .insertCoin(Currency.QUARTER.getCoin())
+                .insertCoin(Currency.QUARTER.getCoin())
+                .insertCoin(Currency.QUARTER.getCoin())
+                .vend(Product.CANDY);
+        assertEquals(Message.THANK_YOU.getText(),
+                response.getMachine().getDisplay());
+        assertEquals(expected.getCoinReturn().getInventory().getItems(),
+                response.getMachine().getCoinReturn().getInventory()
+                        .getItems());
+        assertEquals(expected.getMachineBank().getInventory().getItems(),
+                response.getMachine().getMachineBank().getInventory()
+                        .getItems());
+    }
+
+    /**
+     * Test that pipelined requests come back in order per machine.
+     *
+     * @throws IOException if the gateway can't be reached
+     */
+    @Test
+    public final void whenPipelinedThenInOrderPerMachine() throws IOException {
+        final int requests = 1000;
+        for (int i = 0; i < requests; i++) {
+            client.send(i % MACHINES, Command.INSERT_COIN,
+                    Currency.NICKEL.ordinal());
+        }
+        client.flush();
+        final Map<Integer, Integer> last = new HashMap<>();
+        final Map<Integer, Long> balances = new HashMap<>();
+        for (int i = 0; i < requests; i++) {
+            final Response response = client.receive();
+            assertEquals(Status.OK, response.getStatus());
+            final Integer previous = last.get(response.getMachineId());
+            if (previous != null) {
+                assertTrue(response.getSequence() > previous);
+            }
+            last.put(response.getMachineId(), response.getSequence());
+            balances.put(response.getMachineId(), response.getMachine()
+                    .getCustomerBank().calculateBalance());
+        }
+        for (int id = 0; id < MACHINES; id++) {
+            assertEquals(Long.valueOf(requests / MACHINES * 5L),
+                    balances.get(id));
+        }
+    }
+
+    /**
+     * Test that bad requests are answered, not dropped.
+     *
+     * @throws IOException if the gateway can't be reached
+     */
+    @Test
+    public final void whenBadRequestThenStatus() throws IOException {
+        assertEquals(Status.UNKNOWN_MACHINE,
+                client.call(MACHINES, Command.CHECK_DISPLAY, 0).getStatus());
+        assertEquals(Status.BAD_REQUEST, client.call(0, Command.VEND,
+                Product.values().length).getStatus());
+        assertEquals(Status.OK,
+                client.call(0, Command.CHECK_DISPLAY, 0).getStatus());
+    }
+
+    /**
+     * Test that a machine the protocol can't encode gets BAD_REQUEST, not
+     * silence, and the connection carries on.
+     *
+     * @throws IOException if the gateway can't be reached
+     */
+    @Test
+    public final void whenMachineCantBeEncodedThenBadRequest()
+            throws IOException {
+        gateway.register(MACHINES, new Machine.Builder(machine)
+                .display("HELLO")
+                .build());
+        assertEquals(Status.BAD_REQUEST,
+                client.call(MACHINES, Command.SNAPSHOT, 0).getStatus());
+        assertEquals(Status.BAD_REQUEST,
+                client.call(MACHINES, Command.RELEASE, 0).getStatus());
+        assertEquals(Status.OK, client.call(MACHINES, Command.RETURN_COINS,
+                0).getStatus());
+        assertEquals(Status.OK,
+                client.call(0, Command.CHECK_DISPLAY, 0).getStatus());
+    }
+
+    /**
+     * Test that a machine registered later can be used.
+     *
+     * @throws IOException if the gateway can't be reached
+     */
+    @Test
+    public final void whenRegisteredThenServed() throws IOException {
+        gateway.register(MACHINES, machine);
+        assertEquals(Status.OK, client.call(MACHINES, Command.RETURN_COINS,
+                0).getStatus());
+    }
+
+    /**
+     * Test that terminals sharing a machine don't lose each other's coins.
+     *
+     * @throws Exception if a terminal fails
+     */
+    @Test
+    public final void whenManyTerminalsThenNoLostUpdates() throws Exception {
+        final int terminals = 8;
+        final int coins = 250;
+        final ExecutorService pool = Executors.newFixedThreadPool(terminals);
+        try {
+            final List<Future<Void>> done = new ArrayList<>();
+            for (int t = 0; t < terminals; t++) {
+                done.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        try (GatewayClient terminal =
+                                     new GatewayClient(gateway.getAddress())) {
+                            for (int i = 0; i < coins; i++) {
+                                terminal.send(2, Command.INSERT_COIN,
+                                        Currency.DIME.ordinal());
+                            }
+                            terminal.flush();
+                            for (int i = 0; i < coins; i++) {
+                                terminal.receive();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        final Response returned = client.call(2, Command.RETURN_COINS, 0);
+        assertEquals(terminals * coins, returned.getMachine().getCoinReturn()
+                .getInventory().quantity(Currency.DIME));
+    }
+
+    /**
+     * Test that lane threads are named daemons, so an unclosed gateway
+     * doesn't keep the JVM up.
+     *
+     * @throws IOException if the gateway can't be reached
+     */
+    @Test
+    public final void whenLanesRunThenTheirThreadsAreDaemons()
+            throws IOException {
+        assertEquals(Status.OK,
+                client.call(0, Command.SNAPSHOT, 0).getStatus());
+        int lanes = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("gateway-lane-")) {
+                assertTrue(thread.isDaemon());
+                lanes++;
+            }
+        }
+        assertTrue(lanes > 0);
+    }
+
+    /**
+     * Test that a client with a timeout gives up on a gateway that never
+     * answers, and can't be used after.
+     *
+     * @throws IOException if the socket can't be opened
+     */
+    @Test
+    public final void whenNoResponseInTimeThenClientGivesUp()
+            throws IOException {
+        try (ServerSocketChannel silent = ServerSocketChannel.open()) {
+            silent.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    0));
+            try (GatewayClient waiting = new GatewayClient(
+                    (InetSocketAddress) silent.getLocalAddress(), 100)) {
+                try {
+                    waiting.call(0, Command.SNAPSHOT, 0);
+                    throw new AssertionError("answered by nobody");
+                } catch (SocketTimeoutException expected) {
+                    assertFalse(waiting.isOpen());
+                }
+                try {
+                    waiting.call(0, Command.SNAPSHOT, 0);
+                    throw new AssertionError("used after timing out");
+                } catch (ClosedChannelException expected) {
+                    assertFalse(waiting.isOpen());
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a machine can be read, released and restored elsewhere.
+     *
+     * @throws IOException if a gateway can't be reached
+     */
+    @Test
+    public final void whenReleasedThenRestoredElsewhere() throws IOException {
+        client.call(0, Command.INSERT_COIN, Currency.DIME.ordinal());
+        final Response snapshot = client.call(0, Command.SNAPSHOT, 0);
+        assertEquals("$0.10", snapshot.getMachine().getDisplay());
+        final Response released = client.call(0, Command.RELEASE, 0);
+        assertEquals(Status.OK, released.getStatus());
+        assertEquals(Status.UNKNOWN_MACHINE,
+                client.call(0, Command.SNAPSHOT, 0).getStatus());
+        try (Gateway other = new Gateway.Builder().lanes(1).build()) {
+            other.start();
+            try (GatewayClient otherClient =
+                         new GatewayClient(other.getAddress())) {
+                otherClient.sendRestore(0, released.getMachine());
+                otherClient.flush();
+                assertEquals(Status.OK, otherClient.receive().getStatus());
+                final Response after = otherClient.call(0,
+                        Command.INSERT_COIN, Currency.DIME.ordinal());
+                assertEquals("$0.20", after.getMachine().getDisplay());
+                assertEquals(machine.getMachineBank().calculateBalance(),
+                        after.getMachine().getMachineBank()
+                                .calculateBalance());
+            }
+        }
+    }
+}
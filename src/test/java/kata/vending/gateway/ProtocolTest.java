@@ -0,0 +1,134 @@
+package kata.vending.gateway;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import kata.vending.codec.MachineCodec;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the Protocol class.
+ */
+public class ProtocolTest {
+    /**
+     * A machine with change and candy.
+     */
+    private Machine machine;
+
+    /**
+     * Set up the machine.
+     */
+    @Before
+    public final void setUpMachine() {
+        machine = new Machine.Builder()
+                .machineBank(new Bank().deposit(Currency.DIME, 3))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 2))
+                .build();
+    }
+
+    /**
+     * Test that a request has the documented layout.
+     */
+    @Test
+    public final void whenRequestWrittenThenFixedLayout() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Protocol.REQUEST_SIZE);
+        Protocol.putRequest(buffer, 7, 42, Command.VEND,
+                Product.CANDY.ordinal());
+        assertEquals(Protocol.REQUEST_SIZE, buffer.position());
+        assertEquals(7, buffer.getInt(0));
+        assertEquals(42, buffer.getInt(4));
+        assertEquals(Command.VEND.ordinal(), buffer.get(8));
+        assertEquals(Product.CANDY.ordinal(), buffer.get(9));
+    }
+
+    /**
+     * Test that a response round-trips with its machine.
+     */
+    @Test
+    public final void whenResponseRoundTripsThenSameMachine() {
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(Protocol.RESPONSE_SIZE);
+        final Machine after = machine.insertCoin(Currency.QUARTER.getCoin());
+        Protocol.putResponse(buffer, 7, 42, Status.OK, after);
+        buffer.flip();
+        final Response response = Protocol.getResponse(buffer);
+        assertEquals(Protocol.RESPONSE_SIZE, buffer.position());
+        assertEquals(7, response.getMachineId());
+        assertEquals(42, response.getSequence());
+        assertEquals(Status.OK, response.getStatus());
+        assertEquals("$0.25", response.getMachine().getDisplay());
+        assertEquals(after.getMachineBank().getInventory().getItems(),
+                response.getMachine().getMachineBank().getInventory()
+                        .getItems());
+    }
+
+    /**
+     * Test that a failed response carries no machine.
+     */
+    @Test
+    public final void whenResponseFailedThenNoMachine() {
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(Protocol.RESPONSE_SIZE);
+        Protocol.putResponse(buffer, 7, 1, Status.UNKNOWN_MACHINE, null);
+        buffer.flip();
+        final Response response = Protocol.getResponse(buffer);
+        assertEquals(Status.UNKNOWN_MACHINE, response.getStatus());
+        assertNull(response.getMachine());
+    }
+
+    /**
+     * Test that commands run against the machine.
+     */
+    @Test
+    public final void whenAppliedThenSameAsMachine() {
+        final Machine paid = Protocol.apply(machine, Command.INSERT_COIN,
+                Currency.QUARTER.ordinal());
+        assertEquals("$0.25", paid.getDisplay());
+        assertEquals(Message.PRICE.getText() + " $0.65",
+                Protocol.apply(paid, Command.VEND, Product.CANDY.ordinal())
+                        .getDisplay());
+        final Machine slug = Protocol.apply(machine, Command.INSERT_COIN,
+                Currency.UNKNOWN.ordinal());
+        assertEquals(1, slug.getCoinReturn().getInventory()
+                .quantity(Currency.UNKNOWN));
+    }
+
+    /**
+     * Test that arguments out of range are refused.
+     */
+    @Test
+    public final void whenArgumentOutOfRangeThenNull() {
+        assertNull(Protocol.apply(machine, Command.VEND,
+                Product.values().length));
+        assertNull(Protocol.apply(machine, Command.INSERT_COIN, -1));
+    }
+
+    /**
+     * Test that a RESTORE request carries the machine after the header.
+     */
+    @Test
+    public final void whenRestoreWrittenThenRecordFollows() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Protocol.RESTORE_SIZE);
+        Protocol.putRestore(buffer, 3, 9, machine);
+        assertEquals(Protocol.RESTORE_SIZE, buffer.position());
+        assertEquals(Command.RESTORE.ordinal(),
+                buffer.get(Protocol.COMMAND_OFFSET));
+        assertEquals(Protocol.RESTORE_SIZE,
+                Protocol.requestSize(Command.RESTORE.ordinal()));
+        assertEquals(Protocol.REQUEST_SIZE,
+                Protocol.requestSize(Command.VEND.ordinal()));
+        assertEquals(machine.getDisplay(), MachineCodec
+                .decode(buffer, Protocol.REQUEST_SIZE).getDisplay());
+        assertNull(Protocol.apply(machine, Command.SNAPSHOT, 0));
+    }
+}
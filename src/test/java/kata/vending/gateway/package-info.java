@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the machine gateway, run over loopback.
+ */
+package kata.vending.gateway;
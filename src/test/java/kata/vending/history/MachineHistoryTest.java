@@ -0,0 +1,189 @@
+package kata.vending.history;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import kata.vending.codec.MachineCodec;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the MachineHistory class.
+ */
+public class MachineHistoryTest {
+    /**
+     * Coins to feed the machine, round and round.
+     */
+    private static final Coin[] COINS = {
+            Currency.QUARTER.getCoin(), Currency.DIME.getCoin(),
+            Currency.NICKEL.getCoin(), Currency.UNKNOWN.getCoin()};
+
+    /**
+     * A stocked machine.
+     *
+     * @return the machine
+     */
+    private static Machine stocked() {
+        Bank bank = new Bank();
+        Inventory<Product> inventory = new Inventory<>(Product.values());
+        for (Currency currency : Currency.values()) {
+            bank = bank.deposit(currency, 20);
+        }
+        for (Product product : Product.values()) {
+            inventory = inventory.add(product, 50);
+        }
+        return new Machine.Builder()
+                .machineBank(bank)
+                .inventory(inventory)
+                .build();
+    }
+
+    /**
+     * Run a machine through some operations, recording every state.
+     *
+     * @param history where to record
+     * @param steps   how many operations
+     * @return every state, oldest first
+     */
+    private static List<Machine> drive(final MachineHistory history,
+                                       final int steps) {
+        List<Machine> states = new ArrayList<>();
+        Machine machine = history.record(stocked());
+        states.add(machine);
+        Product[] products = Product.values();
+        for (int i = 1; i < steps; i++) {
+            if (i % 7 == 0) {
+                machine = machine.vend(products[i % products.length]);
+            } else if (i % 11 == 0) {
+                machine = machine.returnCoins();
+            } else if (i % 5 == 0) {
+                machine = machine.checkDisplay();
+            } else {
+                machine = machine.insertCoin(COINS[i % COINS.length]);
+            }
+            states.add(history.record(machine));
+        }
+        return states;
+    }
+
+    /**
+     * Check that two machines encode to the same record.
+     *
+     * @param expected the expected machine
+     * @param actual   the actual machine
+     */
+    private static void assertSameState(final Machine expected,
+                                        final Machine actual) {
+        ByteBuffer a = ByteBuffer.allocate(MachineCodec.SIZE);
+        ByteBuffer b = ByteBuffer.allocate(MachineCodec.SIZE);
+        MachineCodec.encode(expected, a, 0);
+        MachineCodec.encode(actual, b, 0);
+        assertEquals(a, b);
+        assertEquals(expected.getDisplay(), actual.getDisplay());
+    }
+
+    /**
+     * Test that every kept state comes back as it was.
+     */
+    @Test
+    public final void whenStatesRecordedEachComesBack() {
+        MachineHistory history = new MachineHistory.Builder()
+                .capacity(100)
+                .keyframeInterval(8)
+                .build();
+        List<Machine> states = drive(history, 100);
+        assertEquals(100, history.size());
+        for (int back = 0; back < 100; back++) {
+            assertSameState(states.get(states.size() - 1 - back),
+                    history.get(back));
+        }
+    }
+
+    /**
+     * Test that only the last capacity states are kept once the history
+     * wraps.
+     */
+    @Test
+    public final void whenHistoryWrapsOldestStatesGo() {
+        MachineHistory history = new MachineHistory.Builder()
+                .capacity(50)
+                .keyframeInterval(16)
+                .build();
+        List<Machine> states = drive(history, 1003);
+        assertEquals(50, history.size());
+        assertEquals(1003L, history.getRecorded());
+        for (int back = 0; back < 50; back++) {
+            assertSameState(states.get(states.size() - 1 - back),
+                    history.get(back));
+        }
+        try {
+            history.get(50);
+            throw new AssertionError("got a state that is gone");
+        } catch (IndexOutOfBoundsException expected) {
+            assertTrue(expected.getMessage().contains("50"));
+        }
+    }
+
+    /**
+     * Test that a keyframe every state works too.
+     */
+    @Test
+    public final void whenEveryStateIsKeyframeStatesComeBack() {
+        MachineHistory history = new MachineHistory.Builder()
+                .capacity(10)
+                .keyframeInterval(1)
+                .build();
+        List<Machine> states = drive(history, 25);
+        for (int back = 0; back < 10; back++) {
+            assertSameState(states.get(states.size() - 1 - back),
+                    history.get(back));
+        }
+    }
+
+    /**
+     * Test that deltas take far less room than whole records.
+     */
+    @Test
+    public final void whenDeltasKeptMemoryFollowsChanges() {
+        MachineHistory history = new MachineHistory.Builder()
+                .capacity(1024)
+                .keyframeInterval(64)
+                .build();
+        drive(history, 1024);
+        long whole = 1024L * MachineCodec.SIZE;
+        assertTrue(history.getBytes() * 4 < whole);
+        assertTrue(history.getBytes() > 16L * MachineCodec.SIZE);
+    }
+
+    /**
+     * Test that an empty history has nothing to give and bad settings are
+     * refused.
+     */
+    @Test
+    public final void whenEmptyOrBadNothingComesBack() {
+        MachineHistory history = new MachineHistory.Builder().build();
+        assertEquals(0, history.size());
+        assertEquals(0L, history.getBytes());
+        try {
+            history.get(0);
+            throw new AssertionError("got a state from nothing");
+        } catch (IndexOutOfBoundsException expected) {
+            assertTrue(expected.getMessage().length() > 0);
+        }
+        try {
+            new MachineHistory.Builder().keyframeInterval(0).build();
+            throw new AssertionError("built with no keyframes");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().length() > 0);
+        }
+    }
+}
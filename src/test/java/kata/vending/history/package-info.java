@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the machine history.
+ */
+package kata.vending.history;
@@ -0,0 +1,180 @@
+package kata.vending.intake;
+
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Machine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CoinIntake class.
+ */
+public class CoinIntakeTest {
+    /**
+     * Coins the sensor reads, including one nobody knows.
+     */
+    private static final Coin[] COINS = {
+        Currency.NICKEL.getCoin(),
+        Currency.DIME.getCoin(),
+        Currency.QUARTER.getCoin(),
+        new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY)
+    };
+
+    /**
+     * Feed coins through an intake, retrying refused ones, and check what
+     * comes out.
+     *
+     * @param waitStrategy how the stages wait
+     */
+    private static void run(final WaitStrategy waitStrategy) {
+        final int coins = 20000;
+        final List<Currency> seen = new ArrayList<>();
+        final int[] batches = new int[1];
+        final CoinIntake intake = new CoinIntake.Builder()
+                .capacity(64)
+                .waitStrategy(waitStrategy)
+                .listener(new IntakeListener() {
+                    @Override
+                    public void onCoin(final CoinEvent event,
+                                       final boolean endOfBatch) {
+                        seen.add(event.getCurrency());
+                        if (endOfBatch) {
+                            batches[0]++;
+                        }
+                    }
+                })
+                .build();
+        intake.start();
+        Machine expected = new Machine.Builder().build();
+        for (int i = 0; i < coins; i++) {
+            final Coin coin = COINS[i % COINS.length];
+            while (!intake.offer(coin)) {
+                Thread.yield();
+            }
+            expected = expected.insertCoin(coin);
+        }
+        intake.close();
+        assertEquals(coins, intake.getProcessed());
+        assertEquals(coins, seen.size());
+        for (int i = 0; i < coins; i++) {
+            assertEquals(Currency.toCurrency(COINS[i % COINS.length]),
+                    seen.get(i));
+        }
+        assertTrue(batches[0] >= 1);
+        assertEquals(expected.getCustomerBank().calculateBalance(),
+                intake.getMachine().getCustomerBank().calculateBalance());
+        assertEquals(coins / COINS.length, intake.getMachine()
+                .getCoinReturn().getInventory().quantity(Currency.UNKNOWN));
+    }
+
+    /**
+     * Test coins get through with the busy spin strategy.
+     */
+    @Test
+    public final void whenBusySpinThenEveryCoinTaken() {
+        run(WaitStrategies.busySpin());
+    }
+
+    /**
+     * Test coins get through with the yielding strategy.
+     */
+    @Test
+    public final void whenYieldingThenEveryCoinTaken() {
+        run(WaitStrategies.yielding());
+    }
+
+    /**
+     * Test coins get through with the sleeping strategy.
+     */
+    @Test
+    public final void whenSleepingThenEveryCoinTaken() {
+        run(WaitStrategies.sleeping(TimeUnit.MICROSECONDS.toNanos(50)));
+    }
+
+    /**
+     * Test coins get through with the blocking strategy.
+     */
+    @Test
+    public final void whenBlockingThenEveryCoinTaken() {
+        run(WaitStrategies.blocking());
+    }
+
+    /**
+     * Test that a full ring refuses coins instead of blocking.
+     */
+    @Test
+    public final void whenRingFullThenRefused() {
+        final CoinIntake intake = new CoinIntake.Builder()
+                .capacity(4)
+                .build();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(intake.offer(Currency.DIME.getCoin()));
+        }
+        assertFalse(intake.offer(Currency.DIME.getCoin()));
+        assertEquals(1L, intake.getRejected());
+        intake.start();
+        intake.close();
+        assertEquals(4L, intake.getProcessed());
+        assertEquals(40L, intake.getMachine().getCustomerBank()
+                .calculateBalance());
+    }
+
+    /**
+     * Test that a closed intake refuses coins.
+     */
+    @Test
+    public final void whenClosedThenRefused() {
+        final CoinIntake intake = new CoinIntake.Builder().build();
+        intake.start();
+        intake.close();
+        assertFalse(intake.offer(Currency.DIME.getCoin()));
+    }
+
+    /**
+     * Test that a listener that throws loses only its own coins, and that
+     * close still returns.
+     */
+    @Test(timeout = 10000)
+    public final void whenListenerThrowsThenIntakeCarriesOnAndCloses() {
+        final List<Currency> seen = new ArrayList<>();
+        final CoinIntake intake = new CoinIntake.Builder()
+                .waitStrategy(WaitStrategies.blocking())
+                .listener(new IntakeListener() {
+                    @Override
+                    public void onCoin(final CoinEvent event,
+                                       final boolean endOfBatch) {
+                        if (event.getCurrency() == Currency.DIME) {
+                            throw new IllegalStateException("display down");
+                        }
+                        seen.add(event.getCurrency());
+                    }
+                })
+                .build();
+        intake.start();
+        assertTrue(intake.offer(Currency.DIME.getCoin()));
+        assertTrue(intake.offer(Currency.QUARTER.getCoin()));
+        assertTrue(intake.offer(Currency.DIME.getCoin()));
+        intake.close();
+        assertEquals(3L, intake.getProcessed());
+        assertEquals(2L, intake.getFailed());
+        assertEquals(1, seen.size());
+        assertEquals(Currency.QUARTER, seen.get(0));
+        assertEquals(45L, intake.getMachine().getCustomerBank()
+                .calculateBalance());
+    }
+
+    /**
+     * Test that a capacity that isn't a power of two is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenCapacityNotPowerOfTwoThenException() {
+        new CoinIntake.Builder().capacity(100).build();
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the coin intake pipeline.
+ */
+package kata.vending.intake;
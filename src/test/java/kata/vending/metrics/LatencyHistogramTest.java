@@ -0,0 +1,74 @@
+package kata.vending.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+    /**
+     * Test that small values get a bucket each.
+     */
+    @Test
+    public final void whenSmallValuesBucketsAreExact() {
+        for (int value = 0; value < 2 * LatencyHistogram.SUB_BUCKETS; value++) {
+            assertEquals(value, LatencyHistogram.bucket(value));
+            assertEquals(value, LatencyHistogram.upperBound(value));
+        }
+    }
+
+    /**
+     * Test that every value falls in a bucket whose upper bound is at most
+     * about 6% above it.
+     */
+    @Test
+    public final void whenLargeValuesBucketsAreClose() {
+        long value = 1L;
+        while (value > 0 && value < Long.MAX_VALUE / 3) {
+            final int bucket = LatencyHistogram.bucket(value);
+            final long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(upper >= value);
+            assertTrue(upper - value <= value / LatencyHistogram.SUB_BUCKETS);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            value = value * 3 + 1;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1,
+                LatencyHistogram.bucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE,
+                LatencyHistogram.upperBound(LatencyHistogram.BUCKETS - 1));
+        assertEquals(0, LatencyHistogram.bucket(-1L));
+    }
+
+    /**
+     * Test that an empty histogram reports zeroes.
+     */
+    @Test
+    public final void whenEmptySnapshotIsZero() {
+        final LatencySnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0L, snapshot.getCount());
+        assertEquals(0L, snapshot.percentile(99d));
+        assertEquals(0d, snapshot.getMean(), 0d);
+    }
+
+    /**
+     * Test that percentiles, mean and max come out right.
+     */
+    @Test
+    public final void whenRecordedPercentilesAreCorrect() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        final LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(100L, snapshot.getCount());
+        assertEquals(100000L, snapshot.getMax());
+        assertEquals(50500d, snapshot.getMean(), 0d);
+        final long p50 = snapshot.percentile(50d);
+        assertTrue(p50 >= 50000L && p50 <= 50000L * 17 / 16);
+        assertEquals(100000L, snapshot.percentile(100d));
+        assertEquals(1023L, snapshot.percentile(0d));
+    }
+}
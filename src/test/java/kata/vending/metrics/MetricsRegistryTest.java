@@ -0,0 +1,157 @@
+package kata.vending.metrics;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Operation;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the MetricsRegistry class.
+ */
+public class MetricsRegistryTest {
+    /**
+     * The registry under test.
+     */
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    /**
+     * Quarter coin.
+     */
+    private final Coin quarter = Currency.QUARTER.getCoin();
+
+    /**
+     * A machine with a little change and one candy.
+     */
+    private Machine machine;
+
+    /**
+     * Set up the machine and start counting.
+     */
+    @Before
+    public final void setUpMachineAndStart() {
+        machine = new Machine.Builder()
+                .machineBank(new Bank().deposit(Currency.DIME))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY))
+                .build();
+        registry.start();
+    }
+
+    /**
+     * Stop counting.
+     */
+    @After
+    public final void stop() {
+        registry.stop();
+    }
+
+    /**
+     * Test that accepted and rejected coins are counted.
+     */
+    @Test
+    public final void whenCoinsInsertedAcceptedAndRejectedCounted() {
+        machine.insertCoin(quarter).insertCoin(null).insertCoin(quarter);
+        final MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(2L, snapshot.getCoinsAccepted());
+        assertEquals(1L, snapshot.getCoinsRejected());
+        assertEquals(3L, snapshot.getLatency(Operation.INSERT_COIN)
+                .getCount());
+    }
+
+    /**
+     * Test that vends, sold outs and change are counted.
+     */
+    @Test
+    public final void whenVendingProductsAndChangeCounted() {
+        final Machine vended = machine
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CANDY);
+        vended.vend(Product.CANDY);
+        final MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(1L, snapshot.getVends(Product.CANDY));
+        assertEquals(0L, snapshot.getVends(Product.COLA));
+        assertEquals(1L, snapshot.getSoldOut());
+        assertEquals(1L, snapshot.getChangeDispensed(Currency.DIME));
+        assertEquals(Long.valueOf(1L), snapshot.getVends().get("CANDY"));
+        assertEquals(Long.valueOf(1L),
+                snapshot.getChangeDispensed().get("DIME"));
+    }
+
+    /**
+     * Test that EXACT CHANGE ONLY displays are counted once per check.
+     */
+    @Test
+    public final void whenExactChangeDisplayedCounted() {
+        machine.checkDisplay().checkDisplay();
+        final MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(2L, snapshot.getExactChange());
+        assertEquals(2L, snapshot.getLatency(Operation.CAN_MAKE_CHANGE)
+                .getCount());
+    }
+
+    /**
+     * Test that nothing is counted once stopped.
+     */
+    @Test
+    public final void whenStoppedNothingCounted() {
+        registry.stop();
+        machine.insertCoin(quarter);
+        assertEquals(0L, registry.snapshot().getCoinsAccepted());
+    }
+
+    /**
+     * Test that the text dump has the counters and latencies.
+     */
+    @Test
+    public final void whenDumpedTextHasEverything() {
+        machine.insertCoin(quarter).returnCoins();
+        final String text = registry.snapshot().toText();
+        assertTrue(text.contains("coins.accepted 1\n"));
+        assertTrue(text.contains("vends.COLA 0\n"));
+        assertTrue(text.contains("change.QUARTER 0\n"));
+        assertTrue(text.contains("latency.RETURN_COINS count=1 "));
+        assertTrue(text.contains(" p999="));
+    }
+
+    /**
+     * Test that the registry can be read over JMX.
+     *
+     * @throws JMException if registration fails
+     */
+    @Test
+    public final void whenRegisteredReadableOverJmx() throws JMException {
+        final ObjectName name = registry.registerMBean(
+                MetricsRegistry.OBJECT_NAME + ",name=test");
+        try {
+            machine.insertCoin(quarter);
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "CoinsAccepted"));
+            final MetricsMXBean bean = new Metrics(registry);
+            assertEquals(0L, bean.getCoinsRejected());
+            assertEquals(0L, bean.getSoldOut());
+            assertEquals(0L, bean.getExactChange());
+            assertEquals(Long.valueOf(0L), bean.getVends().get("CHIPS"));
+            assertEquals(Long.valueOf(0L),
+                    bean.getChangeDispensed().get("NICKEL"));
+            assertTrue(bean.getLatencyP99().get("INSERT_COIN") >= 0L);
+            assertTrue(bean.dump().startsWith("coins.accepted 1\n"));
+        } finally {
+            MetricsRegistry.unregisterMBean(name);
+        }
+    }
+}
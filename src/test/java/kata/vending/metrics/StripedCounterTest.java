@@ -0,0 +1,58 @@
+package kata.vending.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the StripedCounter class.
+ */
+public class StripedCounterTest {
+    /**
+     * Test that a new counter is zero.
+     */
+    @Test
+    public final void whenNewCounterSumIsZero() {
+        assertEquals(0L, new StripedCounter().sum());
+    }
+
+    /**
+     * Test that increments and adds are summed.
+     */
+    @Test
+    public final void whenAddAndIncrementSumIsCorrect() {
+        final StripedCounter counter = new StripedCounter();
+        counter.increment();
+        counter.add(41L);
+        assertEquals(42L, counter.sum());
+    }
+
+    /**
+     * Test that no increments are lost across threads.
+     *
+     * @throws InterruptedException if interrupted while joining
+     */
+    @Test
+    public final void whenManyThreadsIncrementNothingIsLost()
+            throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        final int threads = 8;
+        final int increments = 10000;
+        final Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < increments; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals((long) threads * increments, counter.sum());
+    }
+}
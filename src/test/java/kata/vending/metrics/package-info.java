@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the metrics registry.
+ */
+package kata.vending.metrics;
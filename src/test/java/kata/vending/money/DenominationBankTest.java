@@ -0,0 +1,174 @@
+package kata.vending.money;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import org.junit.Test;
+
+import static kata.vending.money.DenominationRegistryTest.denomination;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the DenominationBank class.
+ */
+public class DenominationBankTest {
+    /**
+     * The standard registry.
+     */
+    private final DenominationRegistry usd = DenominationRegistry.standard();
+
+    /**
+     * Test that balances count coins and bills in their own currency.
+     */
+    @Test
+    public final void whenDepositedBalanceIsPerCurrency() {
+        DenominationRegistry registry = new DenominationRegistry.Builder()
+                .add(denomination("QUARTER", "USD", 25L, Form.COIN))
+                .add(denomination("FIVE", "USD", 500L, Form.BILL))
+                .add(denomination("PESO_10", "MXN", 1000L, Form.COIN))
+                .build();
+        DenominationBank bank = new DenominationBank(registry)
+                .deposit("QUARTER", 3)
+                .deposit("FIVE", 2)
+                .deposit("PESO_10", 4);
+        assertEquals(1075L, bank.balance("USD"));
+        assertEquals(4000L, bank.balance("MXN"));
+        assertEquals(9L, bank.countPieces());
+        assertEquals(0, bank.count("DIME"));
+        bank.withdraw(registry.indexOf("FIVE"), 1);
+        assertEquals(575L, bank.balance("USD"));
+    }
+
+    /**
+     * Test that a bank converts to and from a Bank by currency name.
+     */
+    @Test
+    public final void whenConvertedCoinsMatchBank() {
+        Bank coins = new Bank()
+                .deposit(Currency.NICKEL, 2)
+                .deposit(Currency.QUARTER, 5);
+        DenominationBank bank = DenominationBank.of(usd, coins);
+        assertEquals(coins.calculateBalance(), bank.balance("USD"));
+        assertEquals(5, bank.count("QUARTER"));
+        bank.deposit("DOLLAR_BILL", 1);
+        assertEquals(coins.getInventory().getItems(),
+                bank.toBank().getInventory().getItems());
+    }
+
+    /**
+     * Test that change comes largest first and bills aren't paid out.
+     */
+    @Test
+    public final void whenChangeMadeLargestFirstWithoutBills() {
+        DenominationBank bank = new DenominationBank(usd)
+                .deposit("FIVE_DOLLAR_BILL", 3)
+                .deposit("DOLLAR_COIN", 2)
+                .deposit("QUARTER", 10)
+                .deposit("DIME", 10)
+                .deposit("NICKEL", 10);
+        DenominationBank change = new DenominationBank(usd);
+        assertEquals(0L, bank.makeChange("USD", 340L, change));
+        assertEquals(2, change.count("DOLLAR_COIN"));
+        assertEquals(5, change.count("QUARTER"));
+        assertEquals(1, change.count("DIME"));
+        assertEquals(1, change.count("NICKEL"));
+        assertEquals(0, change.count("FIVE_DOLLAR_BILL"));
+        assertEquals(340L, change.balance("USD"));
+        assertEquals(3, bank.count("FIVE_DOLLAR_BILL"));
+        bank.withdraw(change);
+        assertEquals(2100L - 340L, bank.balance("USD"));
+    }
+
+    /**
+     * Test that change is found where largest first gets stuck.
+     */
+    @Test
+    public final void whenLargestFirstStuckChangeIsStillFound() {
+        DenominationRegistry registry = new DenominationRegistry.Builder()
+                .add(denomination("FIFTY", "XXX", 50L, Form.COIN))
+                .add(denomination("TWENTY", "XXX", 20L, Form.COIN))
+                .build();
+        DenominationBank bank = new DenominationBank(registry)
+                .deposit("FIFTY", 1)
+                .deposit("TWENTY", 3);
+        DenominationBank change = new DenominationBank(registry);
+        assertTrue(bank.canMakeChange("XXX", 60L));
+        assertEquals(0L, bank.makeChange("XXX", 60L, change));
+        assertEquals(0, change.count("FIFTY"));
+        assertEquals(3, change.count("TWENTY"));
+        assertFalse(bank.canMakeChange("XXX", 30L));
+        assertEquals(10L, bank.makeChange("XXX", 30L, change));
+        assertEquals(1, change.count("TWENTY"));
+    }
+
+    /**
+     * Test that a search with no answer gives up and still returns the
+     * largest-first amount.
+     */
+    @Test
+    public final void whenNoExactChangeSearchGivesUp() {
+        DenominationRegistry registry = new DenominationRegistry.Builder()
+                .add(denomination("SIX", "XXX", 6L, Form.COIN))
+                .add(denomination("FOUR", "XXX", 4L, Form.COIN))
+                .add(denomination("TWO", "XXX", 2L, Form.COIN))
+                .build();
+        DenominationBank bank = new DenominationBank(registry)
+                .deposit("SIX", 100000)
+                .deposit("FOUR", 100000)
+                .deposit("TWO", 100000);
+        DenominationBank change = new DenominationBank(registry);
+        assertEquals(1L, bank.makeChange("XXX", 1001L, change));
+        assertEquals(1000L, change.balance("XXX"));
+    }
+
+    /**
+     * Test that withdrawing more than is held changes nothing.
+     */
+    @Test
+    public final void whenWithdrawTooMuchNothingChanges() {
+        DenominationBank bank = new DenominationBank(usd)
+                .deposit("DIME", 2)
+                .deposit("NICKEL", 1);
+        DenominationBank take = new DenominationBank(usd)
+                .deposit("DIME", 1)
+                .deposit("NICKEL", 2);
+        try {
+            bank.withdraw(take);
+            throw new AssertionError("withdrew what wasn't there");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("NICKEL"));
+        }
+        assertEquals(25L, bank.balance("USD"));
+        try {
+            bank.makeChange("USD", 5L, new DenominationBank(
+                    new DenominationRegistry.Builder().build()));
+            throw new AssertionError("mixed registries");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().length() > 0);
+        }
+    }
+
+    /**
+     * Test that change for a negative amount is refused.
+     */
+    @Test
+    public final void whenAmountNegativeChangeIsRefused() {
+        DenominationBank bank = new DenominationBank(usd).deposit("DIME", 2);
+        DenominationBank change = new DenominationBank(usd);
+        try {
+            bank.makeChange("USD", -10L, change);
+            throw new AssertionError("made change for a negative amount");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("-10"));
+        }
+        try {
+            bank.canMakeChange("USD", -10L);
+            throw new AssertionError("checked a negative amount");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("-10"));
+        }
+        assertEquals(0L, change.countPieces());
+        assertEquals(0L, bank.clear().countPieces());
+    }
+}
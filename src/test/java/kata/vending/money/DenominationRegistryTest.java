@@ -0,0 +1,99 @@
+package kata.vending.money;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the DenominationRegistry class.
+ */
+public class DenominationRegistryTest {
+    /**
+     * A denomination.
+     *
+     * @param name     the name
+     * @param currency the currency code
+     * @param value    the value
+     * @param form     coin or bill
+     * @return the denomination
+     */
+    static Denomination denomination(final String name,
+                                     final String currency,
+                                     final long value, final Form form) {
+        return new Denomination.Builder()
+                .name(name)
+                .currency(currency)
+                .value(value)
+                .form(form)
+                .build();
+    }
+
+    /**
+     * Test that the standard registry holds the US coins and bills, largest
+     * first.
+     */
+    @Test
+    public final void whenStandardUsedUsDenominationsAreThere() {
+        DenominationRegistry registry = DenominationRegistry.standard();
+        assertSame(registry, DenominationRegistry.standard());
+        assertEquals(6, registry.size());
+        assertEquals(Arrays.asList(DenominationRegistry.USD),
+                registry.getCurrencies());
+        assertEquals(500L, registry.value(0));
+        assertEquals(5L, registry.value(registry.end("USD") - 1));
+        int quarter = registry.indexOf("QUARTER");
+        assertEquals(25L, registry.get(quarter).getValue());
+        assertTrue(registry.isDispensable(quarter));
+        assertFalse(registry.isDispensable(
+                registry.indexOf("FIVE_DOLLAR_BILL")));
+        assertEquals(-1, registry.indexOf("PENNY"));
+    }
+
+    /**
+     * Test that each currency gets its own contiguous range.
+     */
+    @Test
+    public final void whenCurrenciesMixedEachGetsARange() {
+        DenominationRegistry registry = new DenominationRegistry.Builder()
+                .add(denomination("PESO_1", "MXN", 100L, Form.COIN))
+                .add(denomination("DIME", "USD", 10L, Form.COIN))
+                .add(denomination("PESO_20", "MXN", 2000L, Form.BILL))
+                .add(denomination("PESO_5", "MXN", 500L, Form.COIN))
+                .build();
+        assertEquals(Arrays.asList("MXN", "USD"), registry.getCurrencies());
+        assertEquals(0, registry.first("MXN"));
+        assertEquals(3, registry.end("MXN"));
+        assertEquals(3, registry.first("USD"));
+        assertEquals(4, registry.end("USD"));
+        assertEquals("PESO_20", registry.get(0).getName());
+        assertEquals("PESO_1", registry.get(2).getName());
+        assertEquals(Form.BILL, registry.get(0).getForm());
+    }
+
+    /**
+     * Test that bad denominations and duplicate names are refused.
+     */
+    @Test
+    public final void whenDenominationsBadTheyAreRefused() {
+        for (Runnable bad : Arrays.<Runnable>asList(
+                () -> denomination("ZERO", "USD", 0L, Form.COIN),
+                () -> denomination(null, "USD", 1L, Form.COIN),
+                () -> new DenominationRegistry.Builder()
+                        .add(denomination("A", "USD", 1L, Form.COIN))
+                        .add(denomination("A", "EUR", 2L, Form.COIN))
+                        .build(),
+                () -> DenominationRegistry.standard().first("EUR"))) {
+            try {
+                bad.run();
+                throw new AssertionError("accepted");
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().length() > 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package kata.vending.money;
+
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Till class.
+ */
+public class TillTest {
+    /**
+     * The standard registry.
+     */
+    private final DenominationRegistry usd = DenominationRegistry.standard();
+
+    /**
+     * A machine with one of each product.
+     */
+    private Machine machine;
+
+    /**
+     * Set up the machine.
+     */
+    @Before
+    public final void setUpMachine() {
+        Inventory<Product> inventory = new Inventory<>(Product.values())
+                .add(Product.COLA)
+                .add(Product.CHIPS)
+                .add(Product.CANDY);
+        machine = new Machine.Builder().inventory(inventory).build();
+    }
+
+    /**
+     * Test that a vend paid with a bill gives change from the cash box and
+     * keeps the bill.
+     */
+    @Test
+    public final void whenPaidWithBillChangeComesFromCashBox() {
+        Till till = new Till(new DenominationBank(usd)
+                .deposit("QUARTER", 1)
+                .deposit("DIME", 1), DenominationRegistry.USD);
+        assertTrue(till.insert("DOLLAR_BILL"));
+        assertEquals(100L, till.getBalance());
+        Machine vended = machine.vend(Product.CANDY, till);
+        assertEquals(Message.THANK_YOU.getText(), vended.getDisplay());
+        assertEquals(0, vended.getInventory().quantity(Product.CANDY));
+        assertEquals(0L, till.getBalance());
+        DenominationBank collected = till.collect();
+        assertEquals(35L, collected.balance(DenominationRegistry.USD));
+        assertEquals(2L, collected.countPieces());
+        assertEquals(0L, till.collect().countPieces());
+        DenominationBank cashBox = till.getCashBox();
+        assertEquals(1, cashBox.count("DOLLAR_BILL"));
+        assertEquals(1L, cashBox.countPieces());
+    }
+
+    /**
+     * Test that a vend the till can't give exact change for is declined
+     * and the money can be had back.
+     */
+    @Test
+    public final void whenNoExactChangeVendIsDeclined() {
+        Till till = new Till(new DenominationBank(usd),
+                DenominationRegistry.USD);
+        assertTrue(till.insert("DOLLAR_BILL"));
+        Machine refused = machine.vend(Product.CANDY, till);
+        assertTrue(refused.getDisplay().startsWith(Message.PRICE.getText()));
+        assertEquals(1, refused.getInventory().quantity(Product.CANDY));
+        assertEquals(100L, till.getBalance());
+        assertEquals(0L, till.getCashBox().countPieces());
+        assertEquals(Message.THANK_YOU.getText(),
+                machine.vend(Product.COLA, till).getDisplay());
+        assertEquals(0L, till.collect().countPieces());
+        assertTrue(till.insert("QUARTER"));
+        assertFalse(machine.vend(Product.CHIPS, till).getDisplay()
+                .equals(Message.THANK_YOU.getText()));
+        till.returnMoney();
+        assertEquals(0L, till.getBalance());
+        assertEquals(1, till.collect().count("QUARTER"));
+    }
+
+    /**
+     * Test that the till refuses denominations it doesn't take.
+     */
+    @Test
+    public final void whenDenominationUnknownItIsRefused() {
+        DenominationRegistry registry = new DenominationRegistry.Builder()
+                .add(DenominationRegistryTest.denomination("QUARTER", "USD",
+                        25L, Form.COIN))
+                .add(DenominationRegistryTest.denomination("PESO", "MXN",
+                        100L, Form.COIN))
+                .build();
+        Till till = new Till(new DenominationBank(registry), "USD");
+        assertFalse(till.insert("PESO"));
+        assertFalse(till.insert("SLUG"));
+        assertTrue(till.insert("QUARTER"));
+        assertEquals(25L, till.getBalance());
+        try {
+            new Till(new DenominationBank(registry), "EUR");
+            throw new AssertionError("took a currency it doesn't have");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("EUR"));
+        }
+    }
+
+    /**
+     * Test that a till for a currency prices aren't in is refused rather
+     * than charging US cents in pesos.
+     */
+    @Test
+    public final void whenCurrencyNotUsdItIsRefused() {
+        DenominationRegistry registry = new DenominationRegistry.Builder()
+                .add(DenominationRegistryTest.denomination("PESO", "MXN",
+                        100L, Form.COIN))
+                .build();
+        try {
+            new Till(new DenominationBank(registry), "MXN");
+            throw new AssertionError("took a currency prices aren't in");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("MXN"));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the denomination registry and bank.
+ */
+package kata.vending.money;
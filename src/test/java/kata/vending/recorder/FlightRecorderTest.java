@@ -0,0 +1,185 @@
+package kata.vending.recorder;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Operation;
+import kata.vending.Operations;
+import kata.vending.Outcome;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the FlightRecorder class.
+ */
+public class FlightRecorderTest {
+    /**
+     * A recorder that keeps everything.
+     */
+    private final FlightRecorder recorder = new FlightRecorder(8, 0L);
+
+    /**
+     * Make sure no test leaves the recorder running.
+     */
+    @After
+    public final void stopRecording() {
+        recorder.stop();
+    }
+
+    /**
+     * Test that nothing is recorded before the recorder starts.
+     */
+    @Test
+    public final void whenNotStartedNothingIsRecorded() {
+        new Machine.Builder().build().checkDisplay();
+        assertTrue(recorder.events().isEmpty());
+        assertFalse(Operations.isEnabled());
+    }
+
+    /**
+     * Test that a started recorder keeps what happened.
+     */
+    @Test
+    public final void whenStartedOperationsAreRecorded() {
+        recorder.start();
+        new Machine.Builder()
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CHIPS))
+                .build()
+                .insertCoin(Currency.QUARTER.getCoin())
+                .insertCoin(Currency.QUARTER.getCoin())
+                .vend(Product.CHIPS);
+        recorder.stop();
+        final List<RecordedOperation> events = recorder.events();
+        assertEquals(4, events.size());
+        final RecordedOperation insert = events.get(0);
+        assertEquals(Operation.INSERT_COIN, insert.getOperation());
+        assertEquals(Outcome.ACCEPTED, insert.getOutcome());
+        assertEquals(Currency.QUARTER, insert.getCurrency());
+        assertEquals(1, insert.getCoinCount());
+        assertNull(insert.getProduct());
+        final RecordedOperation vend = events.get(3);
+        assertEquals(Operation.VEND, vend.getOperation());
+        assertEquals(Product.CHIPS, vend.getProduct());
+        assertEquals(Product.CHIPS.getPrice(), vend.getAmount());
+        assertEquals(0, vend.getCoinCount());
+        assertTrue(vend.getNanos() >= 0);
+    }
+
+    /**
+     * Test that the ring keeps only the most recent operations.
+     */
+    @Test
+    public final void whenRingWrapsOldestAreDropped() {
+        final FlightRecorder small = new FlightRecorder(3, 0L);
+        for (int i = 0; i < 10; i++) {
+            small.onOperation(Operation.MAKE_CHANGE, Outcome.FULL_CHANGE, i,
+                    null, null, new Bank(), 1L);
+        }
+        final List<RecordedOperation> events = small.events();
+        assertEquals(4, events.size());
+        assertEquals(6L, events.get(0).getAmount());
+        assertEquals(9L, events.get(3).getAmount());
+    }
+
+    /**
+     * Test that quick operations are dropped.
+     */
+    @Test
+    public final void whenQuickerThanThresholdNotRecorded() {
+        final FlightRecorder slowOnly = new FlightRecorder(4, 1000L);
+        slowOnly.onOperation(Operation.VEND, Outcome.SOLD_OUT, 0L,
+                Product.COLA, null, null, 999L);
+        slowOnly.onOperation(Operation.VEND, Outcome.SOLD_OUT, 0L,
+                Product.COLA, null, null, 1000L);
+        assertEquals(1, slowOnly.events().size());
+    }
+
+    /**
+     * Test that a dump has one line per operation.
+     *
+     * @throws IOException never
+     */
+    @Test
+    public final void whenDumpedOneLinePerOperation() throws IOException {
+        recorder.onOperation(Operation.CHECK_DISPLAY, Outcome.INSERT_COIN,
+                0L, null, null, null, 5L);
+        recorder.onOperation(Operation.CAN_MAKE_CHANGE,
+                Outcome.EXACT_CHANGE, 65L, Product.CANDY, null, null, 5L);
+        final StringBuilder out = new StringBuilder();
+        recorder.dump(out);
+        final String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("CAN_MAKE_CHANGE EXACT_CHANGE"));
+        assertTrue(lines[1].contains("product=CANDY"));
+    }
+
+    /**
+     * Test that readers racing several writers only see whole operations.
+     *
+     * @throws InterruptedException if interrupted while joining
+     */
+    @Test
+    public final void whenWritersRaceReadersSeeWholeOperations()
+            throws InterruptedException {
+        final FlightRecorder shared = new FlightRecorder(4, 0L);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            final Thread writer = new Thread(() -> {
+                for (long k = 0; running.get(); k++) {
+                    shared.onOperation(Operation.INSERT_COIN,
+                            Outcome.ACCEPTED, k,
+                            Product.values()[(int) (k % Product.values()
+                                    .length)],
+                            Currency.values()[(int) (k % Currency.values()
+                                    .length)],
+                            null, k);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        try {
+            int seen = 0;
+            for (int i = 0; i < 20000; i++) {
+                for (RecordedOperation event : shared.events()) {
+                    final long k = event.getAmount();
+                    assertEquals(k, event.getNanos());
+                    assertEquals(Product.values()[(int) (k % Product
+                            .values().length)], event.getProduct());
+                    assertEquals(Currency.values()[(int) (k % Currency
+                            .values().length)], event.getCurrency());
+                    assertEquals(1, event.getCoinCount());
+                    seen++;
+                }
+            }
+            assertTrue(seen > 0);
+        } finally {
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+
+    /**
+     * Test that a capacity of zero is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenCapacityZeroThrows() {
+        new FlightRecorder(0, 0L);
+    }
+}
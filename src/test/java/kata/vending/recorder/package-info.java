@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the flight recorder.
+ */
+package kata.vending.recorder;
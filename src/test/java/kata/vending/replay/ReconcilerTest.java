@@ -0,0 +1,184 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Reconciler class.
+ */
+public class ReconcilerTest {
+    /**
+     * Machines in the test fleet.
+     */
+    private static final int MACHINES = 40;
+
+    /**
+     * Where the journals go.
+     */
+    private Path directory;
+
+    /**
+     * Visits with the banks the journals replay to.
+     */
+    private final List<Visit> visits = new ArrayList<>();
+
+    /**
+     * Write a journal per machine, each running a different number of
+     * sessions, and count the true end banks.
+     *
+     * @throws IOException if a journal can't be written
+     */
+    @Before
+    public final void setUpJournals() throws IOException {
+        directory = Files.createTempDirectory("journals");
+        final Coin quarter = Currency.QUARTER.getCoin();
+        final Machine start = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.NICKEL, 5)
+                        .deposit(Currency.DIME, 5))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 50)
+                        .add(Product.CHIPS, 50))
+                .build();
+        for (int id = 0; id < MACHINES; id++) {
+            final Path journal = directory.resolve(id + ".trace");
+            Machine live = start;
+            try (FileChannel channel = FileChannel.open(journal,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 TraceWriter writer = new TraceWriter(channel, start)) {
+                for (int session = 0; session < id % 7; session++) {
+                    writer.insertCoin(quarter).insertCoin(quarter)
+                            .insertCoin(quarter).vend(Product.CANDY)
+                            .insertCoin(quarter).insertCoin(quarter)
+                            .vend(Product.CHIPS);
+                    live = live.insertCoin(quarter).insertCoin(quarter)
+                            .insertCoin(quarter).vend(Product.CANDY)
+                            .insertCoin(quarter).insertCoin(quarter)
+                            .vend(Product.CHIPS);
+                }
+                writer.finish(live);
+            }
+            visits.add(new Visit(id, journal, live.getMachineBank()));
+        }
+    }
+
+    /**
+     * Delete the journals.
+     *
+     * @throws IOException if they can't be deleted
+     */
+    @After
+    public final void tearDownJournals() throws IOException {
+        for (Visit visit : visits) {
+            Files.deleteIfExists(visit.getJournal());
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Test that honest counts balance.
+     *
+     * @throws InterruptedException never
+     */
+    @Test
+    public final void whenCountsMatchBalanced() throws InterruptedException {
+        final ReconciliationReport report =
+                new Reconciler(4).reconcile(visits);
+        assertTrue(report.toText(), report.isBalanced());
+        assertEquals(MACHINES, report.getVisits());
+        long events = 0L;
+        for (int id = 0; id < MACHINES; id++) {
+            events += 7L * (id % 7);
+        }
+        assertEquals(events, report.getEvents());
+    }
+
+    /**
+     * Test that short and over counts are reported coin by coin.
+     *
+     * @throws InterruptedException never
+     */
+    @Test
+    public final void whenCountsDifferDiscrepanciesReported()
+            throws InterruptedException {
+        final Visit shortVisit = visits.get(9);
+        visits.set(9, new Visit(9, shortVisit.getJournal(),
+                shortVisit.getReported()
+                        .withdraw(new Bank().deposit(Currency.QUARTER))));
+        final Visit overVisit = visits.get(3);
+        visits.set(3, new Visit(3, overVisit.getJournal(),
+                overVisit.getReported().deposit(Currency.DIME, 2)));
+        final ReconciliationReport report =
+                new Reconciler(3).reconcile(visits);
+        assertFalse(report.isBalanced());
+        final List<Discrepancy> found = report.getDiscrepancies();
+        assertEquals(2, found.size());
+        assertEquals(3, found.get(0).getMachineId());
+        assertEquals(2, found.get(0).getDifference(Currency.DIME));
+        assertEquals(20L, found.get(0).getBalanceDifference());
+        assertEquals(9, found.get(1).getMachineId());
+        assertEquals(-1, found.get(1).getDifference(Currency.QUARTER));
+        assertEquals("machine 9 QUARTER=-1 balance=-$0.25",
+                found.get(1).toText());
+    }
+
+    /**
+     * Test that an unreadable journal is a failure, not the end of the run.
+     *
+     * @throws IOException          if the journal can't be deleted
+     * @throws InterruptedException never
+     */
+    @Test
+    public final void whenJournalMissingFailureReported()
+            throws IOException, InterruptedException {
+        Files.delete(visits.get(5).getJournal());
+        final ReconciliationReport report =
+                new Reconciler(2).reconcile(visits);
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().containsKey(5));
+        assertTrue(report.getDiscrepancies().isEmpty());
+        assertTrue(report.toText().contains("machine 5 failed"));
+    }
+
+    /**
+     * Test that a machine visited twice in one run is refused.
+     *
+     * @throws InterruptedException never
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenMachineVisitedTwiceThrows()
+            throws InterruptedException {
+        visits.add(visits.get(7));
+        new Reconciler(2).reconcile(visits);
+    }
+
+    /**
+     * Test that nothing to reconcile balances.
+     *
+     * @throws InterruptedException never
+     */
+    @Test
+    public final void whenNoVisitsBalanced() throws InterruptedException {
+        assertTrue(new Reconciler().reconcile(new ArrayList<Visit>())
+                .isBalanced());
+    }
+}
@@ -0,0 +1,157 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ReplayDriver class.
+ */
+public class ReplayDriverTest {
+    /**
+     * Quarter coin.
+     */
+    private final Coin quarter = Currency.QUARTER.getCoin();
+
+    /**
+     * A machine to start sessions from.
+     */
+    private Machine start;
+
+    /**
+     * Set up the starting machine.
+     */
+    @Before
+    public final void setUpMachine() {
+        Bank bank = new Bank();
+        Inventory<Product> inventory = new Inventory<>(Product.values());
+        for (int i = 0; i < 5; i++) {
+            bank = bank.deposit(Currency.NICKEL).deposit(Currency.DIME);
+            inventory = inventory.add(Product.CANDY).add(Product.CHIPS);
+        }
+        start = new Machine.Builder()
+                .machineBank(bank)
+                .inventory(inventory)
+                .build();
+    }
+
+    /**
+     * Record some sessions against a live machine, then end the trace with
+     * the given machine.
+     *
+     * @param end what to put in the footer, or null for the real end state
+     * @return the trace bytes
+     * @throws IOException never
+     */
+    private byte[] record(final Machine end) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TraceWriter writer =
+                new TraceWriter(Channels.newChannel(out), start);
+        Machine live = start;
+        for (int session = 0; session < 3; session++) {
+            writer.checkDisplay().insertCoin(quarter).insertCoin(quarter)
+                    .insertCoin(quarter).insertCoin(null)
+                    .vend(Product.CANDY).checkDisplay()
+                    .insertCoin(quarter).vend(Product.COLA).returnCoins();
+            live = live.checkDisplay().insertCoin(quarter)
+                    .insertCoin(quarter).insertCoin(quarter).insertCoin(null)
+                    .vend(Product.CANDY).checkDisplay()
+                    .insertCoin(quarter).vend(Product.COLA).returnCoins();
+        }
+        if (end == null) {
+            writer.finish(live);
+        } else {
+            writer.finish(end);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Replay trace bytes.
+     *
+     * @param trace the trace
+     * @return the result
+     * @throws IOException never
+     */
+    private ReplayResult replay(final byte[] trace) throws IOException {
+        return new ReplayDriver().replay(Channels.newChannel(
+                new ByteArrayInputStream(trace)));
+    }
+
+    /**
+     * Test that a faithful replay verifies and is measured.
+     *
+     * @throws IOException never
+     */
+    @Test
+    public final void whenReplayMatchesTraceVerified() throws IOException {
+        final ReplayResult result = replay(record(null));
+        assertTrue(result.isVerified());
+        assertEquals(30L, result.getOperations());
+        assertEquals(30L, result.getLatencies().getCount());
+        assertTrue(result.getOpsPerSecond() > 0d);
+        assertEquals(2, result.getMachine().getInventory()
+                .quantity(Product.CANDY));
+        assertTrue(result.toText().endsWith(
+                "display=ok banks=ok inventory=ok"));
+    }
+
+    /**
+     * Test that drift in the end state is caught, part by part.
+     *
+     * @throws IOException never
+     */
+    @Test
+    public final void whenReplayDriftsMismatchReported() throws IOException {
+        final ReplayResult result = replay(record(start));
+        assertFalse(result.isVerified());
+        assertFalse(result.isBanksVerified());
+        assertFalse(result.isInventoryVerified());
+        assertFalse(result.isDisplayVerified());
+        assertTrue(result.toText().contains("banks=MISMATCH"));
+    }
+
+    /**
+     * Test that an event the driver doesn't know is refused.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public final void whenUnknownEventThrows() throws IOException {
+        final byte[] trace = record(null);
+        trace[trace.length - 13 - 30] = (byte) 0x50;
+        replay(trace);
+    }
+
+    /**
+     * Test that a trace file can be replayed from the command line.
+     *
+     * @throws IOException if the temp file can't be written
+     */
+    @Test
+    public final void whenReplayFromFileVerified() throws IOException {
+        final File file = File.createTempFile("session", ".trace");
+        try {
+            Files.write(file.toPath(), record(null));
+            ReplayDriver.main(new String[] {file.getPath()});
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
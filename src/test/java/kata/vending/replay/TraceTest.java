@@ -0,0 +1,171 @@
+package kata.vending.replay;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Product;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the trace format, writer and reader.
+ */
+public class TraceTest {
+    /**
+     * Test that known coins decode to their currency's own coin instance.
+     */
+    @Test
+    public final void whenKnownCoinDecodesToCurrencyCoin() {
+        for (Currency currency : Currency.values()) {
+            final Coin coin = currency.getCoin();
+            assertSame(coin, Trace.decodeCoin(Trace.encodeCoin(coin)));
+        }
+        final Coin copy = new Coin(Coin.Size.LARGE, Coin.Weight.HEAVY);
+        assertSame(Currency.QUARTER.getCoin(),
+                Trace.decodeCoin(Trace.encodeCoin(copy)));
+    }
+
+    /**
+     * Test that unknown and partial coins survive encoding.
+     */
+    @Test
+    public final void whenUnknownCoinDecodesToEqualCoin() {
+        final Coin slug = new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY);
+        assertEquals(slug, Trace.decodeCoin(Trace.encodeCoin(slug)));
+        final Coin partial = new Coin(null, Coin.Weight.LIGHT);
+        assertEquals(partial, Trace.decodeCoin(Trace.encodeCoin(partial)));
+    }
+
+    /**
+     * Test that products, including null, survive encoding.
+     */
+    @Test
+    public final void whenProductEncodedDecodesToSame() {
+        for (Product product : Product.values()) {
+            assertEquals(product, Trace.decodeVend(Trace.encodeVend(product)));
+        }
+        assertNull(Trace.decodeVend(Trace.encodeVend(null)));
+    }
+
+    /**
+     * Test that a written trace reads back event for event.
+     *
+     * @throws IOException never
+     */
+    @Test
+    public final void whenWrittenReadsBack() throws IOException {
+        final Machine start = new Machine.Builder()
+                .machineBank(new Bank().deposit(Currency.DIME))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.COLA).add(Product.COLA))
+                .build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TraceWriter writer =
+                     new TraceWriter(Channels.newChannel(out), start)) {
+            writer.insertCoin(null)
+                    .vend(Product.CHIPS)
+                    .returnCoins()
+                    .checkDisplay()
+                    .finish(start);
+        }
+        final TraceReader reader = new TraceReader(Channels.newChannel(
+                new ByteArrayInputStream(out.toByteArray())));
+        final Machine read = reader.readHeader();
+        assertEquals(1, read.getMachineBank().getInventory()
+                .quantity(Currency.DIME));
+        assertEquals(2, read.getInventory().quantity(Product.COLA));
+        assertEquals(Trace.encodeCoin(null), reader.next());
+        assertEquals(Trace.encodeVend(Product.CHIPS), reader.next());
+        assertEquals(Trace.RETURN_COINS, reader.next());
+        assertEquals(Trace.CHECK_DISPLAY, reader.next());
+        assertEquals(Trace.END, reader.next());
+        assertEquals(StateChecksum.display(start), reader.expectedDisplay());
+        assertEquals(StateChecksum.banks(start), reader.expectedBanks());
+        assertEquals(StateChecksum.inventory(start),
+                reader.expectedInventory());
+    }
+
+    /**
+     * Test that a trace longer than the buffers streams through.
+     *
+     * @throws IOException never
+     */
+    @Test
+    public final void whenLongTraceStreamsThrough() throws IOException {
+        final Machine start = new Machine.Builder().build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int events = 200000;
+        final TraceWriter writer =
+                new TraceWriter(Channels.newChannel(out), start);
+        for (int i = 0; i < events; i++) {
+            writer.checkDisplay();
+        }
+        writer.finish(start);
+        final TraceReader reader = new TraceReader(Channels.newChannel(
+                new ByteArrayInputStream(out.toByteArray())));
+        reader.readHeader();
+        int read = 0;
+        while (reader.next() != Trace.END) {
+            read++;
+        }
+        assertEquals(events, read);
+    }
+
+    /**
+     * Test that something that isn't a trace is refused.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public final void whenNotATraceThrows() throws IOException {
+        new TraceReader(Channels.newChannel(
+                new ByteArrayInputStream(new byte[64]))).readHeader();
+    }
+
+    /**
+     * Test that a trace cut short is reported.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = EOFException.class)
+    public final void whenTraceTruncatedThrows() throws IOException {
+        final Machine start = new Machine.Builder().build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TraceWriter(Channels.newChannel(out), start)
+                .checkDisplay()
+                .finish(start);
+        final byte[] bytes = out.toByteArray();
+        final TraceReader reader = new TraceReader(Channels.newChannel(
+                new ByteArrayInputStream(
+                        Arrays.copyOf(bytes, bytes.length - 2))));
+        reader.readHeader();
+        reader.next();
+        reader.next();
+    }
+
+    /**
+     * Test that nothing can be written after the footer.
+     *
+     * @throws IOException never
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void whenFinishedNoMoreEvents() throws IOException {
+        final Machine start = new Machine.Builder().build();
+        final TraceWriter writer = new TraceWriter(
+                Channels.newChannel(new ByteArrayOutputStream()), start);
+        writer.finish(start);
+        writer.checkDisplay();
+    }
+}
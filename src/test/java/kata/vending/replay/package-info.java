@@ -0,0 +1,4 @@
+/**
+ * Unit tests for trace replay.
+ */
+package kata.vending.replay;
@@ -0,0 +1,178 @@
+package kata.vending.sales;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Operation;
+import kata.vending.Outcome;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the SalesWindows class.
+ */
+public class SalesWindowsTest {
+    /**
+     * Tumbling window width.
+     */
+    private static final long WIDTH = 1000L;
+
+    /**
+     * Tumbling windows kept.
+     */
+    private static final int WINDOWS = 3;
+
+    /**
+     * The time the windows see.
+     */
+    private long now;
+
+    /**
+     * The windows under test.
+     */
+    private SalesWindows sales;
+
+    /**
+     * Set up windows on a clock the test moves.
+     */
+    @Before
+    public final void setUpWindows() {
+        now = 0L;
+        sales = new SalesWindows(WIDTH, WINDOWS, new Clock() {
+            @Override
+            public long millis() {
+                return now;
+            }
+        });
+    }
+
+    /**
+     * Feed a vend of cola with a dime in change.
+     */
+    private void vendCola() {
+        sales.onOperation(Operation.VEND, Outcome.VENDED,
+                Product.COLA.getPrice(), Product.COLA, null,
+                new Bank().deposit(Currency.DIME, 1), 0L);
+    }
+
+    /**
+     * Feed an accepted quarter.
+     */
+    private void acceptQuarter() {
+        sales.onOperation(Operation.INSERT_COIN, Outcome.ACCEPTED,
+                Currency.QUARTER.getCents(), null, Currency.QUARTER, null,
+                0L);
+    }
+
+    /**
+     * Test that events are totalled by product and currency.
+     */
+    @Test
+    public final void whenEventsFedTotalled() {
+        for (int i = 0; i < 5; i++) {
+            acceptQuarter();
+        }
+        vendCola();
+        sales.onOperation(Operation.INSERT_COIN, Outcome.REJECTED, 0L, null,
+                Currency.UNKNOWN, null, 0L);
+        sales.onOperation(Operation.RETURN_COINS, Outcome.RETURNED, 10L,
+                null, null, new Bank().deposit(Currency.NICKEL, 2), 0L);
+        sales.onOperation(Operation.VEND, Outcome.SOLD_OUT, 0L,
+                Product.CHIPS, null, null, 0L);
+        final SalesWindow window = sales.current();
+        assertEquals(1L, window.getUnits(Product.COLA));
+        assertEquals(0L, window.getUnits(Product.CHIPS));
+        assertEquals(Product.COLA.getPrice(),
+                window.getRevenue(Product.COLA));
+        assertEquals(Product.COLA.getPrice(), window.getRevenue());
+        assertEquals(5L, window.getCashIn(Currency.QUARTER));
+        assertEquals(1L, window.getCashOut(Currency.DIME));
+        assertEquals(2L, window.getCashOut(Currency.NICKEL));
+        assertEquals(1L, window.getRejected());
+        assertEquals(125L - 10L - 10L, window.getNetCash());
+        assertEquals(0L, window.getStart());
+        assertEquals(WIDTH, window.getEnd());
+    }
+
+    /**
+     * Test that each tumbling window only holds its own events.
+     */
+    @Test
+    public final void whenTimePassesTumblingWindowsSplit() {
+        vendCola();
+        now = WIDTH;
+        vendCola();
+        vendCola();
+        now = 2 * WIDTH + 1;
+        final List<SalesWindow> windows = sales.tumbling();
+        assertEquals(3, windows.size());
+        assertEquals(1L, windows.get(0).getUnits(Product.COLA));
+        assertEquals(2L, windows.get(1).getUnits(Product.COLA));
+        assertEquals(0L, windows.get(2).getUnits(Product.COLA));
+        assertEquals(2 * WIDTH, windows.get(2).getStart());
+        assertEquals(3L, sales.sliding().getUnits(Product.COLA));
+    }
+
+    /**
+     * Test that windows falling out of the sliding window are dropped.
+     */
+    @Test
+    public final void whenWindowsExpireSlidingTotalDrops() {
+        vendCola();
+        now = WIDTH;
+        vendCola();
+        now = 3 * WIDTH;
+        SalesWindow sliding = sales.sliding();
+        assertEquals(1L, sliding.getUnits(Product.COLA));
+        assertEquals(WIDTH, sliding.getStart());
+        assertEquals(4 * WIDTH, sliding.getEnd());
+        assertEquals(WINDOWS, sales.tumbling().size());
+        now = 100 * WIDTH;
+        sliding = sales.sliding();
+        assertEquals(0L, sliding.getUnits(Product.COLA));
+        assertEquals(0L, sliding.getCashOut(Currency.DIME));
+        acceptQuarter();
+        assertEquals(1L, sales.sliding().getCashIn(Currency.QUARTER));
+    }
+
+    /**
+     * Test that a started window set hears machine operations.
+     */
+    @Test
+    public final void whenStartedMachineOperationsTotalled() {
+        final Machine machine = new Machine.Builder()
+                .machineBank(new Bank().deposit(Currency.DIME, 5))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 1))
+                .build();
+        sales.start();
+        try {
+            machine.insertCoin(Currency.QUARTER.getCoin())
+                    .insertCoin(Currency.QUARTER.getCoin())
+                    .insertCoin(Currency.QUARTER.getCoin())
+                    .vend(Product.CANDY);
+        } finally {
+            sales.stop();
+        }
+        machine.insertCoin(Currency.QUARTER.getCoin());
+        final SalesWindow window = sales.current();
+        assertEquals(1L, window.getUnits(Product.CANDY));
+        assertEquals(3L, window.getCashIn(Currency.QUARTER));
+        assertEquals(1L, window.getCashOut(Currency.DIME));
+        assertEquals(Product.CANDY.getPrice(), window.getNetCash());
+    }
+
+    /**
+     * Test that windows must have a width and a count.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenNoWindowsRejected() {
+        new SalesWindows(WIDTH, 0);
+    }
+}
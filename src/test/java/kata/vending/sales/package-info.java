@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the streaming sales windows.
+ */
+package kata.vending.sales;
@@ -0,0 +1,112 @@
+package kata.vending.sensor;
+
+import kata.vending.Currency;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Calibration class.
+ */
+public class CalibrationTest {
+    /**
+     * Sensors reading this far off the standard, to calibrate out.
+     */
+    private static final double DRIFT = 0.6;
+
+    /**
+     * Random source.
+     */
+    private final Random random = new Random(13);
+
+    /**
+     * A drifted reading of a coin with some noise.
+     *
+     * @param profile the coin
+     * @return the reading
+     */
+    private Reading sample(final CoinProfile profile) {
+        return new Reading(
+                profile.getDiameter() + DRIFT
+                        + random.nextGaussian() * 0.03,
+                profile.getMass() * 1.02 + random.nextGaussian() * 0.02,
+                profile.getConductivity() + random.nextGaussian() * 0.5);
+    }
+
+    /**
+     * Test that calibrating from drifted sensors recognizes their readings
+     * again, where the standard grid doesn't.
+     */
+    @Test
+    public final void whenCalibratedThenDriftedReadingsRecognized() {
+        final Calibration calibration = new Calibration();
+        for (CoinProfile profile : CoinProfile.standard()) {
+            for (int i = 0; i < 200; i++) {
+                calibration.add(profile.getCurrency(), sample(profile));
+            }
+        }
+        final CoinClassifier calibrated = calibration.compile();
+        int recognized = 0;
+        int standard = 0;
+        final int trials = 1000;
+        for (CoinProfile profile : CoinProfile.standard()) {
+            for (int i = 0; i < trials; i++) {
+                final Reading reading = sample(profile);
+                if (calibrated.classify(reading) == profile.getCurrency()) {
+                    recognized++;
+                }
+                if (CoinClassifier.standard().classify(reading)
+                        == profile.getCurrency()) {
+                    standard++;
+                }
+            }
+        }
+        final int total = trials * CoinProfile.standard().size();
+        assertTrue(recognized > total * 0.99);
+        assertTrue(standard < total / 2);
+    }
+
+    /**
+     * Test the profile comes from the sample statistics.
+     */
+    @Test
+    public final void whenSampledThenMeanAndSpread() {
+        final Calibration calibration = new Calibration()
+                .add(Currency.DIME, new Reading(17.8, 2.2, 26.0))
+                .add(Currency.DIME, new Reading(18.0, 2.3, 28.0));
+        assertEquals(2L, calibration.samples(Currency.DIME));
+        assertEquals(0L, calibration.samples(Currency.NICKEL));
+        final CoinProfile dime = calibration.profiles(1.0).get(0);
+        assertEquals(Currency.DIME, dime.getCurrency());
+        assertEquals(17.9, dime.getDiameter(), 1e-9);
+        assertEquals(27.0, dime.getConductivity(), 1e-9);
+        assertEquals(Math.sqrt(2.0), dime.getConductivityTolerance(), 1e-9);
+    }
+
+    /**
+     * Test that a tolerance never collapses to nothing.
+     */
+    @Test
+    public final void whenSamplesIdenticalThenMinimumTolerance() {
+        final Calibration calibration = new Calibration()
+                .add(Currency.NICKEL, new Reading(21.0, 5.0, 6.0))
+                .add(Currency.NICKEL, new Reading(21.0, 5.0, 6.0));
+        final CoinProfile nickel =
+                calibration.profiles(Calibration.DEFAULT_SIGMAS).get(0);
+        assertEquals(21.0 * Calibration.MIN_RELATIVE_TOLERANCE,
+                nickel.getDiameterTolerance(), 1e-9);
+    }
+
+    /**
+     * Test that calibrating with too few readings is refused.
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void whenTooFewSamplesThenException() {
+        new Calibration()
+                .add(Currency.QUARTER, new Reading(24.26, 5.67, 27.0))
+                .compile();
+    }
+}
@@ -0,0 +1,122 @@
+package kata.vending.sensor;
+
+import kata.vending.Currency;
+import kata.vending.Machine;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the CoinClassifier class.
+ */
+public class CoinClassifierTest {
+    /**
+     * The standard classifier.
+     */
+    private final CoinClassifier classifier = CoinClassifier.standard();
+
+    /**
+     * Test that coins measuring exactly to spec are recognized.
+     */
+    @Test
+    public final void whenToSpecThenRecognized() {
+        for (CoinProfile profile : classifier.getProfiles()) {
+            assertEquals(profile.getCurrency(), classifier.classify(
+                    new Reading(profile.getDiameter(), profile.getMass(),
+                            profile.getConductivity())));
+        }
+    }
+
+    /**
+     * Test that worn coins within tolerance are recognized.
+     */
+    @Test
+    public final void whenWithinToleranceThenRecognized() {
+        assertEquals(Currency.QUARTER,
+                classifier.classify(24.1, 5.55, 25.0));
+        assertEquals(Currency.DIME, classifier.classify(18.0, 2.2, 29.0));
+        assertEquals(Currency.NICKEL, classifier.classify(21.3, 4.9, 7.0));
+    }
+
+    /**
+     * Test that readings like no coin are rejected.
+     */
+    @Test
+    public final void whenOutOfToleranceThenUnknown() {
+        assertEquals(Currency.UNKNOWN,
+                classifier.classify(24.26, 5.67, 5.5));
+        assertEquals(Currency.UNKNOWN,
+                classifier.classify(19.05, 2.5, 95.0));
+        assertEquals(Currency.UNKNOWN, classifier.classify(-1.0, 0.0, 0.0));
+        assertEquals(Currency.UNKNOWN,
+                classifier.classify(Double.NaN, 5.0, 5.5));
+    }
+
+    /**
+     * Test that the grid agrees with the profiles away from region edges.
+     */
+    @Test
+    public final void whenAwayFromEdgesThenSameAsProfiles() {
+        final Random random = new Random(5);
+        for (CoinProfile profile : classifier.getProfiles()) {
+            for (int i = 0; i < 1000; i++) {
+                final double fraction = 0.8;
+                final double diameter = profile.getDiameter() + fraction
+                        * profile.getDiameterTolerance()
+                        * (2 * random.nextDouble() - 1);
+                final double mass = profile.getMass() + fraction
+                        * profile.getMassTolerance()
+                        * (2 * random.nextDouble() - 1);
+                final double conductivity = profile.getConductivity()
+                        + fraction * profile.getConductivityTolerance()
+                        * (2 * random.nextDouble() - 1);
+                assertEquals(profile.getCurrency(),
+                        classifier.classify(diameter, mass, conductivity));
+            }
+        }
+    }
+
+    /**
+     * Test that overlapping profiles reject rather than guess.
+     */
+    @Test
+    public final void whenProfilesOverlapThenUnknown() {
+        final CoinProfile quarter = CoinProfile.standard().get(2);
+        final CoinClassifier overlapping = CoinClassifier.compile(
+                Arrays.asList(quarter, new CoinProfile.Builder()
+                        .currency(Currency.DIME)
+                        .diameter(quarter.getDiameter(), 0.3)
+                        .mass(quarter.getMass(), 0.2)
+                        .conductivity(quarter.getConductivity(), 4.0)
+                        .build()));
+        assertEquals(Currency.UNKNOWN, overlapping.classify(
+                quarter.getDiameter(), quarter.getMass(),
+                quarter.getConductivity()));
+        assertEquals(true, overlapping.getAmbiguousCells() > 0);
+    }
+
+    /**
+     * Test that the classified coin is one the machine takes.
+     */
+    @Test
+    public final void whenCoinInsertedThenMachineTakesIt() {
+        final Machine machine = new Machine.Builder().build()
+                .insertCoin(classifier.coin(new Reading(24.26, 5.67, 27.0)))
+                .insertCoin(classifier.coin(new Reading(30.0, 8.1, 2.0)));
+        assertEquals(25L, machine.getCustomerBank().calculateBalance());
+        assertEquals(1, machine.getCoinReturn().getInventory()
+                .quantity(Currency.UNKNOWN));
+    }
+
+    /**
+     * Test that a grid too fine is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenTooManyCellsThenException() {
+        CoinClassifier.compile(CoinProfile.standard(),
+                CoinClassifier.MAX_CELLS + 1);
+    }
+}
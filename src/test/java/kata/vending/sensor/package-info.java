@@ -0,0 +1,4 @@
+/**
+ * Unit tests for coin recognition from sensor readings.
+ */
+package kata.vending.sensor;
@@ -0,0 +1,244 @@
+package kata.vending.session;
+
+import kata.vending.Bank;
+import kata.vending.Coin;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Operation;
+import kata.vending.OperationListener;
+import kata.vending.Operations;
+import kata.vending.Outcome;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CompiledSession class.
+ */
+public class CompiledSessionTest {
+    /**
+     * Coins a customer might insert, including one nobody knows.
+     */
+    private static final Coin[] COINS = {
+        Currency.NICKEL.getCoin(),
+        Currency.DIME.getCoin(),
+        Currency.QUARTER.getCoin(),
+        new Coin(Coin.Size.SMALL, Coin.Weight.HEAVY)
+    };
+
+    /**
+     * Small tables, so the fallback gets used.
+     */
+    private final SessionTables tables = new SessionTables(3);
+
+    /**
+     * A machine with a little change and a little stock.
+     */
+    private Machine machine;
+
+    /**
+     * Set up the machine.
+     */
+    @Before
+    public final void setUpMachine() {
+        machine = new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.DIME)
+                        .deposit(Currency.NICKEL, 2))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 2)
+                        .add(Product.CHIPS, 1))
+                .build();
+    }
+
+    /**
+     * Check a session and a machine look the same.
+     *
+     * @param expected the machine
+     * @param session  the session
+     */
+    private static void assertSame(final Machine expected,
+                                   final CompiledSession session) {
+        final Machine actual = session.toMachine();
+        assertEquals(expected.getDisplay(), session.getDisplay());
+        assertEquals(expected.getDisplay(), actual.getDisplay());
+        assertEquals(expected.getCoinReturn().getInventory().getItems(),
+                actual.getCoinReturn().getInventory().getItems());
+        assertEquals(expected.getCustomerBank().getInventory().getItems(),
+                actual.getCustomerBank().getInventory().getItems());
+        assertEquals(expected.getMachineBank().getInventory().getItems(),
+                actual.getMachineBank().getInventory().getItems());
+        assertEquals(expected.getInventory().getItems(),
+                actual.getInventory().getItems());
+    }
+
+    /**
+     * Test that a purchase with change runs from the tables.
+     */
+    @Test
+    public final void whenPurchaseWithChangeThenCompiled() {
+        final Coin quarter = Currency.QUARTER.getCoin();
+        final CompiledSession session = tables.open(machine)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter);
+        assertTrue(session.isCompiled());
+        assertEquals("$0.75", session.getDisplay());
+        session.vend(Product.CANDY);
+        assertTrue(session.isCompiled());
+        assertEquals(Message.THANK_YOU.getText(), session.getDisplay());
+        assertSame(machine
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CANDY), session);
+    }
+
+    /**
+     * Test that too many coins hands over to the machine and comes back.
+     */
+    @Test
+    public final void whenTooManyCoinsThenFallBackAndReturn() {
+        final Coin nickel = Currency.NICKEL.getCoin();
+        final CompiledSession session = tables.open(machine);
+        Machine expected = machine;
+        for (int i = 0; i < 4; i++) {
+            session.insertCoin(nickel);
+            expected = expected.insertCoin(nickel);
+        }
+        assertFalse(session.isCompiled());
+        assertSame(expected, session);
+        session.returnCoins();
+        assertTrue(session.isCompiled());
+        assertSame(expected.returnCoins(), session);
+    }
+
+    /**
+     * Test that vending no product shows SOLD OUT, as Machine does.
+     */
+    @Test
+    public final void whenNoProductThenSoldOut() {
+        final CompiledSession session = tables.open(machine).vend(null);
+        assertTrue(session.isCompiled());
+        assertSame(machine.vend(null), session);
+    }
+
+    /**
+     * Test that unknown coins in the machine bank survive the tables, and
+     * in the customer bank hand over to the machine.
+     */
+    @Test
+    public final void whenUnknownCoinsBankedThenKept() {
+        final Coin quarter = Currency.QUARTER.getCoin();
+        final Machine slugged = new Machine.Builder(machine)
+                .machineBank(machine.getMachineBank()
+                        .deposit(Currency.UNKNOWN, 2))
+                .build();
+        final CompiledSession session = tables.open(slugged)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CANDY);
+        assertTrue(session.isCompiled());
+        assertSame(slugged.insertCoin(quarter)
+                .insertCoin(quarter)
+                .insertCoin(quarter)
+                .vend(Product.CANDY), session);
+        final Machine paidWithSlug = new Machine.Builder(machine)
+                .customerBank(new Bank().deposit(Currency.UNKNOWN))
+                .build();
+        final CompiledSession handedOver = tables.open(paidWithSlug);
+        assertFalse(handedOver.isCompiled());
+        assertSame(paidWithSlug.returnCoins(), handedOver.returnCoins());
+    }
+
+    /**
+     * Test that an empty bank shows EXACT CHANGE ONLY.
+     */
+    @Test
+    public final void whenNoChangeThenExactChangeOnly() {
+        final CompiledSession session = tables.open(new Machine.Builder()
+                .build()).checkDisplay();
+        assertEquals(Message.EXACT_CHANGE.getText(), session.getDisplay());
+    }
+
+    /**
+     * Test that listeners still see every operation.
+     */
+    @Test
+    public final void whenListeningThenOperationsReported() {
+        final List<Operation> operations = new ArrayList<>();
+        final OperationListener listener = new OperationListener() {
+            @Override
+            public void onOperation(final Operation operation,
+                                    final Outcome outcome, final long amount,
+                                    final Product product,
+                                    final Currency currency,
+                                    final Bank coins, final long nanos) {
+                operations.add(operation);
+            }
+        };
+        Operations.addListener(listener);
+        try {
+            tables.open(machine).insertCoin(Currency.QUARTER.getCoin());
+        } finally {
+            Operations.removeListener(listener);
+        }
+        assertTrue(operations.contains(Operation.INSERT_COIN));
+    }
+
+    /**
+     * Test that random sessions match the machine step for step, with and
+     * without change in the bank, and with small and standard tables.
+     */
+    @Test
+    public final void whenRandomEventsThenSameAsMachine() {
+        final Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            final Machine.Builder builder = new Machine.Builder(machine)
+                    .inventory(new Inventory<>(Product.values())
+                            .add(Product.COLA, 5)
+                            .add(Product.CHIPS, 5)
+                            .add(Product.CANDY, 5));
+            if (round % 2 == 1) {
+                builder.machineBank(new Bank());
+            }
+            Machine expected = builder.build();
+            SessionTables compiled = tables;
+            if (round % 4 >= 2) {
+                compiled = SessionTables.standard();
+            }
+            final CompiledSession actual = compiled.open(expected);
+            for (int step = 0; step < 200; step++) {
+                final int choice = random.nextInt(10);
+                if (choice < 6) {
+                    final Coin coin = COINS[random.nextInt(COINS.length)];
+                    expected = expected.insertCoin(coin);
+                    actual.insertCoin(coin);
+                } else if (choice < 8) {
+                    final Product product =
+                            Product.values()[random.nextInt(3)];
+                    expected = expected.vend(product);
+                    actual.vend(product);
+                } else if (choice < 9) {
+                    expected = expected.returnCoins();
+                    actual.returnCoins();
+                } else {
+                    expected = expected.checkDisplay();
+                    actual.checkDisplay();
+                }
+                assertSame(expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package kata.vending.session;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Product;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SessionTables class.
+ */
+public class SessionTablesTest {
+    /**
+     * Small tables.
+     */
+    private final SessionTables tables = new SessionTables(2);
+
+    /**
+     * Summarize a bank.
+     *
+     * @param bank the bank
+     * @return its summary
+     */
+    private int summarize(final Bank bank) {
+        final int[] counts = new int[SessionTables.COINS.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bank.getInventory()
+                    .quantity(SessionTables.COINS[i]);
+        }
+        return tables.summarize(counts);
+    }
+
+    /**
+     * Test that looked up change is what Bank.makeChange gives, even for
+     * banks bigger than the tables.
+     */
+    @Test
+    public final void whenChangeLookedUpThenSameAsBank() {
+        for (int quarters = 0; quarters < 8; quarters++) {
+            for (int dimes = 0; dimes < 20; dimes += 3) {
+                for (int nickels = 0; nickels < 40; nickels += 7) {
+                    final Bank bank = new Bank()
+                            .deposit(Currency.QUARTER, quarters)
+                            .deposit(Currency.DIME, dimes)
+                            .deposit(Currency.NICKEL, nickels);
+                    for (long amount = 0L; tables.coversChange(amount);
+                         amount += 5L) {
+                        final Bank expected = bank.makeChange(amount);
+                        final int change =
+                                tables.change(amount, summarize(bank));
+                        for (int i = 0; i < SessionTables.COINS.length;
+                             i++) {
+                            assertEquals(expected.getInventory().quantity(
+                                    SessionTables.COINS[i]),
+                                    SessionTables.changeCount(change, i));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that customer states know their balance.
+     */
+    @Test
+    public final void whenCustomerStateThenBalance() {
+        assertEquals(27, tables.customerStates());
+        final int state = tables.customerStride(0) * 2
+                + tables.customerStride(2);
+        assertEquals(55L, tables.balance(state));
+        assertEquals("$0.55", tables.balanceText(state));
+        assertEquals(2, tables.customerCount(state, 0));
+        assertEquals(0, tables.customerCount(state, 1));
+        assertEquals(1, tables.customerCount(state, 2));
+    }
+
+    /**
+     * Test which banks mean EXACT CHANGE ONLY.
+     */
+    @Test
+    public final void whenBankCantChangeAPriceThenExactChange() {
+        assertTrue(tables.exactChange(summarize(new Bank())));
+        assertTrue(tables.exactChange(summarize(new Bank()
+                .deposit(Currency.QUARTER, 4))));
+        assertFalse(tables.exactChange(summarize(new Bank()
+                .deposit(Currency.QUARTER, 4)
+                .deposit(Currency.DIME)
+                .deposit(Currency.NICKEL))));
+    }
+
+    /**
+     * Test the price text.
+     */
+    @Test
+    public final void whenPriceAskedThenText() {
+        assertEquals("PRICE $1.00", tables.priceText(Product.COLA));
+    }
+
+    /**
+     * Test that the standard tables are built once.
+     */
+    @Test
+    public final void whenStandardThenShared() {
+        assertSame(SessionTables.standard(), SessionTables.standard());
+        assertEquals(SessionTables.DEFAULT_MAX_COINS,
+                SessionTables.standard().getMaxCoins());
+    }
+
+    /**
+     * Test that bounds outside the supported range are refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void whenTooManyCoinsThenException() {
+        new SessionTables(SessionTables.MAX_COINS + 1);
+    }
+}
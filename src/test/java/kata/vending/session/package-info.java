@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the compiled customer sessions.
+ */
+package kata.vending.session;
@@ -0,0 +1,107 @@
+package kata.vending.shard;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the HashRing class.
+ */
+public class HashRingTest {
+    /**
+     * Machine ids placed in the tests.
+     */
+    private static final int MACHINES = 20000;
+
+    /**
+     * A ring of four workers.
+     */
+    private final HashRing four =
+            new HashRing(Arrays.asList("w1", "w2", "w3", "w4"));
+
+    /**
+     * Test that machines spread evenly over the workers.
+     */
+    @Test
+    public final void whenPlacedMachinesSpreadEvenly() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int id = 0; id < MACHINES; id++) {
+            String owner = four.owner(id);
+            Integer count = counts.get(owner);
+            if (count == null) {
+                count = 0;
+            }
+            counts.put(owner, count + 1);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("share " + count, count > MACHINES / 4 * 0.8);
+            assertTrue("share " + count, count < MACHINES / 4 * 1.2);
+        }
+    }
+
+    /**
+     * Test that adding a worker only moves machines to it, about a fifth.
+     */
+    @Test
+    public final void whenWorkerAddedOnlyItsShareMoves() {
+        HashRing five = four.with("w5");
+        int moved = 0;
+        for (int id = 0; id < MACHINES; id++) {
+            if (!four.owner(id).equals(five.owner(id))) {
+                assertEquals("w5", five.owner(id));
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > MACHINES / 5 * 0.7);
+        assertTrue("moved " + moved, moved < MACHINES / 5 * 1.3);
+    }
+
+    /**
+     * Test that removing a worker only moves its machines.
+     */
+    @Test
+    public final void whenWorkerRemovedOnlyItsMachinesMove() {
+        HashRing three = four.without("w2");
+        assertEquals(Arrays.asList("w1", "w3", "w4"), three.getWorkers());
+        for (int id = 0; id < MACHINES; id++) {
+            if (!"w2".equals(four.owner(id))) {
+                assertEquals(four.owner(id), three.owner(id));
+            }
+        }
+    }
+
+    /**
+     * Test that placement doesn't depend on the order workers are given in.
+     */
+    @Test
+    public final void whenWorkersReorderedPlacementIsSame() {
+        HashRing shuffled =
+                new HashRing(Arrays.asList("w3", "w1", "w4", "w2"));
+        for (int id = -100; id < 100; id++) {
+            assertEquals(four.owner(id), shuffled.owner(id));
+        }
+    }
+
+    /**
+     * Test that an empty ring places nothing and bad replicas are refused.
+     */
+    @Test
+    public final void whenEmptyNothingIsPlaced() {
+        assertNull(new HashRing(Collections.<String>emptyList()).owner(1));
+        assertEquals("w1", new HashRing(Arrays.asList("w1"), 1).owner(1));
+        try {
+            new HashRing(Arrays.asList("w1"), 0);
+            throw new AssertionError("no points");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().length() > 0);
+        }
+    }
+}
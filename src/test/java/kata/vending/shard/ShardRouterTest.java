@@ -0,0 +1,297 @@
+package kata.vending.shard;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import kata.vending.gateway.Command;
+import kata.vending.gateway.Gateway;
+import kata.vending.gateway.Response;
+import kata.vending.gateway.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ShardRouter class, with in-process gateways as
+ * workers.
+ */
+public class ShardRouterTest {
+    /**
+     * Machines placed.
+     */
+    private static final int MACHINES = 60;
+
+    /**
+     * How long the router waits for a worker.
+     */
+    private static final int TIMEOUT_MILLIS = 1000;
+
+    /**
+     * The workers' gateways.
+     */
+    private final List<Gateway> gateways = new ArrayList<>();
+
+    /**
+     * The router.
+     */
+    private ShardRouter router;
+
+    /**
+     * A machine with change and stock.
+     *
+     * @return the machine
+     */
+    static Machine stocked() {
+        return new Machine.Builder()
+                .machineBank(new Bank()
+                        .deposit(Currency.DIME, 5)
+                        .deposit(Currency.NICKEL, 5))
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CANDY, 10))
+                .build();
+    }
+
+    /**
+     * Start a gateway for a worker.
+     *
+     * @return the gateway
+     * @throws IOException if it can't start
+     */
+    private Gateway gateway() throws IOException {
+        Gateway gateway = new Gateway.Builder().lanes(1).build();
+        gateway.start();
+        gateways.add(gateway);
+        return gateway;
+    }
+
+    /**
+     * Start three workers and place the machines.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    @Before
+    public final void setUpRouter() throws IOException {
+        router = new ShardRouter(HashRing.DEFAULT_REPLICAS, TIMEOUT_MILLIS);
+        for (int w = 0; w < 3; w++) {
+            assertEquals(0, router.join("w" + w, gateway().getAddress()));
+        }
+        for (int id = 0; id < MACHINES; id++) {
+            assertEquals(Status.OK,
+                    router.register(id, stocked()).getStatus());
+        }
+    }
+
+    /**
+     * Close the router and the workers.
+     *
+     * @throws IOException if closing fails
+     */
+    @After
+    public final void tearDownRouter() throws IOException {
+        router.close();
+        for (Gateway gateway : gateways) {
+            gateway.close();
+        }
+    }
+
+    /**
+     * Put two quarters in every machine.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    private void insertQuarters() throws IOException {
+        for (int id = 0; id < MACHINES; id++) {
+            router.call(id, Command.INSERT_COIN, Currency.QUARTER.ordinal());
+            router.call(id, Command.INSERT_COIN, Currency.QUARTER.ordinal());
+        }
+    }
+
+    /**
+     * Test that operations reach each machine wherever it lives.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    @Test
+    public final void whenCalledMachineAnswersFromItsWorker()
+            throws IOException {
+        insertQuarters();
+        assertEquals(MACHINES, router.size());
+        for (int id = 0; id < MACHINES; id++) {
+            Response response = router.call(id, Command.SNAPSHOT, 0);
+            assertEquals(id, response.getMachineId());
+            assertEquals("$0.50", response.getMachine().getDisplay());
+        }
+        assertEquals(Status.UNKNOWN_MACHINE,
+                router.call(MACHINES, Command.CHECK_DISPLAY, 0).getStatus());
+    }
+
+    /**
+     * Test that machines keep their state when a worker joins and leaves.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    @Test
+    public final void whenWorkersChangeMachinesKeepTheirState()
+            throws IOException {
+        insertQuarters();
+        int moved = router.join("w3", gateway().getAddress());
+        assertTrue("moved " + moved, moved > 0 && moved < MACHINES);
+        int onNew = 0;
+        for (int id = 0; id < MACHINES; id++) {
+            if ("w3".equals(router.owner(id))) {
+                onNew++;
+            }
+            router.call(id, Command.INSERT_COIN,
+                    Currency.QUARTER.ordinal());
+        }
+        assertEquals(moved, onNew);
+        assertEquals(moved, router.leave("w3"));
+        router.leave("w0");
+        assertEquals(2, router.getWorkers().size());
+        for (int id = 0; id < MACHINES; id++) {
+            Response vended = router.call(id, Command.VEND,
+                    Product.CANDY.ordinal());
+            assertEquals(Message.THANK_YOU.getText(),
+                    vended.getMachine().getDisplay());
+            assertEquals(9, vended.getMachine().getInventory()
+                    .quantity(Product.CANDY));
+        }
+    }
+
+    /**
+     * Test that a worker that never answers fails its join within the
+     * timeout, and every machine it was to take is put back where it was.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    @Test
+    public final void whenJoiningWorkerSilentMachinesStayPut()
+            throws IOException {
+        insertQuarters();
+        try (ServerSocketChannel silent = ServerSocketChannel.open()) {
+            silent.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    0));
+            try {
+                router.join("w3",
+                        (InetSocketAddress) silent.getLocalAddress());
+                throw new AssertionError("joined a silent worker");
+            } catch (IOException expected) {
+                assertEquals(3, router.getWorkers().size());
+            }
+        }
+        for (int id = 0; id < MACHINES; id++) {
+            Response response = router.call(id, Command.SNAPSHOT, 0);
+            assertEquals(Status.OK, response.getStatus());
+            assertEquals("$0.50", response.getMachine().getDisplay());
+        }
+    }
+
+    /**
+     * Test that a dead worker can't leave but can be forgotten, losing only
+     * its own machines, and can then join again.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    @Test
+    public final void whenWorkerDiesItIsForgottenWithItsMachines()
+            throws IOException {
+        insertQuarters();
+        List<Integer> owned = new ArrayList<>();
+        for (int id = 0; id < MACHINES; id++) {
+            if ("w1".equals(router.owner(id))) {
+                owned.add(id);
+            }
+        }
+        gateways.get(1).close();
+        try {
+            router.leave("w1");
+            throw new AssertionError("fetched machines from a dead worker");
+        } catch (IOException expected) {
+            assertEquals(3, router.getWorkers().size());
+        }
+        assertEquals(owned, router.forget("w1"));
+        assertEquals(MACHINES - owned.size(), router.size());
+        assertEquals(2, router.getWorkers().size());
+        router.join("w1", gateway().getAddress());
+        for (Integer id : owned) {
+            assertEquals(Status.OK,
+                    router.register(id, stocked()).getStatus());
+        }
+        for (int id = 0; id < MACHINES; id++) {
+            String expected = "$0.50";
+            if (owned.contains(id)) {
+                expected = Message.INSERT_COIN.getText();
+            }
+            assertEquals(expected, router.call(id, Command.SNAPSHOT, 0)
+                    .getMachine().getDisplay());
+        }
+    }
+
+    /**
+     * Test that the router refuses what it can't do.
+     *
+     * @throws IOException if a worker can't be reached
+     */
+    @Test
+    public final void whenMisusedRouterRefuses() throws IOException {
+        for (Runnable bad : new Runnable[] {
+                () -> call(Command.RELEASE),
+                () -> call(Command.RESTORE),
+                () -> leave("nobody"),
+                () -> router.forget("nobody")}) {
+            try {
+                bad.run();
+                throw new AssertionError("accepted");
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().length() > 0);
+            }
+        }
+        router.leave("w0");
+        router.leave("w1");
+        try {
+            router.leave("w2");
+            throw new AssertionError("left machines nowhere");
+        } catch (IllegalStateException expected) {
+            assertEquals(1, router.getWorkers().size());
+        }
+    }
+
+    /**
+     * Call machine 0, wrapping IOException.
+     *
+     * @param command the command
+     */
+    private void call(final Command command) {
+        try {
+            router.call(0, command, 0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Take a worker out, wrapping IOException.
+     *
+     * @param worker the worker
+     */
+    private void leave(final String worker) {
+        try {
+            router.leave(worker);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
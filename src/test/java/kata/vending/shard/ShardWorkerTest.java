@@ -0,0 +1,69 @@
+package kata.vending.shard;
+
+import kata.vending.Currency;
+import kata.vending.Message;
+import kata.vending.Product;
+import kata.vending.gateway.Command;
+import kata.vending.gateway.Response;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ShardWorker class: a fleet on worker processes.
+ */
+public class ShardWorkerTest {
+    /**
+     * Machines placed.
+     */
+    private static final int MACHINES = 40;
+
+    /**
+     * Test that a fleet runs on separate worker processes and survives
+     * one joining and another leaving.
+     *
+     * @throws IOException if a worker can't be started or reached
+     */
+    @Test
+    public final void whenFleetOnProcessesHandoffKeepsState()
+            throws IOException {
+        List<ShardWorker> workers = new ArrayList<>();
+        try (ShardRouter router = new ShardRouter()) {
+            for (int w = 0; w < 3; w++) {
+                workers.add(ShardWorker.launch("p" + w, 1));
+            }
+            router.join(workers.get(0).getName(),
+                    workers.get(0).getAddress());
+            router.join(workers.get(1).getName(),
+                    workers.get(1).getAddress());
+            for (int id = 0; id < MACHINES; id++) {
+                router.register(id, ShardRouterTest.stocked());
+                for (int q = 0; q < 3; q++) {
+                    router.call(id, Command.INSERT_COIN,
+                            Currency.QUARTER.ordinal());
+                }
+            }
+            int moved = router.join(workers.get(2).getName(),
+                    workers.get(2).getAddress());
+            assertTrue("moved " + moved, moved > 0);
+            router.leave(workers.get(0).getName());
+            for (int id = 0; id < MACHINES; id++) {
+                Response vended = router.call(id, Command.VEND,
+                        Product.CANDY.ordinal());
+                assertEquals(Message.THANK_YOU.getText(),
+                        vended.getMachine().getDisplay());
+                assertEquals(10L, vended.getMachine().getCoinReturn()
+                        .calculateBalance());
+            }
+        } finally {
+            for (ShardWorker worker : workers) {
+                worker.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the sharded machine host.
+ */
+package kata.vending.shard;
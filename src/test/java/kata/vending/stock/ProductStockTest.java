@@ -0,0 +1,273 @@
+package kata.vending.stock;
+
+import kata.vending.Bank;
+import kata.vending.Currency;
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ProductStock class.
+ */
+public class ProductStockTest {
+    /**
+     * A clock the tests move by hand.
+     */
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Stock with one cola and two candies, reservations lasting a second.
+     */
+    private ProductStock stock;
+
+    /**
+     * Set up the stock.
+     */
+    @Before
+    public final void setUpStock() {
+        Inventory<Product> inventory = new Inventory<>(Product.values())
+                .add(Product.COLA)
+                .add(Product.CANDY, 2);
+        stock = new ProductStock.Builder()
+                .inventory(inventory)
+                .ttlMillis(1000L)
+                .clock(now::get)
+                .build();
+    }
+
+    /**
+     * A door with enough money in for a cola.
+     *
+     * @return the door's machine
+     */
+    private static Machine paidDoor() {
+        Bank dollar = new Bank();
+        for (int i = 0; i < 4; i++) {
+            dollar = dollar.deposit(Currency.QUARTER);
+        }
+        return new Machine.Builder().customerBank(dollar).build();
+    }
+
+    /**
+     * Test that the last unit can only be reserved once.
+     */
+    @Test
+    public final void whenLastUnitReservedOthersCantHaveIt() {
+        Reservation first = stock.reserve(Product.COLA);
+        assertNotNull(first);
+        assertTrue(first.isHeld());
+        assertNull(stock.reserve(Product.COLA));
+        assertNull(stock.reserve(Product.CHIPS));
+        assertNull(stock.reserve(null));
+        assertEquals(0, stock.available(Product.COLA));
+    }
+
+    /**
+     * Test that a released unit goes back on sale, once.
+     */
+    @Test
+    public final void whenReleasedUnitIsBackOnSale() {
+        Reservation reservation = stock.reserve(Product.COLA);
+        assertTrue(stock.release(reservation));
+        assertFalse(stock.release(reservation));
+        assertFalse(reservation.isHeld());
+        assertEquals(1, stock.available(Product.COLA));
+        assertNotNull(stock.reserve(Product.COLA));
+    }
+
+    /**
+     * Test that an expired reservation gives its unit back when the product
+     * runs out, and can no longer be vended.
+     */
+    @Test
+    public final void whenReservationExpiresUnitGoesBack() {
+        Reservation stale = stock.reserve(Product.COLA);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2L));
+        assertFalse(stale.isHeld());
+        Reservation fresh = stock.reserve(Product.COLA);
+        assertNotNull(fresh);
+        Machine refused = stock.vend(paidDoor(), stale);
+        assertEquals(Message.SOLD_OUT.getText(), refused.getDisplay());
+        assertEquals(100L, refused.getCustomerBank().calculateBalance());
+        assertEquals(Message.THANK_YOU.getText(),
+                stock.vend(paidDoor(), fresh).getDisplay());
+    }
+
+    /**
+     * Test that expire only sweeps reservations past their deadline.
+     */
+    @Test
+    public final void whenExpireSweptOnlyStaleOnesGoBack() {
+        stock.reserve(Product.CANDY);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600L));
+        Reservation young = stock.reserve(Product.CANDY);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600L));
+        assertEquals(1, stock.expire());
+        assertEquals(0, stock.expire());
+        assertTrue(young.isHeld());
+        assertEquals(1, stock.available(Product.CANDY));
+    }
+
+    /**
+     * Test that a reservation mid-vend past its deadline doesn't hold up
+     * the expiry of younger ones.
+     */
+    @Test
+    public final void whenVendingReservationPastDeadlineOthersStillExpire() {
+        Reservation vending = stock.reserve(Product.CANDY);
+        assertTrue(vending.move(Reservation.HELD, Reservation.VENDING));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500L));
+        Reservation walkedAway = stock.reserve(Product.CANDY);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2L));
+        assertEquals(1, stock.expire());
+        assertFalse(walkedAway.isHeld());
+        assertEquals(1, stock.available(Product.CANDY));
+        assertEquals(1, stock.outstanding());
+        assertTrue(vending.move(Reservation.VENDING, Reservation.CONSUMED));
+        assertEquals(0, stock.expire());
+        assertEquals(0, stock.outstanding());
+    }
+
+    /**
+     * Test that finished reservations aren't kept on a machine that never
+     * runs out.
+     */
+    @Test
+    public final void whenWellStockedFinishedReservationsAreDropped() {
+        stock.restock(Product.CANDY, 100);
+        for (int i = 0; i < 50; i++) {
+            Reservation reservation = stock.reserve(Product.CANDY);
+            if (i % 2 == 0) {
+                stock.vend(paidDoor(), reservation);
+            } else {
+                stock.release(reservation);
+            }
+            assertEquals(1, stock.outstanding());
+        }
+        stock.reserve(Product.CANDY);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2L));
+        stock.reserve(Product.CANDY);
+        assertEquals(1, stock.outstanding());
+    }
+
+    /**
+     * Test that a vend consumes the reservation and the door sees the
+     * shared stock.
+     */
+    @Test
+    public final void whenVendedReservationIsConsumed() {
+        Reservation reservation = stock.reserve(Product.CANDY);
+        Machine vended = stock.vend(paidDoor(), reservation);
+        assertEquals(Message.THANK_YOU.getText(), vended.getDisplay());
+        assertEquals(0L, vended.getCustomerBank().calculateBalance());
+        assertEquals(1, vended.getInventory().quantity(Product.CANDY));
+        assertEquals(1, vended.getInventory().quantity(Product.COLA));
+        assertFalse(reservation.isHeld());
+        assertFalse(stock.release(reservation));
+        assertEquals(Message.SOLD_OUT.getText(),
+                stock.vend(paidDoor(), reservation).getDisplay());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2L));
+        assertEquals(0, stock.expire());
+        assertEquals(1, stock.available(Product.CANDY));
+    }
+
+    /**
+     * Test that a vend short of money leaves the reservation held.
+     */
+    @Test
+    public final void whenVendShortOfMoneyReservationStaysHeld() {
+        Reservation reservation = stock.reserve(Product.COLA);
+        Machine door = new Machine.Builder().build();
+        Machine tried = stock.vend(door, reservation);
+        assertTrue(tried.getDisplay().startsWith(Message.PRICE.getText()));
+        assertTrue(reservation.isHeld());
+        Machine paid = new Machine.Builder(tried)
+                .customerBank(paidDoor().getCustomerBank())
+                .build();
+        assertEquals(Message.THANK_YOU.getText(),
+                stock.vend(paidDoor(), reservation).getDisplay());
+        assertEquals(Message.SOLD_OUT.getText(),
+                stock.vend(paid, null).getDisplay());
+    }
+
+    /**
+     * Test that a vend that throws leaves the reservation held.
+     */
+    @Test
+    public final void whenVendThrowsReservationStaysHeld() {
+        Reservation reservation = stock.reserve(Product.COLA);
+        try {
+            stock.vend(null, reservation);
+            throw new AssertionError("vended without a door");
+        } catch (NullPointerException expected) {
+            assertTrue(reservation.isHeld());
+        }
+        assertEquals(Message.THANK_YOU.getText(),
+                stock.vend(paidDoor(), reservation).getDisplay());
+    }
+
+    /**
+     * Test that concurrent doors never sell more than the stock.
+     *
+     * @throws Exception if a door fails
+     */
+    @Test
+    public final void whenDoorsBuyConcurrentlyNothingIsOversold()
+            throws Exception {
+        final int units = 1000;
+        final ProductStock shared = new ProductStock.Builder()
+                .inventory(new Inventory<>(Product.values())
+                        .add(Product.CHIPS, units))
+                .build();
+        final int doors = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(doors);
+        List<Future<Integer>> sold = new ArrayList<>();
+        try {
+            for (int d = 0; d < doors; d++) {
+                sold.add(pool.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < units; i++) {
+                        Reservation r = shared.reserve(Product.CHIPS);
+                        if (r == null) {
+                            continue;
+                        }
+                        if (i % 3 == 0) {
+                            assertTrue(shared.release(r));
+                            continue;
+                        }
+                        Machine vended = shared.vend(paidDoor(), r);
+                        if (Message.THANK_YOU.getText()
+                                .equals(vended.getDisplay())) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : sold) {
+                total += future.get();
+            }
+            assertEquals(units, total + shared.available(Product.CHIPS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the shared product stock.
+ */
+package kata.vending.stock;
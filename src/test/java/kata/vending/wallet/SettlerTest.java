@@ -0,0 +1,184 @@
+package kata.vending.wallet;
+
+import kata.vending.Inventory;
+import kata.vending.Machine;
+import kata.vending.Message;
+import kata.vending.Product;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the Settler class.
+ */
+public class SettlerTest {
+    /**
+     * The ledger.
+     */
+    private WalletLedger ledger;
+
+    /**
+     * The settler under test.
+     */
+    private Settler settler;
+
+    /**
+     * Open an account and build a settler that isn't started.
+     */
+    @Before
+    public final void setUpLedger() {
+        ledger = new WalletLedger();
+        ledger.open(1L, 150L);
+        settler = new Settler.Builder().ledger(ledger).batchSize(4).build();
+    }
+
+    /**
+     * Close the settler.
+     */
+    @After
+    public final void closeSettler() {
+        settler.close();
+    }
+
+    /**
+     * Test that a machine vends on a wallet and the debit settles later.
+     */
+    @Test
+    public final void whenVendPaidByWalletDebitSettlesLater() {
+        Inventory<Product> inventory =
+                new Inventory<>(Product.values()).add(Product.COLA);
+        Machine machine = new Machine.Builder().inventory(inventory).build();
+        Machine vended = machine.vend(Product.COLA, settler.tender(1L, 1L));
+        assertEquals(Message.THANK_YOU.getText(), vended.getDisplay());
+        assertEquals(0, vended.getInventory().quantity(Product.COLA));
+        assertEquals(150L, ledger.balance(1L));
+        assertEquals(50L, settler.available(1L));
+        assertEquals(1, settler.getPending());
+        assertEquals(1, settler.settle());
+        assertEquals(50L, ledger.balance(1L));
+        assertEquals(50L, settler.available(1L));
+        assertEquals(0, settler.getPending());
+    }
+
+    /**
+     * Test that holds stop an account being spent twice before settling.
+     */
+    @Test
+    public final void whenHeldAccountCantBeOverspent() {
+        assertTrue(settler.authorize(1L, 1L, 100L));
+        assertFalse(settler.authorize(1L, 2L, 65L));
+        assertTrue(settler.authorize(1L, 3L, 50L));
+        assertEquals(0L, settler.available(1L));
+        assertFalse(settler.authorize(2L, 4L, 1L));
+        assertEquals(WalletLedger.NO_BALANCE, settler.available(2L));
+        settler.settle();
+        assertEquals(0L, ledger.balance(1L));
+        assertTrue(settler.getDeclined().isEmpty());
+    }
+
+    /**
+     * Test that a transaction id is only ever charged once.
+     */
+    @Test
+    public final void whenTransactionRepeatedItIsDeclined() {
+        assertTrue(settler.authorize(1L, 1L, 10L));
+        assertFalse(settler.authorize(1L, 1L, 10L));
+        settler.settle();
+        assertFalse(settler.authorize(1L, 1L, 10L));
+        assertEquals(140L, ledger.balance(1L));
+    }
+
+    /**
+     * Test that a transaction id queued for one account doesn't stop the
+     * same id being charged to another.
+     */
+    @Test
+    public final void whenTransactionReusedOnOtherAccountItIsCharged() {
+        ledger.open(2L, 20L);
+        assertTrue(settler.authorize(1L, 1L, 10L));
+        assertTrue(settler.authorize(2L, 1L, 10L));
+        assertFalse(settler.authorize(2L, 1L, 10L));
+        assertEquals(10L, settler.available(2L));
+        settler.settle();
+        assertEquals(140L, ledger.balance(1L));
+        assertEquals(10L, ledger.balance(2L));
+        assertTrue(settler.getDeclined().isEmpty());
+    }
+
+    /**
+     * Test that a debit too old for the ledger's window is declined.
+     */
+    @Test
+    public final void whenTransactionStaleItIsDeclined() {
+        assertTrue(settler.authorize(1L, 1000L, 10L));
+        assertTrue(settler.authorize(1L, 1L, 10L));
+        settler.settle();
+        assertEquals(140L, ledger.balance(1L));
+        assertEquals(1, settler.getDeclined().size());
+        assertFalse(settler.authorize(1L, 2L, 10L));
+        assertEquals(140L, settler.available(1L));
+    }
+
+    /**
+     * Test that debits are posted in batches of at most the batch size.
+     */
+    @Test
+    public final void whenManyQueuedTheyPostInBatches() {
+        for (long tx = 0; tx < 10; tx++) {
+            assertTrue(settler.authorize(1L, tx, 1L));
+        }
+        assertEquals(4, settler.settle());
+        assertEquals(4, settler.settle());
+        assertEquals(2, settler.settle());
+        assertEquals(0, settler.settle());
+        assertEquals(140L, ledger.balance(1L));
+    }
+
+    /**
+     * Test that a debit the ledger can no longer cover is kept as declined.
+     */
+    @Test
+    public final void whenLedgerSpentElsewhereDebitIsDeclined() {
+        assertTrue(settler.authorize(1L, 1L, 100L));
+        assertEquals(Posting.APPLIED, ledger.debit(1L, 2L, 100L));
+        settler.settle();
+        List<Debit> declined = settler.getDeclined();
+        assertEquals(1, declined.size());
+        assertEquals(1L, declined.get(0).getTransaction());
+        assertEquals(50L, ledger.balance(1L));
+        assertEquals(50L, settler.available(1L));
+    }
+
+    /**
+     * Test that the background thread settles, and closing settles the rest
+     * and declines new authorizations.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public final void whenStartedDebitsSettleInBackground()
+            throws InterruptedException {
+        Settler background = new Settler.Builder()
+                .ledger(ledger)
+                .intervalMillis(1L)
+                .build();
+        background.start();
+        assertTrue(background.authorize(1L, 1L, 50L));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (ledger.balance(1L) != 100L && System.nanoTime() < deadline) {
+            Thread.sleep(1L);
+        }
+        assertEquals(100L, ledger.balance(1L));
+        assertTrue(background.authorize(1L, 2L, 50L));
+        background.close();
+        assertEquals(50L, ledger.balance(1L));
+        assertFalse(background.authorize(1L, 3L, 50L));
+    }
+}
@@ -0,0 +1,220 @@
+package kata.vending.wallet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the WalletLedger class.
+ */
+public class WalletLedgerTest {
+    /**
+     * Test that an account opens once with its balance.
+     */
+    @Test
+    public final void whenAccountOpenedBalanceIsKept() {
+        WalletLedger ledger = new WalletLedger();
+        assertEquals(WalletLedger.NO_BALANCE, ledger.balance(7L));
+        assertTrue(ledger.open(7L, 500L));
+        assertFalse(ledger.open(7L, 900L));
+        assertEquals(500L, ledger.balance(7L));
+        assertEquals(1L, ledger.size());
+    }
+
+    /**
+     * Test that posting the same transaction twice changes the balance once.
+     */
+    @Test
+    public final void whenTransactionRepeatedItIsDuplicate() {
+        WalletLedger ledger = new WalletLedger();
+        ledger.open(1L, 200L);
+        assertEquals(Posting.APPLIED, ledger.debit(1L, 10L, 65L));
+        assertEquals(Posting.DUPLICATE, ledger.debit(1L, 10L, 65L));
+        assertEquals(135L, ledger.balance(1L));
+        assertTrue(ledger.isApplied(1L, 10L));
+        assertFalse(ledger.isApplied(2L, 10L));
+        assertEquals(Posting.APPLIED, ledger.credit(1L, 11L, 15L));
+        assertEquals(Posting.DUPLICATE, ledger.credit(1L, 11L, 15L));
+        assertEquals(150L, ledger.balance(1L));
+    }
+
+    /**
+     * Test that a debit the balance can't cover, or to an unknown account,
+     * changes nothing and can be retried.
+     */
+    @Test
+    public final void whenDebitNotCoveredNothingChanges() {
+        WalletLedger ledger = new WalletLedger();
+        ledger.open(1L, 50L);
+        assertEquals(Posting.INSUFFICIENT_FUNDS, ledger.debit(1L, 1L, 65L));
+        assertEquals(Posting.NO_ACCOUNT, ledger.debit(2L, 1L, 65L));
+        assertFalse(ledger.isApplied(1L, 1L));
+        ledger.credit(1L, 2L, 15L);
+        assertEquals(Posting.APPLIED, ledger.debit(1L, 1L, 65L));
+        assertEquals(0L, ledger.balance(1L));
+    }
+
+    /**
+     * Test that bad arguments are refused.
+     */
+    @Test
+    public final void whenArgumentsBadTheyAreRefused() {
+        WalletLedger ledger = new WalletLedger(4);
+        for (Runnable bad : Arrays.<Runnable>asList(
+                () -> new WalletLedger(3),
+                () -> ledger.open(Long.MIN_VALUE, 0L),
+                () -> ledger.open(1L, -1L),
+                () -> ledger.debit(1L, 1L, -1L))) {
+            try {
+                bad.run();
+                throw new AssertionError("accepted");
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().length() > 0);
+            }
+        }
+    }
+
+    /**
+     * Test that a batch of debits posts each one as a single debit would.
+     */
+    @Test
+    public final void whenBatchPostedEachDebitIsPosted() {
+        WalletLedger ledger = new WalletLedger(4);
+        for (long account = 0; account < 20; account++) {
+            ledger.open(account, 100L);
+        }
+        List<Debit> batch = new ArrayList<>();
+        for (long account = 0; account < 20; account++) {
+            batch.add(new Debit(account, 1L, 60L));
+        }
+        batch.add(new Debit(3L, 1L, 60L));
+        batch.add(new Debit(3L, 2L, 60L));
+        batch.add(new Debit(99L, 1L, 60L));
+        Posting[] postings = ledger.debit(batch);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Posting.APPLIED, postings[i]);
+            assertEquals(40L, ledger.balance(i));
+        }
+        assertArrayEquals(new Posting[] {Posting.DUPLICATE,
+                Posting.INSUFFICIENT_FUNDS, Posting.NO_ACCOUNT},
+                Arrays.copyOfRange(postings, 20, 23));
+    }
+
+    /**
+     * Test that the tables grow to hold many accounts and transactions.
+     */
+    @Test
+    public final void whenManyAccountsAllAreKept() {
+        WalletLedger ledger = new WalletLedger();
+        int accounts = 200000;
+        for (long account = 0; account < accounts; account++) {
+            assertTrue(ledger.open(account * 7919L, account));
+        }
+        assertEquals(accounts, ledger.size());
+        for (long account = 1; account < accounts; account++) {
+            assertEquals(Posting.APPLIED,
+                    ledger.debit(account * 7919L, account, 1L));
+        }
+        for (long account = 0; account < accounts; account++) {
+            assertEquals(Math.max(0L, account - 1L),
+                    ledger.balance(account * 7919L));
+        }
+        assertEquals(WalletLedger.NO_BALANCE, ledger.balance(1L));
+    }
+
+    /**
+     * Test that an id within the window below the newest still posts once,
+     * and one further below is refused as stale.
+     */
+    @Test
+    public final void whenTransactionFarBelowNewestItIsStale() {
+        WalletLedger ledger = new WalletLedger();
+        ledger.open(1L, 1000L);
+        assertEquals(Posting.APPLIED, ledger.debit(1L, 100L, 1L));
+        long oldest = 100L - WalletLedger.WINDOW + 1L;
+        assertFalse(ledger.isApplied(1L, oldest));
+        assertEquals(Posting.APPLIED, ledger.debit(1L, oldest, 1L));
+        assertEquals(Posting.STALE, ledger.debit(1L, oldest - 1L, 1L));
+        assertTrue(ledger.isApplied(1L, oldest - 1L));
+        assertEquals(Posting.APPLIED, ledger.debit(1L, 101L, 1L));
+        assertEquals(Posting.DUPLICATE, ledger.debit(1L, 100L, 1L));
+        assertEquals(Posting.STALE, ledger.debit(1L, oldest, 1L));
+        assertEquals(Posting.APPLIED, ledger.credit(1L, 1000L, 3L));
+        assertEquals(Posting.STALE, ledger.debit(1L, 101L, 1L));
+        assertEquals(1000L, ledger.balance(1L));
+    }
+
+    /**
+     * Test that a transaction id used on one account can be used on
+     * another.
+     */
+    @Test
+    public final void whenTransactionReusedOnOtherAccountItIsApplied() {
+        WalletLedger ledger = new WalletLedger(1);
+        ledger.open(1L, 10L);
+        ledger.open(2L, 10L);
+        assertEquals(Posting.APPLIED, ledger.debit(1L, 5L, 1L));
+        assertEquals(Posting.APPLIED, ledger.debit(2L, 5L, 1L));
+        assertEquals(9L, ledger.balance(1L));
+        assertEquals(9L, ledger.balance(2L));
+    }
+
+    /**
+     * Test that concurrent debits and reads keep every balance consistent.
+     * Every thread posts the same rising transaction ids, so each id is
+     * applied once by whichever thread gets there first.
+     *
+     * @throws Exception if a worker fails
+     */
+    @Test
+    public final void whenDebitedConcurrentlyBalancesAddUp() throws Exception {
+        final WalletLedger ledger = new WalletLedger(8);
+        final int accounts = 1000;
+        final int threads = 4;
+        final int rounds = WalletLedger.WINDOW * 3;
+        for (long account = 0; account < accounts; account++) {
+            ledger.open(account, rounds);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int r = 0; r < rounds; r++) {
+                        for (long account = 0; account < accounts; account++) {
+                            ledger.debit(account, r, 1L);
+                            ledger.debit(account, r, 1L);
+                        }
+                    }
+                }));
+            }
+            futures.add(pool.submit(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    for (long account = 0; account < accounts; account++) {
+                        long balance = ledger.balance(account);
+                        assertTrue(balance >= 0L);
+                        assertTrue(balance <= rounds);
+                    }
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (long account = 0; account < accounts; account++) {
+            assertEquals(0L, ledger.balance(account));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Unit tests for the cashless wallets.
+ */
+package kata.vending.wallet;